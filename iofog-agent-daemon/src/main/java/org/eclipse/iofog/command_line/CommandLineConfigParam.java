@@ -59,7 +59,24 @@ public enum CommandLineConfigParam {
     AVAILABLE_DISK_THRESHOLD ("20", "dt", "available_disk_threshold", "availableDiskThreshold"),
     READY_TO_UPGRADE_SCAN_FREQUENCY ("24", "uf", "upgrade_scan_frequency", "readyToUpgradeScanFrequency"),
     DEV_MODE ("off", "dev", "dev_mode", ""),
-    TIME_ZONE("", "tz", "time_zone", "timeZone");
+    TIME_ZONE("", "tz", "time_zone", "timeZone"),
+    MESSAGE_BUS_BINARY_MODE ("off", "mb", "message_bus_binary_mode", ""),
+    ARCHIVE_SEGMENT_SIZE ("1", "as", "archive_segment_size", ""),
+    ARCHIVE_FSYNC_POLICY ("none", "af", "archive_fsync_policy", ""),
+    ARCHIVE_COMPRESSION ("on", "az", "archive_compression", ""),
+    ARCHIVE_MAX_AGE ("0", "aa", "archive_max_age", ""),
+    ARCHIVE_PUBLISHER_QUOTA ("0", "aq", "archive_publisher_quota", ""),
+    PUBLISH_QUEUE_CAPACITY ("1024", "pq", "publish_queue_capacity", ""),
+    PUBLISH_SEND_WINDOW ("0", "sw", "publish_send_window", ""),
+    RECEIVE_PREFETCH ("1000", "rp", "receive_prefetch", ""),
+    LOCAL_DELIVERY ("off", "lo", "local_delivery", ""),
+    OUTBOX_SIZE ("64", "os", "outbox_size", ""),
+    OUTBOX_MAX_AGE ("24", "oa", "outbox_max_age", ""),
+    OUTBOX_REPLAY_RATE ("1000", "or", "outbox_replay_rate", ""),
+    DEDUP_WINDOW ("0", "dw", "dedup_window", ""),
+    DEDUP_SIZE ("10000", "ds", "dedup_size", ""),
+    PAYLOAD_COMPRESSION ("off", "pc", "payload_compression", ""),
+    PAYLOAD_COMPRESSION_THRESHOLD ("4096", "pt", "payload_compression_threshold", "");
 
     private final String commandName;
     private final String xmlTag;
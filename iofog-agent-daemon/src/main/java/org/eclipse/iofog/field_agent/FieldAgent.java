@@ -27,6 +27,7 @@ import org.eclipse.iofog.exception.AgentUserException;
 import org.eclipse.iofog.field_agent.enums.RequestType;
 import org.eclipse.iofog.local_api.LocalApi;
 import org.eclipse.iofog.message_bus.MessageBus;
+import org.eclipse.iofog.message_bus.MessageBusStatus;
 import org.eclipse.iofog.microservice.*;
 import org.eclipse.iofog.network.IOFogNetworkInterfaceManager;
 import org.eclipse.iofog.process_manager.ProcessManager;
@@ -123,6 +124,12 @@ public class FieldAgent implements IOFogModule {
      */
     private JsonObject getFogStatus() {
     	logDebug("get Fog Status");
+        MessageBusStatus messageBusStatus = StatusReporter.getMessageBusStatus();
+        String microserviceMessageCounts = messageBusStatus.getJsonPublishedMessagesPerMicroservice();
+        // read after the counts per microservice, so it is never less than their sum
+        long processedMessages = messageBusStatus.getProcessedMessages();
+        String messageLatency = messageBusStatus.getJsonMessageLatency();
+        String routeFanOut = messageBusStatus.getJsonRouteFanOut();
         return Json.createObjectBuilder()
                 .add("daemonStatus", StatusReporter.getSupervisorStatus().getDaemonStatus().toString() == null ?
                         "UNKNOWN" : StatusReporter.getSupervisorStatus().getDaemonStatus().toString())
@@ -149,10 +156,12 @@ public class FieldAgent implements IOFogModule {
                         "UNKNOWN" : IOFogNetworkInterfaceManager.getInstance().getCurrentIpAddress())
                 .add("ipAddressExternal", Configuration.getIpAddressExternal() == null ?
                         "UNKNOWN" : Configuration.getIpAddressExternal())
-                .add("processedMessages", StatusReporter.getMessageBusStatus().getProcessedMessages())
-                .add("microserviceMessageCounts", StatusReporter.getMessageBusStatus().getJsonPublishedMessagesPerMicroservice() == null ?
-                        "UNKNOWN" : StatusReporter.getMessageBusStatus().getJsonPublishedMessagesPerMicroservice())
-                .add("messageSpeed", StatusReporter.getMessageBusStatus().getAverageSpeed())
+                .add("processedMessages", processedMessages)
+                .add("microserviceMessageCounts", microserviceMessageCounts == null ?
+                        "UNKNOWN" : microserviceMessageCounts)
+                .add("messageSpeed", messageBusStatus.getAverageSpeed())
+                .add("messageLatency", messageLatency == null ? "UNKNOWN" : messageLatency)
+                .add("routeFanOut", routeFanOut == null ? "UNKNOWN" : routeFanOut)
                 .add("lastCommandTime", StatusReporter.getFieldAgentStatus().getLastCommandTime())
                 .add("tunnelStatus", StatusReporter.getSshManagerStatus().getJsonProxyStatus() == null ?
                         "UNKNOWN" : StatusReporter.getSshManagerStatus().getJsonProxyStatus())
@@ -75,6 +75,10 @@ public class ApiHandlerHelpers {
     public static FullHttpResponse internalServerErrorResponse(ByteBuf outputBuffer, String content) {
         return createResponse(outputBuffer, content, INTERNAL_SERVER_ERROR);
     }
+
+    public static FullHttpResponse tooManyRequestsResponse(ByteBuf outputBuffer, String content) {
+        return createResponse(outputBuffer, content, TOO_MANY_REQUESTS);
+    }
     
     private static FullHttpResponse createResponse(ByteBuf outputBuffer, String content, HttpResponseStatus status) {
     	if (outputBuffer != null && content != null) {
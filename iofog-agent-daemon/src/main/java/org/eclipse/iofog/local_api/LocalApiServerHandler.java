@@ -158,7 +158,7 @@ public class LocalApiServerHandler extends SimpleChannelInboundHandler<Object> {
 
         if (request.uri().equals("/v2/messages/next")) {
         	LoggingService.logInfo(MODULE_NAME, "Start Processing messages/next request");
-            Callable<FullHttpResponse> callable = new MessageReceiverHandler(request, ctx.alloc().buffer(), content);
+            Callable<FullHttpResponse> callable = new MessageReceiverHandler(request, ctx, content);
             runTask(callable, ctx, request);
             LoggingService.logInfo(MODULE_NAME, "Finished Processing messages/next request");
             return;
@@ -174,12 +174,20 @@ public class LocalApiServerHandler extends SimpleChannelInboundHandler<Object> {
 
         if (request.uri().equals("/v2/messages/query")) {
         	LoggingService.logInfo(MODULE_NAME, "Start Processing messages/query request");
-            Callable<FullHttpResponse> callable = new QueryMessageReceiverHandler(request, ctx.alloc().buffer(), content);
+            Callable<FullHttpResponse> callable = new QueryMessageReceiverHandler(request, ctx, content);
             runTask(callable, ctx, request);
             LoggingService.logInfo(MODULE_NAME, "Finished Processing messages/query request");
             return;
         }
 
+        if (request.uri().equals("/v2/messages/latency")) {
+        	LoggingService.logInfo(MODULE_NAME, "Start Processing messages/latency request");
+            Callable<FullHttpResponse> callable = new MessageLatencyHandler(request, ctx.alloc().buffer(), content);
+            runTask(callable, ctx, request);
+            LoggingService.logInfo(MODULE_NAME, "Finished Processing messages/latency request");
+            return;
+        }
+
         if (request.uri().startsWith("/v2/restblue")) {
         	LoggingService.logInfo(MODULE_NAME, "Start Processing restblue request");
             Callable<FullHttpResponse> callable = new BluetoothApiHandler((FullHttpRequest) request, ctx.alloc().buffer(), content);
@@ -321,6 +329,18 @@ public class LocalApiServerHandler extends SimpleChannelInboundHandler<Object> {
         ctx.flush();
     }
 
+    /**
+     * Method to be called when the channel can take more data again
+     *
+     * @param ctx ChannelHandlerContext
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable() && WebSocketMap.pendingMessageMap.containsKey(ctx))
+            new MessageWebsocketHandler().sendPendingMessages(ctx);
+        super.channelWritabilityChanged(ctx);
+    }
+
     /**
      * Helper for request thread
      *
@@ -332,7 +352,10 @@ public class LocalApiServerHandler extends SimpleChannelInboundHandler<Object> {
         final Future<FullHttpResponse> future = executor.submit(callable);
         future.addListener((GenericFutureListener<Future<Object>>) futureListener -> {
             if (futureListener.isSuccess()) {
-                sendHttpResponse(ctx, req, (FullHttpResponse) futureListener.get());
+                // streaming handlers write the response themselves
+                FullHttpResponse response = (FullHttpResponse) futureListener.get();
+                if (response != null)
+                    sendHttpResponse(ctx, req, response);
             } else {
                 ctx.fireExceptionCaught(futureListener.cause());
                 ctx.close();
@@ -0,0 +1,67 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.local_api;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpRequest;
+
+import org.eclipse.iofog.exception.AgentUserException;
+import org.eclipse.iofog.status_reporter.StatusReporter;
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+import java.util.concurrent.Callable;
+
+import static io.netty.handler.codec.http.HttpMethod.GET;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * returns latency percentiles of messages per publisher and receiver route
+ * from publishing until delivery by /v2/messages/next or message websocket
+ */
+public class MessageLatencyHandler implements Callable<FullHttpResponse> {
+    private static final String MODULE_NAME = "Local API : Message Latency handler";
+
+    private final HttpRequest req;
+    private final ByteBuf outputBuffer;
+    private final byte[] content;
+
+    public MessageLatencyHandler(HttpRequest request, ByteBuf outputBuffer, byte[] content) {
+        this.req = request;
+        this.outputBuffer = outputBuffer;
+        this.content = content;
+    }
+
+    @Override
+    public FullHttpResponse call() throws Exception {
+        LoggingService.logDebug(MODULE_NAME, "Processing message latency http request");
+        if (!ApiHandlerHelpers.validateMethod(this.req, GET)) {
+            LoggingService.logError(MODULE_NAME, "Request method not allowed", new AgentUserException("Request method not allowed"));
+            return ApiHandlerHelpers.methodNotAllowedResponse();
+        }
+
+        if (!ApiHandlerHelpers.validateAccessToken(this.req)) {
+            String errorMsg = "Incorrect access token";
+            outputBuffer.writeBytes(errorMsg.getBytes(UTF_8));
+            LoggingService.logError(MODULE_NAME, errorMsg, new AgentUserException(errorMsg));
+            return ApiHandlerHelpers.unauthorizedResponse(outputBuffer, errorMsg);
+        }
+
+        String jsonResult = StatusReporter.getMessageBusStatus().getJsonMessageLatency();
+        FullHttpResponse res = ApiHandlerHelpers.successResponse(outputBuffer, jsonResult);
+        res.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json");
+        LoggingService.logDebug(MODULE_NAME, "Finished processing message latency http request");
+        return res;
+    }
+}
@@ -13,6 +13,7 @@
 package org.eclipse.iofog.local_api;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.*;
 
 import org.eclipse.iofog.exception.AgentUserException;
@@ -32,6 +33,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * Handler to deliver the messages to the receiver, if found any.
+ * Request with a wait time is parked in {@link MessageWaitQueue} while no message is found.
  * 
  * @author ashita
  * @since 2016
@@ -39,14 +41,16 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 public class MessageReceiverHandler implements Callable<FullHttpResponse> {
 
 	private static final String MODULE_NAME = "Local API : MessageReceiverHandler";
+	static final int MAX_MESSAGES = 1000;
+	static final long MAX_WAIT_MILLIS = 30000;
 
 	private final HttpRequest req;
-	private final ByteBuf outputBuffer;
+	private final ChannelHandlerContext ctx;
 	private final byte[] content;
 
-	public MessageReceiverHandler(HttpRequest req, ByteBuf outputBuffer, byte[] content) {
+	public MessageReceiverHandler(HttpRequest req, ChannelHandlerContext ctx, byte[] content) {
 		this.req = req;
-		this.outputBuffer = outputBuffer;
+		this.ctx = ctx;
 		this.content = content;
 	}
 
@@ -54,7 +58,7 @@ public class MessageReceiverHandler implements Callable<FullHttpResponse> {
 	 * Handler method to deliver the messages to the receiver. Get the messages
 	 * from message bus
 	 *
-	 * @return Object
+	 * @return Object, null if the request waits for messages
 	 */
 	private FullHttpResponse handleMessageRecievedRequest() {
 		LoggingService.logDebug(MODULE_NAME, "Start Handler method to deliver the messages to the receiver.");
@@ -66,7 +70,7 @@ public class MessageReceiverHandler implements Callable<FullHttpResponse> {
 		final String contentTypeError = ApiHandlerHelpers.validateContentType(this.req, "application/json");
 		if (contentTypeError != null) {
 			LoggingService.logError(MODULE_NAME, contentTypeError, new AgentUserException(contentTypeError));
-			return ApiHandlerHelpers.badRequestResponse(outputBuffer, contentTypeError);
+			return ApiHandlerHelpers.badRequestResponse(ctx.alloc().buffer(), contentTypeError);
 		}
 
 		String requestBody = new String(content, UTF_8);
@@ -78,18 +82,37 @@ public class MessageReceiverHandler implements Callable<FullHttpResponse> {
 		} catch (Exception e) {
 			String errorMsg = "Incorrect content/data" + e.getMessage();
 			LoggingService.logError(MODULE_NAME, errorMsg, new AgentUserException(errorMsg, e));
-			return ApiHandlerHelpers.badRequestResponse(outputBuffer, errorMsg);
+			return ApiHandlerHelpers.badRequestResponse(ctx.alloc().buffer(), errorMsg);
 		}
 
 		String receiverId = jsonObject.getString("id");
+		int max = jsonObject.containsKey("max") ? jsonObject.getInt("max") : MAX_MESSAGES;
+		long wait = jsonObject.containsKey("wait") ? jsonObject.getJsonNumber("wait").longValue() : 0;
 
+		MessageBusUtil bus = new MessageBusUtil();
+		List<Message> messageList = bus.getMessages(receiverId, max);
+		if (messageList.isEmpty() && wait > 0) {
+			MessageWaitQueue.getInstance().park(ctx, req, receiverId, max, wait);
+			LoggingService.logDebug(MODULE_NAME, "Request of " + receiverId + " waits for messages");
+			return null;
+		}
+
+		LoggingService.logDebug(MODULE_NAME, "Finished Handler method to deliver the messages to the receiver.");
+		return messagesResponse(ctx.alloc().buffer(), messageList);
+	}
+
+	/**
+	 * Response with the messages delivered to the receiver
+	 *
+	 * @param outputBuffer
+	 * @param messageList
+	 * @return FullHttpResponse
+	 */
+	static FullHttpResponse messagesResponse(ByteBuf outputBuffer, List<Message> messageList) {
 		JsonBuilderFactory factory = Json.createBuilderFactory(null);
 		JsonObjectBuilder builder = factory.createObjectBuilder();
 		JsonArrayBuilder messagesArray = factory.createArrayBuilder();
 
-		MessageBusUtil bus = new MessageBusUtil();
-		List<Message> messageList = bus.getMessages(receiverId);
-
 		for (Message msg : messageList) {
 			JsonObject msgJson = msg.toJson();
 			messagesArray.add(msgJson);
@@ -99,7 +122,6 @@ public class MessageReceiverHandler implements Callable<FullHttpResponse> {
 		builder.add("messages", messagesArray);
 
 		String result = builder.build().toString();
-		LoggingService.logDebug(MODULE_NAME, "Finished Handler method to deliver the messages to the receiver.");
 		return ApiHandlerHelpers.successResponse(outputBuffer, result);
 	}
 
@@ -115,6 +137,19 @@ public class MessageReceiverHandler implements Callable<FullHttpResponse> {
 				jsonObject.isNull("id") ||
 				jsonObject.getString("id").trim().equals(""))
 			throw new AgentUserException(" Id value not found ");
+
+		if (jsonObject.containsKey("max") && !isNumberInRange(jsonObject.get("max"), 1, MAX_MESSAGES))
+			throw new AgentUserException(" max must be 1 to " + MAX_MESSAGES + " ");
+
+		if (jsonObject.containsKey("wait") && !isNumberInRange(jsonObject.get("wait"), 0, MAX_WAIT_MILLIS))
+			throw new AgentUserException(" wait must be 0 to " + MAX_WAIT_MILLIS + " milliseconds ");
+	}
+
+	private static boolean isNumberInRange(JsonValue value, long min, long max) {
+		if (value.getValueType() != JsonValue.ValueType.NUMBER || !((JsonNumber) value).isIntegral())
+			return false;
+		long number = ((JsonNumber) value).longValue();
+		return number >= min && number <= max;
 	}
 
 	/**
@@ -18,11 +18,21 @@ import io.netty.handler.codec.http.*;
 import org.eclipse.iofog.exception.AgentUserException;
 import org.eclipse.iofog.message_bus.Message;
 import org.eclipse.iofog.message_bus.MessageBusUtil;
+import org.eclipse.iofog.message_bus.MessageCodec;
+import org.eclipse.iofog.message_bus.MessageView;
 import org.eclipse.iofog.utils.logging.LoggingService;
 
 import javax.json.*;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
 
 import static io.netty.handler.codec.http.HttpMethod.POST;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
@@ -37,6 +47,10 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  */
 public class MessageSenderHandler implements Callable<FullHttpResponse> {
 	private static final String MODULE_NAME = "Local API : MessageSenderHandler";
+	private static final Pattern NUMBER = Pattern.compile("[0-9]+");
+	private static final Pattern DECIMAL = Pattern.compile("[0-9]*.?[0-9]*");
+	private static final String BUSY_ERROR = "Message bus is busy, retry later";
+	private static final String PUBLISH_ERROR = "Unable to publish message, publisher is not available";
 
 	private final HttpRequest req;
 	private final ByteBuf outputBuffer;
@@ -60,6 +74,9 @@ public class MessageSenderHandler implements Callable<FullHttpResponse> {
 			return ApiHandlerHelpers.methodNotAllowedResponse();
 		}
 
+		if (ApiHandlerHelpers.validateContentType(this.req, "application/octet-stream") == null)
+			return handleBinaryBatch();
+
 		final String contentTypeError = ApiHandlerHelpers.validateContentType(this.req, "application/json");
 		if (contentTypeError != null) {
 			LoggingService.logError(MODULE_NAME, contentTypeError, new AgentUserException(contentTypeError));
@@ -68,6 +85,8 @@ public class MessageSenderHandler implements Callable<FullHttpResponse> {
 
 		String msgString = new String(content, UTF_8);
 		JsonReader reader = Json.createReader(new StringReader(msgString));
+		if (msgString.trim().startsWith("["))
+			return handleJsonBatch(reader.readArray());
 		JsonObject jsonObject = reader.readObject();
 
 		try {
@@ -82,12 +101,17 @@ public class MessageSenderHandler implements Callable<FullHttpResponse> {
 		Message message;
 		try {
 			message = new Message(jsonObject);
+			// fields must fit their lengths in the ioMessage header
+			MessageCodec.encodedLength(message);
 		} catch (Exception e) {
 			String errorMsg = " Message Parsing Error, " + e.getMessage();
 			LoggingService.logError(MODULE_NAME, errorMsg, e);
 			return ApiHandlerHelpers.badRequestResponse(outputBuffer, errorMsg);
 		}
-		bus.publishMessage(message);
+		if (!bus.publishMessage(message)) {
+			LoggingService.logWarning(MODULE_NAME, BUSY_ERROR);
+			return ApiHandlerHelpers.tooManyRequestsResponse(outputBuffer, BUSY_ERROR);
+		}
 
 		JsonBuilderFactory factory = Json.createBuilderFactory(null);
 		JsonObjectBuilder builder = factory.createObjectBuilder();
@@ -100,6 +124,114 @@ public class MessageSenderHandler implements Callable<FullHttpResponse> {
 		return ApiHandlerHelpers.successResponse(outputBuffer, sendMessageResult);
 	}
 
+	/**
+	 * Publishes a JSON array of messages as one batch, invalid messages are not published
+	 * and get an error receipt
+	 *
+	 * @param array - JSON array of messages
+	 * @return receipts of the messages in the order of the array
+	 */
+	private FullHttpResponse handleJsonBatch(JsonArray array) {
+		LoggingService.logDebug(MODULE_NAME, "Publish batch of " + array.size() + " messages");
+		List<Message> messages = new ArrayList<>(array.size());
+		String[] errors = new String[array.size()];
+		for (int i = 0; i < array.size(); i++) {
+			try {
+				JsonObject jsonObject = array.getJsonObject(i);
+				validateMessage(jsonObject);
+				Message message = new Message(jsonObject);
+				MessageCodec.encodedLength(message);
+				messages.add(message);
+			} catch (Exception e) {
+				errors[i] = "Validation Error, " + e.getMessage();
+				LoggingService.logError(MODULE_NAME, errors[i], new AgentUserException(errors[i], e));
+			}
+		}
+		return publishBatch(messages, errors);
+	}
+
+	/**
+	 * Publishes a stream of binary ioMessages as one batch
+	 * the stream cannot be read after a malformed message, so remaining bytes are rejected
+	 *
+	 * @return receipts of the messages in the order of the stream
+	 */
+	private FullHttpResponse handleBinaryBatch() {
+		LoggingService.logDebug(MODULE_NAME, "Publish batch of binary messages");
+		List<Message> messages = new ArrayList<>();
+		ByteBuffer buffer = ByteBuffer.wrap(content);
+		MessageView view = new MessageView();
+		try {
+			while (buffer.hasRemaining()) {
+				view.wrap(buffer);
+				if (!view.isSupportedVersion())
+					throw new AgentUserException("Error: Unsupported ioMessage version");
+				messages.add(view.toMessage());
+				buffer.position(buffer.position() + view.getLength());
+			}
+		} catch (Exception e) {
+			String errorMsg = " Message Parsing Error at byte " + buffer.position() + ", " + e.getMessage();
+			LoggingService.logError(MODULE_NAME, errorMsg, new AgentUserException(errorMsg, e));
+			return ApiHandlerHelpers.badRequestResponse(outputBuffer, errorMsg);
+		}
+		return publishBatch(messages, new String[messages.size()]);
+	}
+
+	/**
+	 * Publishes messages and builds their receipts, messages rejected by a full send queue or not published
+	 * by their publisher get an error receipt
+	 * the request is rejected with 429 when every message is rejected by a full send queue
+	 *
+	 * @param messages - valid messages
+	 * @param errors - validation errors of the request, null for the valid messages
+	 * @return receipts of the messages in the order of the request
+	 */
+	private FullHttpResponse publishBatch(List<Message> messages, String[] errors) {
+		MessageBusUtil bus = new MessageBusUtil();
+		Set<Message> rejected = Collections.newSetFromMap(new IdentityHashMap<>());
+		Set<Message> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+		if (!messages.isEmpty()) {
+			List<Message> notPublished = new ArrayList<>();
+			rejected.addAll(bus.publishBatch(messages, notPublished));
+			failed.addAll(notPublished);
+		}
+		if (!messages.isEmpty() && rejected.size() == messages.size()) {
+			LoggingService.logWarning(MODULE_NAME, BUSY_ERROR);
+			return ApiHandlerHelpers.tooManyRequestsResponse(outputBuffer, BUSY_ERROR);
+		}
+
+		JsonBuilderFactory factory = Json.createBuilderFactory(null);
+		JsonArrayBuilder receipts = factory.createArrayBuilder();
+		Iterator<Message> published = messages.iterator();
+		for (String error : errors) {
+			if (error != null) {
+				receipts.add(factory.createObjectBuilder()
+						.add("status", "error")
+						.add("error", error));
+				continue;
+			}
+			Message message = published.next();
+			if (rejected.contains(message) || failed.contains(message)) {
+				receipts.add(factory.createObjectBuilder()
+						.add("status", "error")
+						.add("error", failed.contains(message) ? PUBLISH_ERROR : BUSY_ERROR));
+			} else {
+				receipts.add(factory.createObjectBuilder()
+						.add("status", "okay")
+						.add("timestamp", message.getTimestamp())
+						.add("id", message.getId()));
+			}
+		}
+		JsonObjectBuilder builder = factory.createObjectBuilder();
+		builder.add("status", "okay");
+		builder.add("count", messages.size() - rejected.size() - failed.size());
+		builder.add("messages", receipts);
+
+		String sendMessageResult = builder.build().toString();
+		LoggingService.logDebug(MODULE_NAME, "Finished publish batch of messages");
+		return ApiHandlerHelpers.successResponse(outputBuffer, sendMessageResult);
+	}
+
 	/**
 	 * Validate the request and the message to be publish
 	 * 
@@ -127,41 +259,41 @@ public class MessageSenderHandler implements Callable<FullHttpResponse> {
 			throw new AgentUserException("Error: Missing input field value infoformat ");
 
 		String version = message.get("version").toString();
-		if (!(version.matches("[0-9]+"))) {
+		if (!NUMBER.matcher(version).matches()) {
 			throw new AgentUserException("Error: Invalid  value for version");
 		}
 
 		if (message.containsKey("sequencenumber")) {
 			String sNum = message.get("sequencenumber").toString();
-			if (!(sNum.matches("[0-9]+"))) {
+			if (!NUMBER.matcher(sNum).matches()) {
 				throw new AgentUserException("Error: Invalid  value for field sequence number ");
 			}
 		}
 
 		if (message.containsKey("sequencetotal")) {
 			String stot = message.get("sequencetotal").toString();
-			if (!(stot.matches("[0-9]+"))) {
+			if (!NUMBER.matcher(stot).matches()) {
 				throw new AgentUserException("Error: Invalid  value for field sequence total ");
 			}
 		}
 
 		if (message.containsKey("priority")) {
 			String priority = message.get("priority").toString();
-			if (!(priority.matches("[0-9]+"))) {
+			if (!NUMBER.matcher(priority).matches()) {
 				throw new AgentUserException("Error: Invalid  value for field priority ");
 			}
 		}
 
 		if (message.containsKey("chainposition")) {
 			String chainPos = message.get("chainposition").toString();
-			if (!(chainPos.matches("[0-9]+"))) {
+			if (!NUMBER.matcher(chainPos).matches()) {
 				throw new AgentUserException("Error: Invalid  value for field chain position ");
 			}
 		}
 
 		if (message.containsKey("difficultytarget")) {
 			String difftarget = message.get("difficultytarget").toString();
-			if (!(difftarget.matches("[0-9]*.?[0-9]*"))) {
+			if (!DECIMAL.matcher(difftarget).matches()) {
 				throw new AgentUserException("Error: Invalid  value for field difficulty target ");
 			}
 		}
@@ -0,0 +1,212 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.local_api;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpUtil;
+
+import org.eclipse.iofog.exception.AgentSystemException;
+import org.eclipse.iofog.message_bus.Message;
+import org.eclipse.iofog.message_bus.MessageBusUtil;
+import org.eclipse.iofog.utils.Constants;
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * /v2/messages/next requests waiting for messages to arrive
+ * the receiver of waiting requests signals when a message is enqueued for it, the requests are answered on one thread,
+ * which also answers requests whose wait time is over, so a waiting request does not hold a request executor thread
+ * waiting requests are only touched by that thread
+ */
+final class MessageWaitQueue {
+	private static final String MODULE_NAME = "Local API : MessageWaitQueue";
+
+	private static final MessageWaitQueue instance = new MessageWaitQueue(null);
+
+	// waiting requests per receiver, in the order they were parked
+	private final Map<String, Queue<Waiting>> waiting = new HashMap<>();
+	private final AtomicInteger size = new AtomicInteger();
+	private ScheduledExecutorService executor;
+
+	private static final class Waiting {
+		private final ChannelHandlerContext ctx;
+		private final HttpRequest req;
+		private final String receiverId;
+		private final int max;
+		private volatile ScheduledFuture<?> deadline;
+
+		private Waiting(ChannelHandlerContext ctx, HttpRequest req, String receiverId, int max) {
+			this.ctx = ctx;
+			this.req = req;
+			this.receiverId = receiverId;
+			this.max = max;
+		}
+	}
+
+	/**
+	 * @param executor - executor waiting requests are answered on, null to start one on the first parked request
+	 */
+	MessageWaitQueue(ScheduledExecutorService executor) {
+		this.executor = executor;
+	}
+
+	static MessageWaitQueue getInstance() {
+		return instance;
+	}
+
+	/**
+	 * parks request until messages for the receiver arrive or the wait time is over
+	 *
+	 * @param ctx - channel of the request
+	 * @param req - request
+	 * @param receiverId - ID of receiver microservice
+	 * @param max - maximum number of messages in the response
+	 * @param waitMillis - time to wait for messages
+	 */
+	void park(ChannelHandlerContext ctx, HttpRequest req, String receiverId, int max, long waitMillis) {
+		Waiting request = new Waiting(ctx, req, receiverId, max);
+		size.incrementAndGet();
+		ScheduledExecutorService current = getExecutor();
+		current.execute(() -> add(request));
+		request.deadline = current.schedule(() -> expire(request), waitMillis, TimeUnit.MILLISECONDS);
+	}
+
+	int size() {
+		return size.get();
+	}
+
+	private synchronized ScheduledExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, Constants.LOCAL_API_MESSAGE_WAITER);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * adds request to the waiting requests of its receiver, the first one sets the message signal of the receiver
+	 *
+	 * @param request - parked request
+	 */
+	private void add(Waiting request) {
+		String receiverId = request.receiverId;
+		Queue<Waiting> requests = waiting.get(receiverId);
+		if (requests == null) {
+			requests = new ArrayDeque<>();
+			waiting.put(receiverId, requests);
+			ScheduledExecutorService current = getExecutor();
+			new MessageBusUtil().setMessageSignal(receiverId, () -> current.execute(() -> answer(receiverId)));
+		}
+		requests.add(request);
+		// messages which arrived before the signal was set
+		answer(receiverId);
+	}
+
+	/**
+	 * answers waiting requests of the receiver in the order they were parked, while it has messages,
+	 * drops requests of closed channels
+	 *
+	 * @param receiverId - ID of receiver microservice
+	 */
+	private void answer(String receiverId) {
+		Queue<Waiting> requests = waiting.get(receiverId);
+		if (requests == null)
+			return;
+		MessageBusUtil bus = new MessageBusUtil();
+		Waiting request;
+		while ((request = requests.peek()) != null) {
+			try {
+				if (!request.ctx.channel().isActive()) {
+					remove(requests);
+					continue;
+				}
+				List<Message> messages = bus.getMessages(receiverId, request.max);
+				if (messages.isEmpty())
+					break;
+				remove(requests);
+				respond(request, messages);
+			} catch (Exception e) {
+				if (requests.peek() == request)
+					remove(requests);
+				LoggingService.logError(MODULE_NAME, "Unable to answer waiting request of " + receiverId,
+						new AgentSystemException(e.getMessage(), e));
+			}
+		}
+		removeIfEmpty(receiverId, requests);
+	}
+
+	/**
+	 * answers request without messages when its wait time is over
+	 *
+	 * @param request - parked request
+	 */
+	private void expire(Waiting request) {
+		Queue<Waiting> requests = waiting.get(request.receiverId);
+		if (requests == null || !requests.remove(request))
+			return;
+		size.decrementAndGet();
+		try {
+			if (request.ctx.channel().isActive())
+				respond(request, List.of());
+		} catch (Exception e) {
+			LoggingService.logError(MODULE_NAME, "Unable to answer waiting request of " + request.receiverId,
+					new AgentSystemException(e.getMessage(), e));
+		}
+		removeIfEmpty(request.receiverId, requests);
+	}
+
+	private void remove(Queue<Waiting> requests) {
+		Waiting request = requests.poll();
+		size.decrementAndGet();
+		ScheduledFuture<?> deadline = request.deadline;
+		if (deadline != null)
+			deadline.cancel(false);
+	}
+
+	/**
+	 * removes message signal of the receiver once it has no waiting requests
+	 *
+	 * @param receiverId - ID of receiver microservice
+	 * @param requests - waiting requests of the receiver
+	 */
+	private void removeIfEmpty(String receiverId, Queue<Waiting> requests) {
+		if (!requests.isEmpty())
+			return;
+		waiting.remove(receiverId);
+		new MessageBusUtil().setMessageSignal(receiverId, null);
+	}
+
+	private static void respond(Waiting request, List<Message> messages) {
+		FullHttpResponse response = MessageReceiverHandler.messagesResponse(request.ctx.alloc().buffer(), messages);
+		ChannelFuture future = request.ctx.channel().writeAndFlush(response);
+		if (!HttpUtil.isKeepAlive(request.req))
+			future.addListener(ChannelFutureListener.CLOSE);
+	}
+}
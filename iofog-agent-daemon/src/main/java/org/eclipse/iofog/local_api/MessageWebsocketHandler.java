@@ -22,6 +22,9 @@ import org.eclipse.iofog.exception.AgentUserException;
 import org.eclipse.iofog.message_bus.Message;
 import org.eclipse.iofog.message_bus.MessageBus;
 import org.eclipse.iofog.message_bus.MessageBusUtil;
+import org.eclipse.iofog.message_bus.MessageCodec;
+import org.eclipse.iofog.message_bus.MessageView;
+import org.eclipse.iofog.message_bus.PriorityLanes;
 import org.eclipse.iofog.status_reporter.StatusReporter;
 import org.eclipse.iofog.utils.BytesUtil;
 import org.eclipse.iofog.utils.logging.LoggingService;
@@ -52,6 +55,7 @@ public class MessageWebsocketHandler {
 	private static final Byte OPCODE_ACK = 0xB;
 	private static final Byte OPCODE_MSG = 0xD;
 	private static final Byte OPCODE_RECEIPT = 0xE;
+	private static final Byte OPCODE_NACK = 0xF;
 
 	private static final String WEBSOCKET_PATH = "/v2/message/socket";
 
@@ -126,27 +130,29 @@ public class MessageWebsocketHandler {
 				return;
 			}
 
-			byte[] byteArray = new byte[input.readableBytes()];
 			int readerIndex = input.readerIndex();
-			input.getBytes(readerIndex, byteArray);
-			Byte opcode;
-
-			if(byteArray.length >= 1){
-				opcode = byteArray[0];
-			}else{
-				return;
-			}
+			int readableBytes = input.readableBytes();
+			Byte opcode = input.getByte(readerIndex);
 
 			if (opcode == OPCODE_MSG.intValue()) {
-				if (byteArray.length >= 2) {
+				if (readableBytes >= 2) {
 					if (WebsocketUtil.hasContextInMap(ctx, WebSocketMap.messageWebsocketMap)) {
-
-						int totalMsgLength = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(byteArray, 1, 5));
 						try {
-							Message message = new Message(BytesUtil.copyOfRange(byteArray, 5, totalMsgLength + 5));
+							int totalMsgLength = input.getInt(readerIndex + 1);
+							if (totalMsgLength < 0 || totalMsgLength > readableBytes - 5)
+								throw new IllegalArgumentException("ioMessage length " + totalMsgLength + " exceeds frame size");
+							Message message = new MessageView()
+									.wrap(input.nioBuffer(readerIndex + 5, totalMsgLength))
+									.toMessage();
 
 							MessageBusUtil messageBus = new MessageBusUtil();
-							messageBus.publishMessage(message);
+							if (!messageBus.publishMessage(message)) {
+								// send queue of the publisher is full, container should send the message again later
+								ByteBuf nack = ctx.alloc().buffer(1);
+								nack.writeByte(OPCODE_NACK.intValue());
+								ctx.channel().writeAndFlush(new BinaryWebSocketFrame(nack));
+								return;
+							}
 
 							String messageId = message.getId();
 							Long msgTimestamp = message.getTimestamp();
@@ -180,6 +186,7 @@ public class MessageWebsocketHandler {
 		// Check for closing frame
 		if (frame instanceof CloseWebSocketFrame) {
 			ctx.channel().close();
+			WebSocketMap.pendingMessageMap.remove(ctx);
 			MessageBus.getInstance()
 			.disableRealTimeReceiving(WebsocketUtil.getIdForWebsocket(ctx, WebSocketMap.messageWebsocketMap));
 			WebsocketUtil.removeWebsocketContextFromMap(ctx, WebSocketMap.messageWebsocketMap);
@@ -190,6 +197,7 @@ public class MessageWebsocketHandler {
 
 	/**
 	 * Helper to send real-time messages
+	 * message waits in {@link PriorityLanes} of the receiver while the channel can not take more data
 	 * 
 	 * @param receiverId, message
 	 * @return void
@@ -201,27 +209,59 @@ public class MessageWebsocketHandler {
 
 		if (messageSocketMap != null && messageSocketMap.containsKey(receiverId)) {
 			ctx = messageSocketMap.get(receiverId);
-			WebSocketMap.unackMessageSendingMap.put(ctx, new MessageSentInfo(message, 1, System.currentTimeMillis()));
-
-			int totalMsgLength;
-			byte[] bytesMsg = message.getBytes();
-
-			totalMsgLength = bytesMsg.length;
-
-			ByteBuf buffer1 = ctx.alloc().buffer(totalMsgLength + 5);
-			// Send Opcode
-			buffer1.writeByte(OPCODE_MSG);
-			// Total Length
-			buffer1.writeBytes(BytesUtil.integerToBytes(totalMsgLength));
-			// Message
-			buffer1.writeBytes(bytesMsg);
-			ctx.channel().writeAndFlush(new BinaryWebSocketFrame(buffer1));
+			PriorityLanes lanes = WebSocketMap.pendingMessageMap.computeIfAbsent(ctx, context -> new PriorityLanes());
+			lanes.add(message);
+			sendPendingMessages(receiverId, ctx, lanes);
 		} else {
 			LoggingService.logError(MODULE_NAME, "No active real-time websocket found for " + receiverId, 
 					new AgentSystemException("No active real-time websocket found for " + receiverId, null));
 		}
 	}
 
+	/**
+	 * Helper to send waiting real-time messages when the channel becomes writable again
+	 * 
+	 * @param ctx
+	 * @return void
+	 */
+	public void sendPendingMessages(ChannelHandlerContext ctx) {
+		PriorityLanes lanes = WebSocketMap.pendingMessageMap.get(ctx);
+		if (lanes != null && lanes.size() > 0)
+			sendPendingMessages(WebsocketUtil.getIdForWebsocket(ctx, WebSocketMap.messageWebsocketMap), ctx, lanes);
+	}
+
+	/**
+	 * writes waiting messages, highest priority first, until the channel can not take more data
+	 * 
+	 * @param receiverId, ctx, lanes
+	 * @return void
+	 */
+	private void sendPendingMessages(String receiverId, ChannelHandlerContext ctx, PriorityLanes lanes) {
+		boolean written = false;
+		synchronized (lanes) {
+			Message message;
+			while (ctx.channel().isWritable() && (message = lanes.poll()) != null) {
+				WebSocketMap.unackMessageSendingMap.put(ctx, new MessageSentInfo(message, 1, System.currentTimeMillis()));
+
+				int totalMsgLength = MessageCodec.encodedLength(message);
+
+				ByteBuf buffer1 = ctx.alloc().buffer(totalMsgLength + 5);
+				// Send Opcode
+				buffer1.writeByte(OPCODE_MSG);
+				// Total Length
+				buffer1.writeInt(totalMsgLength);
+				// Message
+				MessageCodec.encode(message, buffer1);
+				ctx.channel().write(new BinaryWebSocketFrame(buffer1));
+				StatusReporter.getMessageBusStatus().recordMessageLatency(message.getPublisher(), receiverId,
+						System.currentTimeMillis() - message.getTimestamp());
+				written = true;
+			}
+		}
+		if (written)
+			ctx.channel().flush();
+	}
+
 	/**
 	 * Websocket path
 	 * 
@@ -16,8 +16,8 @@ import java.util.Map;
 
 import org.eclipse.iofog.message_bus.Message;
 import org.eclipse.iofog.message_bus.MessageBus;
+import org.eclipse.iofog.message_bus.MessageCodec;
 import org.eclipse.iofog.status_reporter.StatusReporter;
-import org.eclipse.iofog.utils.BytesUtil;
 import org.eclipse.iofog.utils.Constants;
 import org.eclipse.iofog.utils.logging.LoggingService;
 
@@ -58,6 +58,7 @@ public class MessageWebsocketWorker implements Runnable{
 					sendRealTimeMessage(ctx);
 				} else {
 					WebSocketMap.unackMessageSendingMap.remove(ctx);
+					WebSocketMap.pendingMessageMap.remove(ctx);
 					MessageBus.getInstance().disableRealTimeReceiving(WebsocketUtil.getIdForWebsocket(ctx, WebSocketMap.messageWebsocketMap));
 					WebsocketUtil.removeWebsocketContextFromMap(ctx, WebSocketMap.messageWebsocketMap);	
 					StatusReporter.setLocalApiStatus().setOpenConfigSocketsCount(WebSocketMap.messageWebsocketMap.size());
@@ -80,17 +81,16 @@ public class MessageWebsocketWorker implements Runnable{
 		Message message = messageContextAndCount.getMessage();
 		tryCount = tryCount + 1;
 		WebSocketMap.unackMessageSendingMap.put(ctx, new MessageSentInfo(message, tryCount, System.currentTimeMillis()));
-		ByteBuf buffer1 = ctx.alloc().buffer();
+		int totalMsgLength = MessageCodec.encodedLength(message);
+		ByteBuf buffer1 = ctx.alloc().buffer(totalMsgLength + 5);
 
 		//Send Opcode
 		buffer1.writeByte(OPCODE_MSG);
 
-		byte[] bytesMsg = message.getBytes();
-		int totalMsgLength = bytesMsg.length;
 		//Total Length
-		buffer1.writeBytes(BytesUtil.integerToBytes(totalMsgLength));
+		buffer1.writeInt(totalMsgLength);
 		//Message
-		buffer1.writeBytes(bytesMsg);
+		MessageCodec.encode(message, buffer1);
 		ctx.channel().writeAndFlush(new BinaryWebSocketFrame(buffer1));
 	}
 }
@@ -13,17 +13,20 @@
 package org.eclipse.iofog.local_api;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.*;
 
 import org.eclipse.iofog.exception.AgentSystemException;
 import org.eclipse.iofog.exception.AgentUserException;
+import org.eclipse.iofog.message_bus.ArchiveCursor;
 import org.eclipse.iofog.message_bus.Message;
 import org.eclipse.iofog.message_bus.MessageBusUtil;
 import org.eclipse.iofog.utils.logging.LoggingService;
 
 import javax.json.*;
 import java.io.StringReader;
-import java.util.List;
 import java.util.concurrent.Callable;
 
 import static io.netty.handler.codec.http.HttpMethod.POST;
@@ -34,28 +37,65 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 /**
  * Handler to deliver the messages to the receiver, if found any. Messages are
  * delivered for the particular query from the receiver.
+ * Messages are streamed from the archive as chunked response, as JSON or as
+ * one message per line if NDJSON is accepted. If limit is reached, response
+ * contains continuation token to query the rest of messages.
  * 
  * @author ashita
  * @since 2016
  */
 public class QueryMessageReceiverHandler implements Callable<FullHttpResponse> {
 	private static final String MODULE_NAME = "Local API : QueryMessageReceiverHandler";
+	private static final String NDJSON = "application/x-ndjson";
+	private static final int CHUNK_SIZE = 64 * 1024;
 
 	private final HttpRequest req;
-	private final ByteBuf outputBuffer;
+	private final ChannelHandlerContext ctx;
 	private final byte[] content;
 
-	public QueryMessageReceiverHandler(HttpRequest req, ByteBuf outputBuffer, byte[] content) {
+	public QueryMessageReceiverHandler(HttpRequest req, ChannelHandlerContext ctx, byte[] content) {
 		this.req = req;
-		this.outputBuffer = outputBuffer;
+		this.ctx = ctx;
 		this.content = content;
 	}
 
+	/**
+	 * position of the query to continue from
+	 * token format is publisher index, segment and record separated by dots
+	 */
+	static final class Continuation {
+		final int publisher;
+		final long segment;
+		final int record;
+
+		Continuation(int publisher, long segment, int record) {
+			this.publisher = publisher;
+			this.segment = segment;
+			this.record = record;
+		}
+
+		static Continuation parse(String token) {
+			String[] parts = token.split("\\.");
+			if (parts.length != 3)
+				throw new IllegalArgumentException("Invalid continuation token " + token);
+			Continuation continuation = new Continuation(Integer.parseInt(parts[0]), Long.parseLong(parts[1]),
+					Integer.parseInt(parts[2]));
+			if (continuation.publisher < 0 || continuation.segment < 0 || continuation.record < 0)
+				throw new IllegalArgumentException("Invalid continuation token " + token);
+			return continuation;
+		}
+
+		@Override
+		public String toString() {
+			return publisher + "." + segment + "." + record;
+		}
+	}
+
 	/**
 	 * Handler method to deliver the messages to the receiver as per the query.
 	 * Get the messages from message bus
 	 *
-	 * @return Object
+	 * @return error response or null if messages are streamed to the channel
 	 */
 	private FullHttpResponse handleQueryMessageRequest() {
 		LoggingService.logDebug(MODULE_NAME, "Handle query message request");
@@ -69,7 +109,7 @@ public class QueryMessageReceiverHandler implements Callable<FullHttpResponse> {
 		if (contentTypeError != null) {
 			LoggingService.logError(MODULE_NAME, contentTypeError, 
 					new AgentSystemException(contentTypeError));
-			return ApiHandlerHelpers.badRequestResponse(outputBuffer, contentTypeError);
+			return ApiHandlerHelpers.badRequestResponse(ctx.alloc().buffer(), contentTypeError);
 		}
 
 		String requestBody = new String(content, UTF_8);
@@ -82,48 +122,108 @@ public class QueryMessageReceiverHandler implements Callable<FullHttpResponse> {
 			String errorMsg = "Incorrect input content/data " + e.getMessage();
 			LoggingService.logError(MODULE_NAME, errorMsg, 
 					new AgentSystemException(e.getMessage(), e));
-			return ApiHandlerHelpers.badRequestResponse(outputBuffer, errorMsg);
+			return ApiHandlerHelpers.badRequestResponse(ctx.alloc().buffer(), errorMsg);
 		}
 
 		String receiverId = jsonObject.getString("id");
 		long timeframeStart = Long.parseLong(jsonObject.get("timeframestart").toString());
 		long timeframeEnd = Long.parseLong(jsonObject.get("timeframeend").toString());
-		long actualTimeframeEnd = timeframeEnd;
-		
+		int limit = jsonObject.containsKey("limit") ? Integer.parseInt(jsonObject.get("limit").toString()) : 0;
+		Continuation start = jsonObject.containsKey("continuationtoken")
+				? Continuation.parse(jsonObject.getString("continuationtoken"))
+				: new Continuation(0, 0, 0);
 		JsonArray publishersArray = jsonObject.getJsonArray("publishers");
+		boolean ndjson = req.headers().get(HttpHeaderNames.ACCEPT, "").contains(NDJSON);
+
+		HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
+		response.headers().set(HttpHeaderNames.CONTENT_TYPE, ndjson ? NDJSON : "application/json");
+		HttpUtil.setTransferEncodingChunked(response, true);
+		ctx.write(response);
 
-		JsonBuilderFactory factory = Json.createBuilderFactory(null);
-		JsonObjectBuilder builder = factory.createObjectBuilder();
-		JsonArrayBuilder messagesArray = factory.createArrayBuilder();
+		ByteBuf chunk = ctx.alloc().buffer(CHUNK_SIZE);
+		if (!ndjson)
+			chunk.writeCharSequence("{\"status\":\"okay\",\"timeframestart\":" + timeframeStart + ",\"messages\":[", UTF_8);
 
 		MessageBusUtil bus = new MessageBusUtil();
 		int msgCount = 0;
+		long actualTimeframeEnd = timeframeEnd;
+		Continuation next = null;
 
-		for (int i = 0; i < publishersArray.size(); i++) {
+		for (int i = start.publisher; i < publishersArray.size() && next == null; i++) {
 			String publisherId = publishersArray.getString(i);
+			long segment = i == start.publisher ? start.segment : 0;
+			int record = i == start.publisher ? start.record : 0;
 
-			List<Message> messageList = bus.messageQuery(publisherId, receiverId, timeframeStart, timeframeEnd);
+			try (ArchiveCursor cursor = bus.messageCursor(publisherId, receiverId, timeframeStart, timeframeEnd, segment, record)) {
+				if (cursor == null)
+					continue;
+				while (true) {
+					Continuation position = new Continuation(i, cursor.getSegment(), cursor.getRecord());
+					Message msg = cursor.next();
+					if (msg == null)
+						break;
+					if (limit > 0 && msgCount == limit) {
+						next = position;
+						break;
+					}
 
-			if (messageList != null) {
-				for (Message msg : messageList) {
-					JsonObject msgJson = msg.toJson();
-					messagesArray.add(msgJson);
+					if (!ndjson && msgCount > 0)
+						chunk.writeByte(',');
+					chunk.writeCharSequence(msg.toJson().toString(), UTF_8);
+					if (ndjson)
+						chunk.writeByte('\n');
 					msgCount++;
+					actualTimeframeEnd = msg.getTimestamp();
+
+					if (chunk.readableBytes() >= CHUNK_SIZE) {
+						if (!writeChunk(chunk)) {
+							LoggingService.logWarning(MODULE_NAME, "Connection closed while streaming query response");
+							return null;
+						}
+						chunk = ctx.alloc().buffer(CHUNK_SIZE);
+					}
 				}
-				
-				actualTimeframeEnd = messageList.get(messageList.size()-1).getTimestamp();
+			} catch (Exception e) {
+				LoggingService.logError(MODULE_NAME, "Error reading archive of publisher " + publisherId,
+						new AgentSystemException(e.getMessage(), e));
 			}
 		}
 
-		builder.add("status", "okay");
+		JsonObjectBuilder builder = Json.createObjectBuilder();
+		if (ndjson) {
+			builder.add("status", "okay");
+			builder.add("timeframestart", timeframeStart);
+		}
 		builder.add("count", msgCount);
-		builder.add("timeframestart", timeframeStart);
 		builder.add("timeframeend", actualTimeframeEnd);
-		builder.add("messages", messagesArray);
+		if (next != null)
+			builder.add("continuationtoken", next.toString());
+		String summary = builder.build().toString();
+		if (ndjson)
+			chunk.writeCharSequence(summary + "\n", UTF_8);
+		else
+			chunk.writeCharSequence("]," + summary.substring(1), UTF_8);
 
-		String result = builder.build().toString();
+		ctx.write(new DefaultHttpContent(chunk));
+		ChannelFuture future = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+		if (!HttpUtil.isKeepAlive(req))
+			future.addListener(ChannelFutureListener.CLOSE);
 		LoggingService.logDebug(MODULE_NAME, "Finished handle query message request");
-		return ApiHandlerHelpers.successResponse(outputBuffer, result);
+		return null;
+	}
+
+	/**
+	 * writes chunk of response and waits while the channel can not take more data
+	 * so at most one chunk is buffered
+	 *
+	 * @param chunk - response chunk
+	 * @return false if the channel is closed
+	 */
+	private boolean writeChunk(ByteBuf chunk) {
+		ChannelFuture future = ctx.writeAndFlush(new DefaultHttpContent(chunk));
+		if (!ctx.channel().isWritable())
+			future.awaitUninterruptibly();
+		return ctx.channel().isActive();
 	}
 
 	/**
@@ -168,6 +268,27 @@ public class QueryMessageReceiverHandler implements Callable<FullHttpResponse> {
 			throw err;
 		}
 
+		if (message.containsKey("limit")) {
+			try {
+				if (Integer.parseInt(message.get("limit").toString()) <= 0)
+					throw new NumberFormatException();
+			} catch (Exception e) {
+				AgentUserException err = new AgentUserException("Error: Invalid value of limit");
+				LoggingService.logError(MODULE_NAME, err.getMessage(), err);
+				throw err;
+			}
+		}
+
+		if (message.containsKey("continuationtoken")) {
+			try {
+				Continuation.parse(message.getString("continuationtoken"));
+			} catch (Exception e) {
+				AgentUserException err = new AgentUserException("Error: Invalid value of continuationtoken");
+				LoggingService.logError(MODULE_NAME, err.getMessage(), err);
+				throw err;
+			}
+		}
+
 		if ((message.getString("id").trim().equals(""))) {
 			AgentUserException err = new AgentUserException("Error: Missing input field value id");
 			LoggingService.logError(MODULE_NAME, err.getMessage(), err);
@@ -179,7 +300,7 @@ public class QueryMessageReceiverHandler implements Callable<FullHttpResponse> {
 	/**
 	 * Overriden method of the Callable interface which call the handler method
 	 *
-	 * @return Object
+	 * @return error response or null if response is already sent
 	 */
 	@Override
 	public FullHttpResponse call() {
@@ -15,6 +15,7 @@ package org.eclipse.iofog.local_api;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.eclipse.iofog.message_bus.PriorityLanes;
 import org.eclipse.iofog.utils.logging.LoggingService;
 
 import io.netty.channel.ChannelHandlerContext;
@@ -31,6 +32,8 @@ public final class WebSocketMap {
 	
 	static final Map<ChannelHandlerContext, MessageSentInfo> unackMessageSendingMap = new ConcurrentHashMap<>();
 	static final Map<ChannelHandlerContext, ControlSignalSentInfo> unackControlSignalsMap = new ConcurrentHashMap<>();
+	// real-time messages waiting for the channel to become writable
+	static final Map<ChannelHandlerContext, PriorityLanes> pendingMessageMap = new ConcurrentHashMap<>();
 
 
 
@@ -0,0 +1,300 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.configuration.Configuration;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * segments of all publishers in the archive directory and their size on disk
+ * built once from the archive directory and kept up to date by {@link MessageArchive},
+ * {@link ArchiveCompressor} and {@link ArchiveRetention}, so finding segments of a publisher
+ * does not depend on number of files of other publishers
+ */
+final class ArchiveCatalog {
+	private static final String[] EXTENSIONS = {ArchiveSegment.INDEX_EXTENSION, ArchiveSegment.DATA_EXTENSION,
+			ArchiveSegment.COMPRESSED_DATA_EXTENSION, ArchiveSegment.TIME_INDEX_EXTENSION};
+
+	private static ArchiveCatalog instance;
+
+	private final String directory;
+	private final Map<String, Publisher> publishers = new HashMap<>();
+	private volatile long bytes;
+
+	static final class Segment {
+		private final String name;
+		private final long timestamp;
+		private long bytes;
+		private long modified;
+		private boolean indexed;
+		private boolean compressed;
+		private boolean active;
+		private boolean removed;
+
+		private Segment(String name, long timestamp) {
+			this.name = name;
+			this.timestamp = timestamp;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		long getTimestamp() {
+			return timestamp;
+		}
+
+		long getModified() {
+			return modified;
+		}
+
+		boolean isCompressed() {
+			return compressed;
+		}
+	}
+
+	private static final class Publisher {
+		private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+		private long bytes;
+	}
+
+	ArchiveCatalog(String directory) {
+		this.directory = directory;
+		load();
+	}
+
+	static synchronized ArchiveCatalog getInstance() {
+		String directory = Configuration.getDiskDirectory() + "messages/archive/";
+		if (instance == null || !instance.directory.equals(directory))
+			instance = new ArchiveCatalog(directory);
+		return instance;
+	}
+
+	String getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * adds existing segment files of the archive directory
+	 *
+	 */
+	private synchronized void load() {
+		File[] files = new File(directory).listFiles();
+		if (files == null)
+			return;
+		for (File file : files) {
+			String fileName = file.getName();
+			int separator = fileName.lastIndexOf('_');
+			int extension = fileName.indexOf('.');
+			if (separator <= 0 || extension < separator || !isSegmentFile(fileName.substring(extension)))
+				continue;
+			long timestamp;
+			try {
+				timestamp = Long.parseLong(fileName.substring(separator + 1, extension));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+			Segment segment = segment(fileName.substring(0, separator), timestamp);
+			resize(segment, segment.bytes + file.length());
+			if (fileName.endsWith(ArchiveSegment.INDEX_EXTENSION)) {
+				segment.indexed = true;
+				segment.modified = file.lastModified();
+			} else if (fileName.endsWith(ArchiveSegment.COMPRESSED_DATA_EXTENSION)) {
+				segment.compressed = true;
+			}
+		}
+	}
+
+	private static boolean isSegmentFile(String extension) {
+		for (String segmentExtension : EXTENSIONS) {
+			if (segmentExtension.equals(extension))
+				return true;
+		}
+		return false;
+	}
+
+	private Segment segment(String name, long timestamp) {
+		Publisher publisher = publishers.computeIfAbsent(name, key -> new Publisher());
+		return publisher.segments.computeIfAbsent(timestamp, key -> new Segment(name, timestamp));
+	}
+
+	private void resize(Segment segment, long size) {
+		if (segment.removed)
+			return;
+		long delta = size - segment.bytes;
+		segment.bytes = size;
+		publishers.get(segment.name).bytes += delta;
+		bytes += delta;
+	}
+
+	/**
+	 * registers segment opened for appending, it is not removed until it is sealed
+	 *
+	 * @param name - ID of publisher
+	 * @param timestamp - timestamp of the segment
+	 * @return {@link Segment}
+	 */
+	synchronized Segment open(String name, long timestamp) {
+		Segment segment = segment(name, timestamp);
+		segment.indexed = true;
+		segment.active = true;
+		segment.modified = System.currentTimeMillis();
+		return segment;
+	}
+
+	/**
+	 * updates size of segment being appended to
+	 *
+	 * @param segment - {@link Segment}
+	 * @param size - written bytes of the segment
+	 */
+	synchronized void update(Segment segment, long size) {
+		resize(segment, size);
+		segment.modified = System.currentTimeMillis();
+	}
+
+	/**
+	 * marks segment as sealed, so it can be removed
+	 *
+	 * @param segment - {@link Segment}
+	 */
+	synchronized void seal(Segment segment) {
+		update(segment, fileSize(segment.name, segment.timestamp));
+		segment.active = false;
+	}
+
+	/**
+	 * updates size of sealed segment from its files after compression
+	 *
+	 * @param indexFile - index file of the segment
+	 */
+	synchronized void compressed(File indexFile) {
+		String fileName = indexFile.getName();
+		int separator = fileName.lastIndexOf('_');
+		String name = fileName.substring(0, separator);
+		long timestamp = Long.parseLong(fileName.substring(separator + 1, fileName.indexOf('.')));
+		Publisher publisher = publishers.get(name);
+		Segment segment = publisher != null ? publisher.segments.get(timestamp) : null;
+		if (segment != null) {
+			segment.compressed = true;
+			resize(segment, fileSize(name, timestamp));
+		}
+	}
+
+	private long fileSize(String name, long timestamp) {
+		long size = 0;
+		for (String extension : EXTENSIONS)
+			size += new File(directory + name + "_" + timestamp + extension).length();
+		return size;
+	}
+
+	/**
+	 * deletes files of sealed segment
+	 *
+	 * @param segment - {@link Segment}
+	 * @return freed bytes, 0 if segment is active or already removed
+	 */
+	synchronized long remove(Segment segment) {
+		if (segment.active || segment.removed)
+			return 0;
+		long size = segment.bytes;
+		resize(segment, 0);
+		segment.removed = true;
+		Publisher publisher = publishers.get(segment.name);
+		publisher.segments.remove(segment.timestamp);
+		if (publisher.segments.isEmpty())
+			publishers.remove(segment.name);
+		// index file goes first, so readers and compressor see the segment as removed
+		for (String extension : EXTENSIONS)
+			new File(directory + segment.name + "_" + segment.timestamp + extension).delete();
+		return size;
+	}
+
+	/**
+	 * @return total size of archived segments in bytes
+	 */
+	long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @param name - ID of publisher
+	 * @return size of archived segments of the publisher in bytes
+	 */
+	synchronized long getBytes(String name) {
+		Publisher publisher = publishers.get(name);
+		return publisher != null ? publisher.bytes : 0;
+	}
+
+	/**
+	 * @return IDs of publishers which have archived segments
+	 */
+	synchronized List<String> getPublishers() {
+		return new ArrayList<>(publishers.keySet());
+	}
+
+	/**
+	 * @param name - ID of publisher
+	 * @return segments of the publisher sorted by time
+	 */
+	synchronized List<Segment> getSegments(String name) {
+		Publisher publisher = publishers.get(name);
+		return publisher != null ? new ArrayList<>(publisher.segments.values()) : new ArrayList<>();
+	}
+
+	/**
+	 * finds segments of the publisher which may have messages within the time frame,
+	 * these are segments started within the time frame and the last one started before it
+	 *
+	 * @param name - ID of publisher
+	 * @param from - beginning of time frame in milliseconds
+	 * @param to - end of time frame in milliseconds
+	 * @return index files of segments sorted by time
+	 */
+	synchronized File[] getIndexFiles(String name, long from, long to) {
+		Publisher publisher = publishers.get(name);
+		if (publisher == null || to < from)
+			return new File[0];
+		Long first = publisher.segments.lowerKey(from);
+		List<File> indexFiles = new ArrayList<>();
+		for (Segment segment : publisher.segments.subMap(first != null ? first : from, true, to, true).values()) {
+			if (segment.indexed)
+				indexFiles.add(new File(directory + name + "_" + segment.timestamp + ArchiveSegment.INDEX_EXTENSION));
+		}
+		return indexFiles.toArray(new File[0]);
+	}
+
+	/**
+	 * @return the oldest sealed segment of all publishers or null if there is none
+	 */
+	synchronized Segment getOldestSegment() {
+		Segment oldest = null;
+		for (Publisher publisher : publishers.values()) {
+			for (Segment segment : publisher.segments.values()) {
+				if (segment.active)
+					continue;
+				if (oldest == null || segment.timestamp < oldest.timestamp)
+					oldest = segment;
+				break;
+			}
+		}
+		return oldest;
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.exception.AgentSystemException;
+import org.eclipse.iofog.utils.Constants;
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compresses data files of sealed {@link ArchiveSegment} in background
+ * segments not compressed before stop are queued again when their {@link MessageArchive} is opened
+ */
+final class ArchiveCompressor {
+	private static final String MODULE_NAME = "Archive Compressor";
+	private static final long POLL_MILLIS = 100;
+	private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+	private static ArchiveCompressor instance;
+
+	private final BlockingQueue<File> queue = new LinkedBlockingQueue<>();
+	private volatile boolean running;
+	private volatile Thread thread;
+
+	static synchronized ArchiveCompressor getInstance() {
+		if (instance == null)
+			instance = new ArchiveCompressor();
+		return instance;
+	}
+
+	/**
+	 * queues sealed segment to be compressed, if archive compression is enabled
+	 *
+	 * @param indexFile - index file of sealed segment
+	 */
+	void submit(File indexFile) {
+		if (!Configuration.isArchiveCompression())
+			return;
+		if (thread == null)
+			start();
+		queue.offer(indexFile);
+	}
+
+	private synchronized void start() {
+		if (thread != null)
+			return;
+		running = true;
+		thread = new Thread(this::run, Constants.MESSAGE_BUS_ARCHIVE_COMPRESSOR);
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * stops compressor thread after segment being compressed is finished
+	 *
+	 */
+	synchronized void stop() {
+		Thread compressor = thread;
+		if (compressor == null)
+			return;
+		running = false;
+		try {
+			compressor.join(STOP_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (compressor.isAlive())
+			LoggingService.logWarning(MODULE_NAME, "Archive compressor did not stop in " + STOP_TIMEOUT_MILLIS + " ms");
+		queue.clear();
+		thread = null;
+	}
+
+	private void run() {
+		LoggingService.logInfo(MODULE_NAME, "Start archive compressor");
+		while (running) {
+			try {
+				File indexFile = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (indexFile != null)
+					compress(indexFile);
+			} catch (InterruptedException e) {
+				LoggingService.logWarning(MODULE_NAME, "Archive compressor is interrupted");
+				break;
+			}
+		}
+		LoggingService.logInfo(MODULE_NAME, "Finished archive compressor");
+	}
+
+	/**
+	 * replaces data file of sealed segment with compressed data file
+	 *
+	 * @param indexFile - index file of sealed segment
+	 */
+	void compress(File indexFile) {
+		String path = indexFile.getPath();
+		String base = path.substring(0, path.length() - ArchiveSegment.INDEX_EXTENSION.length());
+		File dataFile = new File(base + ArchiveSegment.DATA_EXTENSION);
+		File compressedFile = new File(base + ArchiveSegment.COMPRESSED_DATA_EXTENSION);
+		try {
+			if (compressedFile.exists()) {
+				// compressed before data file was deleted
+				Files.deleteIfExists(dataFile.toPath());
+				return;
+			}
+			if (!dataFile.exists())
+				return;
+			LoggingService.logDebug(MODULE_NAME, "Start compressing " + dataFile.getName());
+			CompressedArchiveData.compress(dataFile, compressedFile);
+			// segment may be removed by archive retention while it is compressed
+			if (!indexFile.exists())
+				Files.deleteIfExists(compressedFile.toPath());
+			else
+				ArchiveCatalog.getInstance().compressed(indexFile);
+			LoggingService.logDebug(MODULE_NAME, "Finished compressing " + dataFile.getName());
+		} catch (IOException e) {
+			LoggingService.logError(MODULE_NAME, "Error compressing archive segment",
+					new AgentSystemException(e.getMessage(), e));
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+/**
+ * iterates archived {@link Message} of a publisher within a time frame, one segment at a time
+ * position of the cursor can be used to continue reading from the same place later
+ */
+public final class ArchiveCursor implements AutoCloseable {
+	private static final String MODULE_NAME = "Message Archive";
+
+	private final String name;
+	private final long from;
+	private final long to;
+	private final Deque<File> segments;
+	private ArchiveSegmentReader reader;
+	private long segment;
+	private int record;
+
+	/**
+	 * @param name - ID of publisher
+	 * @param segments - index files of segments overlapping the time frame, sorted by time
+	 * @param from - beginning of time frame in milliseconds
+	 * @param to - end of time frame in milliseconds
+	 * @param segment - timestamp of the segment to start from, 0 to start from the first segment
+	 * @param record - number of the record to start from in that segment
+	 */
+	ArchiveCursor(String name, File[] segments, long from, long to, long segment, int record) {
+		this.name = name;
+		this.from = from;
+		this.to = to;
+		this.segments = new ArrayDeque<>(segments.length);
+		for (File file : segments) {
+			if (segmentTimestamp(name, file) >= segment)
+				this.segments.add(file);
+		}
+		this.segment = segment;
+		this.record = record;
+	}
+
+	static long segmentTimestamp(String name, File indexFile) {
+		String fileName = indexFile.getName();
+		return Long.parseLong(fileName.substring(name.length() + 1, fileName.indexOf(".")));
+	}
+
+	/**
+	 * @return next {@link Message} within the time frame or null if there is none
+	 * @throws IOException
+	 */
+	public Message next() throws IOException {
+		while (true) {
+			if (reader == null) {
+				File file = segments.poll();
+				if (file == null)
+					return null;
+				long timestamp = segmentTimestamp(name, file);
+				int firstRecord = timestamp == segment ? record : 0;
+				segment = timestamp;
+				record = firstRecord;
+				try {
+					reader = ArchiveSegmentReader.open(file, from, to, firstRecord);
+				} catch (IOException e) {
+					// segment may be removed by disk limit after it was listed
+					LoggingService.logError(MODULE_NAME, e.getMessage(), e);
+					continue;
+				}
+			}
+			Message message;
+			try {
+				message = reader.next();
+			} catch (IOException e) {
+				// damaged segment is skipped so the rest of the archive stays readable
+				LoggingService.logError(MODULE_NAME, e.getMessage(), e);
+				message = null;
+			}
+			record = reader.getRecord();
+			if (message != null)
+				return message;
+			reader.close();
+			reader = null;
+		}
+	}
+
+	/**
+	 * @return timestamp of the segment the cursor is in
+	 */
+	public long getSegment() {
+		return segment;
+	}
+
+	/**
+	 * @return number of the next record to be read in the segment
+	 */
+	public int getRecord() {
+		return record;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (reader != null) {
+			reader.close();
+			reader = null;
+		}
+	}
+}
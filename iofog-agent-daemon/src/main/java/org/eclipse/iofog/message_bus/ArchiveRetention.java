@@ -0,0 +1,99 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.Constants;
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+import java.util.List;
+
+/**
+ * removes sealed archive segments which are older than max age, exceed quota of their publisher,
+ * or, oldest first across all publishers, to free disk space
+ * segments being appended to are never removed
+ */
+public final class ArchiveRetention {
+	private static final String MODULE_NAME = "Archive Retention";
+
+	private static ArchiveRetention instance;
+
+	private final ArchiveCatalog catalog;
+
+	ArchiveRetention(ArchiveCatalog catalog) {
+		this.catalog = catalog;
+	}
+
+	public static synchronized ArchiveRetention getInstance() {
+		ArchiveCatalog catalog = ArchiveCatalog.getInstance();
+		if (instance == null || instance.catalog != catalog)
+			instance = new ArchiveRetention(catalog);
+		return instance;
+	}
+
+	/**
+	 * @return size of message archive on disk in bytes
+	 */
+	public long getArchiveSize() {
+		return catalog.getBytes();
+	}
+
+	/**
+	 * removes segments older than archive max age and segments above archive publisher quota
+	 *
+	 * @return freed bytes
+	 */
+	public long removeExpired() {
+		long freed = 0;
+		long maxAge = Configuration.getArchiveMaxAge() * 3_600_000L;
+		long quota = (long) Configuration.getArchivePublisherQuota() * Constants.MiB;
+		if (maxAge <= 0 && quota <= 0)
+			return 0;
+		long oldest = System.currentTimeMillis() - maxAge;
+		for (String name : catalog.getPublishers()) {
+			long bytes = catalog.getBytes(name);
+			List<ArchiveCatalog.Segment> segments = catalog.getSegments(name);
+			for (ArchiveCatalog.Segment segment : segments) {
+				boolean expired = maxAge > 0 && segment.getModified() < oldest;
+				boolean overQuota = quota > 0 && bytes > quota;
+				if (!expired && !overQuota)
+					break;
+				long size = catalog.remove(segment);
+				bytes -= size;
+				freed += size;
+			}
+		}
+		if (freed > 0)
+			LoggingService.logInfo(MODULE_NAME, "Removed expired archives : " + freed + " bytes");
+		return freed;
+	}
+
+	/**
+	 * removes the oldest segments of all publishers
+	 *
+	 * @param amount - disk space to be freed in bytes
+	 * @return freed bytes
+	 */
+	public long removeOldest(long amount) {
+		long freed = 0;
+		while (freed < amount) {
+			ArchiveCatalog.Segment segment = catalog.getOldestSegment();
+			if (segment == null)
+				break;
+			freed += catalog.remove(segment);
+		}
+		if (freed > 0)
+			LoggingService.logInfo(MODULE_NAME, "Removed oldest archives : " + freed + " bytes");
+		return freed;
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * index (.idx), data (.iomsg) and time index (.tix) files of {@link MessageArchive}
+ * while active, index and data files are preallocated and memory-mapped and records are appended
+ * at in-memory offsets. sealing flushes and truncates the files to the written length
+ *
+ * index record: 33 bytes message header followed by 8 bytes position in data file
+ * version of the record is written last, so zero version marks the end of written records
+ *
+ * time index entry: min and max timestamp of a block of {@value #TIME_INDEX_INTERVAL} records,
+ * written when the block is complete. the last partial block is written when the segment is sealed
+ *
+ * data file of a sealed segment may be replaced by compressed data file (.iomsz), see {@link CompressedArchiveData}
+ */
+final class ArchiveSegment implements AutoCloseable {
+	static final String INDEX_EXTENSION = ".idx";
+	static final String DATA_EXTENSION = ".iomsg";
+	static final String TIME_INDEX_EXTENSION = ".tix";
+	static final String COMPRESSED_DATA_EXTENSION = ".iomsz";
+	static final int INDEX_RECORD_SIZE = MessageCodec.HEADER_SIZE + Long.BYTES;
+	static final int TIME_INDEX_INTERVAL = 64;
+	static final int TIME_INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+	// expected lower bound of average message data size, used to size the index file
+	private static final int AVERAGE_DATA_SIZE = 256;
+
+	private final long timestamp;
+	private final File indexFile;
+	private final File dataFile;
+	private final File timeIndexFile;
+	private FileChannel indexChannel;
+	private FileChannel dataChannel;
+	private FileChannel timeIndexChannel;
+	private final ByteBuffer timeIndexEntry = ByteBuffer.allocate(TIME_INDEX_ENTRY_SIZE);
+	private long blockMinTimestamp = Long.MAX_VALUE;
+	private long blockMaxTimestamp = Long.MIN_VALUE;
+	private MappedByteBuffer indexBuffer;
+	private MappedByteBuffer dataBuffer;
+	private int indexPosition;
+	private int dataPosition;
+	private int messageCount;
+
+	private ArchiveSegment(String directory, String name, long timestamp) {
+		this.timestamp = timestamp;
+		this.indexFile = new File(directory + name + "_" + timestamp + INDEX_EXTENSION);
+		this.dataFile = new File(directory + name + "_" + timestamp + DATA_EXTENSION);
+		this.timeIndexFile = new File(directory + name + "_" + timestamp + TIME_INDEX_EXTENSION);
+	}
+
+	/**
+	 * opens segment for appending, existing records of the segment are kept
+	 *
+	 * @param directory - archive directory
+	 * @param name - ID of publisher {@link org.eclipse.iofog.microservice.Microservice}
+	 * @param timestamp - timestamp of the segment
+	 * @param capacity - size of data file in bytes
+	 * @return {@link ArchiveSegment}
+	 * @throws IOException
+	 */
+	static ArchiveSegment open(String directory, String name, long timestamp, int capacity) throws IOException {
+		ArchiveSegment segment = new ArchiveSegment(directory, name, timestamp);
+		try {
+			segment.map(capacity);
+		} catch (IOException e) {
+			segment.release();
+			throw e;
+		}
+		return segment;
+	}
+
+	private void map(int capacity) throws IOException {
+		indexChannel = FileChannel.open(indexFile.toPath(), CREATE, READ, WRITE);
+		dataChannel = FileChannel.open(dataFile.toPath(), CREATE, READ, WRITE);
+		timeIndexChannel = FileChannel.open(timeIndexFile.toPath(), CREATE, READ, WRITE);
+		recover();
+
+		int dataCapacity = Math.max(capacity, dataPosition);
+		int indexCapacity = Math.max(Math.max(dataCapacity / AVERAGE_DATA_SIZE, 1) * INDEX_RECORD_SIZE,
+				indexPosition + INDEX_RECORD_SIZE);
+		indexBuffer = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexCapacity);
+		dataBuffer = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, dataCapacity);
+		recoverTimeIndex();
+	}
+
+	/**
+	 * finds write offsets of a reopened segment
+	 * stops at the first record that is not written completely
+	 *
+	 * @throws IOException
+	 */
+	private void recover() throws IOException {
+		long indexLength = indexChannel.size();
+		long dataLength = dataChannel.size();
+		if (indexLength < INDEX_RECORD_SIZE)
+			return;
+
+		ByteBuffer index = ByteBuffer.allocate((int) Math.min(indexLength, Integer.MAX_VALUE));
+		while (index.hasRemaining()) {
+			if (indexChannel.read(index, index.position()) < 0)
+				break;
+		}
+		for (int position = 0; position + INDEX_RECORD_SIZE <= index.position(); position += INDEX_RECORD_SIZE) {
+			if (index.getShort(position) != MessageCodec.VERSION)
+				break;
+			long dataPos = index.getLong(position + MessageCodec.HEADER_SIZE);
+			long dataEnd = dataPos + MessageView.dataLength(index, position);
+			if (dataPos != dataPosition || dataEnd > dataLength)
+				break;
+			indexPosition = position + INDEX_RECORD_SIZE;
+			dataPosition = (int) dataEnd;
+			messageCount++;
+		}
+	}
+
+	/**
+	 * keeps entries of complete blocks and recomputes timestamps of the partial block
+	 * time index is rebuilt if it has fewer entries than recovered records, as after a crash
+	 *
+	 * @throws IOException
+	 */
+	private void recoverTimeIndex() throws IOException {
+		int blocks = messageCount / TIME_INDEX_INTERVAL;
+		int first = timeIndexChannel.size() < (long) blocks * TIME_INDEX_ENTRY_SIZE ? 0 : blocks * TIME_INDEX_INTERVAL;
+		timeIndexChannel.truncate((long) first / TIME_INDEX_INTERVAL * TIME_INDEX_ENTRY_SIZE);
+		for (int record = first; record < messageCount; record++) {
+			int position = record * INDEX_RECORD_SIZE;
+			int dataPos = (int) indexBuffer.getLong(position + MessageCodec.HEADER_SIZE);
+			addTimestamp(record, MessageView.timestamp(indexBuffer, position, dataBuffer, dataPos));
+		}
+	}
+
+	private void addTimestamp(int record, long timestamp) throws IOException {
+		blockMinTimestamp = Math.min(blockMinTimestamp, timestamp);
+		blockMaxTimestamp = Math.max(blockMaxTimestamp, timestamp);
+		if ((record + 1) % TIME_INDEX_INTERVAL == 0)
+			writeTimeIndexEntry(record / TIME_INDEX_INTERVAL);
+	}
+
+	private void writeTimeIndexEntry(int block) throws IOException {
+		timeIndexEntry.clear();
+		timeIndexEntry.putLong(blockMinTimestamp).putLong(blockMaxTimestamp).flip();
+		long position = (long) block * TIME_INDEX_ENTRY_SIZE;
+		while (timeIndexEntry.hasRemaining())
+			timeIndexChannel.write(timeIndexEntry, position + timeIndexEntry.position());
+		blockMinTimestamp = Long.MAX_VALUE;
+		blockMaxTimestamp = Long.MIN_VALUE;
+	}
+
+	/**
+	 * appends ioMessage bytes to the segment
+	 *
+	 * @param message - ioMessage bytes
+	 * @return false if the segment has no room for the message
+	 * @throws IOException
+	 */
+	boolean append(byte[] message) throws IOException {
+		if (message.length < MessageCodec.HEADER_SIZE)
+			throw new IllegalArgumentException("ioMessage is shorter than header");
+		if (indexBuffer == null)
+			throw new IllegalStateException("archive segment is sealed");
+		int dataLength = message.length - MessageCodec.HEADER_SIZE;
+		if (indexPosition + INDEX_RECORD_SIZE > indexBuffer.capacity() || dataPosition + dataLength > dataBuffer.capacity())
+			return false;
+
+		dataBuffer.put(dataPosition, message, MessageCodec.HEADER_SIZE, dataLength);
+		indexBuffer.put(indexPosition + Short.BYTES, message, Short.BYTES, MessageCodec.HEADER_SIZE - Short.BYTES);
+		indexBuffer.putLong(indexPosition + MessageCodec.HEADER_SIZE, dataPosition);
+		indexBuffer.put(indexPosition, message, 0, Short.BYTES);
+
+		indexPosition += INDEX_RECORD_SIZE;
+		dataPosition += dataLength;
+		ByteBuffer bytes = ByteBuffer.wrap(message);
+		addTimestamp(messageCount++, MessageView.timestamp(bytes, 0, bytes, MessageCodec.HEADER_SIZE));
+		return true;
+	}
+
+	/**
+	 * flushes written records to disk
+	 *
+	 * @throws IOException
+	 */
+	void force() throws IOException {
+		if (indexBuffer == null)
+			return;
+		dataBuffer.force();
+		indexBuffer.force();
+		timeIndexChannel.force(false);
+	}
+
+	/**
+	 * flushes written records and truncates preallocated space
+	 *
+	 * @throws IOException
+	 */
+	void seal() throws IOException {
+		if (indexBuffer == null)
+			return;
+		try {
+			if (messageCount % TIME_INDEX_INTERVAL != 0)
+				writeTimeIndexEntry(messageCount / TIME_INDEX_INTERVAL);
+			dataBuffer.force();
+			indexBuffer.force();
+			timeIndexChannel.force(false);
+			dataChannel.truncate(dataPosition);
+			indexChannel.truncate(indexPosition);
+		} finally {
+			release();
+		}
+	}
+
+	private void release() throws IOException {
+		indexBuffer = null;
+		dataBuffer = null;
+		try {
+			if (indexChannel != null)
+				indexChannel.close();
+		} finally {
+			try {
+				if (dataChannel != null)
+					dataChannel.close();
+			} finally {
+				if (timeIndexChannel != null)
+					timeIndexChannel.close();
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		seal();
+	}
+
+	boolean isSealed() {
+		return indexBuffer == null;
+	}
+
+	long getTimestamp() {
+		return timestamp;
+	}
+
+	File getIndexFile() {
+		return indexFile;
+	}
+
+	File getDataFile() {
+		return dataFile;
+	}
+
+	File getTimeIndexFile() {
+		return timeIndexFile;
+	}
+
+	int getMessageCount() {
+		return messageCount;
+	}
+
+	/**
+	 * @return written bytes of index, data and time index files
+	 */
+	long getLength() {
+		int blocks = (messageCount + TIME_INDEX_INTERVAL - 1) / TIME_INDEX_INTERVAL;
+		return (long) indexPosition + dataPosition + (long) blocks * TIME_INDEX_ENTRY_SIZE;
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static org.eclipse.iofog.message_bus.ArchiveSegment.INDEX_RECORD_SIZE;
+import static org.eclipse.iofog.message_bus.ArchiveSegment.TIME_INDEX_ENTRY_SIZE;
+import static org.eclipse.iofog.message_bus.ArchiveSegment.TIME_INDEX_INTERVAL;
+import static org.eclipse.iofog.message_bus.MessageCodec.HEADER_SIZE;
+
+/**
+ * reads {@link Message} of an {@link ArchiveSegment} within a time frame
+ * blocks of records outside of the time frame are skipped using the time index,
+ * records not covered by the time index are scanned. data is read only for matching records
+ * compressed data file is decompressed transparently, one frame at a time
+ */
+final class ArchiveSegmentReader implements AutoCloseable {
+	private final FileChannel indexChannel;
+	// null if data file is compressed
+	private final FileChannel dataChannel;
+	private final CompressedArchiveData compressedData;
+	private final long dataLength;
+	private final long from;
+	private final long to;
+	// pairs of first and last + 1 record to scan
+	private final int[] ranges;
+	private int range;
+	private int record;
+	private boolean finished;
+
+	private final ByteBuffer indexBlock = ByteBuffer.allocate(TIME_INDEX_INTERVAL * INDEX_RECORD_SIZE);
+	private int indexBlockNumber = -1;
+	private final ByteBuffer timestamp = ByteBuffer.allocate(Long.BYTES);
+	private final MessageView view = new MessageView();
+
+	private ArchiveSegmentReader(FileChannel indexChannel, FileChannel dataChannel, CompressedArchiveData compressedData,
+			long[] timeIndex, long from, long to, int firstRecord) throws IOException {
+		this.indexChannel = indexChannel;
+		this.dataChannel = dataChannel;
+		this.compressedData = compressedData;
+		this.dataLength = dataChannel != null ? dataChannel.size() : compressedData.length();
+		this.from = from;
+		this.to = to;
+		this.ranges = ranges(timeIndex, from, to);
+		this.record = firstRecord;
+	}
+
+	/**
+	 * opens segment files for reading
+	 *
+	 * @param indexFile - index file of the segment
+	 * @param from - beginning of time frame in milliseconds
+	 * @param to - end of time frame in milliseconds
+	 * @param firstRecord - number of the record to start reading from
+	 * @return {@link ArchiveSegmentReader}
+	 * @throws IOException
+	 */
+	static ArchiveSegmentReader open(File indexFile, long from, long to, int firstRecord) throws IOException {
+		String path = indexFile.getPath();
+		String base = path.substring(0, path.length() - ArchiveSegment.INDEX_EXTENSION.length());
+		FileChannel indexChannel = FileChannel.open(indexFile.toPath(), READ);
+		FileChannel dataChannel = null;
+		CompressedArchiveData compressedData = null;
+		try {
+			try {
+				dataChannel = FileChannel.open(new File(base + ArchiveSegment.DATA_EXTENSION).toPath(), READ);
+			} catch (NoSuchFileException e) {
+				// data file is deleted only after compressed data file is complete
+				compressedData = CompressedArchiveData.open(new File(base + ArchiveSegment.COMPRESSED_DATA_EXTENSION));
+			}
+			long[] timeIndex = readTimeIndex(new File(base + ArchiveSegment.TIME_INDEX_EXTENSION));
+			return new ArchiveSegmentReader(indexChannel, dataChannel, compressedData, timeIndex, from, to, firstRecord);
+		} catch (IOException e) {
+			indexChannel.close();
+			if (dataChannel != null)
+				dataChannel.close();
+			if (compressedData != null)
+				compressedData.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @param file - time index file
+	 * @return min and max timestamp pairs of blocks, empty if segment has no time index
+	 * @throws IOException
+	 */
+	private static long[] readTimeIndex(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) (channel.size() / TIME_INDEX_ENTRY_SIZE * TIME_INDEX_ENTRY_SIZE));
+			read(channel, buffer, 0);
+			buffer.flip();
+			long[] timeIndex = new long[buffer.remaining() / Long.BYTES];
+			buffer.asLongBuffer().get(timeIndex);
+			return timeIndex;
+		} catch (NoSuchFileException e) {
+			return new long[0];
+		}
+	}
+
+	/**
+	 * selects blocks that overlap the time frame. if blocks are in time order, the first one is found
+	 * by binary search and selection stops at the first block after the time frame
+	 */
+	static int[] ranges(long[] timeIndex, long from, long to) {
+		int blocks = timeIndex.length / 2;
+		boolean ordered = true;
+		for (int block = 1; block < blocks && ordered; block++)
+			ordered = timeIndex[2 * block] >= timeIndex[2 * block - 1];
+
+		int first = 0;
+		if (ordered) {
+			int low = 0;
+			int high = blocks;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (timeIndex[2 * middle + 1] < from)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+			first = low;
+		}
+
+		int[] ranges = new int[2 * (blocks - first) + 2];
+		int count = 0;
+		for (int block = first; block < blocks; block++) {
+			if (timeIndex[2 * block] > to) {
+				if (ordered)
+					break;
+				continue;
+			}
+			if (timeIndex[2 * block + 1] < from)
+				continue;
+			int start = block * TIME_INDEX_INTERVAL;
+			if (count > 0 && ranges[count - 1] == start) {
+				ranges[count - 1] = start + TIME_INDEX_INTERVAL;
+			} else {
+				ranges[count++] = start;
+				ranges[count++] = start + TIME_INDEX_INTERVAL;
+			}
+		}
+		// records after the last block are not indexed yet
+		ranges[count++] = blocks * TIME_INDEX_INTERVAL;
+		ranges[count++] = Integer.MAX_VALUE;
+		return Arrays.copyOf(ranges, count);
+	}
+
+	/**
+	 * @return next {@link Message} within the time frame or null if there is none
+	 * @throws IOException
+	 */
+	Message next() throws IOException {
+		while (!finished && range < ranges.length) {
+			if (record < ranges[range])
+				record = ranges[range];
+			if (record >= ranges[range + 1]) {
+				range += 2;
+				continue;
+			}
+			int position = indexPosition(record);
+			if (position < 0) {
+				finished = true;
+				break;
+			}
+			record++;
+
+			long dataPos = indexBlock.getLong(position + HEADER_SIZE);
+			int dataSize = MessageView.dataLength(indexBlock, position);
+			if (dataPos < 0 || dataPos + dataSize > dataLength)
+				throw new IOException("invalid data file format");
+			long messageTimestamp = readTimestamp(position, dataPos);
+			if (messageTimestamp < from || messageTimestamp > to)
+				continue;
+
+			ByteBuffer data = ByteBuffer.allocate(dataSize);
+			readData(data, dataPos);
+			data.flip();
+			view.wrap(indexBlock.slice(position, HEADER_SIZE), data);
+			return view.toMessage();
+		}
+		return null;
+	}
+
+	/**
+	 * @return number of the record to be read next
+	 */
+	int getRecord() {
+		return record;
+	}
+
+	/**
+	 * loads block of index records containing the record
+	 *
+	 * @return position of the record in the block or -1 after the last written record
+	 * @throws IOException
+	 */
+	private int indexPosition(int record) throws IOException {
+		int block = record / TIME_INDEX_INTERVAL;
+		if (block != indexBlockNumber) {
+			indexBlock.clear();
+			read(indexChannel, indexBlock, (long) block * TIME_INDEX_INTERVAL * INDEX_RECORD_SIZE);
+			indexBlock.flip();
+			indexBlockNumber = block;
+		}
+		int position = (record % TIME_INDEX_INTERVAL) * INDEX_RECORD_SIZE;
+		if (position + INDEX_RECORD_SIZE > indexBlock.limit())
+			return -1;
+		short version = indexBlock.getShort(position);
+		// preallocated space of the active segment
+		if (version == 0)
+			return -1;
+		if (version != MessageCodec.VERSION)
+			throw new IOException("invalid index file format");
+		return position;
+	}
+
+	private long readTimestamp(int position, long dataPos) throws IOException {
+		int size = MessageView.timestampLength(indexBlock, position);
+		if (size == 0)
+			return 0;
+		if (size > Long.BYTES)
+			throw new IOException("invalid index file format");
+		timestamp.clear().limit(size);
+		readData(timestamp, dataPos + MessageView.timestampOffset(indexBlock, position));
+		return MessageView.readNumber(timestamp, 0, size);
+	}
+
+	private void readData(ByteBuffer buffer, long position) throws IOException {
+		if (dataChannel != null)
+			read(dataChannel, buffer, position);
+		else
+			compressedData.read(buffer, position);
+	}
+
+	private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0)
+				break;
+			position += read;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			indexChannel.close();
+		} finally {
+			if (dataChannel != null)
+				dataChannel.close();
+			else
+				compressedData.close();
+		}
+	}
+}
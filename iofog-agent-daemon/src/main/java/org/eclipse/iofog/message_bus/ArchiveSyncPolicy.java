@@ -0,0 +1,92 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+/**
+ * when archived messages are flushed to disk
+ * "none" - only when a segment is sealed
+ * "#ms" - at most every # milliseconds
+ * "#msg" - every # messages
+ */
+public final class ArchiveSyncPolicy {
+	public static final ArchiveSyncPolicy NONE = new ArchiveSyncPolicy(0, 0);
+
+	private final long intervalMillis;
+	private final int messages;
+
+	private ArchiveSyncPolicy(long intervalMillis, int messages) {
+		this.intervalMillis = intervalMillis;
+		this.messages = messages;
+	}
+
+	/**
+	 * parses value of archive fsync policy config
+	 *
+	 * @param value - "none", "#ms" or "#msg"
+	 * @return {@link ArchiveSyncPolicy}
+	 * @throws IllegalArgumentException if value is not valid
+	 */
+	public static ArchiveSyncPolicy parse(String value) {
+		if (value == null || value.trim().isEmpty() || "none".equalsIgnoreCase(value.trim()))
+			return NONE;
+		String policy = value.trim().toLowerCase();
+		try {
+			if (policy.endsWith("msg")) {
+				int messages = Integer.parseInt(policy.substring(0, policy.length() - 3));
+				if (messages > 0)
+					return new ArchiveSyncPolicy(0, messages);
+			} else if (policy.endsWith("ms")) {
+				long intervalMillis = Long.parseLong(policy.substring(0, policy.length() - 2));
+				if (intervalMillis > 0)
+					return new ArchiveSyncPolicy(intervalMillis, 0);
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid archive fsync policy: " + value, e);
+		}
+		throw new IllegalArgumentException("Invalid archive fsync policy: " + value);
+	}
+
+	public boolean isNone() {
+		return intervalMillis == 0 && messages == 0;
+	}
+
+	/**
+	 * @param unsyncedMessages - messages written since last flush
+	 * @param elapsedMillis - time since last flush
+	 * @return true if written messages should be flushed now
+	 */
+	public boolean isSyncDue(int unsyncedMessages, long elapsedMillis) {
+		if (unsyncedMessages == 0 || isNone())
+			return false;
+		if (messages > 0)
+			return unsyncedMessages >= messages;
+		return elapsedMillis >= intervalMillis;
+	}
+
+	public long getIntervalMillis() {
+		return intervalMillis;
+	}
+
+	public int getMessages() {
+		return messages;
+	}
+
+	@Override
+	public String toString() {
+		if (messages > 0)
+			return messages + "msg";
+		if (intervalMillis > 0)
+			return intervalMillis + "ms";
+		return "none";
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.exception.AgentSystemException;
+import org.eclipse.iofog.status_reporter.StatusReporter;
+import org.eclipse.iofog.utils.Constants;
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * writes archived messages of all publishers in background
+ * messages are queued by {@link MessagePublisher} and written to {@link MessageArchive} in batches,
+ * archives are flushed to disk according to {@link ArchiveSyncPolicy}
+ */
+final class ArchiveWriter {
+	private static final String MODULE_NAME = "Archive Writer";
+	private static final int DEFAULT_QUEUE_CAPACITY = 4096;
+	private static final int BATCH_SIZE = 512;
+	private static final long POLL_MILLIS = 100;
+	private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+	private static ArchiveWriter instance;
+
+	private final BlockingQueue<Record> queue;
+	private final Set<MessageArchive> unsyncedArchives = Collections.newSetFromMap(new IdentityHashMap<>());
+	private int unsyncedMessages;
+	private long lastSyncTime;
+	private volatile boolean running;
+	private volatile Thread thread;
+
+	ArchiveWriter(int capacity) {
+		queue = new ArrayBlockingQueue<>(capacity > 0 ? capacity : DEFAULT_QUEUE_CAPACITY);
+	}
+
+	static synchronized ArchiveWriter getInstance() {
+		if (instance == null)
+			instance = new ArchiveWriter(Configuration.getArchiveQueueCapacity());
+		return instance;
+	}
+
+	private static final class Record {
+		private final MessageArchive archive;
+		// null message and batch marks closing of the archive
+		private final byte[] message;
+		private final long timestamp;
+		private final byte[][] batch;
+		private final long[] timestamps;
+
+		private Record(MessageArchive archive, byte[] message, long timestamp) {
+			this.archive = archive;
+			this.message = message;
+			this.timestamp = timestamp;
+			this.batch = null;
+			this.timestamps = null;
+		}
+
+		private Record(MessageArchive archive, byte[][] batch, long[] timestamps) {
+			this.archive = archive;
+			this.message = null;
+			this.timestamp = 0;
+			this.batch = batch;
+			this.timestamps = timestamps;
+		}
+	}
+
+	/**
+	 * queues message to be archived, message is dropped if queue is full
+	 *
+	 * @param archive - {@link MessageArchive} of publisher
+	 * @param message - ioMessage bytes
+	 * @param timestamp - timestamp of the {@link Message}
+	 * @return false if message is dropped
+	 */
+	boolean submit(MessageArchive archive, byte[] message, long timestamp) {
+		if (thread == null)
+			start();
+		if (queue.offer(new Record(archive, message, timestamp)))
+			return true;
+		StatusReporter.getMessageBusStatus().increaseArchiveDroppedMessages();
+		return false;
+	}
+
+	/**
+	 * queues batch of messages to be archived with a single write, batch is dropped if queue is full
+	 *
+	 * @param archive - {@link MessageArchive} of publisher
+	 * @param batch - ioMessage bytes
+	 * @param timestamps - timestamps of the messages
+	 * @return false if batch is dropped
+	 */
+	boolean submit(MessageArchive archive, byte[][] batch, long[] timestamps) {
+		if (thread == null)
+			start();
+		if (queue.offer(new Record(archive, batch, timestamps)))
+			return true;
+		StatusReporter.getMessageBusStatus().increaseArchiveDroppedMessages(batch.length);
+		return false;
+	}
+
+	/**
+	 * seals archive after its queued messages are written
+	 *
+	 * @param archive - {@link MessageArchive} of publisher
+	 * @throws InterruptedException
+	 */
+	void close(MessageArchive archive) throws InterruptedException {
+		if (thread == null) {
+			archive.seal();
+			return;
+		}
+		queue.put(new Record(archive, null, 0));
+	}
+
+	private synchronized void start() {
+		if (thread != null)
+			return;
+		running = true;
+		lastSyncTime = System.currentTimeMillis();
+		thread = new Thread(this::run, Constants.MESSAGE_BUS_ARCHIVE_WRITER);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * writes queued messages and stops writer thread
+	 * writer thread is not interrupted, interrupting it would close mapped archive files
+	 *
+	 */
+	synchronized void stop() {
+		Thread writer = thread;
+		if (writer == null)
+			return;
+		running = false;
+		try {
+			writer.join(STOP_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (writer.isAlive())
+			LoggingService.logWarning(MODULE_NAME, "Archive writer did not stop in " + STOP_TIMEOUT_MILLIS + " ms");
+		thread = null;
+	}
+
+	private void run() {
+		LoggingService.logInfo(MODULE_NAME, "Start archive writer");
+		List<Record> batch = new ArrayList<>(BATCH_SIZE);
+		while (running || !queue.isEmpty()) {
+			try {
+				Record record = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (record != null) {
+					batch.add(record);
+					queue.drainTo(batch, BATCH_SIZE - 1);
+					write(batch);
+					batch.clear();
+				}
+				ArchiveSyncPolicy policy = Configuration.getArchiveFsyncPolicy();
+				if (policy.isNone()) {
+					unsyncedArchives.clear();
+					unsyncedMessages = 0;
+				} else if (policy.isSyncDue(unsyncedMessages, System.currentTimeMillis() - lastSyncTime)) {
+					sync();
+				}
+				StatusReporter.getMessageBusStatus().setArchiveQueueDepth(queue.size());
+			} catch (InterruptedException e) {
+				LoggingService.logWarning(MODULE_NAME, "Archive writer is interrupted");
+				break;
+			} catch (Exception e) {
+				batch.clear();
+				LoggingService.logError(MODULE_NAME, "Error writing archive", new AgentSystemException(e.getMessage(), e));
+			}
+		}
+		sync();
+		StatusReporter.getMessageBusStatus().setArchiveQueueDepth(queue.size());
+		LoggingService.logInfo(MODULE_NAME, "Finished archive writer");
+	}
+
+	private void write(List<Record> batch) {
+		for (Record record : batch) {
+			if (record.batch != null) {
+				record.archive.write(record.batch, record.timestamps);
+				unsyncedArchives.add(record.archive);
+				unsyncedMessages += record.batch.length;
+			} else if (record.message == null) {
+				unsyncedArchives.remove(record.archive);
+				record.archive.seal();
+			} else {
+				record.archive.write(record.message, record.timestamp);
+				unsyncedArchives.add(record.archive);
+				unsyncedMessages++;
+			}
+		}
+	}
+
+	private void sync() {
+		for (MessageArchive archive : unsyncedArchives)
+			archive.sync();
+		unsyncedArchives.clear();
+		unsyncedMessages = 0;
+		lastSyncTime = System.currentTimeMillis();
+	}
+}
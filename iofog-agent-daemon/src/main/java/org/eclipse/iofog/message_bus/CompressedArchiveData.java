@@ -0,0 +1,233 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * compressed data file (.iomsz) of a sealed {@link ArchiveSegment}
+ * data is split into frames of {@value #FRAME_LENGTH} bytes which are compressed separately,
+ * so any position of the data can be read by decompressing only the frames that contain it
+ *
+ * file: header (magic, version, codec, frame length, data length), compressed frames,
+ * file positions of frames and magic again to detect incomplete files
+ */
+final class CompressedArchiveData implements AutoCloseable {
+	static final int FRAME_LENGTH = 64 * 1024;
+	private static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+	private static final int MAGIC = 0x494F4D5A;
+	private static final byte VERSION = 1;
+	private static final byte CODEC_DEFLATE = 1;
+	private static final int HEADER_SIZE = Integer.BYTES + 2 + Integer.BYTES + Long.BYTES;
+	private static final String TEMPORARY_EXTENSION = ".tmp";
+
+	private final FileChannel channel;
+	private final long dataLength;
+	private final int frameLength;
+	// file positions of frames, followed by position of the frame table
+	private final long[] framePositions;
+	private final Inflater inflater = new Inflater();
+	private ByteBuffer compressedFrame = ByteBuffer.allocate(0);
+	private final byte[] frame;
+	private int frameNumber = -1;
+
+	private CompressedArchiveData(FileChannel channel, long dataLength, int frameLength, long[] framePositions) {
+		this.channel = channel;
+		this.dataLength = dataLength;
+		this.frameLength = frameLength;
+		this.framePositions = framePositions;
+		this.frame = new byte[frameLength];
+	}
+
+	/**
+	 * compresses data file of a sealed segment, compressed file replaces the data file
+	 * when it is completely written, so readers find either of them
+	 *
+	 * @param dataFile - data file of sealed segment
+	 * @param compressedFile - compressed data file to be created
+	 * @throws IOException
+	 */
+	static void compress(File dataFile, File compressedFile) throws IOException {
+		File temporaryFile = new File(compressedFile.getPath() + TEMPORARY_EXTENSION);
+		Deflater deflater = new Deflater();
+		try (FileChannel in = FileChannel.open(dataFile.toPath(), READ);
+			 FileChannel out = FileChannel.open(temporaryFile.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+			long length = in.size();
+			int frames = (int) ((length + FRAME_LENGTH - 1) / FRAME_LENGTH);
+			ByteBuffer framePositions = ByteBuffer.allocate((frames + 1) * Long.BYTES + Integer.BYTES);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).put(VERSION).put(CODEC_DEFLATE).putInt(FRAME_LENGTH).putLong(length).flip();
+			long position = write(out, header, 0);
+
+			ByteBuffer input = ByteBuffer.allocate(FRAME_LENGTH);
+			byte[] output = new byte[FRAME_LENGTH + FRAME_LENGTH / 16 + 64];
+			for (long offset = 0; offset < length; offset += FRAME_LENGTH) {
+				input.clear().limit((int) Math.min(FRAME_LENGTH, length - offset));
+				read(in, input, offset);
+				if (input.hasRemaining())
+					throw new IOException("data file is changed while compressing");
+				framePositions.putLong(position);
+				deflater.reset();
+				deflater.setInput(input.array(), 0, input.limit());
+				deflater.finish();
+				while (!deflater.finished()) {
+					int size = deflater.deflate(output);
+					position += write(out, ByteBuffer.wrap(output, 0, size), position);
+				}
+			}
+			framePositions.putLong(position).putInt(MAGIC).flip();
+			write(out, framePositions, position);
+			out.force(true);
+		} catch (IOException e) {
+			Files.deleteIfExists(temporaryFile.toPath());
+			throw e;
+		} finally {
+			deflater.end();
+		}
+		Files.move(temporaryFile.toPath(), compressedFile.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+		Files.deleteIfExists(dataFile.toPath());
+	}
+
+	/**
+	 * opens compressed data file for reading
+	 *
+	 * @param file - compressed data file
+	 * @return {@link CompressedArchiveData}
+	 * @throws IOException
+	 */
+	static CompressedArchiveData open(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), READ);
+		try {
+			long size = channel.size();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			read(channel, header, 0);
+			if (header.hasRemaining() || header.getInt(0) != MAGIC || header.get(4) != VERSION
+					|| header.get(5) != CODEC_DEFLATE)
+				throw new IOException("invalid compressed data file format");
+			int frameLength = header.getInt(6);
+			long dataLength = header.getLong(10);
+			if (frameLength <= 0 || frameLength > MAX_FRAME_LENGTH || dataLength < 0
+					|| (dataLength + frameLength - 1) / frameLength > size / Long.BYTES)
+				throw new IOException("invalid compressed data file format");
+
+			int frames = (int) ((dataLength + frameLength - 1) / frameLength);
+			ByteBuffer table = ByteBuffer.allocate((frames + 1) * Long.BYTES + Integer.BYTES);
+			long tablePosition = size - table.capacity();
+			if (tablePosition < HEADER_SIZE)
+				throw new IOException("invalid compressed data file format");
+			read(channel, table, tablePosition);
+			if (table.hasRemaining() || table.getInt(table.capacity() - Integer.BYTES) != MAGIC)
+				throw new IOException("invalid compressed data file format");
+			long[] framePositions = new long[frames + 1];
+			for (int i = 0; i <= frames; i++) {
+				framePositions[i] = table.getLong(i * Long.BYTES);
+				if (framePositions[i] < HEADER_SIZE || framePositions[i] > tablePosition
+						|| (i > 0 && framePositions[i] < framePositions[i - 1]))
+					throw new IOException("invalid compressed data file format");
+			}
+			return new CompressedArchiveData(channel, dataLength, frameLength, framePositions);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return length of uncompressed data
+	 */
+	long length() {
+		return dataLength;
+	}
+
+	/**
+	 * reads uncompressed data from the position until buffer is full or data ends
+	 *
+	 * @param buffer - buffer to read into
+	 * @param position - position in uncompressed data
+	 * @throws IOException
+	 */
+	void read(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining() && position < dataLength) {
+			int number = (int) (position / frameLength);
+			loadFrame(number);
+			int offset = (int) (position - (long) number * frameLength);
+			int size = (int) Math.min(buffer.remaining(), Math.min(frameLength, dataLength - (long) number * frameLength) - offset);
+			buffer.put(frame, offset, size);
+			position += size;
+		}
+	}
+
+	private void loadFrame(int number) throws IOException {
+		if (number == frameNumber)
+			return;
+		int compressedLength = (int) (framePositions[number + 1] - framePositions[number]);
+		if (compressedFrame.capacity() < compressedLength)
+			compressedFrame = ByteBuffer.allocate(compressedLength);
+		compressedFrame.clear().limit(compressedLength);
+		read(channel, compressedFrame, framePositions[number]);
+		int length = (int) Math.min(frameLength, dataLength - (long) number * frameLength);
+		frameNumber = -1;
+		inflater.reset();
+		inflater.setInput(compressedFrame.array(), 0, compressedFrame.position());
+		try {
+			int size = 0;
+			while (size < length && !inflater.finished()) {
+				int inflated = inflater.inflate(frame, size, length - size);
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					break;
+				size += inflated;
+			}
+			if (size != length)
+				throw new IOException("invalid compressed data file format");
+		} catch (DataFormatException e) {
+			throw new IOException("invalid compressed data file format", e);
+		}
+		frameNumber = number;
+	}
+
+	private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0)
+				break;
+			position += read;
+		}
+	}
+
+	private static int write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		int size = buffer.remaining();
+		while (buffer.hasRemaining())
+			position += channel.write(buffer, position);
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		inflater.end();
+		channel.close();
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.status_reporter.StatusReporter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ids of {@link Message} a receiver got recently, to drop messages the router delivers again after reconnect
+ * ids are kept for the window time, the oldest id is dropped when the window holds its maximum
+ * lookup is exact, so a message is never dropped for a colliding id
+ */
+final class DedupWindow {
+	private final long windowMillis;
+	private final int maxIds;
+	// id and the time it was seen first, oldest first
+	private final LinkedHashMap<String, Long> seen = new LinkedHashMap<>();
+
+	/**
+	 * @param windowMillis - time ids are kept
+	 * @param maxIds - maximum number of ids kept
+	 */
+	DedupWindow(long windowMillis, int maxIds) {
+		this.windowMillis = windowMillis;
+		this.maxIds = maxIds;
+	}
+
+	boolean hasLimits(long windowMillis, int maxIds) {
+		return this.windowMillis == windowMillis && this.maxIds == maxIds;
+	}
+
+	/**
+	 * counts the message as suppressed duplicate if its id is in the window
+	 *
+	 * @param message - received {@link Message}
+	 * @return true if message has to be dropped
+	 */
+	boolean isDuplicate(Message message) {
+		if (!isDuplicate(message.getId(), System.currentTimeMillis()))
+			return false;
+		StatusReporter.getMessageBusStatus().increaseDuplicateMessages();
+		return true;
+	}
+
+	/**
+	 * adds id to the window unless it is there already
+	 *
+	 * @param id - id of the message, message without id is never a duplicate
+	 * @param now - current time in milliseconds
+	 * @return true if id was seen within the window
+	 */
+	synchronized boolean isDuplicate(String id, long now) {
+		if (id == null || id.isEmpty())
+			return false;
+		long oldest = now - windowMillis;
+		for (Iterator<Long> iterator = seen.values().iterator(); iterator.hasNext(); ) {
+			if (iterator.next() >= oldest)
+				break;
+			iterator.remove();
+		}
+		if (seen.containsKey(id))
+			return true;
+		if (seen.size() >= maxIds) {
+			Iterator<Map.Entry<String, Long>> eldest = seen.entrySet().iterator();
+			eldest.next();
+			eldest.remove();
+		}
+		seen.put(id, now);
+		return false;
+	}
+
+	synchronized int size() {
+		return seen.size();
+	}
+}
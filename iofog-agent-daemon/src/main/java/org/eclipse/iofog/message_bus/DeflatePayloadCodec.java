@@ -0,0 +1,80 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * {@link PayloadCodec} using {@link Deflater} of the JDK
+ * decompression stops at the expected length, so a malformed message can not inflate beyond it
+ */
+final class DeflatePayloadCodec implements PayloadCodec {
+	static final String NAME = "deflate";
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public byte[] compress(byte[] data) {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+			byte[] buffer = new byte[BUFFER_SIZE];
+			while (!deflater.finished()) {
+				int size = deflater.deflate(buffer);
+				out.write(buffer, 0, size);
+			}
+			return out.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	@Override
+	public byte[] decompress(byte[] data, int length) {
+		if (length < 0)
+			throw new IllegalArgumentException("Invalid decompressed length: " + length);
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(data);
+			byte[] result = new byte[length];
+			byte[] overflow = new byte[1];
+			int offset = 0;
+			while (!inflater.finished()) {
+				int size = offset < length
+						? inflater.inflate(result, offset, length - offset)
+						: inflater.inflate(overflow);
+				if (size == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					break;
+				if (offset == length && size > 0)
+					throw new IllegalArgumentException("Compressed data is longer than " + length);
+				offset += size;
+			}
+			if (offset != length || !inflater.finished())
+				throw new IllegalArgumentException("Compressed data does not match length " + length);
+			return result;
+		} catch (DataFormatException e) {
+			throw new IllegalArgumentException("Invalid compressed data", e);
+		} finally {
+			inflater.end();
+		}
+	}
+}
@@ -17,12 +17,7 @@ import org.eclipse.iofog.local_api.MessageCallback;
 import org.eclipse.iofog.utils.logging.LoggingService;
 
 import jakarta.jms.MessageListener;
-import jakarta.jms.TextMessage;
-import javax.json.Json;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
-
-import java.io.StringReader;
+import java.util.function.Predicate;
 
 /**
  * listener for real-time receiving
@@ -34,23 +29,29 @@ public class IOMessageListener implements MessageListener {
 	private static final String MODULE_NAME = "MessageListener";
 
 	private final MessageCallback callback;
+	private final Predicate<Message> duplicate;
 	
 	public IOMessageListener(MessageCallback callback) {
+		this(callback, message -> false);
+	}
+
+	/**
+	 * @param callback - real-time receiver
+	 * @param duplicate - true for a message the receiver got already, which is dropped
+	 */
+	public IOMessageListener(MessageCallback callback, Predicate<Message> duplicate) {
 		this.callback = callback;
+		this.duplicate = duplicate;
 	}
 	
 	@Override
 	public void onMessage(jakarta.jms.Message msg) {
 		LoggingService.logDebug(MODULE_NAME, "Start acknowledging message onMessage");
 		try {
-			TextMessage textMessage = (TextMessage) msg;
-			textMessage.acknowledge();
-			JsonReader jsonReader = Json.createReader(new StringReader(textMessage.getText()));
-			JsonObject json = jsonReader.readObject();
-			jsonReader.close();
-
-			Message message = new Message(json);
-			callback.sendRealtimeMessage(message);
+			msg.acknowledge();
+			Message message = MessageBusServer.readMessage(msg);
+			if (!duplicate.test(message))
+				callback.sendRealtimeMessage(message);
 		} catch (Exception exp) {
 			LoggingService.logError(MODULE_NAME, "Error acknowledging message",
 					new AgentSystemException("Error acknowledging message", exp));
@@ -58,4 +59,13 @@ public class IOMessageListener implements MessageListener {
 
 		LoggingService.logDebug(MODULE_NAME, "Finish acknowledging message onMessage");
 	}
+
+	/**
+	 * passes {@link Message} published on this agent to the real-time receiver
+	 *
+	 * @param message - {@link Message} to be sent
+	 */
+	void deliver(Message message) {
+		callback.sendRealtimeMessage(message);
+	}
 }
@@ -0,0 +1,128 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * lock-free histogram of message latencies in milliseconds with fixed log-linear buckets
+ * values below {@value #SUB_BUCKETS} are counted exactly, larger values in {@value #SUB_BUCKETS}
+ * buckets per power of two, so reported percentiles are at most 1/{@value #SUB_BUCKETS} above the real value
+ */
+final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// about 25 days
+	static final long MAX_VALUE = (1L << 41) - 1;
+	private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	static int index(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+	}
+
+	/**
+	 * @param index - bucket index
+	 * @return highest value counted in the bucket
+	 */
+	static long highestValue(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+		long subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+		return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * records latency of one message, negative values caused by clock changes are counted as 0
+	 *
+	 * @param latency - latency in milliseconds
+	 */
+	void record(long latency) {
+		long value = Math.max(0, Math.min(latency, MAX_VALUE));
+		counts.incrementAndGet(index(value));
+		count.increment();
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	long getCount() {
+		return count.sum();
+	}
+
+	long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @param percentile - percentile between 0 and 100
+	 * @return latency in milliseconds which the percentile of messages did not exceed, 0 if nothing is recorded
+	 */
+	long getPercentile(double percentile) {
+		return getPercentile(snapshot(), percentile);
+	}
+
+	private long[] snapshot() {
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++)
+			snapshot[i] = counts.get(i);
+		return snapshot;
+	}
+
+	private long getPercentile(long[] snapshot, double percentile) {
+		long total = 0;
+		for (long bucketCount : snapshot)
+			total += bucketCount;
+		if (total == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank)
+				return Math.min(highestValue(i), getMax());
+		}
+		return getMax();
+	}
+
+	/**
+	 * @param publisher - ID of publisher microservice
+	 * @param receiver - ID of receiver microservice
+	 * @return count, max and percentiles of one snapshot of the histogram
+	 */
+	JsonObjectBuilder toJson(String publisher, String receiver) {
+		long[] snapshot = snapshot();
+		long total = 0;
+		for (long bucketCount : snapshot)
+			total += bucketCount;
+		return Json.createObjectBuilder()
+				.add("publisher", publisher)
+				.add("receiver", receiver)
+				.add("count", total)
+				.add("p50", getPercentile(snapshot, 50))
+				.add("p90", getPercentile(snapshot, 90))
+				.add("p99", getPercentile(snapshot, 99))
+				.add("p999", getPercentile(snapshot, 99.9))
+				.add("max", getMax());
+	}
+}
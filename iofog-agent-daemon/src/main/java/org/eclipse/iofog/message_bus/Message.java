@@ -12,14 +12,12 @@
  */
 package org.eclipse.iofog.message_bus;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Base64;
 import javax.json.Json;
 import javax.json.JsonObject;
 
 import org.eclipse.iofog.exception.AgentSystemException;
-import org.eclipse.iofog.utils.BytesUtil;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.eclipse.iofog.utils.logging.LoggingService.*;
@@ -31,7 +29,7 @@ import static org.eclipse.iofog.utils.logging.LoggingService.*;
  *
  */
 public class Message {
-	private static final short VERSION = 4;
+	private static final short VERSION = MessageCodec.VERSION;
 	private static final String MODULE_NAME = "Message";
 
 	private String id;
@@ -130,253 +128,41 @@ public class Message {
 	}
 
 	public Message(byte[] rawBytes) {
-		super();
-
-		version = BytesUtil.bytesToShort(BytesUtil.copyOfRange(rawBytes, 0, 2));
-		if (version != VERSION) {
-			// TODO: incompatible version
-			return;
-		}
-
-		int pos = 33;
-
-		int size = rawBytes[2];
-		if (size > 0) {
-			id = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(rawBytes, 3, 5));
-		if (size > 0) {
-			tag = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[5];
-		if (size > 0) {
-			messageGroupId = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[6];
-		if (size > 0) {
-			sequenceNumber = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[7];
-		if (size > 0) {
-			sequenceTotal = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[8];
-		if (size > 0) {
-			priority = rawBytes[pos];
-			pos += size;
-		}
-
-		size = rawBytes[9];
-		if (size > 0) {
-			timestamp = BytesUtil.bytesToLong(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[10];
-		if (size > 0) {
-			publisher = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(rawBytes, 11, 13));
-		if (size > 0) {
-			authIdentifier = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(rawBytes, 13, 15));
-		if (size > 0) {
-			authGroup = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[15];
-		if (size > 0) {
-			chainPosition = BytesUtil.bytesToLong(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(rawBytes, 16, 18));
-		if (size > 0) {
-			hash = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(rawBytes, 18, 20));
-		if (size > 0) {
-			previousHash = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(rawBytes, 20, 22));
-		if (size > 0) {
-			nonce = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[22];
-		if (size > 0) {
-			difficultyTarget = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[23];
-		if (size > 0) {
-			infoType = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = rawBytes[24];
-		if (size > 0) {
-			infoFormat = BytesUtil.bytesToString(BytesUtil.copyOfRange(rawBytes, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(rawBytes, 25, 29));
-		if (size > 0) {
-			contextData = BytesUtil.copyOfRange(rawBytes, pos, pos + size);
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(rawBytes, 29, 33));
-		if (size > 0) {
-			contentData = BytesUtil.copyOfRange(rawBytes, pos, pos + size);
-		}
+		this(new MessageView().wrap(ByteBuffer.wrap(rawBytes)));
 	}
 
 	public Message(byte[] header, byte[] data) {
+		this(new MessageView().wrap(ByteBuffer.wrap(header), ByteBuffer.wrap(data)));
+	}
+
+	Message(MessageView view) {
 		super();
 
-		version = BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 0, 2));
+		version = view.getVersion();
 		if (version != VERSION) {
 			// TODO: incompatible version
 			return;
 		}
 
-		int pos = 0;
-
-		int size = header[2];
-		if (size > 0) {
-			id = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 3, 5));
-		if (size > 0) {
-			tag = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[5];
-		if (size > 0) {
-			messageGroupId = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[6];
-		if (size > 0) {
-			sequenceNumber = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[7];
-		if (size > 0) {
-			sequenceTotal = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[8];
-		if (size > 0) {
-			priority = data[pos];
-			pos += size;
-		}
-
-		size = header[9];
-		if (size > 0) {
-			timestamp = BytesUtil.bytesToLong(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[10];
-		if (size > 0) {
-			publisher = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 11, 13));
-		if (size > 0) {
-			authIdentifier = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 13, 15));
-		if (size > 0) {
-			authGroup = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[15];
-		if (size > 0) {
-			chainPosition = BytesUtil.bytesToLong(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 16, 18));
-		if (size > 0) {
-			hash = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 18, 20));
-		if (size > 0) {
-			previousHash = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 20, 22));
-		if (size > 0) {
-			nonce = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[22];
-		if (size > 0) {
-			difficultyTarget = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[23];
-		if (size > 0) {
-			infoType = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = header[24];
-		if (size > 0) {
-			infoFormat = BytesUtil.bytesToString(BytesUtil.copyOfRange(data, pos, pos + size));
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(header, 25, 29));
-		if (size > 0) {
-			contextData = BytesUtil.copyOfRange(data, pos, pos + size);
-			pos += size;
-		}
-
-		size = BytesUtil.bytesToInteger(BytesUtil.copyOfRange(header, 29, 33));
-		if (size > 0) {
-			contentData = BytesUtil.copyOfRange(data, pos, pos + size);
-		}
+		id = view.getId();
+		tag = view.getTag();
+		messageGroupId = view.getMessageGroupId();
+		sequenceNumber = view.getSequenceNumber();
+		sequenceTotal = view.getSequenceTotal();
+		priority = view.getPriority();
+		timestamp = view.getTimestamp();
+		publisher = view.getPublisher();
+		authIdentifier = view.getAuthIdentifier();
+		authGroup = view.getAuthGroup();
+		chainPosition = view.getChainPosition();
+		hash = view.getHash();
+		previousHash = view.getPreviousHash();
+		nonce = view.getNonce();
+		difficultyTarget = view.getDifficultyTarget();
+		infoType = view.getInfoType();
+		infoFormat = view.getInfoFormat();
+		contextData = view.getContextData();
+		contentData = view.getContentData();
 	}
 
 	public String getId() {
@@ -497,159 +283,14 @@ public class Message {
 		this.contentData = contentData;
 	}
 
-	private int getLength(String str) {
-		if (str == null)
-			return 0;
-		else
-			return str.length();
-	}
-
+	/**
+	 * encodes message as ioMessage wire bytes
+	 *
+	 * @return ioMessage bytes
+	 * @throws IllegalArgumentException if a field does not fit its length in the ioMessage header
+	 */
 	public byte[] getBytes() {
-		try (ByteArrayOutputStream headerBaos = new ByteArrayOutputStream();
-			 ByteArrayOutputStream dataBaos = new ByteArrayOutputStream()){
-			//version
-			headerBaos.write(BytesUtil.shortToBytes(VERSION));
-
-			// id
-			int len = getLength(getId());
-			headerBaos.write((byte) (len & 0xff));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getId()));
-
-			// tag
-			len = getLength(getTag());
-			headerBaos.write(BytesUtil.shortToBytes((short) (len & 0xffff)));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getTag()));
-
-			//groupid
-			len = getLength(getMessageGroupId());
-			headerBaos.write((byte) (len & 0xff));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getMessageGroupId()));
-
-			// seq no
-			if (getSequenceNumber() == 0)
-				headerBaos.write(0);
-			else {
-				dataBaos.write(BytesUtil.integerToBytes(getSequenceNumber()));
-				headerBaos.write(4);
-			}
-
-			// seq total
-			if (getSequenceTotal() == 0)
-				headerBaos.write(0);
-			else {
-				dataBaos.write(BytesUtil.integerToBytes(getSequenceTotal()));
-				headerBaos.write(4);
-			}
-
-
-			// priority
-			if (getPriority() == 0)
-				headerBaos.write(0);
-			else {
-				headerBaos.write(1);
-				dataBaos.write(getPriority());
-			}
-
-			//timestamp
-			if (getTimestamp() == 0)
-				headerBaos.write(0);
-			else {
-				headerBaos.write(8);
-				dataBaos.write(BytesUtil.longToBytes(getTimestamp()));
-			}
-
-			// publisher
-			len = getLength(getPublisher());
-			headerBaos.write((byte) (len & 0xff));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getPublisher()));
-
-			// authIdentifier
-			len = getLength(getAuthIdentifier());
-			headerBaos.write(BytesUtil.shortToBytes((short) (len & 0xffff)));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getAuthIdentifier()));
-
-			// authGroup
-			len = getLength(getAuthGroup());
-			headerBaos.write(BytesUtil.shortToBytes((short) (len & 0xffff)));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getAuthGroup()));
-
-			// chainPosition
-			if (getChainPosition() == 0)
-				headerBaos.write(0);
-			else {
-				headerBaos.write(8);
-				dataBaos.write(BytesUtil.longToBytes(getChainPosition()));
-			}
-
-			// hash
-			len = getLength(getHash());
-			headerBaos.write(BytesUtil.shortToBytes((short) (len & 0xffff)));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getHash()));
-
-			// previousHash
-			len = getLength(getPreviousHash());
-			headerBaos.write(BytesUtil.shortToBytes((short) (len & 0xffff)));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getPreviousHash()));
-
-			// nonce
-			len = getLength(getNonce());
-			headerBaos.write(BytesUtil.shortToBytes((short) (len & 0xffff)));
-			if (len > 0) 
-				dataBaos.write(BytesUtil.stringToBytes(getNonce()));
-
-			// difficultyTarget
-			if (getDifficultyTarget() == 0)
-				headerBaos.write(0);
-			else {
-				headerBaos.write(4);
-				dataBaos.write(BytesUtil.integerToBytes(getDifficultyTarget()));
-			}
-
-			// infoType
-			len = getLength(getInfoType());
-			headerBaos.write((byte) (len & 0xff));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getInfoType()));
-
-			// infoFormat
-			len = getLength(getInfoFormat());
-			headerBaos.write((byte) (len & 0xff));
-			if (len > 0)
-				dataBaos.write(BytesUtil.stringToBytes(getInfoFormat()));
-
-			// contextData
-			if (getContextData() == null)
-				headerBaos.write(BytesUtil.integerToBytes(0));
-			else {
-				headerBaos.write(BytesUtil.integerToBytes(getContextData().length));
-				dataBaos.write(getContextData());
-			}
-
-			// contentData
-			if (getContentData() == null)
-				headerBaos.write(BytesUtil.integerToBytes(0));
-			else {
-				headerBaos.write(BytesUtil.integerToBytes(getContentData().length));
-				dataBaos.write(getContentData());
-			}
-
-			ByteArrayOutputStream result = new ByteArrayOutputStream();
-			headerBaos.writeTo(result);
-			dataBaos.writeTo(result);
-			return result.toByteArray();
-		} catch (IOException exc) {
-			logError(MODULE_NAME, "Error in getBytes", new AgentSystemException(exc.getMessage(), exc));
-		}
-
-		return new byte[] {};
+		return MessageCodec.toBytes(this);
 	}
 
 	@Override
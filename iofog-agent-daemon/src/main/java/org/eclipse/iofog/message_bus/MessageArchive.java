@@ -13,16 +13,11 @@
 package org.eclipse.iofog.message_bus;
 
 import java.io.File;
-import java.io.FilenameFilter;
-import java.io.RandomAccessFile;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Stack;
 
 import org.eclipse.iofog.exception.AgentSystemException;
 import org.eclipse.iofog.microservice.Microservice;
-import org.eclipse.iofog.utils.BytesUtil;
 import org.eclipse.iofog.utils.Constants;
 import org.eclipse.iofog.utils.configuration.Configuration;
 import org.eclipse.iofog.utils.logging.LoggingService;
@@ -36,15 +31,14 @@ import org.eclipse.iofog.utils.logging.LoggingService;
 public class MessageArchive implements AutoCloseable{
 	private static final String MODULE_NAME = "MessageArchive";
 
-	private static final byte HEADER_SIZE = 33;
-	private static final short MAXIMUM_MESSAGE_PER_FILE = 1000;
-	private static final int MAXIMUM_ARCHIVE_SIZE_MB = 1;
+	private static final byte HEADER_SIZE = MessageCodec.HEADER_SIZE;
 
 	private final String name;
 	private String diskDirectory;
-	private String currentFileName;
-	private RandomAccessFile indexFile;
-	private RandomAccessFile dataFile;
+	private ArchiveCatalog catalog;
+	private long lastSegmentTimestamp;
+	private ArchiveSegment segment;
+	private ArchiveCatalog.Segment catalogSegment;
 	
 	public MessageArchive(String name) {
 		this.name = name;
@@ -52,133 +46,172 @@ public class MessageArchive implements AutoCloseable{
 	}
 	
 	/**
-	 * sets the file name for {@link Message} to be archived
+	 * finds the latest segment of this {@link Microservice} to continue appending to
+	 * and queues older segments which are not compressed yet
 	 * 
 	 */
 	private void init() {
-		currentFileName = "";
-		diskDirectory = Configuration.getDiskDirectory() + "messages/archive/";
+		lastSegmentTimestamp = 0;
+		catalog = ArchiveCatalog.getInstance();
+		diskDirectory = catalog.getDirectory();
 		
-		File lastFile = null;
-		long lastFileTimestamp = 0;
 		final File workingDirectory = new File(diskDirectory);
 		if (!workingDirectory.exists())
 			workingDirectory.mkdirs();
 		
-		FilenameFilter filter = (dir, fileName) -> fileName.substring(0, name.length()).equals(name)
-				&& fileName.substring(fileName.indexOf(".")).equals(".idx");
-		
-		for (File file : workingDirectory.listFiles(filter)) {
-			if (!file.isFile())
-				continue;
-			String filename = file.getName();
-			if (filename.substring(0, name.length()).equals(name)) {
-				String timestampStr = filename.substring(name.length() + 1, filename.indexOf("."));
-				long timestamp = Long.parseLong(timestampStr);
-				if (timestamp > lastFileTimestamp) {
-					lastFileTimestamp = timestamp;
-					lastFile = file; 
-				}
-			}
+		List<ArchiveCatalog.Segment> segments = catalog.getSegments(name);
+		for (int i = 0; i < segments.size() - 1; i++) {
+			if (!segments.get(i).isCompressed())
+				ArchiveCompressor.getInstance().submit(new File(diskDirectory + name + "_"
+						+ segments.get(i).getTimestamp() + ArchiveSegment.INDEX_EXTENSION));
 		}
-		
-		if (lastFileTimestamp > 0 && lastFile.length() < ((HEADER_SIZE + Long.BYTES) * MAXIMUM_MESSAGE_PER_FILE))
-			currentFileName = lastFile.getPath();
+		// compressed segment can not be appended to
+		if (!segments.isEmpty() && !segments.get(segments.size() - 1).isCompressed())
+			lastSegmentTimestamp = segments.get(segments.size() - 1).getTimestamp();
 	}
 	
 	/**
-	 * opens index and data file
+	 * opens a new segment, sized to hold at least the given message
 	 * 
-	 * @param timestamp- timestamp of first {@link Message} in the file
+	 * @param timestamp - timestamp of first {@link Message} in the segment
+	 * @param messageLength - size of the message to be stored
 	 * @throws Exception
 	 */
-	private void openFiles(long timestamp) throws Exception {
-		if (currentFileName.equals(""))
-			currentFileName = diskDirectory + name + "_" + timestamp + ".idx";
-		indexFile = new RandomAccessFile(new File(currentFileName), "rw");
-		dataFile = new RandomAccessFile(new File(currentFileName.substring(0, currentFileName.indexOf(".")) + ".iomsg"), "rw");
+	private void openSegment(long timestamp, int messageLength) throws Exception {
+		int capacity = Math.max(Configuration.getArchiveSegmentSize(), 1) * Constants.MiB;
+		catalogSegment = catalog.open(name, timestamp);
+		try {
+			segment = ArchiveSegment.open(diskDirectory, name, timestamp, Math.max(capacity, messageLength - HEADER_SIZE));
+		} catch (Exception e) {
+			catalog.seal(catalogSegment);
+			throw e;
+		}
+		lastSegmentTimestamp = timestamp;
 	}
 	
 	/**
-	 * archives {@link Message} to file. If size of the data file becomes more than
-	 * defined value, creates a new file 
+	 * queues {@link Message} to be archived by {@link ArchiveWriter}
 	 * 
 	 * @param message - {@link Message} to be archived
 	 * @param timestamp - timestamp of the {@link Message}
 	 * @throws Exception
 	 */
 	void save(byte[] message, long timestamp) throws Exception {
-		if (indexFile == null)
-			openFiles(timestamp);
-		
-		if ((message.length + dataFile.length()) >= (MAXIMUM_ARCHIVE_SIZE_MB * 1_000_000)) {
-			close();
-			openFiles(timestamp);
-		}
-		indexFile.seek(indexFile.length());
-		dataFile.seek(dataFile.length());
-		long dataPos = dataFile.getFilePointer();
+		ArchiveWriter.getInstance().submit(this, message, timestamp);
+	}
+
+	/**
+	 * queues batch of {@link Message} to be archived by {@link ArchiveWriter} with a single write
+	 *
+	 * @param messages - {@link Message} bytes to be archived
+	 * @param timestamps - timestamps of the {@link Message}
+	 * @throws Exception
+	 */
+	void save(byte[][] messages, long[] timestamps) throws Exception {
+		ArchiveWriter.getInstance().submit(this, messages, timestamps);
+	}
+	
+	/**
+	 * writes {@link Message} to the active segment. If the segment is full,
+	 * seals it and continues in a new one
+	 * 
+	 * @param message - {@link Message} to be archived
+	 * @param timestamp - timestamp of the {@link Message}
+	 */
+	synchronized void write(byte[] message, long timestamp) {
 		try {
-			indexFile.write(message, 0, HEADER_SIZE);
-			indexFile.writeLong(dataPos);
-			dataFile.write(message, HEADER_SIZE, message.length - HEADER_SIZE);
+			append(message, timestamp);
+			catalog.update(catalogSegment, segment.getLength());
 		} catch(Exception e) {
 			LoggingService.logError(MODULE_NAME, "Error saving archive",
 					new AgentSystemException(e.getMessage(), e));
 		}
 	}
-	
+
 	/**
-	 * closes index and data files
+	 * writes batch of {@link Message} to the active segment, rolling segments as needed
 	 * 
+	 * @param messages - {@link Message} bytes to be archived
+	 * @param timestamps - timestamps of the {@link Message}
 	 */
-	public void close() {
-		try {
-			currentFileName = "";
-			if (indexFile != null){
-				indexFile.close();
-				indexFile = null;
+	synchronized void write(byte[][] messages, long[] timestamps) {
+		for (int i = 0; i < messages.length; i++) {
+			try {
+				append(messages[i], timestamps[i]);
+			} catch(Exception e) {
+				LoggingService.logError(MODULE_NAME, "Error saving archive",
+						new AgentSystemException(e.getMessage(), e));
 			}
-			if (dataFile != null){
-				dataFile.close();
-				dataFile = null;
+		}
+		if (segment != null)
+			catalog.update(catalogSegment, segment.getLength());
+	}
+
+	private void append(byte[] message, long timestamp) throws Exception {
+		if (segment == null)
+			openSegment(lastSegmentTimestamp > 0 ? lastSegmentTimestamp : timestamp, message.length);
+		if (!segment.append(message)) {
+			ArchiveSegment fullSegment = segment;
+			segment = null;
+			try {
+				fullSegment.seal();
+			} finally {
+				catalog.seal(catalogSegment);
 			}
-			currentFileName = "";
+			ArchiveCompressor.getInstance().submit(fullSegment.getIndexFile());
+			// segment file names must stay unique when it rolls within the same millisecond
+			openSegment(Math.max(timestamp, lastSegmentTimestamp + 1), message.length);
+			segment.append(message);
+		}
+	}
+	
+	/**
+	 * flushes written messages of the active segment to disk
+	 * 
+	 */
+	synchronized void sync() {
+		try {
+			if (segment != null)
+				segment.force();
 		} catch (Exception exp) {
-			LoggingService.logError(MODULE_NAME, exp.getMessage(), exp);
+			LoggingService.logError(MODULE_NAME, "Error syncing archive", exp);
 		}
 	}
 	
 	/**
-	 * computes {@link Message} size
+	 * seals the active segment after queued messages are written
 	 * 
-	 * @param header - header of the {@link Message}
-	 * @return int
 	 */
-	private int getDataSize(byte[] header) {
-		int size;
-		size = header[2];
-		size += BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 3, 5));
-		size += header[5];
-		size += header[6];
-		size += header[7];
-		size += header[8];
-		size += header[9];
-		size += header[10];
-		size += BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 11, 13));
-		size += BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 13, 15));
-		size += header[15];
-		size += BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 16, 18));
-		size += BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 18, 20));
-		size += BytesUtil.bytesToShort(BytesUtil.copyOfRange(header, 20, 22));
-		size += header[22];
-		size += header[23];
-		size += header[24];
-		size += BytesUtil.bytesToInteger(BytesUtil.copyOfRange(header, 25, 29));
-		size += BytesUtil.bytesToInteger(BytesUtil.copyOfRange(header, 29, 33));
-		return size;
+	public void close() {
+		try {
+			ArchiveWriter.getInstance().close(this);
+		} catch (InterruptedException exp) {
+			Thread.currentThread().interrupt();
+			seal();
+		}
 	}
-
+	
+	/**
+	 * seals the active segment
+	 * 
+	 */
+	synchronized void seal() {
+		try {
+			lastSegmentTimestamp = 0;
+			if (segment != null) {
+				ArchiveSegment activeSegment = segment;
+				segment = null;
+				try {
+					activeSegment.seal();
+				} finally {
+					catalog.seal(catalogSegment);
+				}
+			}
+		} catch (Exception exp) {
+			LoggingService.logError(MODULE_NAME, exp.getMessage(), exp);
+		}
+	}
+	
 	/**
 	 *
 	 *
@@ -189,6 +222,19 @@ public class MessageArchive implements AutoCloseable{
 		return runtime.maxMemory() - ((runtime.totalMemory() - runtime.freeMemory()));
 	}
 
+	/**
+	 * opens cursor over {@link Message} sent by this {@link Microservice} within the time frame
+	 * 
+	 * @param from - beginning of time frame in milliseconds
+	 * @param to - end of time frame in milliseconds
+	 * @param segment - segment to start from, as returned by {@link ArchiveCursor#getSegment()}, 0 to start from beginning
+	 * @param record - record to start from, as returned by {@link ArchiveCursor#getRecord()}
+	 * @return {@link ArchiveCursor}
+	 */
+	public ArchiveCursor cursor(long from, long to, long segment, int record) {
+		return new ArchiveCursor(name, catalog.getIndexFiles(name, from, to), from, to, segment, record);
+	}
+
 	/**
 	 * retrieves list of {@link Message} sent by this {@link Microservice} within the time frame
 	 * 
@@ -198,63 +244,17 @@ public class MessageArchive implements AutoCloseable{
 	 */
 	public List<Message> messageQuery(long from, long to) {
 		LoggingService.logDebug(MODULE_NAME, "Start message query");
-		boolean outOfMemory = false;
 		List<Message> result = new ArrayList<>();
 		
-		File workingDirectory = new File(diskDirectory);
-		FilenameFilter filter = (dir, fileName) -> fileName.substring(0, name.length()).equals(name)
-				&& fileName.substring(fileName.indexOf(".")).equals(".idx");
-		File[] listOfFiles = workingDirectory.listFiles(filter);
-		Stack<File> resultSet = new Stack<>();
-		if (listOfFiles != null) {
-			Arrays.sort(listOfFiles);
-
-			int i = listOfFiles.length - 1;
-			for (; i >= 0; i--) {
-				File file = listOfFiles[i];
-				if (!file.isFile())
-					continue;
-				long timestamp = Long.parseLong(file.getName().substring(name.length() + 1, file.getName().indexOf(".")));
-				if (timestamp < from)
+		try (ArchiveCursor cursor = cursor(from, to, 0, 0)) {
+			Message message;
+			while ((message = cursor.next()) != null) {
+				if (freeMemory() < 32 * Constants.MiB)
 					break;
-				if (timestamp >= from && timestamp <= to)
-					resultSet.push(file);
-			}
-			if (i >= 0)
-				resultSet.push(listOfFiles[i]);
-		}
-		
-		byte[] header = new byte[HEADER_SIZE];
-		while (!resultSet.isEmpty() && !outOfMemory) {
-			File file = resultSet.pop();
-			String fileName = file.getName();
-			String dataFileName = diskDirectory + fileName.substring(0, fileName.indexOf(".")) + ".iomsg";
-			try (RandomAccessFile indexFile = new RandomAccessFile(new File(diskDirectory + fileName), "r");
-				RandomAccessFile dataFile = new RandomAccessFile(new File(dataFileName), "r")){
-				long dataFileLength = dataFile.length();
-				while (indexFile.getFilePointer() < indexFile.length()) {
-					if (freeMemory() < 32 * Constants.MiB) {
-						outOfMemory = true;
-						break;
-					}
-
-					indexFile.read(header, 0, HEADER_SIZE);
-					if (((header[0] * 256) + header[1]) != 4)
-						throw new Exception("invalid index file format");
-					long dataPos = indexFile.readLong();
-					int dataSize = getDataSize(header);
-					if (dataPos + dataSize > dataFileLength || dataSize > dataFileLength)
-						throw new Exception("invalid data file format");
-					byte[] data = new byte[dataSize];
-					dataFile.read(data, 0, dataSize);
-					Message message = new Message(header, data);
-					if (message.getTimestamp() < from || message.getTimestamp() > to)
-						continue;
-					result.add(message);
-				}
-			} catch (Exception e) {
-				LoggingService.logError("Message Archive", e.getMessage(), e);
+				result.add(message);
 			}
+		} catch (Exception e) {
+			LoggingService.logError("Message Archive", e.getMessage(), e);
 		}
 		LoggingService.logDebug(MODULE_NAME, "Finish message query");
 		return result;
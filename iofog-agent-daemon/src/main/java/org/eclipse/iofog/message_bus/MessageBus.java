@@ -34,11 +34,17 @@ import jakarta.jms.JMSException;
 import jakarta.jms.MessageConsumer;
 import javax.json.JsonObject;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 import static org.eclipse.iofog.utils.Constants.MESSAGE_BUS;
 import static org.eclipse.iofog.utils.Constants.ModulesStatus.STOPPED;
@@ -52,18 +58,36 @@ import static org.eclipse.iofog.utils.Constants.ModulesStatus.STOPPED;
 public class MessageBus implements IOFogModule {
 	
 	final static String MODULE_NAME = "Message Bus";
+	private static final long RECONNECT_INITIAL_DELAY_MILLIS = 1000;
+	private static final long RECONNECT_MAX_DELAY_MILLIS = 60000;
 
 	private MessageBusServer messageBusServer;
 	private Map<String, Route> routes;
 	private Map<String, MessagePublisher> publishers = new ConcurrentHashMap<>();
 	private Map<String, MessageReceiver> receivers = new ConcurrentHashMap<>();
-	private MessageIdGenerator idGenerator = new MessageIdGenerator();;
+	private final MessageIdGenerator idGenerator = new MessageIdGenerator();
 	private static MessageBus instance;
 	private MicroserviceManager microserviceManager;
 	private final Object updateLock = new Object();
 	private String routerHost;
 	private int routerPort;
+	// address of the last connection is tried first after connection loss, it is asked again after a failed attempt
+	private boolean refreshRouterAddress = true;
+	private Orchestrator orchestrator;
 	private ReentrantLock messageBusLock = new ReentrantLock();
+	// one attempt to connect to the router is scheduled or running at a time
+	private final AtomicBoolean reconnectScheduled = new AtomicBoolean();
+	private final ReconnectBackoff reconnectBackoff = new ReconnectBackoff(RECONNECT_INITIAL_DELAY_MILLIS, RECONNECT_MAX_DELAY_MILLIS);
+	private final ScheduledExecutorService reconnector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, Constants.MESSAGE_BUS_RECONNECTOR);
+		thread.setDaemon(true);
+		return thread;
+	});
+	// set when a connection was opened, until it is closed
+	private boolean serverStarted;
+	// set by stop, no attempt to connect to the router is made after it
+	private volatile boolean stopped;
+	private MessageBusExceptionListener exceptionListener;
 
 	private long lastSpeedTime, lastSpeedMessageCount;
 
@@ -130,7 +154,8 @@ public class MessageBus implements IOFogModule {
 
 		updatePublishersAndReceivers();
 
-		messageBusServer.setExceptionListener(new MessageBusExceptionListener(messageBusServer, publishers, receivers, startServer));
+		exceptionListener = new MessageBusExceptionListener(this::connectionLost);
+		messageBusServer.setExceptionListener(exceptionListener);
 
 		logInfo("Finished initialization of message bus publisher and receiver");
 	}
@@ -161,10 +186,16 @@ public class MessageBus implements IOFogModule {
 		}
 	};
 
+	/**
+	 * applies route changes, only producers and consumers of added or removed routes and receivers are touched
+	 *
+	 */
 	private void updatePublishersAndReceivers() throws Exception {
 		Map<String, Route> newRoutes = microserviceManager.getRoutes();
-		List<String> newPublishers = new ArrayList<>();
-		List<String> newReceivers = new ArrayList<>();
+		List<Microservice> latestMicroservices = microserviceManager.getLatestMicroservices();
+		Set<String> newPublishers = new HashSet<>();
+		// receivers of the routes and consumer microservices
+		Set<String> newReceivers = new HashSet<>();
 
 		for (Map.Entry<String, Route> entry: newRoutes.entrySet()) {
 			if (entry.getValue() == null || entry.getValue().getReceivers() == null) {
@@ -172,24 +203,33 @@ public class MessageBus implements IOFogModule {
 			}
 
 			newPublishers.add(entry.getKey());
-			for (String receiver: entry.getValue().getReceivers()) {
-				newReceivers.add(receiver);
+			newReceivers.addAll(entry.getValue().getReceivers());
+		}
+		for (Microservice microservice: latestMicroservices) {
+			if (microservice.isConsumer()) {
+				newReceivers.add(microservice.getMicroserviceUuid());
 			}
 		}
 
 		Set<String> keys = publishers.keySet();
 		for (String key: keys) {
+			MessagePublisher publisher = publishers.get(key);
 			if (!newPublishers.contains(key)) {
-				publishers.get(key).close();
+				publisher.clearOutbox();
+				publisher.close();
 				messageBusServer.removeProducer(key);
 				publishers.remove(key);
-			} else {
-				MessagePublisher publisher = publishers.get(key);
-				Route route = newRoutes.get(key);
-				Route currentRoute = publisher.getRoute();
-				if (!currentRoute.equals(route)) {
-					messageBusServer.removeProducer(key);
-					publisher.updateRoute(route, messageBusServer.getProducer(key, route.getReceivers()));
+				continue;
+			}
+			Route route = newRoutes.get(key);
+			if (!publisher.isConnected()) {
+				// disconnected publisher gets producers of the new router connection
+				messageBusServer.removeProducer(key);
+				publisher.updateRoute(route, messageBusServer.getProducer(key, route.getReceivers()));
+			} else if (!route.equals(publisher.getRoute())) {
+				// publisher does not send while producers of removed receivers are closed
+				synchronized (publisher) {
+					publisher.updateRoute(route, messageBusServer.updateProducer(key, route.getReceivers()));
 				}
 			}
 		}
@@ -210,45 +250,58 @@ public class MessageBus implements IOFogModule {
 			}
 			receivers.get(rec).close();
 			messageBusServer.removeConsumer(rec);
-			publishers.remove(rec);
+			receivers.remove(rec);
 		}
 
+		Map<String, ChannelHandlerContext> messageSocketMap = WebSocketMap.getMessageWebsocketMap();
 		for (String newReceiver: newReceivers) {
-			if (receivers.containsKey(newReceiver)) {
-				continue;
+			MessageConsumer consumer = messageBusServer.getConsumer(newReceiver);
+			if (consumer == null) {
+				throw new Exception("Unable to create consumer " + newReceiver);
+			}
+			// receiver keeps messages taken ahead and delivered in memory, so only its consumer is replaced
+			MessageReceiver messageReceiver = receivers.get(newReceiver);
+			if (messageReceiver == null) {
+				messageReceiver = new MessageReceiver(newReceiver, consumer);
+				receivers.put(newReceiver, messageReceiver);
+			} else if (messageReceiver.getConsumer() != consumer) {
+				messageReceiver.reattach(consumer);
+			}
+
+			// real-time listener in use is kept
+			if (messageSocketMap.containsKey(newReceiver) && !messageReceiver.isRealTimeReceiving()) {
+				messageReceiver.enableRealTimeReceiving();
 			}
-			MessageReceiver messageReceiver = new MessageReceiver(newReceiver, messageBusServer.getConsumer(newReceiver));
-			receivers.put(newReceiver, messageReceiver);
 		}
 
 		routes = newRoutes;
 
-		List<Microservice> latestMicroservices = microserviceManager.getLatestMicroservices();
-		Map<String, Long> publishedMessagesPerMicroservice = StatusReporter.getMessageBusStatus().getPublishedMessagesPerMicroservice();
-		publishedMessagesPerMicroservice.keySet().removeIf(key -> !microserviceManager.microserviceExists(latestMicroservices, key));
-
-		for (Microservice microservice: latestMicroservices) {
-			if (!publishedMessagesPerMicroservice.keySet().contains(microservice.getMicroserviceUuid())) {
-				publishedMessagesPerMicroservice.put(microservice.getMicroserviceUuid(), 0L);
-			}
-
-			if (!microservice.isConsumer()) {
-				continue;
-			}
+		StatusReporter.getMessageBusStatus().setMicroservices(latestMicroservices.stream()
+				.map(Microservice::getMicroserviceUuid)
+				.collect(Collectors.toList()));
 
-			String id = microservice.getMicroserviceUuid();
-			MessageConsumer consumer = messageBusServer.getConsumer(id);
-			if (consumer != null) {
-				MessageReceiver messageReceiver = new MessageReceiver(id, consumer);
-				receivers.put(id, messageReceiver);
+		updateLocalReceivers(latestMicroservices);
+	}
 
-				Map<String, ChannelHandlerContext> messageSocketMap = WebSocketMap.getMessageWebsocketMap();
-				if (messageSocketMap.containsKey(id)) {
-					messageReceiver.enableRealTimeReceiving();
-				}
-			} else {
-				throw new Exception("Unable to create consumer " + id);
+	/**
+	 * gives every publisher the receivers of its route running on this agent, messages to them skip the router
+	 * receivers are in the order of the route receivers, which is the order of the producers
+	 *
+	 * @param latestMicroservices - microservices running on this agent
+	 */
+	private void updateLocalReceivers(List<Microservice> latestMicroservices) {
+		Set<String> localIds = Configuration.isLocalDelivery()
+				? latestMicroservices.stream().map(Microservice::getMicroserviceUuid).collect(Collectors.toSet())
+				: Set.of();
+		for (MessagePublisher publisher: publishers.values()) {
+			Route route = publisher.getRoute();
+			List<MessageReceiver> localReceivers = null;
+			if (!localIds.isEmpty() && route != null && route.getReceivers() != null) {
+				localReceivers = new ArrayList<>();
+				for (String receiver: route.getReceivers())
+					localReceivers.add(localIds.contains(receiver) ? receivers.get(receiver) : null);
 			}
+			publisher.setLocalReceivers(localReceivers);
 		}
 	}
 
@@ -261,8 +314,7 @@ public class MessageBus implements IOFogModule {
 		logDebug("Start update routes, list of publishers and receivers");
 		synchronized (updateLock) {
 			if (!messageBusServer.isConnected()) {
-				messageBusServer.setConnected(false);
-				new Thread(startServer).start();
+				scheduleReconnect();
 				throw new JMSException("Not connected to router");
 			}
 
@@ -270,15 +322,19 @@ public class MessageBus implements IOFogModule {
 			int tempRouterPort = routerPort;
 			getRouterAddress();
 			if (!tempRouterHost.equals(routerHost) || tempRouterPort != routerPort) {
+				messageBusLock.lock();
 				try {
-					stop();
+					messageBusServer.setConnected(false);
+					StatusReporter.getMessageBusStatus().setRouterConnected(false);
+					disconnect();
 				} catch (Exception ex) {
 					logError(MODULE_NAME, new AgentSystemException("unable to update router info", ex));
 				} finally {
-					messageBusServer.setConnected(false);
-					new Thread(startServer).start();
-					throw new JMSException("Not connected to router");
+					messageBusLock.unlock();
 				}
+				reconnectBackoff.reset();
+				scheduleReconnect();
+				throw new JMSException("Not connected to router");
 			}
 
 			updatePublishersAndReceivers();
@@ -292,11 +348,16 @@ public class MessageBus implements IOFogModule {
 	 * 
 	 */
 	public void instanceConfigUpdated() {
-		// TODO: Set router address if changed
+		// controller address and credentials are read again for the next router address request
+		Orchestrator current = orchestrator;
+		if (current != null)
+			current.update();
+		receivers.values().forEach(MessageReceiver::updateDedupWindow);
 	}
 
 	private void getRouterAddress() throws Exception {
-		Orchestrator orchestrator = new Orchestrator();
+		if (orchestrator == null)
+			orchestrator = new Orchestrator();
 		JsonObject configs = orchestrator.request("config", RequestType.GET, null, null);
 		routerHost = configs.getString("routerHost");
 		routerPort = configs.getJsonNumber("routerPort").intValue();
@@ -305,47 +366,92 @@ public class MessageBus implements IOFogModule {
 	public void startServer() throws Exception {
 		logInfo("STARTING MESSAGE BUS SERVER");
 
-		getRouterAddress();
+		if (routerHost == null || refreshRouterAddress)
+			getRouterAddress();
+		refreshRouterAddress = true;
 
+		serverStarted = true;
 		messageBusServer.startServer(routerHost, routerPort);
 		messageBusServer.initialize();
+		refreshRouterAddress = false;
 
 		logInfo("MESSAGE BUS SERVER STARTED");
-		Thread speedCalc = new Thread(calculateSpeed, Constants.MESSAGE_BUS_CALCULATE_SPEED);
-		speedCalc.start();
 	}
 
-	private Runnable startServer = new Runnable() {
-		@Override
-		public void run() {
-			messageBusLock.lock();
+	/**
+	 * schedules an attempt to connect to the router, unless one is scheduled or running already
+	 *
+	 */
+	private void scheduleReconnect() {
+		if (!stopped && reconnectScheduled.compareAndSet(false, true))
+			scheduleNextAttempt();
+	}
 
-			if (messageBusServer.isConnected()) {
-				messageBusLock.unlock();
+	private void scheduleNextAttempt() {
+		if (stopped) {
+			reconnectScheduled.set(false);
+			return;
+		}
+		long delay = reconnectBackoff.nextDelay();
+		StatusReporter.getMessageBusStatus().setNextReconnectTime(System.currentTimeMillis() + delay);
+		logInfo("Connecting to router in " + delay + " ms");
+		reconnector.schedule(this::reconnect, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * connects to the router and reattaches publishers and receivers to the new connection
+	 * next attempt is scheduled with a longer delay if this one fails
+	 *
+	 */
+	private void reconnect() {
+		if (stopped)
+			return;
+		messageBusLock.lock();
+		try {
+			MessageBusStatus messageBusStatus = StatusReporter.getMessageBusStatus();
+			messageBusStatus.setNextReconnectTime(0);
+			if (stopped || messageBusServer.isConnected()) {
+				reconnectScheduled.set(false);
 				return;
 			}
-
+			messageBusStatus.setRouterConnected(false).increaseReconnectAttempts();
 			try {
+				// what is left of the lost connection
+				disconnect();
 				startServer();
 				init();
 
+				reconnectBackoff.reset();
+				// connection lost from now on schedules a new attempt
+				reconnectScheduled.set(false);
 				messageBusServer.setConnected(true);
+				messageBusStatus.setRouterConnected(true).increaseReconnects();
 			} catch (Exception e) {
-				messageBusServer.setConnected(false);
-				try {
-					Thread.sleep(2000);
-					stop();
-				} catch (Exception exp) {
-				}
 				logWarning("Error starting message bus module: " +
 						new AgentSystemException(e.getMessage(), e));
 				StatusReporter.setSupervisorStatus().setModuleStatus(MESSAGE_BUS, STOPPED);
-				new Thread(startServer).start();
-			} finally {
-				messageBusLock.unlock();
+				disconnect();
+				scheduleNextAttempt();
 			}
+		} catch (Exception e) {
+			reconnectScheduled.set(false);
+			logError(MODULE_NAME, new AgentSystemException("unable to schedule connecting to router", e));
+		} finally {
+			messageBusLock.unlock();
 		}
-	};
+	}
+
+	/**
+	 * called by {@link MessageBusExceptionListener} once per lost connection
+	 * publishers store messages in their outbox right away, the connection is closed by the next attempt
+	 *
+	 */
+	private void connectionLost() {
+		messageBusServer.setConnected(false);
+		StatusReporter.getMessageBusStatus().setRouterConnected(false).increaseRouterConnectionsLost();
+		publishers.values().forEach(MessagePublisher::disconnect);
+		scheduleReconnect();
+	}
 
 	/**
 	 * starts Message Bus module
@@ -356,15 +462,42 @@ public class MessageBus implements IOFogModule {
 
 		messageBusServer = new MessageBusServer();
 
-		new Thread(startServer).start();
+		new Thread(calculateSpeed, Constants.MESSAGE_BUS_CALCULATE_SPEED).start();
+		scheduleReconnect();
 	}
 	
+	/**
+	 * detaches receivers and closes router connection, publishers stay open and keep messages in their outbox
+	 * until the connection is back
+	 *
+	 */
+	private void disconnect() {
+		if (!serverStarted)
+			return;
+		logInfo("Start disconnecting from router");
+		if (exceptionListener != null) {
+			exceptionListener.deactivate();
+			exceptionListener = null;
+		}
+		publishers.values().forEach(MessagePublisher::disconnect);
+		receivers.values().forEach(MessageReceiver::detach);
+		try {
+			messageBusServer.stopServer();
+		} catch (Exception exp) {
+			logError("Error disconnecting from router", new AgentSystemException(exp.getMessage(), exp));
+		}
+		serverStarted = false;
+		logInfo("Finished disconnecting from router");
+	}
+
 	/**
 	 * closes receivers and publishers and stops ActiveMQ server
 	 * 
 	 */
 	public void stop() {
 		logInfo("Start closing receivers and publishers and stops ActiveMQ server");
+		stopped = true;
+		reconnector.shutdownNow();
 
 		if (receivers != null) {
 			for (MessageReceiver receiver : receivers.values()) {
@@ -387,6 +520,8 @@ public class MessageBus implements IOFogModule {
 			}
 			publishers.clear();
 		}
+		ArchiveWriter.getInstance().stop();
+		ArchiveCompressor.getInstance().stop();
 
 		try {
 			messageBusServer.stopServer();
@@ -421,9 +556,19 @@ public class MessageBus implements IOFogModule {
 	 * 
 	 * @return
 	 */
-	public synchronized String getNextId() {
+	public String getNextId() {
 		return idGenerator.getNextId();
 	}
+
+	/**
+	 * generates ids for a batch of {@link Message}
+	 *
+	 * @param count - number of ids
+	 * @return ids in ascending order
+	 */
+	public String[] getNextIds(int count) {
+		return idGenerator.getNextIds(count);
+	}
 	
 	/**
 	 * returns routes
@@ -434,17 +579,20 @@ public class MessageBus implements IOFogModule {
 		return microserviceManager.getRoutes();
 	}
 
+	/**
+	 * listener of one router connection, reports its loss once
+	 * events of a connection which is already closed are ignored
+	 */
 	public static class MessageBusExceptionListener implements ExceptionListener {
-		private MessageBusServer messageBusServer;
-		private Map<String, MessagePublisher> publishers;
-		private Map<String, MessageReceiver> receivers;
-		private Runnable startServer;
-
-		public MessageBusExceptionListener(MessageBusServer messageBusServer, Map<String, MessagePublisher> publishers, Map<String, MessageReceiver> receivers, Runnable startServer) {
-			this.messageBusServer = messageBusServer;
-			this.publishers = publishers;
-			this.receivers = receivers;
-			this.startServer = startServer;
+		private final Runnable connectionLost;
+		private final AtomicBoolean active = new AtomicBoolean(true);
+
+		public MessageBusExceptionListener(Runnable connectionLost) {
+			this.connectionLost = connectionLost;
+		}
+
+		void deactivate() {
+			active.set(false);
 		}
 
 		@Override
@@ -452,17 +600,10 @@ public class MessageBus implements IOFogModule {
 			if (exception instanceof JmsConnectionClosedException
 					|| exception instanceof JmsConnectionFailedException
 					|| exception instanceof JmsConnectionRemotelyClosedException) {
+				if (!active.compareAndSet(true, false))
+					return;
 				LoggingService.logError("Message Bus", "Server is not active. restarting...", exception);
-
-				try {
-					messageBusServer.setConnected(false);
-					Thread.sleep(2000);
-					publishers.forEach((key, publisher) -> publisher.close());
-					receivers.forEach((key, receiver) -> receiver.close());
-					messageBusServer.stopServer();
-				} catch (Exception e) {}
-
-				new Thread(startServer).start();
+				connectionLost.run();
 			}
 		}
 	}
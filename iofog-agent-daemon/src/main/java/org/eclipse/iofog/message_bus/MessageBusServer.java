@@ -13,19 +13,31 @@
 package org.eclipse.iofog.message_bus;
 
 import org.apache.qpid.jms.JmsConnectionFactory;
+import org.apache.qpid.jms.policy.JmsDefaultPrefetchPolicy;
 import org.eclipse.iofog.exception.AgentSystemException;
 import org.eclipse.iofog.microservice.Microservice;
+import org.eclipse.iofog.utils.Constants;
+import org.eclipse.iofog.utils.configuration.Configuration;
 import org.eclipse.iofog.utils.logging.LoggingService;
 
 import jakarta.jms.*;
 import jakarta.jms.IllegalStateException;
+import javax.json.Json;
+import javax.json.JsonReader;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ActiveMQ server
+ * consumers share one {@link Session}, producers of each publisher have their own {@link Session},
+ * so publishers send in parallel without sharing a session across threads
  *
  * @author saeid
  */
@@ -38,16 +50,115 @@ public class MessageBusServer {
 
     private Connection connection;
     private static Session session;
+    // server that opened the shared session, messages are created in the sessions of its publishers
+    private static volatile MessageBusServer current;
+    private final Map<String, Session> publisherSessions = new ConcurrentHashMap<>();
 
     private Map<String, MessageConsumer> consumers = new ConcurrentHashMap<>();
     private Map<String, List<MessageProducer>> producers = new ConcurrentHashMap<>();
+    // receivers of the producers, in the same order
+    private Map<String, List<String>> producerReceivers = new ConcurrentHashMap<>();
 
     private boolean isConnected = false;
 
-	static TextMessage createMessage(String text) throws Exception {
-		return session.createTextMessage(text);
+    // JMS property that marks a BytesMessage body as ioMessage wire bytes
+    static final String MESSAGE_FORMAT_PROPERTY = "ioMessageFormat";
+    static final String MESSAGE_FORMAT_BINARY = "iomessage-v" + MessageCodec.VERSION;
+    // compressed body has format of binary body followed by "+" and name of the PayloadCodec
+    static final String MESSAGE_FORMAT_COMPRESSED = MESSAGE_FORMAT_BINARY + "+";
+    // JMS property holding length of ioMessage wire bytes before compression
+    static final String MESSAGE_LENGTH_PROPERTY = "ioMessageLength";
+    // largest ioMessage a compressed message may inflate to, so a peer can not make us allocate up to 2 GiB
+    static final int MAX_DECOMPRESSED_LENGTH = 64 * Constants.MiB;
+
+    /**
+     * creates {@link TextMessage} in the session of the publisher
+     *
+     * @param publisher - ID of publisher {@link Microservice}
+     * @param text - JSON of the message
+     * @return {@link TextMessage}
+     * @throws Exception
+     */
+	static TextMessage createMessage(String publisher, String text) throws Exception {
+		return getSession(publisher).createTextMessage(text);
 	}
 
+    /**
+     * creates {@link BytesMessage} holding ioMessage wire bytes in the session of the publisher
+     *
+     * @param publisher - ID of publisher {@link Microservice}
+     * @param bytes - bytes from {@link Message#getBytes()}
+     * @return {@link BytesMessage}
+     * @throws Exception
+     */
+    static BytesMessage createMessage(String publisher, byte[] bytes) throws Exception {
+        BytesMessage msg = getSession(publisher).createBytesMessage();
+        msg.setStringProperty(MESSAGE_FORMAT_PROPERTY, MESSAGE_FORMAT_BINARY);
+        msg.writeBytes(bytes);
+        return msg;
+    }
+
+    /**
+     * creates {@link BytesMessage} holding compressed ioMessage wire bytes in the session of the publisher
+     *
+     * @param publisher - ID of publisher {@link Microservice}
+     * @param compressed - bytes from {@link Message#getBytes()} compressed by the codec
+     * @param codec - {@link PayloadCodec} used to compress the bytes
+     * @param length - length of the bytes before compression
+     * @return {@link BytesMessage}
+     * @throws Exception
+     */
+    static BytesMessage createMessage(String publisher, byte[] compressed, PayloadCodec codec, int length) throws Exception {
+        BytesMessage msg = getSession(publisher).createBytesMessage();
+        msg.setStringProperty(MESSAGE_FORMAT_PROPERTY, MESSAGE_FORMAT_COMPRESSED + codec.getName());
+        msg.setIntProperty(MESSAGE_LENGTH_PROPERTY, length);
+        msg.writeBytes(compressed);
+        return msg;
+    }
+
+    private static Session getSession(String publisher) {
+        MessageBusServer server = current;
+        Session publisherSession = server != null && publisher != null ? server.publisherSessions.get(publisher) : null;
+        return publisherSession != null ? publisherSession : session;
+    }
+
+    /**
+     * decodes {@link jakarta.jms.Message} sent either as JSON {@link TextMessage}
+     * or as binary {@link BytesMessage}, which is decompressed if it was compressed by the publisher
+     *
+     * @param msg - received {@link jakarta.jms.Message}
+     * @return {@link Message}
+     * @throws Exception
+     */
+    static Message readMessage(jakarta.jms.Message msg) throws Exception {
+        if (msg instanceof BytesMessage) {
+            BytesMessage bytesMessage = (BytesMessage) msg;
+            String format = bytesMessage.getStringProperty(MESSAGE_FORMAT_PROPERTY);
+            PayloadCodec codec = null;
+            if (format != null && format.startsWith(MESSAGE_FORMAT_COMPRESSED))
+                codec = PayloadCodecs.get(format.substring(MESSAGE_FORMAT_COMPRESSED.length()));
+            if (codec == null && !MESSAGE_FORMAT_BINARY.equals(format))
+                throw new AgentSystemException("Unsupported message format: " + format);
+            byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(bytes);
+            if (codec != null) {
+                int length = bytesMessage.getIntProperty(MESSAGE_LENGTH_PROPERTY);
+                if (length < 0 || length > MAX_DECOMPRESSED_LENGTH)
+                    throw new AgentSystemException("Invalid compressed message length: " + length);
+                try {
+                    bytes = codec.decompress(bytes, length);
+                } catch (IllegalArgumentException e) {
+                    throw new AgentSystemException("Invalid compressed message: " + e.getMessage(), e);
+                }
+            }
+            return new Message(bytes);
+        }
+
+        try (JsonReader jsonReader = Json.createReader(new StringReader(((TextMessage) msg).getText()))) {
+            return new Message(jsonReader.readObject());
+        }
+    }
+
     /**
      * Sets {@link ExceptionListener}
      *
@@ -68,6 +179,10 @@ public class MessageBusServer {
     void startServer(String routerHost, int routerPort) throws Exception {
         LoggingService.logDebug(MODULE_NAME, "Starting server");
         JmsConnectionFactory connectionFactory = new JmsConnectionFactory(String.format("amqp://%s:%d", routerHost, routerPort));
+        // messages the router sends ahead to a receiver before they are asked for
+        JmsDefaultPrefetchPolicy prefetchPolicy = new JmsDefaultPrefetchPolicy();
+        prefetchPolicy.setQueuePrefetch(Configuration.getReceivePrefetch());
+        connectionFactory.setPrefetchPolicy(prefetchPolicy);
         connection = connectionFactory.createConnection();
         LoggingService.logDebug(MODULE_NAME, "Finished starting server");
     }
@@ -82,6 +197,7 @@ public class MessageBusServer {
         LoggingService.logDebug(MODULE_NAME, "Starting initialization");
         synchronized (messageBusSessionLock) {
             session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+            current = this;
             connection.start();
         }
         LoggingService.logDebug(MODULE_NAME, "Finished initialization");
@@ -145,6 +261,7 @@ public class MessageBusServer {
 
     /**
      * creates a new {@link MessageProducer} for publisher {@link Microservice}
+     * producers are created in a new {@link Session} of the publisher
      *
      * @param name - ID of {@link Microservice}
      * @throws Exception
@@ -154,13 +271,21 @@ public class MessageBusServer {
 
         synchronized (producerLock) {
             if (receivers != null && receivers.size() > 0) {
+                Session publisherSession = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
                 List<MessageProducer> messageProducers = new ArrayList<>();
-                for (String receiver: receivers) {
-                    Destination messageQueue = session.createQueue(receiver);
-                    MessageProducer producer = session.createProducer(messageQueue);
-                    messageProducers.add(producer);
+                try {
+                    for (String receiver: receivers) {
+                        Destination messageQueue = publisherSession.createQueue(receiver);
+                        MessageProducer producer = publisherSession.createProducer(messageQueue);
+                        messageProducers.add(producer);
+                    }
+                } catch (Exception e) {
+                    closeSession(publisherSession);
+                    throw e;
                 }
+                closeSession(publisherSessions.put(name, publisherSession));
                 producers.put(name, messageProducers);
+                producerReceivers.put(name, new ArrayList<>(receivers));
             }
         }
 
@@ -189,6 +314,74 @@ public class MessageBusServer {
         return producers.get(publisher);
     }
 
+    /**
+     * updates {@link MessageProducer} of a publisher {@link Microservice} when receivers of its route changed
+     * producers of the receivers staying in the route are kept, producers are created for added receivers only
+     * and closed for removed receivers only
+     *
+     * @param publisher - ID of {@link Microservice}
+     * @param receivers - IDs of receiver {@link Microservice}
+     * @return {@link MessageProducer} in the order of receivers
+     */
+    List<MessageProducer> updateProducer(String publisher, List<String> receivers) throws Exception {
+        LoggingService.logDebug(MODULE_NAME, "Start update Producer");
+
+        synchronized (producerLock) {
+            List<MessageProducer> currentProducers = producers.get(publisher);
+            List<String> currentReceivers = producerReceivers.get(publisher);
+            Session publisherSession = publisherSessions.get(publisher);
+            if (currentProducers == null || currentReceivers == null || publisherSession == null
+                    || receivers == null || receivers.isEmpty()) {
+                removeProducer(publisher);
+                return getProducer(publisher, receivers);
+            }
+
+            Map<String, MessageProducer> producerPerReceiver = new HashMap<>();
+            for (int i = 0; i < currentReceivers.size(); i++) {
+                producerPerReceiver.putIfAbsent(currentReceivers.get(i), currentProducers.get(i));
+            }
+            List<MessageProducer> messageProducers = new ArrayList<>(receivers.size());
+            List<MessageProducer> createdProducers = new ArrayList<>();
+            try {
+                for (String receiver: receivers) {
+                    MessageProducer producer = producerPerReceiver.get(receiver);
+                    if (producer == null) {
+                        producer = publisherSession.createProducer(publisherSession.createQueue(receiver));
+                        producerPerReceiver.put(receiver, producer);
+                        createdProducers.add(producer);
+                    }
+                    messageProducers.add(producer);
+                }
+            } catch (Exception e) {
+                createdProducers.forEach(this::closeProducer);
+                if (e instanceof IllegalStateException) {
+                    setConnected(false);
+                }
+                throw e;
+            }
+
+            Set<MessageProducer> keptProducers = Collections.newSetFromMap(new IdentityHashMap<>());
+            keptProducers.addAll(messageProducers);
+            for (MessageProducer producer: currentProducers) {
+                if (!keptProducers.contains(producer)) {
+                    closeProducer(producer);
+                }
+            }
+            producers.put(publisher, messageProducers);
+            producerReceivers.put(publisher, new ArrayList<>(receivers));
+            LoggingService.logDebug(MODULE_NAME, "Finish update Producer");
+            return messageProducers;
+        }
+    }
+
+    private void closeProducer(MessageProducer producer) {
+        try {
+            producer.close();
+        } catch (Exception e) {
+            LoggingService.logWarning(MODULE_NAME, "Unable to close producer");
+        }
+    }
+
     /**
      * removes {@link MessageConsumer} when a receiver {@link Microservice} has been removed
      *
@@ -200,6 +393,7 @@ public class MessageBusServer {
 		synchronized (producerLock) {
 			if (producers != null && producers.containsKey(name)) {
 				List<MessageProducer> messageProducers = producers.remove(name);
+				producerReceivers.remove(name);
 				messageProducers.forEach(producer -> {
 				    try {
 				        producer.close();
@@ -208,6 +402,7 @@ public class MessageBusServer {
                     }
                 });
 			}
+			closeSession(publisherSessions.remove(name));
 		}
 
         LoggingService.logDebug(MODULE_NAME, "Finish remove Producer");
@@ -244,6 +439,9 @@ public class MessageBusServer {
             });
             producers.clear();
         }
+        producerReceivers.clear();
+        publisherSessions.values().forEach(this::closeSession);
+        publisherSessions.clear();
 
         if (session != null) {
             session.close();
@@ -256,6 +454,16 @@ public class MessageBusServer {
         LoggingService.logDebug(MODULE_NAME, "stopped server");
     }
 
+    private void closeSession(Session publisherSession) {
+        if (publisherSession == null)
+            return;
+        try {
+            publisherSession.close();
+        } catch (Exception e) {
+            LoggingService.logWarning(MODULE_NAME, "Unable to close publisher session");
+        }
+    }
+
     public boolean isConnected() {
         synchronized (messageBusSessionLock) {
             return isConnected;
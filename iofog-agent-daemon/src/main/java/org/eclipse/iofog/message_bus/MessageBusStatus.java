@@ -12,8 +12,14 @@
  */
 package org.eclipse.iofog.message_bus;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
@@ -26,38 +32,101 @@ import javax.json.JsonObjectBuilder;
  *
  */
 public class MessageBusStatus {
-	private long processedMessages;
-	private final Map<String, Long> publishedMessagesPerMicroservice;
+	// ConcurrentHashMap does not accept null, messages without publisher are counted under this key
+	private static final String NO_PUBLISHER = "";
+
+	private final LongAdder processedMessages;
+	private final MessageRate messageRate;
+	private final Map<String, MicroserviceCounter> publishedMessagesPerMicroservice;
+	private final Map<String, RouteFanOutStatus> routeFanOutPerPublisher;
+	private final Map<String, Map<String, LatencyHistogram>> latencyPerRoute;
 	private float averageSpeed;
+	private volatile int archiveQueueDepth;
+	private final LongAdder archiveDroppedMessages;
+	private final LongAdder publishRejectedMessages;
+	private volatile boolean routerConnected;
+	private final LongAdder routerConnectionsLost;
+	private final LongAdder reconnectAttempts;
+	private final LongAdder reconnects;
+	private volatile long nextReconnectTime;
+	private final LongAdder duplicateMessages;
+
+	private static final class MicroserviceCounter {
+		private final LongAdder messages = new LongAdder();
+		private final MessageRate rate = new MessageRate();
+	}
 	
 	public MessageBusStatus() {
-		publishedMessagesPerMicroservice = new HashMap<>();
-		processedMessages = 0;
+		publishedMessagesPerMicroservice = new ConcurrentHashMap<>();
+		routeFanOutPerPublisher = new ConcurrentHashMap<>();
+		latencyPerRoute = new ConcurrentHashMap<>();
+		processedMessages = new LongAdder();
+		messageRate = new MessageRate();
 		averageSpeed = 0;
+		archiveDroppedMessages = new LongAdder();
+		publishRejectedMessages = new LongAdder();
+		routerConnectionsLost = new LongAdder();
+		reconnectAttempts = new LongAdder();
+		reconnects = new LongAdder();
+		duplicateMessages = new LongAdder();
 	}
 	
 	public long getProcessedMessages() {
-		return processedMessages;
+		return processedMessages.sum();
+	}
+
+	/**
+	 * @param windowSeconds - length of window in seconds, up to 60
+	 * @return messages published per second over the window
+	 */
+	public double getMessageRate(int windowSeconds) {
+		return messageRate.getRate(windowSeconds);
 	}
 
 	public Long getPublishedMessagesPerMicroservice(String microservice) {
-		return publishedMessagesPerMicroservice.get(microservice);
+		MicroserviceCounter counter = publishedMessagesPerMicroservice.get(key(microservice));
+		return counter != null ? counter.messages.sum() : null;
 	}
 
+	/**
+	 * @return snapshot of published messages count per microservice
+	 */
 	public Map<String, Long> getPublishedMessagesPerMicroservice() {
-		return publishedMessagesPerMicroservice;
+		Map<String, Long> snapshot = new HashMap<>();
+		publishedMessagesPerMicroservice.forEach((key, value) ->
+				snapshot.put(NO_PUBLISHER.equals(key) ? null : key, value.messages.sum()));
+		return snapshot;
 	}
 
 	public MessageBusStatus increasePublishedMessagesPerMicroservice(String microservice) {
-		this.processedMessages++;
+		long now = System.currentTimeMillis();
+		processedMessages.increment();
+		messageRate.record(now);
 
-		Long n = this.publishedMessagesPerMicroservice.get(microservice);
-		if (n == null)
-			n = 0L;
-		this.publishedMessagesPerMicroservice.put(microservice, n + 1);
+		MicroserviceCounter counter = publishedMessagesPerMicroservice.computeIfAbsent(key(microservice),
+				key -> new MicroserviceCounter());
+		counter.messages.increment();
+		counter.rate.record(now);
 		return this;
 	}
 
+	/**
+	 * keeps counters of the microservices only, adding missing ones with no messages
+	 *
+	 * @param microservices - IDs of microservices
+	 */
+	public void setMicroservices(Collection<String> microservices) {
+		Set<String> keys = new HashSet<>(microservices);
+		publishedMessagesPerMicroservice.keySet().retainAll(keys);
+		keys.forEach(key -> publishedMessagesPerMicroservice.computeIfAbsent(key, k -> new MicroserviceCounter()));
+		latencyPerRoute.keySet().retainAll(keys);
+		latencyPerRoute.values().forEach(receivers -> receivers.keySet().retainAll(keys));
+	}
+
+	private static String key(String microservice) {
+		return microservice == null ? NO_PUBLISHER : microservice;
+	}
+
 	public float getAverageSpeed() {
 		return averageSpeed;
 	}
@@ -67,17 +136,199 @@ public class MessageBusStatus {
 		return this;
 	}
 	
+	public int getArchiveQueueDepth() {
+		return archiveQueueDepth;
+	}
+
+	public MessageBusStatus setArchiveQueueDepth(int archiveQueueDepth) {
+		this.archiveQueueDepth = archiveQueueDepth;
+		return this;
+	}
+
+	public long getArchiveDroppedMessages() {
+		return archiveDroppedMessages.sum();
+	}
+
+	public MessageBusStatus increaseArchiveDroppedMessages() {
+		archiveDroppedMessages.increment();
+		return this;
+	}
+
+	public MessageBusStatus increaseArchiveDroppedMessages(int count) {
+		archiveDroppedMessages.add(count);
+		return this;
+	}
+
+	/**
+	 * @return messages waiting in the send queues of all publishers
+	 */
+	public int getPublishQueueDepth() {
+		int depth = 0;
+		for (RouteFanOutStatus fanOutStatus : routeFanOutPerPublisher.values())
+			depth += fanOutStatus.getQueueDepth();
+		return depth;
+	}
+
+	/**
+	 * @return messages waiting in the outboxes of all publishers
+	 */
+	public int getOutboxDepth() {
+		int depth = 0;
+		for (RouteFanOutStatus fanOutStatus : routeFanOutPerPublisher.values())
+			depth += fanOutStatus.getOutboxDepth();
+		return depth;
+	}
+
+	/**
+	 * @return messages dropped from the outboxes of all publishers
+	 */
+	public long getOutboxDroppedMessages() {
+		long dropped = 0;
+		for (RouteFanOutStatus fanOutStatus : routeFanOutPerPublisher.values())
+			dropped += fanOutStatus.getOutboxDroppedMessages();
+		return dropped;
+	}
+
+	public long getPublishRejectedMessages() {
+		return publishRejectedMessages.sum();
+	}
+
+	public MessageBusStatus increasePublishRejectedMessages(int count) {
+		publishRejectedMessages.add(count);
+		return this;
+	}
+
+	public boolean isRouterConnected() {
+		return routerConnected;
+	}
+
+	public MessageBusStatus setRouterConnected(boolean routerConnected) {
+		this.routerConnected = routerConnected;
+		return this;
+	}
+
+	public long getRouterConnectionsLost() {
+		return routerConnectionsLost.sum();
+	}
+
+	public MessageBusStatus increaseRouterConnectionsLost() {
+		routerConnectionsLost.increment();
+		return this;
+	}
+
+	/**
+	 * @return attempts to connect to the router, including the first one
+	 */
+	public long getReconnectAttempts() {
+		return reconnectAttempts.sum();
+	}
+
+	public MessageBusStatus increaseReconnectAttempts() {
+		reconnectAttempts.increment();
+		return this;
+	}
+
+	/**
+	 * @return successful attempts to connect to the router
+	 */
+	public long getReconnects() {
+		return reconnects.sum();
+	}
+
+	public MessageBusStatus increaseReconnects() {
+		reconnects.increment();
+		return this;
+	}
+
+	/**
+	 * @return time of the next attempt to connect to the router in milliseconds, 0 if none is scheduled
+	 */
+	public long getNextReconnectTime() {
+		return nextReconnectTime;
+	}
+
+	public MessageBusStatus setNextReconnectTime(long nextReconnectTime) {
+		this.nextReconnectTime = nextReconnectTime;
+		return this;
+	}
+
+	/**
+	 * @return messages dropped by receivers because their id was in the dedup window
+	 */
+	public long getDuplicateMessages() {
+		return duplicateMessages.sum();
+	}
+
+	public MessageBusStatus increaseDuplicateMessages() {
+		duplicateMessages.increment();
+		return this;
+	}
+
 	public void removePublishedMessagesPerMicroservice(String microservice) {
-		if (publishedMessagesPerMicroservice.containsKey(microservice))
-			publishedMessagesPerMicroservice.remove(microservice);
+		publishedMessagesPerMicroservice.remove(key(microservice));
 	}
 	
+	/**
+	 * returns fan-out status of publisher, creating it on first use
+	 *
+	 * @param publisher - ID of publisher microservice
+	 * @return {@link RouteFanOutStatus}
+	 */
+	public RouteFanOutStatus getRouteFanOut(String publisher) {
+		return routeFanOutPerPublisher.computeIfAbsent(publisher, key -> new RouteFanOutStatus());
+	}
+
+	/**
+	 * @return fan-out status per publisher
+	 */
+	public Map<String, RouteFanOutStatus> getRouteFanOut() {
+		return Collections.unmodifiableMap(routeFanOutPerPublisher);
+	}
+
+	public void removeRouteFanOut(String publisher) {
+		routeFanOutPerPublisher.remove(publisher);
+	}
+
+	public String getJsonRouteFanOut() {
+		JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
+		routeFanOutPerPublisher.forEach((key, value) -> arrayBuilder.add(value.toJson(key)));
+		return arrayBuilder.build().toString();
+	}
+
+	/**
+	 * records time from publishing a message until it is delivered to the receiver
+	 *
+	 * @param publisher - ID of publisher microservice
+	 * @param receiver - ID of receiver microservice
+	 * @param latency - latency in milliseconds
+	 */
+	public void recordMessageLatency(String publisher, String receiver, long latency) {
+		if (publisher == null || receiver == null)
+			return;
+		latencyPerRoute.computeIfAbsent(publisher, key -> new ConcurrentHashMap<>())
+				.computeIfAbsent(receiver, key -> new LatencyHistogram())
+				.record(latency);
+	}
+
+	public String getJsonMessageLatency() {
+		JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
+		latencyPerRoute.forEach((publisher, receivers) -> receivers.forEach((receiver, histogram) ->
+				arrayBuilder.add(histogram.toJson(publisher, receiver))));
+		return arrayBuilder.build().toString();
+	}
+
 	public String getJsonPublishedMessagesPerMicroservice() {
+		long now = System.currentTimeMillis();
 		JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
 		publishedMessagesPerMicroservice.forEach((key, value) -> {
+			if (NO_PUBLISHER.equals(key))
+				return;
 			JsonObjectBuilder objectBuilder = Json.createObjectBuilder()
 					.add("id", key)
-					.add("messagecount", value);
+					.add("messagecount", value.messages.sum())
+					.add("rate1s", value.rate.getRate(1, now))
+					.add("rate10s", value.rate.getRate(10, now))
+					.add("rate60s", value.rate.getRate(60, now));
 			arrayBuilder.add(objectBuilder);
 
 		});
@@ -13,7 +13,9 @@
 package org.eclipse.iofog.message_bus;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.iofog.exception.AgentSystemException;
 import org.eclipse.iofog.microservice.Microservice;
@@ -33,9 +35,9 @@ public class MessageBusUtil {
 	 * sets messageId and timestamp and publish the {@link Message}
 	 * 
 	 * @param message - {@link Message} to be published
-	 * @return published {@link Message} containing the id and timestamp 
+	 * @return false if message is rejected because send queue of the publisher is full
 	 */
-	public void publishMessage(Message message) {
+	public boolean publishMessage(Message message) {
 		LoggingService.logDebug(MODULE_NAME, "Start publish message");
 		long timestamp = System.currentTimeMillis();
 		StatusReporter.setMessageBusStatus().increasePublishedMessagesPerMicroservice(message.getPublisher());
@@ -43,15 +45,60 @@ public class MessageBusUtil {
 		message.setTimestamp(timestamp);
 		
 		MessagePublisher publisher = messageBus.getPublisher(message.getPublisher());
+		boolean accepted = true;
 		if (publisher != null) {
 			try {
-				publisher.publish(message);
+				accepted = publisher.publish(message);
 			} catch (Exception e) {
 				LoggingService.logError(MODULE_NAME, "Unable to send message : Message Publisher (" + publisher.getName()+ ")",
 						new AgentSystemException(e.getMessage(), e));
 			}
 		}
 		LoggingService.logDebug(MODULE_NAME, "Finishing publish message");
+		return accepted;
+	}
+	
+	/**
+	 * sets ids and timestamp of a batch of {@link Message} and publishes them
+	 * messages of each publisher are published in one pass, in the order of the batch
+	 * 
+	 * @param messages - list of {@link Message} to be published
+	 * @param failed - gets messages not published because their publisher is missing or failed to publish them
+	 * @return messages rejected because send queue of their publisher is full
+	 */
+	public List<Message> publishBatch(List<Message> messages, List<Message> failed) {
+		LoggingService.logDebug(MODULE_NAME, "Start publish batch of " + messages.size() + " messages");
+		long timestamp = System.currentTimeMillis();
+		String[] ids = messageBus.getNextIds(messages.size());
+		MessageBusStatus messageBusStatus = StatusReporter.setMessageBusStatus();
+		Map<String, List<Message>> messagesPerPublisher = new LinkedHashMap<>();
+		for (int i = 0; i < ids.length; i++) {
+			Message message = messages.get(i);
+			messageBusStatus.increasePublishedMessagesPerMicroservice(message.getPublisher());
+			message.setId(ids[i]);
+			message.setTimestamp(timestamp);
+			messagesPerPublisher.computeIfAbsent(message.getPublisher(), key -> new ArrayList<>()).add(message);
+		}
+
+		List<Message> rejected = new ArrayList<>();
+		messagesPerPublisher.forEach((name, publisherMessages) -> {
+			MessagePublisher publisher = name != null ? messageBus.getPublisher(name) : null;
+			if (publisher == null) {
+				LoggingService.logWarning(MODULE_NAME, "Unable to send messages : no Message Publisher (" + name + ")");
+				failed.addAll(publisherMessages);
+				return;
+			}
+			try {
+				int accepted = publisher.publishBatch(publisherMessages);
+				rejected.addAll(publisherMessages.subList(accepted, publisherMessages.size()));
+			} catch (Exception e) {
+				failed.addAll(publisherMessages);
+				LoggingService.logError(MODULE_NAME, "Unable to send messages : Message Publisher (" + publisher.getName()+ ")",
+						new AgentSystemException(e.getMessage(), e));
+			}
+		});
+		LoggingService.logDebug(MODULE_NAME, "Finishing publish batch");
+		return rejected;
 	}
 	
 	/**
@@ -75,7 +122,45 @@ public class MessageBusUtil {
 		LoggingService.logDebug(MODULE_NAME, "Finishing get message");
 		return messages;
 	}
+
+	/**
+	 * gets at most max {@link Message} for receiver, higher priorities first
+	 * 
+	 * @param receiver - ID of {@link Microservice}
+	 * @param max - maximum number of messages
+	 * @return list of {@link Message}
+	 */
+	public List<Message> getMessages(String receiver, int max) {
+		LoggingService.logDebug(MODULE_NAME, "Starting get message");
+		List<Message> messages = new ArrayList<>();
+		MessageReceiver rec = messageBus.getReceiver(receiver); 
+		if (rec != null) {
+			try {
+				messages = rec.getMessages(max);
+			} catch (Exception e) {
+				LoggingService.logError(MODULE_NAME, "unable to receive messages : Message Receiver (" + receiver + ")",
+						new AgentSystemException(e.getMessage(), e));
+			}
+		}
+		LoggingService.logDebug(MODULE_NAME, "Finishing get message");
+		return messages;
+	}
 	
+	/**
+	 * sets callback run when a message is enqueued for receiver
+	 *
+	 * @param receiver - ID of {@link Microservice}
+	 * @param signal - callback, must not block, null to remove it
+	 * @return false if receiver does not exist
+	 */
+	public boolean setMessageSignal(String receiver, Runnable signal) {
+		MessageReceiver rec = messageBus.getReceiver(receiver);
+		if (rec == null)
+			return false;
+		rec.setMessageSignal(signal);
+		return true;
+	}
+
 	/**
 	 * gets list of {@link Message} within a time frame
 	 * 
@@ -97,5 +182,29 @@ public class MessageBusUtil {
 		LoggingService.logDebug(MODULE_NAME, "Finishing message query");
 		return messagePublisher.messageQuery(from, to);
 	}
+
+	/**
+	 * opens cursor over {@link Message} within a time frame
+	 * 
+	 * @param publisher - ID of {@link Microservice}
+	 * @param receiver - ID of {@link Microservice}
+	 * @param from - beginning of time frame
+	 * @param to - end of time frame
+	 * @param segment - segment to start from, 0 to start from beginning
+	 * @param record - record to start from in the segment
+	 * @return {@link ArchiveCursor} or null if receiver is not allowed to query the publisher
+	 */
+	public ArchiveCursor messageCursor(String publisher, String receiver, long from, long to, long segment, int record) {
+		LoggingService.logDebug(MODULE_NAME, "Starting message cursor");
+		Route route = messageBus.getRoutes().get(publisher); 
+		if (to < from || route == null || !route.getReceivers().contains(receiver))
+			return null;
+
+		MessagePublisher messagePublisher = messageBus.getPublisher(publisher);
+		if (messagePublisher == null)
+			return null;
+		LoggingService.logDebug(MODULE_NAME, "Finishing message cursor");
+		return messagePublisher.messageCursor(from, to, segment, record);
+	}
 	
 }
@@ -0,0 +1,263 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * encodes {@link Message} into ioMessage v4 wire format straight into
+ * caller supplied buffers, without intermediate byte arrays
+ *
+ * wire layout: 33 bytes header holding the length of every field,
+ * followed by the field values in the same order
+ */
+public final class MessageCodec {
+	public static final short VERSION = 4;
+	public static final int HEADER_SIZE = 33;
+
+	static final int ID = 0;
+	static final int TAG = 1;
+	static final int GROUP_ID = 2;
+	static final int SEQUENCE_NUMBER = 3;
+	static final int SEQUENCE_TOTAL = 4;
+	static final int PRIORITY = 5;
+	static final int TIMESTAMP = 6;
+	static final int PUBLISHER = 7;
+	static final int AUTH_IDENTIFIER = 8;
+	static final int AUTH_GROUP = 9;
+	static final int CHAIN_POSITION = 10;
+	static final int HASH = 11;
+	static final int PREVIOUS_HASH = 12;
+	static final int NONCE = 13;
+	static final int DIFFICULTY_TARGET = 14;
+	static final int INFO_TYPE = 15;
+	static final int INFO_FORMAT = 16;
+	static final int CONTEXT_DATA = 17;
+	static final int CONTENT_DATA = 18;
+	static final int FIELD_COUNT = 19;
+
+	// position and width of each field length inside the header
+	static final int[] LENGTH_OFFSETS = {2, 3, 5, 6, 7, 8, 9, 10, 11, 13, 15, 16, 18, 20, 22, 23, 24, 25, 29};
+	static final int[] LENGTH_WIDTHS = {1, 2, 1, 1, 1, 1, 1, 1, 2, 2, 1, 2, 2, 2, 1, 1, 1, 4, 4};
+
+	private MessageCodec() {
+	}
+
+	/**
+	 * computes the number of bytes {@link Message} takes on the wire
+	 *
+	 * @param message - {@link Message} to be encoded
+	 * @return header size plus data size
+	 */
+	public static int encodedLength(Message message) {
+		return HEADER_SIZE + dataLength(fieldLengths(message));
+	}
+
+	/**
+	 * encodes {@link Message} at the current position of the buffer and advances the position
+	 *
+	 * @param message - {@link Message} to be encoded
+	 * @param buffer - destination buffer
+	 * @return number of bytes written
+	 */
+	public static int encode(Message message, ByteBuffer buffer) {
+		int[] lengths = fieldLengths(message);
+		int length = HEADER_SIZE + dataLength(lengths);
+		if (buffer.remaining() < length)
+			throw new BufferOverflowException();
+
+		ByteBuffer out = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+		write(message, lengths, out);
+		buffer.position(buffer.position() + length);
+		return length;
+	}
+
+	/**
+	 * encodes {@link Message} at the writer index of the buffer and advances the writer index
+	 *
+	 * @param message - {@link Message} to be encoded
+	 * @param buffer - destination buffer
+	 * @return number of bytes written
+	 */
+	public static int encode(Message message, ByteBuf buffer) {
+		int[] lengths = fieldLengths(message);
+		int length = HEADER_SIZE + dataLength(lengths);
+		buffer.ensureWritable(length);
+		if (buffer.nioBufferCount() == 1) {
+			write(message, lengths, buffer.nioBuffer(buffer.writerIndex(), length).order(ByteOrder.BIG_ENDIAN));
+			buffer.writerIndex(buffer.writerIndex() + length);
+		} else {
+			ByteBuffer out = ByteBuffer.allocate(length);
+			write(message, lengths, out);
+			buffer.writeBytes(out.array());
+		}
+		return length;
+	}
+
+	/**
+	 * encodes {@link Message} into a byte array of the exact size
+	 *
+	 * @param message - {@link Message} to be encoded
+	 * @return ioMessage bytes
+	 */
+	public static byte[] toBytes(Message message) {
+		int[] lengths = fieldLengths(message);
+		byte[] result = new byte[HEADER_SIZE + dataLength(lengths)];
+		write(message, lengths, ByteBuffer.wrap(result));
+		return result;
+	}
+
+	private static int[] fieldLengths(Message message) {
+		int[] lengths = new int[FIELD_COUNT];
+		lengths[ID] = utf8Length(message.getId());
+		lengths[TAG] = utf8Length(message.getTag());
+		lengths[GROUP_ID] = utf8Length(message.getMessageGroupId());
+		lengths[SEQUENCE_NUMBER] = message.getSequenceNumber() == 0 ? 0 : Integer.BYTES;
+		lengths[SEQUENCE_TOTAL] = message.getSequenceTotal() == 0 ? 0 : Integer.BYTES;
+		lengths[PRIORITY] = message.getPriority() == 0 ? 0 : Byte.BYTES;
+		lengths[TIMESTAMP] = message.getTimestamp() == 0 ? 0 : Long.BYTES;
+		lengths[PUBLISHER] = utf8Length(message.getPublisher());
+		lengths[AUTH_IDENTIFIER] = utf8Length(message.getAuthIdentifier());
+		lengths[AUTH_GROUP] = utf8Length(message.getAuthGroup());
+		lengths[CHAIN_POSITION] = message.getChainPosition() == 0 ? 0 : Long.BYTES;
+		lengths[HASH] = utf8Length(message.getHash());
+		lengths[PREVIOUS_HASH] = utf8Length(message.getPreviousHash());
+		lengths[NONCE] = utf8Length(message.getNonce());
+		lengths[DIFFICULTY_TARGET] = message.getDifficultyTarget() == 0 ? 0 : Integer.BYTES;
+		lengths[INFO_TYPE] = utf8Length(message.getInfoType());
+		lengths[INFO_FORMAT] = utf8Length(message.getInfoFormat());
+		lengths[CONTEXT_DATA] = message.getContextData() == null ? 0 : message.getContextData().length;
+		lengths[CONTENT_DATA] = message.getContentData() == null ? 0 : message.getContentData().length;
+
+		for (int i = 0; i < FIELD_COUNT; i++) {
+			if (LENGTH_WIDTHS[i] < Integer.BYTES && lengths[i] >= (1 << (8 * LENGTH_WIDTHS[i])))
+				throw new IllegalArgumentException("ioMessage field #" + i + " is too long: " + lengths[i] + " bytes");
+		}
+		return lengths;
+	}
+
+	private static int dataLength(int[] lengths) {
+		long size = 0;
+		for (int length : lengths)
+			size += length;
+		if (size > Integer.MAX_VALUE - HEADER_SIZE)
+			throw new IllegalArgumentException("ioMessage is too large: " + size + " bytes");
+		return (int) size;
+	}
+
+	private static void write(Message message, int[] lengths, ByteBuffer out) {
+		int base = out.position();
+		out.putShort(base, VERSION);
+		for (int i = 0; i < FIELD_COUNT; i++) {
+			int index = base + LENGTH_OFFSETS[i];
+			switch (LENGTH_WIDTHS[i]) {
+				case 1:
+					out.put(index, (byte) lengths[i]);
+					break;
+				case 2:
+					out.putShort(index, (short) lengths[i]);
+					break;
+				default:
+					out.putInt(index, lengths[i]);
+			}
+		}
+
+		out.position(base + HEADER_SIZE);
+		putUtf8(out, message.getId());
+		putUtf8(out, message.getTag());
+		putUtf8(out, message.getMessageGroupId());
+		if (lengths[SEQUENCE_NUMBER] > 0)
+			out.putInt(message.getSequenceNumber());
+		if (lengths[SEQUENCE_TOTAL] > 0)
+			out.putInt(message.getSequenceTotal());
+		if (lengths[PRIORITY] > 0)
+			out.put(message.getPriority());
+		if (lengths[TIMESTAMP] > 0)
+			out.putLong(message.getTimestamp());
+		putUtf8(out, message.getPublisher());
+		putUtf8(out, message.getAuthIdentifier());
+		putUtf8(out, message.getAuthGroup());
+		if (lengths[CHAIN_POSITION] > 0)
+			out.putLong(message.getChainPosition());
+		putUtf8(out, message.getHash());
+		putUtf8(out, message.getPreviousHash());
+		putUtf8(out, message.getNonce());
+		if (lengths[DIFFICULTY_TARGET] > 0)
+			out.putInt(message.getDifficultyTarget());
+		putUtf8(out, message.getInfoType());
+		putUtf8(out, message.getInfoFormat());
+		if (lengths[CONTEXT_DATA] > 0)
+			out.put(message.getContextData());
+		if (lengths[CONTENT_DATA] > 0)
+			out.put(message.getContentData());
+	}
+
+	/**
+	 * computes UTF-8 encoded length of a string without encoding it
+	 *
+	 * @param str - string
+	 * @return length in bytes, 0 for null
+	 */
+	static int utf8Length(String str) {
+		if (str == null)
+			return 0;
+		int length = 0;
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				length++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	private static void putUtf8(ByteBuffer out, String str) {
+		if (str == null)
+			return;
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c < 0x80) {
+				out.put((byte) c);
+			} else if (c < 0x800) {
+				out.put((byte) (0xc0 | (c >> 6)));
+				out.put((byte) (0x80 | (c & 0x3f)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, str.charAt(++i));
+				out.put((byte) (0xf0 | (codePoint >> 18)));
+				out.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+				out.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+				out.put((byte) (0x80 | (codePoint & 0x3f)));
+			} else if (Character.isSurrogate(c)) {
+				// lone surrogate is replaced the same way String.getBytes(UTF_8) does
+				out.put((byte) '?');
+			} else {
+				out.put((byte) (0xe0 | (c >> 12)));
+				out.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+				out.put((byte) (0x80 | (c & 0x3f)));
+			}
+		}
+	}
+}
@@ -12,92 +12,113 @@
  */
 package org.eclipse.iofog.message_bus;
 
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * class to generate unique id for {@link Message}
+ * id is time in milliseconds and sequence within the millisecond, followed by random id of the generator,
+ * in fixed length base 58, so ids of a generator sort in the order they are generated
  * 
  * @author saeid
  *
  */
 public class MessageIdGenerator {
-	private static final char[] ALPHABETS_ARRAY = "ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz123456789".toCharArray();
+	// in ascii order, so string order of ids is their numeric order
+	private static final char[] ALPHABETS_ARRAY = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz".toCharArray();
+	private static final int SEQUENCE_BITS = 20;
+	// 58^11 > 2^63
+	private static final int TIME_LENGTH = 11;
+	// 58^9 > 2^53
+	private static final int INSTANCE_LENGTH = 9;
+	private static final long INSTANCE_MASK = (1L << 53) - 1;
+
+	private final AtomicLong lastId = new AtomicLong();
+	private final char[] instance = new char[INSTANCE_LENGTH];
+
+	public MessageIdGenerator() {
+		toBase58(new SecureRandom().nextLong() & INSTANCE_MASK, instance, 0, INSTANCE_LENGTH);
+	}
 
 	/**
-	 * converts base 10 to base 58
+	 * writes fixed length base 58 presentation of number
 	 *
-	 * @param number - number to be converted
-	 * @return base 58 presentation of number
+	 * @param number - non negative number to be converted
+	 * @param result - array to write to
+	 * @param offset - position in array
+	 * @param length - number of digits
 	 */
-	private String toBase58(long number) {
-		StringBuilder result = new StringBuilder();
-		while (number >= 58) {
-			result.append(ALPHABETS_ARRAY[(int) (number % 58)]);
+	private static void toBase58(long number, char[] result, int offset, int length) {
+		for (int i = offset + length - 1; i >= offset; i--) {
+			result[i] = ALPHABETS_ARRAY[(int) (number % 58)];
 			number /= 58;
 		}
-		result.append(ALPHABETS_ARRAY[(int) number]);
-		return result.reverse().toString();
 	}
 
-
-	private final int MAX_SEQUENCE = 100000000;
-	private volatile long lastTime = 0;
-	private volatile int sequence = MAX_SEQUENCE;
 	/**
 	 * generates unique id based on time and sequence
+	 * if ids are generated faster than sequence allows, time of id moves ahead of clock,
+	 * if clock goes back, ids continue from the last one
 	 *
 	 * @param time - timestamp in milliseconds
+	 * @return id
 	 */
-	public synchronized String generate(long time) {
-		if (lastTime == time) {
-			sequence--;
-		} else {
-			lastTime = time;
-			sequence = MAX_SEQUENCE;
-		}
-		return toBase58(time) + toBase58(sequence);
+	public String generate(long time) {
+		return toId(reserve(time, 1));
 	}
 
-
-	// uuid
-	private static final int PRE_GENERATED_IDS_COUNT = 100_000;
-	private boolean isRefilling = false;
-	private final Queue<String> generatedIds = new LinkedList<>();
 	/**
-	 * generates unique id based on UUID
-	 * 
+	 * generates consecutive unique ids with a single update of the sequence
+	 *
+	 * @param time - timestamp in milliseconds
+	 * @param count - number of ids
+	 * @return ids in ascending order
 	 */
-	private final Runnable refill = () -> {
-		if (isRefilling)
-			return;
-		isRefilling = true;
-		while (generatedIds.size() < PRE_GENERATED_IDS_COUNT)
-			synchronized (generatedIds) {
-				generatedIds.offer(UUID.randomUUID().toString().replaceAll("-", ""));
-			}
-		isRefilling = false;
-	};
-	
+	public String[] generate(long time, int count) {
+		String[] ids = new String[count];
+		if (count == 0)
+			return ids;
+		long first = reserve(time, count);
+		for (int i = 0; i < count; i++)
+			ids[i] = toId(first + i);
+		return ids;
+	}
+
+	private long reserve(long time, int count) {
+		long minimum = time << SEQUENCE_BITS;
+		long last;
+		long first;
+		do {
+			last = lastId.get();
+			first = Math.max(last + 1, minimum);
+		} while (!lastId.compareAndSet(last, first + count - 1));
+		return first;
+	}
+
+	private String toId(long value) {
+		char[] id = new char[TIME_LENGTH + INSTANCE_LENGTH];
+		toBase58(value, id, 0, TIME_LENGTH);
+		System.arraycopy(instance, 0, id, TIME_LENGTH, INSTANCE_LENGTH);
+		return new String(id);
+	}
+
 	/**
-	 * returns next generated id from list
+	 * returns next generated id
 	 * 
 	 * @return id
 	 */
 	public String getNextId() {
-		while (generatedIds.size() == 0);
-		synchronized (generatedIds) {
-			return generatedIds.poll();
-		}
+		return generate(System.currentTimeMillis());
 	}
-	
-	public MessageIdGenerator() {
-		ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-		scheduler.scheduleAtFixedRate(refill, 0, 5, TimeUnit.SECONDS);
+
+	/**
+	 * returns next generated ids
+	 *
+	 * @param count - number of ids
+	 * @return ids in ascending order
+	 */
+	public String[] getNextIds(int count) {
+		return generate(System.currentTimeMillis(), count);
 	}
 	
 //			 			 1         2         3         4         5         6         7         8         9         0         1         2         3         4         5         6         7         
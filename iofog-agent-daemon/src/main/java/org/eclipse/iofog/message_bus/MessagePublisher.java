@@ -15,32 +15,126 @@ package org.eclipse.iofog.message_bus;
 import org.eclipse.iofog.exception.AgentSystemException;
 import org.eclipse.iofog.microservice.Microservice;
 import org.eclipse.iofog.microservice.Route;
+import org.eclipse.iofog.status_reporter.StatusReporter;
+import org.eclipse.iofog.utils.Constants;
+import org.eclipse.iofog.utils.configuration.Configuration;
 import org.eclipse.iofog.utils.logging.LoggingService;
 
 import jakarta.jms.*;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import static org.eclipse.iofog.message_bus.MessageBus.MODULE_NAME;
 import static org.eclipse.iofog.utils.logging.LoggingService.logError;
 
 /**
  * publisher {@link Microservice}
+ * messages are archived and queued in a bounded {@link PublishRing} on the caller thread,
+ * a sender thread per publisher sends them to the receivers, so a slow receiver does not block callers
+ * with a send window the sender does not wait for the router to confirm each send,
+ * up to the window size of sends per receiver are in flight and failed sends are retried
+ * receivers running on this agent may get messages in memory, the router is used for the others
+ * while the router is not connected, messages are stored in the outbox of an {@link OutboxReplayer} and sent in order after reconnect
+ * messages whose send to a receiver failed are put back in the outbox and sent again to that receiver only
+ * messages are encoded for the router by a {@link PayloadEncoder}
  * 
  * @author saeid
  *
  */
 public class MessagePublisher implements AutoCloseable{
+	private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+	// time a caller waits for free space in a full queue before the message is rejected
+	private static final long OFFER_TIMEOUT_MILLIS = 100;
+	private static final int SEND_BATCH_SIZE = 256;
+	private static final long POLL_MILLIS = 100;
+	private static final long STOP_TIMEOUT_MILLIS = 5000;
+	private static final int MAX_SEND_ATTEMPTS = 3;
+	// time the sender waits for a confirmation when the window of a receiver is full
+	private static final long WINDOW_TIMEOUT_MILLIS = 5000;
+
 	private final MessageArchive archive;
 	private final String name;
-	private List<MessageProducer> producers;
+	private final RouteFanOutStatus fanOutStatus;
+	private final PublishRing<Pending> queue;
+	private final boolean startSender;
+	private final int sendWindow;
+	private final Map<MessageProducer, Semaphore> windows = new ConcurrentHashMap<>();
+	private final Queue<FailedSend> failedSends = new ConcurrentLinkedQueue<>();
+	private final Object senderLock = new Object();
+	private final PayloadEncoder encoder;
+	private final OutboxReplayer outbox;
+	private volatile boolean droppingUnrouted;
+	private volatile List<MessageProducer> producers;
+	private volatile List<MessageReceiver> localReceivers;
 	private Route route;
+	private volatile boolean connected = true;
+	private volatile boolean running;
+	private volatile Thread sender;
+
+	private static final class Pending {
+		private final Message message;
+		private final byte[] bytes;
+		private final long encodeNanos;
+
+		private Pending(Message message, byte[] bytes, long encodeNanos) {
+			this.message = message;
+			this.bytes = bytes;
+			this.encodeNanos = encodeNanos;
+		}
+	}
+
+	private static final class FailedSend {
+		private final MessageProducer producer;
+		private final String receiver;
+		private final PayloadEncoder.Payload payload;
+		private final int priority;
+		private final int attempt;
+
+		private FailedSend(MessageProducer producer, String receiver, PayloadEncoder.Payload payload, int priority, int attempt) {
+			this.producer = producer;
+			this.receiver = receiver;
+			this.payload = payload;
+			this.priority = priority;
+			this.attempt = attempt;
+		}
+	}
 
 	public MessagePublisher(String name, Route route, List<MessageProducer> producers) {
+		this(name, route, producers, Configuration.getPublishQueueCapacity(), Configuration.getPublishSendWindow(), true);
+	}
+
+	/**
+	 * @param name - ID of publisher microservice
+	 * @param route - {@link Route} of publisher
+	 * @param producers - producers of the receivers
+	 * @param capacity - number of messages queued for sending
+	 * @param sendWindow - number of unconfirmed sends per receiver, 0 to wait for every send
+	 * @param startSender - false to leave sending of queued messages to {@link #sendQueued(long)} callers
+	 */
+	MessagePublisher(String name, Route route, List<MessageProducer> producers, int capacity, int sendWindow, boolean startSender) {
 		this.archive = new MessageArchive(name);
 		this.route = route;
 		this.name = name;
 		this.producers = producers;
+		this.queue = new PublishRing<>(capacity > 0 ? capacity : DEFAULT_QUEUE_CAPACITY);
+		this.startSender = startSender;
+		this.sendWindow = sendWindow;
+		this.fanOutStatus = StatusReporter.getMessageBusStatus().getRouteFanOut(name);
+		this.encoder = new PayloadEncoder(name, fanOutStatus);
+		this.outbox = OutboxReplayer.open(name, fanOutStatus);
+		// messages left by a previous run are sent without waiting for a new message
+		if (startSender && outbox != null && !outbox.isEmpty())
+			startSender();
 	}
+
 	
 	public String getName() {
 		return name;
@@ -48,13 +142,20 @@ public class MessagePublisher implements AutoCloseable{
 
 	/**
 	 * publishes a {@link Message}
+	 * message is encoded once and the same payload is archived and sent to every receiver
 	 * 
 	 * @param message - {@link Message} to be published
+	 * @return false if message is rejected because the send queue stayed full
 	 * @throws Exception
 	 */
-	synchronized void publish(Message message) throws Exception {
+	boolean publish(Message message) throws Exception {
 		LoggingService.logDebug(MODULE_NAME, "Start publish message :" + this.name );
+		long encodeStart = System.nanoTime();
 		byte[] bytes = message.getBytes();
+		long encodeNanos = System.nanoTime() - encodeStart;
+
+		if (!enqueue(List.of(new Pending(message, bytes, encodeNanos))))
+			return false;
 
 		try {
 			archive.save(bytes, message.getTimestamp());
@@ -62,43 +163,548 @@ public class MessagePublisher implements AutoCloseable{
 			logError(MODULE_NAME, "Message Publisher (" + this.name + ")unable to archive message",
 					new AgentSystemException(e.getMessage(), e));
 		}
+		LoggingService.logDebug(MODULE_NAME, "Finished publish message : " + this.name);
+		return true;
+	}
+
+	/**
+	 * publishes batch of {@link Message} in one pass
+	 * batch is queued in parts of at most the queue capacity, the accepted messages are archived with a single write
+	 * 
+	 * @param messages - list of {@link Message} to be published
+	 * @return number of accepted messages from the beginning of the batch, the rest is rejected
+	 * @throws Exception
+	 */
+	int publishBatch(List<Message> messages) throws Exception {
+		LoggingService.logDebug(MODULE_NAME, "Start publish batch of " + messages.size() + " messages :" + this.name);
+		List<Pending> pending = new ArrayList<>(messages.size());
+		for (Message message : messages) {
+			long encodeStart = System.nanoTime();
+			byte[] bytes = message.getBytes();
+			pending.add(new Pending(message, bytes, System.nanoTime() - encodeStart));
+		}
+
+		int accepted = 0;
+		while (accepted < pending.size()) {
+			int end = Math.min(pending.size(), accepted + queue.capacity());
+			if (!enqueue(pending.subList(accepted, end)))
+				break;
+			accepted = end;
+		}
+		if (accepted == 0)
+			return 0;
+
+		byte[][] batch = new byte[accepted][];
+		long[] timestamps = new long[accepted];
+		for (int i = 0; i < accepted; i++) {
+			batch[i] = pending.get(i).bytes;
+			timestamps[i] = pending.get(i).message.getTimestamp();
+		}
+		try {
+			archive.save(batch, timestamps);
+		} catch (Exception e) {
+			logError(MODULE_NAME, "Message Publisher (" + this.name + ")unable to archive messages",
+					new AgentSystemException(e.getMessage(), e));
+		}
+		LoggingService.logDebug(MODULE_NAME, "Finished publish batch : " + this.name);
+		return accepted;
+	}
+
+	/**
+	 * queues messages for the sender thread, waiting up to {@value #OFFER_TIMEOUT_MILLIS} ms if queue is full
+	 *
+	 * @param pending - encoded messages
+	 * @return false if messages are rejected
+	 * @throws InterruptedException
+	 */
+	private boolean enqueue(List<Pending> pending) throws InterruptedException {
+		if (startSender && sender == null)
+			startSender();
+		if (queue.offer(pending, OFFER_TIMEOUT_MILLIS)) {
+			fanOutStatus.setQueueDepth(queue.size());
+			return true;
+		}
+		fanOutStatus.increaseRejectedMessages(pending.size());
+		StatusReporter.getMessageBusStatus().increasePublishRejectedMessages(pending.size());
+		LoggingService.logWarning(MODULE_NAME, "Message Publisher (" + this.name + ") rejected "
+				+ pending.size() + " messages, send queue is full");
+		return false;
+	}
+
+	/**
+	 * retries failed sends, replays outbox, then sends queued messages to the receivers,
+	 * must be called by one thread at a time
+	 *
+	 * @param timeoutMillis - time to wait for messages if queue is empty
+	 * @return number of sent messages
+	 * @throws InterruptedException
+	 */
+	int sendQueued(long timeoutMillis) throws InterruptedException {
+		if (!failedSends.isEmpty()) {
+			synchronized (this) {
+				retryFailedSends();
+			}
+		}
+		if (outbox != null && connected && !outbox.isEmpty()) {
+			OutboxReplayer.Replay replay;
+			synchronized (this) {
+				replay = producers != null ? outbox.send(this::replay) : null;
+			}
+			// route updates and disconnects do not wait for the router to confirm the replay
+			if (replay != null)
+				outbox.confirm(replay, this::isConnected);
+		}
+		List<Pending> batch = new ArrayList<>();
+		int count = queue.drainTo(batch, SEND_BATCH_SIZE, timeoutMillis);
+		if (count > 0) {
+			synchronized (this) {
+				for (Pending pending : batch)
+					send(pending.message, pending.bytes, pending.encodeNanos);
+			}
+			fanOutStatus.setQueueDepth(queue.size());
+		}
+		return count;
+	}
+
+	private void startSender() {
+		synchronized (senderLock) {
+			if (sender != null)
+				return;
+			running = true;
+			Thread thread = new Thread(this::runSender, Constants.MESSAGE_BUS_PUBLISHER + " " + name);
+			thread.setDaemon(true);
+			thread.start();
+			sender = thread;
+		}
+	}
+
+	/**
+	 * stops sender thread after queued messages are sent
+	 *
+	 */
+	private void stopSender() {
+		synchronized (senderLock) {
+			Thread thread = sender;
+			if (thread == null)
+				return;
+			running = false;
+			try {
+				thread.join(STOP_TIMEOUT_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (thread.isAlive())
+				LoggingService.logWarning(MODULE_NAME, "Message Publisher (" + this.name + ") sender did not stop in "
+						+ STOP_TIMEOUT_MILLIS + " ms");
+			sender = null;
+		}
+	}
+
+	private void runSender() {
+		LoggingService.logDebug(MODULE_NAME, "Start sender of message publisher : " + this.name);
+		while (running || queue.size() > 0 || !failedSends.isEmpty()) {
+			try {
+				sendQueued(POLL_MILLIS);
+			} catch (InterruptedException e) {
+				LoggingService.logWarning(MODULE_NAME, "Message Publisher (" + this.name + ") sender is interrupted");
+				break;
+			} catch (Exception e) {
+				logError(MODULE_NAME, "Message Publisher (" + this.name + ") unable to send messages",
+						new AgentSystemException(e.getMessage(), e));
+			}
+		}
+		LoggingService.logDebug(MODULE_NAME, "Finished sender of message publisher : " + this.name);
+	}
+
+	/**
+	 * sends encoded {@link Message} to every receiver of the route, or stores it in the outbox
+	 * while the router is not connected or older messages wait in the outbox
+	 * 
+	 * @param message - {@link Message} to be sent
+	 * @param bytes - ioMessage bytes of the message
+	 * @param encodeNanos - time spent encoding ioMessage bytes
+	 * @throws InterruptedException
+	 */
+	private void send(Message message, byte[] bytes, long encodeNanos) throws InterruptedException {
+		if (outbox != null && (!connected || producers == null || !outbox.isEmpty())) {
+			outbox.store(bytes, message.getTimestamp());
+			return;
+		}
+		sendToReceivers(message, bytes, encodeNanos);
+	}
+
+	/**
+	 * sends message from the outbox to the receivers of the route it is owed to, without waiting for the router
+	 *
+	 * @param message - {@link Message} to be sent
+	 * @param bytes - ioMessage bytes of the message
+	 * @param owed - tests ID of a receiver, true if the message is owed to the receiver
+	 * @return {@link OutboxReplayer.Confirmation} of the sends
+	 */
+	private OutboxReplayer.Confirmation replay(Message message, byte[] bytes, Predicate<String> owed) {
+		List<MessageProducer> current = producers;
+		if (current == null)
+			return new OutboxReplayer.Confirmation(0, true);
+		List<String> receivers = receiverIds(current);
+		List<Integer> targets = new ArrayList<>(current.size());
+		for (int i = 0; i < current.size(); i++) {
+			if (owed.test(receivers != null ? receivers.get(i) : null))
+				targets.add(i);
+		}
+		List<Integer> remote = deliverLocal(message, targets);
+		if (remote.isEmpty()) {
+			fanOutStatus.recordPublish(targets.size(), 0, 0, 0);
+			return new OutboxReplayer.Confirmation(0, false);
+		}
+		PayloadEncoder.Payload payload = encoder.encode(message, bytes);
+		if (payload == null)
+			return new OutboxReplayer.Confirmation(0, true);
+
+		OutboxReplayer.Confirmation confirmation = new OutboxReplayer.Confirmation(remote.size(), false);
+		if (receivers != null) {
+			for (int i : targets) {
+				if (!remote.contains(i))
+					confirmation.delivered(receivers.get(i));
+			}
+		}
+		int priority = PriorityLanes.jmsPriority(message.getPriority());
+		long sendStart = System.nanoTime();
+		for (int i : remote) {
+			String receiver = receivers != null ? receivers.get(i) : null;
+			CompletionListener listener = new CompletionListener() {
+				@Override
+				public void onCompletion(jakarta.jms.Message msg) {
+					fanOutStatus.recordDeliveries(1, 0);
+					confirmation.confirm(receiver, true);
+				}
+
+				@Override
+				public void onException(jakarta.jms.Message msg, Exception exception) {
+					fanOutStatus.recordDeliveries(0, 1);
+					confirmation.confirm(receiver, false);
+				}
+			};
+			try {
+				current.get(i).send(payload.createMessage(), DeliveryMode.NON_PERSISTENT, priority,
+						jakarta.jms.Message.DEFAULT_TIME_TO_LIVE, listener);
+			} catch (Exception e) {
+				listener.onException(null, e);
+			}
+		}
+		fanOutStatus.recordPublish(remote.size(), payload.size, 0, System.nanoTime() - sendStart);
+		return confirmation;
+	}
+
+	/**
+	 * @param current - producers of the receivers of the route
+	 * @return IDs of the receivers in the order of the producers, null if not known
+	 */
+	private List<String> receiverIds(List<MessageProducer> current) {
+		List<String> receivers = route != null ? route.getReceivers() : null;
+		return receivers != null && receivers.size() == current.size() ? receivers : null;
+	}
+
+	/**
+	 * sends encoded {@link Message} to every receiver of the route
+	 * message is put back in the outbox for the receivers whose send failed
+	 * 
+	 * @param message - {@link Message} to be sent
+	 * @param bytes - ioMessage bytes of the message
+	 * @param encodeNanos - time spent encoding ioMessage bytes
+	 * @throws InterruptedException
+	 */
+	private void sendToReceivers(Message message, byte[] bytes, long encodeNanos) throws InterruptedException {
+		List<MessageProducer> current = producers;
+		if (current == null) {
+			dropUnrouted();
+			return;
+		}
+		if (current.isEmpty())
+			return;
+
+		List<Integer> targets = new ArrayList<>(current.size());
+		for (int i = 0; i < current.size(); i++)
+			targets.add(i);
+		List<Integer> remote = deliverLocal(message, targets);
+		if (remote.isEmpty()) {
+			fanOutStatus.recordPublish(current.size(), 0, encodeNanos, 0);
+			return;
+		}
+		List<String> receivers = receiverIds(current);
 
-		for (MessageProducer producer: producers) {
+		long encodeStart = System.nanoTime();
+		PayloadEncoder.Payload payload = encoder.encode(message, bytes);
+		if (payload == null)
+			return;
+		encodeNanos += System.nanoTime() - encodeStart;
+
+		int priority = PriorityLanes.jmsPriority(message.getPriority());
+		long sendStart = System.nanoTime();
+		if (sendWindow > 0) {
+			for (int i : remote)
+				sendAsync(current.get(i), receivers != null ? receivers.get(i) : null, payload, priority, 1);
+			fanOutStatus.recordPublish(remote.size(), payload.size, encodeNanos, System.nanoTime() - sendStart);
+			return;
+		}
+
+		List<String> failed = new ArrayList<>();
+		for (int i : remote) {
 			try {
-				TextMessage msg = MessageBusServer.createMessage(message.toJson().toString());
-				producer.send(msg, DeliveryMode.NON_PERSISTENT, jakarta.jms.Message.DEFAULT_PRIORITY, jakarta.jms.Message.DEFAULT_TIME_TO_LIVE);
+				current.get(i).send(payload.createMessage(), DeliveryMode.NON_PERSISTENT, priority,
+						jakarta.jms.Message.DEFAULT_TIME_TO_LIVE);
 			} catch (Exception e) {
+				failed.add(receivers != null ? receivers.get(i) : null);
 				logError(MODULE_NAME, "Message Publisher (" + this.name + ") unable to send message",
 						new AgentSystemException(e.getMessage(), e));
 			}
 		}
-		LoggingService.logDebug(MODULE_NAME, "Finished publish message : " + this.name);
+		fanOutStatus.record(remote.size(), failed.size(), payload.size, encodeNanos, System.nanoTime() - sendStart);
+		if (!failed.isEmpty())
+			storeFailed(payload, receivers != null ? failed : null);
+	}
+
+	/**
+	 * puts message back in the outbox after a send failed, for the receivers whose send failed
+	 * if the receivers are not known, message is stored once and sent again to all receivers,
+	 * which can drop the duplicates with the dedup window
+	 *
+	 * @param payload - message whose send failed
+	 * @param receivers - IDs of the receivers whose send failed, null if not known
+	 * @return false if the publisher has no outbox
+	 */
+	private boolean storeFailed(PayloadEncoder.Payload payload, Collection<String> receivers) {
+		if (outbox == null)
+			return false;
+		if (receivers != null)
+			outbox.store(payload.bytes, payload.timestamp, receivers);
+		else if (payload.stored.compareAndSet(false, true))
+			outbox.store(payload.bytes, payload.timestamp);
+		return true;
+	}
+
+	/**
+	 * counts message dropped because the route is not set up yet, after the router connection is back
+	 *
+	 */
+	private void dropUnrouted() {
+		fanOutStatus.increaseUnroutedMessages(1);
+		if (!droppingUnrouted) {
+			droppingUnrouted = true;
+			LoggingService.logWarning(MODULE_NAME, "Message Publisher (" + this.name
+					+ ") dropping messages until its route is set up");
+		}
+	}
+
+	/**
+	 * delivers message in memory to the receivers running on this agent
+	 *
+	 * @param message - {@link Message} to be delivered
+	 * @param targets - indexes of the receivers of the route the message is sent to, in the order of the producers
+	 * @return indexes of the receivers the message still has to be sent to through the router
+	 */
+	private List<Integer> deliverLocal(Message message, List<Integer> targets) {
+		List<MessageReceiver> local = localReceivers;
+		List<MessageProducer> current = producers;
+		if (local == null || current == null || local.size() != current.size())
+			return targets;
+
+		List<Integer> remote = new ArrayList<>(targets.size());
+		int delivered = 0;
+		for (int i : targets) {
+			MessageReceiver receiver = local.get(i);
+			boolean done = false;
+			if (receiver != null) {
+				try {
+					done = receiver.deliverLocal(message);
+				} catch (Exception e) {
+					logError(MODULE_NAME, "Message Publisher (" + this.name + ") unable to deliver message to " + receiver.getName(),
+							new AgentSystemException(e.getMessage(), e));
+				}
+			}
+			if (done)
+				delivered++;
+			else
+				remote.add(i);
+		}
+		if (delivered > 0)
+			fanOutStatus.recordLocalDeliveries(delivered);
+		return remote;
+	}
+
+	/**
+	 * sends message without waiting for the router, waits for a free slot if window of the receiver is full
+	 *
+	 * @param producer - producer of the receiver
+	 * @param receiver - ID of the receiver, null if not known
+	 * @param payload - encoded message, a new JMS message is created from it for this send
+	 * @param priority - JMS priority of the message
+	 * @param attempt - number of this attempt, starting from 1
+	 * @throws InterruptedException
+	 */
+	private void sendAsync(MessageProducer producer, String receiver, PayloadEncoder.Payload payload, int priority, int attempt)
+			throws InterruptedException {
+		Semaphore window = windows.computeIfAbsent(producer, p -> new Semaphore(sendWindow));
+		if (!window.tryAcquire(WINDOW_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+			fanOutStatus.recordDeliveries(0, 1);
+			String result = storeFailed(payload, failedReceivers(receiver)) ? "put message back in outbox" : "dropped message";
+			LoggingService.logWarning(MODULE_NAME, "Message Publisher (" + this.name + ") " + result
+					+ ", router did not confirm sends in " + WINDOW_TIMEOUT_MILLIS + " ms");
+			return;
+		}
+		fanOutStatus.increaseInFlight();
+		CompletionListener listener = new CompletionListener() {
+			@Override
+			public void onCompletion(jakarta.jms.Message message) {
+				window.release();
+				fanOutStatus.decreaseInFlight();
+				fanOutStatus.recordDeliveries(1, 0);
+			}
+
+			@Override
+			public void onException(jakarta.jms.Message message, Exception exception) {
+				window.release();
+				fanOutStatus.decreaseInFlight();
+				sendFailed(new FailedSend(producer, receiver, payload, priority, attempt), exception);
+			}
+		};
+		jakarta.jms.Message msg = null;
+		try {
+			msg = payload.createMessage();
+			producer.send(msg, DeliveryMode.NON_PERSISTENT, priority, jakarta.jms.Message.DEFAULT_TIME_TO_LIVE, listener);
+		} catch (Exception e) {
+			listener.onException(msg, e);
+		}
+	}
+
+	/**
+	 * queues failed send for the sender thread, which retries it up to {@value #MAX_SEND_ATTEMPTS} attempts
+	 *
+	 * @param failedSend - failed send
+	 * @param exception - cause of the failure
+	 */
+	private void sendFailed(FailedSend failedSend, Exception exception) {
+		if (failedSend.attempt < MAX_SEND_ATTEMPTS)
+			fanOutStatus.increaseRetriedSends();
+		else
+			logError(MODULE_NAME, "Message Publisher (" + this.name + ") unable to send message after "
+					+ MAX_SEND_ATTEMPTS + " attempts", new AgentSystemException(exception.getMessage(), exception));
+		failedSends.add(failedSend);
+	}
+
+	/**
+	 * retries sends which failed before this call, sends failing again are retried by the next call
+	 * sends failed for every attempt or for the lost router connection are put back in the outbox,
+	 * without outbox the message stays in the archive, so receivers can still query it
+	 *
+	 * @throws InterruptedException
+	 */
+	private void retryFailedSends() throws InterruptedException {
+		for (int i = failedSends.size(); i > 0; i--) {
+			FailedSend failedSend = failedSends.poll();
+			if (failedSend == null)
+				break;
+			List<MessageProducer> current = producers;
+			boolean inRoute = current != null && current.contains(failedSend.producer);
+			if (inRoute && failedSend.attempt < MAX_SEND_ATTEMPTS) {
+				sendAsync(failedSend.producer, failedSend.receiver, failedSend.payload, failedSend.priority, failedSend.attempt + 1);
+				continue;
+			}
+			fanOutStatus.recordDeliveries(0, 1);
+			// a receiver removed from the route does not get the message again
+			if (current == null || inRoute)
+				storeFailed(failedSend.payload, failedReceivers(failedSend.receiver));
+		}
+	}
+
+	/**
+	 * @param receiver - ID of the receiver whose send failed, null if not known
+	 * @return receivers the message is stored for, null for all receivers
+	 */
+	private static List<String> failedReceivers(String receiver) {
+		return receiver != null ? List.of(receiver) : null;
 	}
 
 	synchronized void updateRoute(Route route, List<MessageProducer> producers) {
 		LoggingService.logDebug(MODULE_NAME, "Updating route");
 		this.route = route;
 		this.producers = producers;
+		this.localReceivers = null;
+		windows.keySet().removeIf(producer -> producers == null || !producers.contains(producer));
+		droppingUnrouted = false;
+		connected = true;
 	}
 
-	public synchronized void close() {
-		LoggingService.logDebug(MODULE_NAME, "Start closing publish");
-		try {
-			archive.close();
-		} catch (Exception exp) {
-			logError(MODULE_NAME, "Error closing message archive", new AgentSystemException(exp.getMessage(), exp));
+	/**
+	 * drops producers of the closed router connection, messages are stored in the outbox
+	 * until {@link #updateRoute(Route, List)} gives new producers
+	 *
+	 */
+	void disconnect() {
+		LoggingService.logDebug(MODULE_NAME, "Disconnecting publisher : " + this.name);
+		// sender stops sending before it gives up the publisher lock
+		connected = false;
+		synchronized (this) {
+			producers = null;
+			localReceivers = null;
+			windows.clear();
 		}
+	}
 
-		if (producers != null && producers.size() > 0) {
-			for (MessageProducer producer: producers) {
-				try {
-					producer.close();
-				} catch (Exception exp) {
-					logError(MODULE_NAME, "Error closing message publisher", new AgentSystemException(exp.getMessage(), exp));
+	boolean isConnected() {
+		return connected;
+	}
+
+	/**
+	 * removes messages waiting in the outbox, when route of the publisher is removed
+	 *
+	 */
+	synchronized void clearOutbox() {
+		if (outbox != null)
+			outbox.clear();
+	}
+
+	/**
+	 * sets receivers of the route running on this agent
+	 *
+	 * @param localReceivers - receivers in the order of the producers, null for a receiver on another agent,
+	 *                       null list to send all messages through the router
+	 */
+	synchronized void setLocalReceivers(List<MessageReceiver> localReceivers) {
+		this.localReceivers = localReceivers;
+	}
+
+	public void close() {
+		LoggingService.logDebug(MODULE_NAME, "Start closing publish");
+		// sender needs the publisher lock to send the queued messages
+		stopSender();
+		synchronized (this) {
+			try {
+				archive.close();
+			} catch (Exception exp) {
+				logError(MODULE_NAME, "Error closing message archive", new AgentSystemException(exp.getMessage(), exp));
+			}
+
+			if (producers != null && producers.size() > 0) {
+				for (MessageProducer producer: producers) {
+					try {
+						producer.close();
+					} catch (Exception exp) {
+						logError(MODULE_NAME, "Error closing message publisher", new AgentSystemException(exp.getMessage(), exp));
+					}
 				}
+				producers.clear();
 			}
-			producers.clear();
+			// closing producers waits for outstanding confirmations, so no more sends fail after this
+			int dropped = failedSends.size();
+			failedSends.clear();
+			if (dropped > 0)
+				fanOutStatus.recordDeliveries(0, dropped);
+			windows.clear();
+			localReceivers = null;
+			if (outbox != null)
+				outbox.close();
 		}
+		StatusReporter.getMessageBusStatus().removeRouteFanOut(name);
 
 		LoggingService.logDebug(MODULE_NAME, "Finished closing publish");
 	}
@@ -115,6 +721,20 @@ public class MessagePublisher implements AutoCloseable{
 		return archive.messageQuery(from, to);
 	}
 
+	/**
+	 * opens cursor over {@link Message} published by this {@link Microservice}
+	 * within a time frame
+	 * 
+	 * @param from - beginning of time frame
+	 * @param to - end of time frame
+	 * @param segment - segment to start from, 0 to start from beginning
+	 * @param record - record to start from in the segment
+	 * @return {@link ArchiveCursor}
+	 */
+	public ArchiveCursor messageCursor(long from, long to, long segment, int record) {
+		return archive.cursor(from, to, segment, record);
+	}
+
 	public Route getRoute() {
 		return route;
 	}
@@ -0,0 +1,76 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * lock-free rate of messages over the last seconds
+ * messages are counted in one bucket per second, a bucket is reused when its second is older than
+ * the longest window, so counts recorded while a bucket is being reused may be lost
+ */
+final class MessageRate {
+	static final int MAX_WINDOW_SECONDS = 60;
+	// one more than the longest window, so the current second never reuses a bucket of the window
+	private static final int BUCKETS = MAX_WINDOW_SECONDS + 1;
+
+	private final AtomicLongArray seconds = new AtomicLongArray(BUCKETS);
+	private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+	MessageRate() {
+		for (int i = 0; i < BUCKETS; i++)
+			counts[i] = new LongAdder();
+	}
+
+	void record() {
+		record(System.currentTimeMillis());
+	}
+
+	/**
+	 * counts one message
+	 *
+	 * @param now - current time in milliseconds
+	 */
+	void record(long now) {
+		long second = now / 1000;
+		int bucket = (int) (second % BUCKETS);
+		long bucketSecond = seconds.get(bucket);
+		if (bucketSecond < second && seconds.compareAndSet(bucket, bucketSecond, second))
+			counts[bucket].reset();
+		counts[bucket].increment();
+	}
+
+	double getRate(int windowSeconds) {
+		return getRate(windowSeconds, System.currentTimeMillis());
+	}
+
+	/**
+	 * calculates rate of messages over completed seconds of the window
+	 *
+	 * @param windowSeconds - length of window in seconds, 1 to {@value #MAX_WINDOW_SECONDS}
+	 * @param now - current time in milliseconds
+	 * @return messages per second
+	 */
+	double getRate(int windowSeconds, long now) {
+		int window = Math.max(1, Math.min(windowSeconds, MAX_WINDOW_SECONDS));
+		long second = now / 1000;
+		long sum = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			long bucketSecond = seconds.get(i);
+			if (bucketSecond >= second - window && bucketSecond < second)
+				sum += counts[i].sum();
+		}
+		return (double) sum / window;
+	}
+}
@@ -15,14 +15,12 @@ package org.eclipse.iofog.message_bus;
 import org.eclipse.iofog.exception.AgentSystemException;
 import org.eclipse.iofog.microservice.Microservice;
 import org.eclipse.iofog.local_api.MessageCallback;
+import org.eclipse.iofog.status_reporter.StatusReporter;
+import org.eclipse.iofog.utils.configuration.Configuration;
 import org.eclipse.iofog.utils.logging.LoggingService;
 
 import jakarta.jms.MessageConsumer;
-import jakarta.jms.TextMessage;
-import javax.json.Json;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
-import java.io.StringReader;
+import jakarta.jms.MessageListener;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -30,67 +28,235 @@ import static org.eclipse.iofog.utils.logging.LoggingService.logError;
 
 /**
  * receiver {@link Microservice}
+ * received messages are returned in {@link PriorityLanes} order
+ * messages published on this agent may be delivered in memory, without the router
+ * receiver outlives the router connection, it is detached from the consumer when connection is lost
+ * and reattached to the consumer of the new connection
+ * messages with an id seen within the dedup window are dropped, if enabled
+ * while a message signal is set, messages are pushed by the router as they arrive and the signal is run
+ * for every enqueued message, so waiting requests do not have to poll
  * 
  * @author saeid
  *
  */
 public class MessageReceiver implements AutoCloseable{
 	private static final String MODULE_NAME = "MessageReceiver";
+	// messages taken from the consumer ahead of requests, so higher priorities can overtake them
+	private static final int LOOKAHEAD = 1000;
+	// messages kept for a receiver which is not polling, further messages published on this agent go through the router
+	private static final int LOCAL_CAPACITY = 10000;
 
 	private final String name;
 
-	private IOMessageListener listener;
-	private final MessageConsumer consumer;
+	private volatile IOMessageListener listener;
+	private volatile MessageConsumer consumer;
+	private final PriorityLanes lanes = new PriorityLanes();
+	private volatile boolean closed;
+	private volatile DedupWindow dedupWindow;
+	private volatile Runnable messageSignal;
+	private final MessageListener arrivalListener = this::onArrival;
 
 	public MessageReceiver(String name, MessageConsumer consumer) {
 		this.name = name;
 		this.consumer = consumer;
 		this.listener = null;
+		updateDedupWindow();
+	}
+
+	/**
+	 * applies dedup window config, ids seen so far are kept if it did not change
+	 *
+	 */
+	void updateDedupWindow() {
+		long windowMillis = Configuration.getDedupWindow() * 1000L;
+		int maxIds = Configuration.getDedupSize();
+		DedupWindow current = dedupWindow;
+		if (windowMillis <= 0 || maxIds <= 0)
+			dedupWindow = null;
+		else if (current == null || !current.hasLimits(windowMillis, maxIds))
+			dedupWindow = new DedupWindow(windowMillis, maxIds);
+	}
+
+	private boolean isDuplicate(Message message) {
+		DedupWindow window = dedupWindow;
+		return window != null && window.isDuplicate(message);
 	}
 
 	/**
 	 * receivers list of {@link Message} sent to this {@link Microservice}
+	 * higher priority messages come first
 	 * 
 	 * @return list of {@link Message}
 	 * @throws Exception
 	 */
-	synchronized List<Message> getMessages() throws Exception {
+	List<Message> getMessages() throws Exception {
+		return getMessages(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * receivers list of {@link Message} sent to this {@link Microservice}
+	 * higher priority messages come first, the rest waits for the next call
+	 * 
+	 * @param max - maximum number of messages
+	 * @return list of {@link Message}
+	 * @throws Exception
+	 */
+	synchronized List<Message> getMessages(int max) throws Exception {
 		LoggingService.logDebug(MODULE_NAME, String.format("Start getting message \"%s\"", name));
 		List<Message> result = new ArrayList<>();
 		
 		if (consumer != null || listener == null) {
-			Message message = getMessage();
-			while (message != null) {
-				result.add(message);
-				message = getMessage();
+			int limit = Math.max(max, LOOKAHEAD);
+			while (lanes.size() < limit) {
+				Message message = getMessage();
+				if (message == null)
+					break;
+				lanes.add(message);
 			}
 		}
+		Message next;
+		while (result.size() < max && (next = lanes.poll()) != null)
+			result.add(next);
+		if (!result.isEmpty()) {
+			MessageBusStatus messageBusStatus = StatusReporter.getMessageBusStatus();
+			long now = System.currentTimeMillis();
+			for (Message message : result)
+				messageBusStatus.recordMessageLatency(message.getPublisher(), name, now - message.getTimestamp());
+		}
 		LoggingService.logDebug(MODULE_NAME, String.format("Finished getting message \"%s\"", name));
 		return result;
 	}
 
 	/**
-	 * receives only one {@link Message}
+	 * receives only one {@link Message}, skipping duplicates
 	 * 
 	 * @return {@link Message}
 	 * @throws Exception
 	 */
 	private Message getMessage() throws Exception {
-		if (consumer == null || listener != null)
+		MessageConsumer current = consumer;
+		// messages are pushed to the lanes while the message signal is set
+		if (current == null || listener != null || messageSignal != null)
 			return null;
 
-		Message result = null;
-		TextMessage msg;
-		msg = (TextMessage) consumer.receiveNoWait();
-		if (msg != null) {
+		jakarta.jms.Message msg;
+		while ((msg = current.receiveNoWait()) != null) {
 			msg.acknowledge();
-			JsonReader jsonReader = Json.createReader(new StringReader(msg.getText()));
-			JsonObject json = jsonReader.readObject();
-			jsonReader.close();
+			Message result = MessageBusServer.readMessage(msg);
+			if (!isDuplicate(result))
+				return result;
+		}
+		return null;
+	}
 
-			result = new Message(json);
+	/**
+	 * delivers {@link Message} published on this agent without the router
+	 * message goes to the real-time websocket if enabled, otherwise it waits for the next {@link #getMessages(int)}
+	 *
+	 * @param message - {@link Message} to be delivered
+	 * @return false if receiver can not take the message, so it has to be sent through the router
+	 */
+	boolean deliverLocal(Message message) {
+		if (closed)
+			return false;
+		if (isDuplicate(message))
+			return true;
+		IOMessageListener realTimeListener = listener;
+		if (realTimeListener != null) {
+			realTimeListener.deliver(message);
+			return true;
+		}
+		if (lanes.size() >= LOCAL_CAPACITY)
+			return false;
+		lanes.add(message);
+		signal();
+		return true;
+	}
+
+	/**
+	 * sets callback run when a message is enqueued for the next {@link #getMessages(int)}
+	 * while it is set, the router pushes messages to this receiver instead of them being taken on request
+	 *
+	 * @param signal - callback, must not block, null to remove it
+	 */
+	synchronized void setMessageSignal(Runnable signal) {
+		messageSignal = signal;
+		MessageConsumer current = consumer;
+		if (current == null || listener != null)
+			return;
+		try {
+			current.setMessageListener(signal != null ? arrivalListener : null);
+		} catch (Exception e) {
+			messageSignal = null;
+			LoggingService.logError(MODULE_NAME, "Error in setting message signal",
+					new AgentSystemException(e.getMessage(), e));
+		}
+	}
+
+	/**
+	 * enqueues message pushed by the router while the message signal is set
+	 *
+	 * @param msg - message from the router
+	 */
+	private void onArrival(jakarta.jms.Message msg) {
+		try {
+			msg.acknowledge();
+			Message message = MessageBusServer.readMessage(msg);
+			if (isDuplicate(message))
+				return;
+			lanes.add(message);
+			signal();
+		} catch (Exception e) {
+			LoggingService.logError(MODULE_NAME, "Error in receiving message",
+					new AgentSystemException(e.getMessage(), e));
+		}
+	}
+
+	private void signal() {
+		Runnable signal = messageSignal;
+		if (signal != null)
+			signal.run();
+	}
+
+	MessageConsumer getConsumer() {
+		return consumer;
+	}
+
+	/**
+	 * closes consumer of the lost router connection
+	 * messages taken ahead stay for the next {@link #getMessages(int)}, real-time receiving is restored on reattach
+	 */
+	synchronized void detach() {
+		MessageConsumer current = consumer;
+		consumer = null;
+		if (current == null)
+			return;
+		try {
+			current.close();
+		} catch (Exception exp) {
+			logError(MODULE_NAME, "Error in detaching receiver",
+					new AgentSystemException(exp.getMessage(), exp));
+		}
+	}
+
+	/**
+	 * receives from consumer of the new router connection, restoring its real-time listener or message signal
+	 *
+	 * @param consumer - {@link MessageConsumer} of this {@link Microservice}
+	 */
+	synchronized void reattach(MessageConsumer consumer) {
+		this.consumer = consumer;
+		MessageListener messageListener = listener != null ? listener : messageSignal != null ? arrivalListener : null;
+		if (consumer == null || messageListener == null)
+			return;
+		try {
+			consumer.setMessageListener(messageListener);
+		} catch (Exception e) {
+			listener = null;
+			messageSignal = null;
+			LoggingService.logError(MODULE_NAME, "Error in enabling real time listener",
+					new AgentSystemException(e.getMessage(), e));
 		}
-		return result;
 	}
 
 	protected String getName() {
@@ -104,7 +270,7 @@ public class MessageReceiver implements AutoCloseable{
 	void enableRealTimeReceiving() {
 		LoggingService.logDebug(MODULE_NAME, "Start enable real time receiving");
 
-		listener = new IOMessageListener(new MessageCallback(name));
+		listener = new IOMessageListener(new MessageCallback(name), this::isDuplicate);
 		try {
 			consumer.setMessageListener(listener);
 		} catch (Exception e) {
@@ -115,6 +281,10 @@ public class MessageReceiver implements AutoCloseable{
 		LoggingService.logDebug(MODULE_NAME, "Finished enable real time receiving");
 	}
 	
+	boolean isRealTimeReceiving() {
+		return listener != null;
+	}
+
 	/**
 	 * disables real-time receiving for this {@link Microservice}
 	 * 
@@ -122,10 +292,16 @@ public class MessageReceiver implements AutoCloseable{
 	void disableRealTimeReceiving() {
 		LoggingService.logDebug(MODULE_NAME, "Start disable real time receiving");
 		try {
-			if (consumer == null || listener == null || consumer.getMessageListener() == null)
+			MessageConsumer current = consumer;
+			if (current == null) {
+				// detached receiver does not get the listener back
+				listener = null;
+				return;
+			}
+			if (listener == null || current.getMessageListener() == null)
 				return;
 			listener = null;
-			consumer.setMessageListener(null);
+			current.setMessageListener(messageSignal != null ? arrivalListener : null);
 		} catch (Exception exp) {
 			logError(MODULE_NAME, "Error in disabling real time listener",
 					new AgentSystemException(exp.getMessage()
@@ -136,11 +312,13 @@ public class MessageReceiver implements AutoCloseable{
 	
 	public void close() {
 		LoggingService.logDebug(MODULE_NAME, "Start closing receiver");
-		if (consumer == null)
+		closed = true;
+		MessageConsumer current = consumer;
+		if (current == null)
 			return;
 		disableRealTimeReceiving();
 		try {
-			consumer.close();
+			current.close();
 		} catch (Exception exp) {
 			logError(MODULE_NAME, "Error in closing receiver",
 					new AgentSystemException(exp.getMessage(), exp));
@@ -0,0 +1,263 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.eclipse.iofog.message_bus.MessageCodec.*;
+
+/**
+ * read-only flyweight over ioMessage v4 wire bytes
+ * only field offsets are computed on wrap, values are decoded when requested
+ * the view can be re-pointed to other bytes with wrap and must not outlive the wrapped buffers
+ */
+public final class MessageView {
+	private ByteBuffer header;
+	private int headerIndex;
+	private ByteBuffer data;
+	private int dataIndex;
+	private short version;
+	private final int[] offsets = new int[FIELD_COUNT + 1];
+
+	/**
+	 * wraps a complete ioMessage starting at the position of the buffer
+	 *
+	 * @param buffer - header followed by data
+	 * @return this view
+	 */
+	public MessageView wrap(ByteBuffer buffer) {
+		return wrap(buffer, buffer.position(), buffer, buffer.position() + HEADER_SIZE);
+	}
+
+	/**
+	 * wraps an ioMessage whose header and data are stored separately
+	 *
+	 * @param header - buffer positioned at the header
+	 * @param data - buffer positioned at the data
+	 * @return this view
+	 */
+	public MessageView wrap(ByteBuffer header, ByteBuffer data) {
+		return wrap(header, header.position(), data, data.position());
+	}
+
+	private MessageView wrap(ByteBuffer header, int headerIndex, ByteBuffer data, int dataIndex) {
+		if (header.limit() - headerIndex < HEADER_SIZE)
+			throw new IllegalArgumentException("ioMessage header is truncated");
+		this.header = header;
+		this.headerIndex = headerIndex;
+		this.data = data;
+		this.dataIndex = dataIndex;
+		this.version = (short) readNumber(header, headerIndex, Short.BYTES);
+
+		offsets[0] = 0;
+		if (!isSupportedVersion()) {
+			for (int i = 1; i <= FIELD_COUNT; i++)
+				offsets[i] = 0;
+			return this;
+		}
+		for (int i = 0; i < FIELD_COUNT; i++)
+			offsets[i + 1] = offsets[i] + fieldLength(i);
+		if (offsets[FIELD_COUNT] < 0 || data.limit() - dataIndex < offsets[FIELD_COUNT])
+			throw new IllegalArgumentException("ioMessage data is truncated");
+		return this;
+	}
+
+	/**
+	 * computes size of the data part from a 33 bytes header without wrapping it
+	 *
+	 * @param header - header bytes
+	 * @param index - index of the header in the buffer
+	 * @return data size in bytes
+	 */
+	public static int dataLength(ByteBuffer header, int index) {
+		long size = 0;
+		for (int i = 0; i < FIELD_COUNT; i++)
+			size += readNumber(header, index + LENGTH_OFFSETS[i], LENGTH_WIDTHS[i]);
+		return (int) size;
+	}
+
+	/**
+	 * reads timestamp from a 33 bytes header and its data part without wrapping them
+	 *
+	 * @param header - header bytes
+	 * @param headerIndex - index of the header in the buffer
+	 * @param data - data bytes
+	 * @param dataIndex - index of the data part in the buffer
+	 * @return timestamp of the message
+	 */
+	static long timestamp(ByteBuffer header, int headerIndex, ByteBuffer data, int dataIndex) {
+		int size = timestampLength(header, headerIndex);
+		return size == 0 ? 0 : readNumber(data, dataIndex + timestampOffset(header, headerIndex), size);
+	}
+
+	/**
+	 * @param header - header bytes
+	 * @param index - index of the header in the buffer
+	 * @return offset of timestamp in the data part
+	 */
+	static int timestampOffset(ByteBuffer header, int index) {
+		int offset = 0;
+		for (int i = 0; i < TIMESTAMP; i++)
+			offset += (int) readNumber(header, index + LENGTH_OFFSETS[i], LENGTH_WIDTHS[i]);
+		return offset;
+	}
+
+	static int timestampLength(ByteBuffer header, int index) {
+		return (int) readNumber(header, index + LENGTH_OFFSETS[TIMESTAMP], LENGTH_WIDTHS[TIMESTAMP]);
+	}
+
+	private int fieldLength(int field) {
+		return (int) readNumber(header, headerIndex + LENGTH_OFFSETS[field], LENGTH_WIDTHS[field]);
+	}
+
+	static long readNumber(ByteBuffer buffer, int index, int size) {
+		long result = 0;
+		for (int i = 0; i < size; i++)
+			result = (result << 8) + (buffer.get(index + i) & 0xff);
+		return result;
+	}
+
+	private long number(int field) {
+		int size = offsets[field + 1] - offsets[field];
+		return size == 0 ? 0 : readNumber(data, dataIndex + offsets[field], size);
+	}
+
+	private String string(int field) {
+		int size = offsets[field + 1] - offsets[field];
+		if (size == 0)
+			return null;
+		int index = dataIndex + offsets[field];
+		if (data.hasArray())
+			return new String(data.array(), data.arrayOffset() + index, size, UTF_8);
+		byte[] bytes = new byte[size];
+		data.get(index, bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	private byte[] bytes(int field) {
+		int size = offsets[field + 1] - offsets[field];
+		if (size == 0)
+			return null;
+		byte[] bytes = new byte[size];
+		data.get(dataIndex + offsets[field], bytes);
+		return bytes;
+	}
+
+	private ByteBuffer slice(int field) {
+		return data.slice(dataIndex + offsets[field], offsets[field + 1] - offsets[field]).asReadOnlyBuffer();
+	}
+
+	public short getVersion() {
+		return version;
+	}
+
+	public boolean isSupportedVersion() {
+		return version == VERSION;
+	}
+
+	/**
+	 * @return size of the data part in bytes
+	 */
+	public int getDataLength() {
+		return offsets[FIELD_COUNT];
+	}
+
+	/**
+	 * @return size of header plus data in bytes
+	 */
+	public int getLength() {
+		return HEADER_SIZE + offsets[FIELD_COUNT];
+	}
+
+	public String getId() {
+		return string(ID);
+	}
+	public String getTag() {
+		return string(TAG);
+	}
+	public String getMessageGroupId() {
+		return string(GROUP_ID);
+	}
+	public int getSequenceNumber() {
+		return (int) number(SEQUENCE_NUMBER);
+	}
+	public int getSequenceTotal() {
+		return (int) number(SEQUENCE_TOTAL);
+	}
+	public byte getPriority() {
+		return (byte) number(PRIORITY);
+	}
+	public long getTimestamp() {
+		return number(TIMESTAMP);
+	}
+	public String getPublisher() {
+		return string(PUBLISHER);
+	}
+	public String getAuthIdentifier() {
+		return string(AUTH_IDENTIFIER);
+	}
+	public String getAuthGroup() {
+		return string(AUTH_GROUP);
+	}
+	public long getChainPosition() {
+		return number(CHAIN_POSITION);
+	}
+	public String getHash() {
+		return string(HASH);
+	}
+	public String getPreviousHash() {
+		return string(PREVIOUS_HASH);
+	}
+	public String getNonce() {
+		return string(NONCE);
+	}
+	public int getDifficultyTarget() {
+		return (int) number(DIFFICULTY_TARGET);
+	}
+	public String getInfoType() {
+		return string(INFO_TYPE);
+	}
+	public String getInfoFormat() {
+		return string(INFO_FORMAT);
+	}
+	public byte[] getContextData() {
+		return bytes(CONTEXT_DATA);
+	}
+	public byte[] getContentData() {
+		return bytes(CONTENT_DATA);
+	}
+
+	/**
+	 * @return read-only buffer sharing context data with the wrapped bytes
+	 */
+	public ByteBuffer contextDataBuffer() {
+		return slice(CONTEXT_DATA);
+	}
+
+	/**
+	 * @return read-only buffer sharing content data with the wrapped bytes
+	 */
+	public ByteBuffer contentDataBuffer() {
+		return slice(CONTENT_DATA);
+	}
+
+	/**
+	 * decodes all fields into a new {@link Message}
+	 *
+	 * @return {@link Message}
+	 */
+	public Message toMessage() {
+		return new Message(this);
+	}
+}
@@ -0,0 +1,368 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.exception.AgentSystemException;
+import org.eclipse.iofog.utils.Constants;
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import static org.eclipse.iofog.message_bus.MessageBus.MODULE_NAME;
+import static org.eclipse.iofog.utils.logging.LoggingService.logError;
+
+/**
+ * {@link RouteOutbox} of a publisher and the replay of the messages stored in it
+ * messages are replayed in the order they were published, at most {@link Configuration#getOutboxReplayRate()} per second,
+ * and removed from the outbox only after the router confirmed them
+ * an entry lists the receivers the message is owed to, so a message whose send failed for some receivers
+ * is replayed to those receivers only, receivers confirming a replay are not sent the message again
+ *
+ * entry: 2 bytes number of receivers, 0 for all receivers of the route,
+ * for each receiver 2 bytes length and UTF-8 bytes of its ID, followed by the ioMessage bytes
+ */
+final class OutboxReplayer {
+	private static final int REPLAY_BATCH_SIZE = 256;
+	private static final int MAX_REPLAY_ATTEMPTS = 3;
+	// time to wait for the router to confirm the sends of a replayed message
+	private static final long CONFIRM_TIMEOUT_MILLIS = 5000;
+	private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final String name;
+	private final RouteOutbox outbox;
+	private final RouteFanOutStatus fanOutStatus;
+	private final int replayRate;
+	// receivers which confirmed a replayed message that stays in the outbox, by message id
+	private final Map<String, Set<String>> delivered = new HashMap<>();
+	private long lastReplayNanos;
+	// failed replays of the oldest message in the outbox while the router is connected
+	private int replayFailures;
+
+	/**
+	 * sends a replayed message to the receivers of the route
+	 */
+	interface Sender {
+		/**
+		 * @param message - {@link Message} to be sent
+		 * @param bytes - ioMessage bytes of the message
+		 * @param owed - tests ID of a receiver of the route, true if the message is owed to the receiver
+		 * @return {@link Confirmation} of the sends
+		 */
+		Confirmation send(Message message, byte[] bytes, Predicate<String> owed);
+	}
+
+	/**
+	 * confirmations of the sends of a replayed message
+	 */
+	static final class Confirmation {
+		private final CountDownLatch pending;
+		private final Set<String> delivered = ConcurrentHashMap.newKeySet();
+		private volatile boolean failed;
+
+		Confirmation(int sends, boolean failed) {
+			this.pending = new CountDownLatch(sends);
+			this.failed = failed;
+		}
+
+		/**
+		 * @param receiver - ID of receiver, null if not known
+		 * @param success - true if the router confirmed the send
+		 */
+		void confirm(String receiver, boolean success) {
+			if (!success)
+				failed = true;
+			else if (receiver != null)
+				delivered.add(receiver);
+			pending.countDown();
+		}
+
+		/**
+		 * @param receiver - ID of receiver the message is delivered to without the router
+		 */
+		void delivered(String receiver) {
+			if (receiver != null)
+				delivered.add(receiver);
+		}
+
+		/**
+		 * @return true if all sends are confirmed within the timeout
+		 */
+		boolean await(long timeoutMillis) throws InterruptedException {
+			return pending.await(timeoutMillis, TimeUnit.MILLISECONDS) && !failed;
+		}
+	}
+
+	/**
+	 * messages sent by {@link #send(Sender)}, waiting for {@link #confirm(Replay, BooleanSupplier)}
+	 */
+	static final class Replay {
+		private final List<String> ids = new ArrayList<>();
+		private final List<Confirmation> confirmations = new ArrayList<>();
+
+		private void add(String id, Confirmation confirmation) {
+			ids.add(id);
+			confirmations.add(confirmation);
+		}
+	}
+
+	OutboxReplayer(String name, RouteOutbox outbox, RouteFanOutStatus fanOutStatus, int replayRate) {
+		this.name = name;
+		this.outbox = outbox;
+		this.fanOutStatus = fanOutStatus;
+		this.replayRate = Math.max(replayRate, 1);
+		this.lastReplayNanos = System.nanoTime() - SECOND_NANOS;
+		fanOutStatus.setOutboxDepth(outbox.size());
+	}
+
+	/**
+	 * opens outbox of the publisher, keeping messages left by a previous run
+	 *
+	 * @param name - ID of publisher microservice
+	 * @param fanOutStatus - status of the route of the publisher
+	 * @return {@link OutboxReplayer}, null if outbox is disabled or can not be opened
+	 */
+	static OutboxReplayer open(String name, RouteFanOutStatus fanOutStatus) {
+		int size = Configuration.getOutboxSize();
+		if (size <= 0)
+			return null;
+		try {
+			RouteOutbox outbox = new RouteOutbox(new File(Configuration.getDiskDirectory() + "messages/outbox/" + name),
+					(long) size * Constants.MiB, TimeUnit.HOURS.toMillis(Configuration.getOutboxMaxAge()));
+			// outbox counts towards the disk limit
+			OutboxRetention.getInstance().register(outbox);
+			return new OutboxReplayer(name, outbox, fanOutStatus, Configuration.getOutboxReplayRate());
+		} catch (Exception e) {
+			logError(MODULE_NAME, "Message Publisher (" + name + ") unable to open outbox",
+					new AgentSystemException(e.getMessage(), e));
+			return null;
+		}
+	}
+
+	boolean isEmpty() {
+		return outbox.isEmpty();
+	}
+
+	/**
+	 * stores message for all receivers of the route in the outbox, oldest messages are dropped if outbox is full
+	 *
+	 * @param bytes - ioMessage bytes of the message
+	 * @param timestamp - timestamp of the message
+	 */
+	void store(byte[] bytes, long timestamp) {
+		store(bytes, timestamp, null);
+	}
+
+	/**
+	 * stores message in the outbox, oldest messages are dropped if outbox is full
+	 *
+	 * @param bytes - ioMessage bytes of the message
+	 * @param timestamp - timestamp of the message
+	 * @param receivers - IDs of the receivers the message is owed to, null for all receivers of the route
+	 */
+	void store(byte[] bytes, long timestamp, Collection<String> receivers) {
+		try {
+			outbox.add(toEntry(bytes, receivers), timestamp);
+		} catch (Exception e) {
+			fanOutStatus.increaseOutboxDroppedMessages(1);
+			logError(MODULE_NAME, "Message Publisher (" + this.name + ") unable to store message in outbox",
+					new AgentSystemException(e.getMessage(), e));
+		}
+		updateOutboxStatus();
+	}
+
+	/**
+	 * sends messages stored in the outbox within the replay rate without waiting for the router,
+	 * called under the publisher lock
+	 *
+	 * @param sender - sends the messages to the receivers of the route
+	 * @return {@link Replay} to be confirmed, null if no message is sent
+	 */
+	Replay send(Sender sender) {
+		long now = System.nanoTime();
+		long elapsed = Math.min(now - lastReplayNanos, SECOND_NANOS);
+		int budget = (int) Math.min(REPLAY_BATCH_SIZE, elapsed * replayRate / SECOND_NANOS);
+		if (budget <= 0)
+			return null;
+		lastReplayNanos = now;
+
+		List<byte[]> stored;
+		try {
+			stored = outbox.peek(budget);
+		} catch (Exception e) {
+			logError(MODULE_NAME, "Message Publisher (" + this.name + ") unable to read outbox",
+					new AgentSystemException(e.getMessage(), e));
+			return null;
+		}
+		Replay replay = new Replay();
+		for (byte[] entry : stored) {
+			Message message;
+			List<String> receivers;
+			byte[] bytes;
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(entry);
+				receivers = readReceivers(buffer);
+				bytes = Arrays.copyOfRange(entry, buffer.position(), entry.length);
+				message = new Message(bytes);
+			} catch (Exception e) {
+				fanOutStatus.increaseOutboxDroppedMessages(1);
+				logError(MODULE_NAME, "Message Publisher (" + this.name + ") unable to read message from outbox",
+						new AgentSystemException(e.getMessage(), e));
+				replay.add(null, new Confirmation(0, false));
+				continue;
+			}
+			String id = message.getId();
+			Set<String> done = id != null ? delivered.get(id) : null;
+			Predicate<String> owed = receiver -> receiver == null
+					|| ((receivers == null || receivers.contains(receiver)) && (done == null || !done.contains(receiver)));
+			replay.add(id, sender.send(message, bytes, owed));
+		}
+		// messages left the outbox or are not peeked any more
+		delivered.keySet().retainAll(replay.ids);
+		return replay;
+	}
+
+	/**
+	 * waits for the router to confirm the messages sent by {@link #send(Sender)}, outside the publisher lock,
+	 * and removes confirmed messages from the outbox
+	 * a message failing {@value #MAX_REPLAY_ATTEMPTS} times while the router is connected is dropped
+	 *
+	 * @param replay - messages sent by {@link #send(Sender)}
+	 * @param connected - true while the router is connected
+	 * @throws InterruptedException
+	 */
+	void confirm(Replay replay, BooleanSupplier connected) throws InterruptedException {
+		int sent = 0;
+		int replayed = 0;
+		for (; sent < replay.confirmations.size(); sent++) {
+			Confirmation confirmation = replay.confirmations.get(sent);
+			if (confirmation.await(CONFIRM_TIMEOUT_MILLIS)) {
+				replayFailures = 0;
+				replayed++;
+			} else if (connected.getAsBoolean() && ++replayFailures >= MAX_REPLAY_ATTEMPTS) {
+				// message stays in the archive, so receivers can still query it
+				replayFailures = 0;
+				fanOutStatus.increaseOutboxDroppedMessages(1);
+				LoggingService.logWarning(MODULE_NAME, "Message Publisher (" + this.name + ") dropped message from outbox after "
+						+ MAX_REPLAY_ATTEMPTS + " failed attempts");
+			} else {
+				break;
+			}
+		}
+		// messages staying in the outbox are not sent again to the receivers which confirmed them
+		for (int i = sent; i < replay.confirmations.size(); i++) {
+			String id = replay.ids.get(i);
+			Set<String> confirmed = replay.confirmations.get(i).delivered;
+			if (id != null && !confirmed.isEmpty())
+				delivered.computeIfAbsent(id, key -> new HashSet<>()).addAll(confirmed);
+		}
+		try {
+			outbox.remove(sent);
+		} catch (Exception e) {
+			logError(MODULE_NAME, "Message Publisher (" + this.name + ") unable to remove sent messages from outbox",
+					new AgentSystemException(e.getMessage(), e));
+		}
+		fanOutStatus.increaseReplayedMessages(replayed);
+		updateOutboxStatus();
+	}
+
+	/**
+	 * @param bytes - ioMessage bytes of the message
+	 * @param receivers - IDs of the receivers the message is owed to, null for all receivers of the route
+	 * @return outbox entry
+	 */
+	static byte[] toEntry(byte[] bytes, Collection<String> receivers) {
+		List<byte[]> ids = new ArrayList<>();
+		int length = Short.BYTES + bytes.length;
+		if (receivers != null) {
+			for (String receiver : receivers) {
+				byte[] id = receiver.getBytes(StandardCharsets.UTF_8);
+				ids.add(id);
+				length += Short.BYTES + id.length;
+			}
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		buffer.putShort((short) ids.size());
+		for (byte[] id : ids) {
+			buffer.putShort((short) id.length);
+			buffer.put(id);
+		}
+		buffer.put(bytes);
+		return buffer.array();
+	}
+
+	/**
+	 * @param buffer - outbox entry, positioned at the ioMessage bytes after the call
+	 * @return IDs of the receivers the message is owed to, null for all receivers of the route
+	 */
+	private static List<String> readReceivers(ByteBuffer buffer) {
+		int count = buffer.getShort() & 0xFFFF;
+		if (count == 0)
+			return null;
+		List<String> receivers = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			byte[] id = new byte[buffer.getShort() & 0xFFFF];
+			buffer.get(id);
+			receivers.add(new String(id, StandardCharsets.UTF_8));
+		}
+		return receivers;
+	}
+
+	private void updateOutboxStatus() {
+		int dropped = outbox.takeDropped();
+		if (dropped > 0) {
+			fanOutStatus.increaseOutboxDroppedMessages(dropped);
+			LoggingService.logWarning(MODULE_NAME, "Message Publisher (" + this.name + ") dropped "
+					+ dropped + " messages from outbox");
+		}
+		fanOutStatus.setOutboxDepth(outbox.size());
+	}
+
+	/**
+	 * removes messages waiting in the outbox
+	 *
+	 */
+	void clear() {
+		try {
+			outbox.clear();
+		} catch (Exception e) {
+			logError(MODULE_NAME, "Message Publisher (" + this.name + ") unable to clear outbox",
+					new AgentSystemException(e.getMessage(), e));
+		}
+		fanOutStatus.setOutboxDepth(0);
+	}
+
+	void close() {
+		OutboxRetention.getInstance().unregister(outbox);
+		try {
+			outbox.close();
+		} catch (Exception exp) {
+			logError(MODULE_NAME, "Error closing outbox", new AgentSystemException(exp.getMessage(), exp));
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.exception.AgentSystemException;
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * disk space used by the {@link RouteOutbox} of all publishers
+ * oldest outbox segments across all publishers are removed to free disk space
+ */
+public final class OutboxRetention {
+	private static final String MODULE_NAME = "Outbox Retention";
+
+	private static final OutboxRetention instance = new OutboxRetention();
+
+	private final Set<RouteOutbox> outboxes = ConcurrentHashMap.newKeySet();
+
+	OutboxRetention() {
+	}
+
+	public static OutboxRetention getInstance() {
+		return instance;
+	}
+
+	void register(RouteOutbox outbox) {
+		outboxes.add(outbox);
+	}
+
+	void unregister(RouteOutbox outbox) {
+		outboxes.remove(outbox);
+	}
+
+	/**
+	 * @return size of all outboxes on disk in bytes
+	 */
+	public long getOutboxSize() {
+		long bytes = 0;
+		for (RouteOutbox outbox : outboxes)
+			bytes += outbox.getBytes();
+		return bytes;
+	}
+
+	/**
+	 * removes segments of the outboxes, the one holding the oldest message first
+	 *
+	 * @param amount - disk space to be freed in bytes
+	 * @return freed bytes
+	 */
+	public long removeOldest(long amount) {
+		long freed = 0;
+		while (freed < amount) {
+			RouteOutbox oldest = null;
+			long oldestTimestamp = Long.MAX_VALUE;
+			for (RouteOutbox outbox : outboxes) {
+				try {
+					long timestamp = outbox.getOldestTimestamp();
+					if (timestamp < oldestTimestamp) {
+						oldest = outbox;
+						oldestTimestamp = timestamp;
+					}
+				} catch (Exception e) {
+					LoggingService.logError(MODULE_NAME, "Unable to read outbox", new AgentSystemException(e.getMessage(), e));
+				}
+			}
+			if (oldest == null)
+				break;
+			try {
+				freed += oldest.removeOldestSegment();
+			} catch (Exception e) {
+				LoggingService.logError(MODULE_NAME, "Unable to remove outbox segment", new AgentSystemException(e.getMessage(), e));
+				break;
+			}
+		}
+		if (freed > 0)
+			LoggingService.logWarning(MODULE_NAME, "Removed oldest outbox messages : " + freed + " bytes");
+		return freed;
+	}
+}
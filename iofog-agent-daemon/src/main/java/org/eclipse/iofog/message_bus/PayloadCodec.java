@@ -0,0 +1,38 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+/**
+ * compresses ioMessage bytes sent through the router
+ * codecs are registered in {@link PayloadCodecs} and selected by name
+ */
+public interface PayloadCodec {
+	/**
+	 * @return name of the codec, sent with compressed messages
+	 */
+	String getName();
+
+	/**
+	 * @param data - ioMessage bytes
+	 * @return compressed bytes
+	 */
+	byte[] compress(byte[] data);
+
+	/**
+	 * @param data - compressed bytes
+	 * @param length - length of ioMessage bytes before compression
+	 * @return ioMessage bytes
+	 * @throws IllegalArgumentException if data is not valid or is not of the given length
+	 */
+	byte[] decompress(byte[] data, int length);
+}
@@ -0,0 +1,59 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * registry of {@link PayloadCodec} by name
+ */
+public final class PayloadCodecs {
+	public static final String OFF = "off";
+
+	private static final Map<String, PayloadCodec> codecs = new ConcurrentHashMap<>();
+
+	static {
+		register(new DeflatePayloadCodec());
+	}
+
+	private PayloadCodecs() {
+	}
+
+	/**
+	 * registers codec, replacing a codec of the same name
+	 *
+	 * @param codec - {@link PayloadCodec}
+	 */
+	public static void register(PayloadCodec codec) {
+		codecs.put(codec.getName().toLowerCase(), codec);
+	}
+
+	/**
+	 * @param name - name of codec
+	 * @return {@link PayloadCodec} or null if name is "off" or no codec is registered with the name
+	 */
+	public static PayloadCodec get(String name) {
+		if (name == null)
+			return null;
+		return codecs.get(name.toLowerCase());
+	}
+
+	/**
+	 * @param name - value of payload compression config
+	 * @return true if name is "off" or a registered codec
+	 */
+	public static boolean isValid(String name) {
+		return OFF.equalsIgnoreCase(name) || get(name) != null;
+	}
+}
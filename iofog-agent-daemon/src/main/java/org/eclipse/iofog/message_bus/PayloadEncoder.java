@@ -0,0 +1,127 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.exception.AgentSystemException;
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.eclipse.iofog.utils.logging.LoggingService;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.eclipse.iofog.message_bus.MessageBus.MODULE_NAME;
+import static org.eclipse.iofog.utils.logging.LoggingService.logError;
+
+/**
+ * encodes messages of a publisher for the router, once for all receivers of the route
+ * messages over the payload compression threshold are compressed by the configured {@link PayloadCodec}
+ * in binary mode only, as receivers in JSON mode expect text messages
+ */
+final class PayloadEncoder {
+	private final String publisher;
+	private final RouteFanOutStatus fanOutStatus;
+	private boolean warnedJsonCompression;
+
+	/**
+	 * message encoded once for all receivers of the route
+	 * a JMS message is created from it for every send, as a message can not be touched until its send completes
+	 */
+	static final class Payload {
+		private final String publisher;
+		// ioMessage bytes, stored in the outbox if a send fails
+		final byte[] bytes;
+		final long timestamp;
+		// bytes of BytesMessage, compressed if codec is set, null to send JSON text
+		private final byte[] body;
+		private final String json;
+		private final PayloadCodec codec;
+		final int size;
+		final AtomicBoolean stored = new AtomicBoolean();
+
+		private Payload(String publisher, byte[] bytes, long timestamp, byte[] body, String json, PayloadCodec codec) {
+			this.publisher = publisher;
+			this.bytes = bytes;
+			this.timestamp = timestamp;
+			this.body = body;
+			this.json = json;
+			this.codec = codec;
+			this.size = body != null ? body.length : MessageCodec.utf8Length(json);
+		}
+
+		/**
+		 * @return new JMS message in the session of the publisher
+		 * @throws Exception
+		 */
+		jakarta.jms.Message createMessage() throws Exception {
+			if (codec != null)
+				return MessageBusServer.createMessage(publisher, body, codec, bytes.length);
+			if (body != null)
+				return MessageBusServer.createMessage(publisher, body);
+			return MessageBusServer.createMessage(publisher, json);
+		}
+	}
+
+	/**
+	 * @param publisher - ID of publisher microservice
+	 * @param fanOutStatus - status compressions are recorded in
+	 */
+	PayloadEncoder(String publisher, RouteFanOutStatus fanOutStatus) {
+		this.publisher = publisher;
+		this.fanOutStatus = fanOutStatus;
+	}
+
+	/**
+	 * encodes message for the router, compressed if it is over the payload compression threshold in binary mode
+	 *
+	 * @param message - {@link Message} to be sent
+	 * @param bytes - ioMessage bytes of the message
+	 * @return {@link Payload}, null if message can not be encoded
+	 */
+	Payload encode(Message message, byte[] bytes) {
+		try {
+			PayloadCodec codec = PayloadCodecs.get(Configuration.getPayloadCompression());
+			if (Configuration.isMessageBusBinaryMode()) {
+				byte[] compressed = codec != null ? compress(codec, bytes) : null;
+				if (compressed != null)
+					return new Payload(publisher, bytes, message.getTimestamp(), compressed, null, codec);
+				return new Payload(publisher, bytes, message.getTimestamp(), bytes, null, null);
+			}
+			if (codec != null && !warnedJsonCompression) {
+				warnedJsonCompression = true;
+				LoggingService.logWarning(MODULE_NAME, "Message Publisher (" + publisher + ") sends messages uncompressed, "
+						+ "payload compression needs message bus binary mode");
+			}
+			return new Payload(publisher, bytes, message.getTimestamp(), null, message.toJson().toString(), null);
+		} catch (Exception e) {
+			logError(MODULE_NAME, "Message Publisher (" + publisher + ") unable to create message",
+					new AgentSystemException(e.getMessage(), e));
+			return null;
+		}
+	}
+
+	/**
+	 * compresses ioMessage bytes if they are over the payload compression threshold
+	 *
+	 * @param codec - {@link PayloadCodec} of payload compression config
+	 * @param bytes - ioMessage bytes of the message
+	 * @return compressed bytes or null if message should be sent uncompressed
+	 */
+	private byte[] compress(PayloadCodec codec, byte[] bytes) {
+		if (bytes.length < Configuration.getPayloadCompressionThreshold())
+			return null;
+		long compressStart = System.nanoTime();
+		byte[] compressed = codec.compress(bytes);
+		boolean smaller = compressed.length < bytes.length;
+		fanOutStatus.recordCompression(bytes.length, smaller ? compressed.length : bytes.length, System.nanoTime() - compressStart);
+		return smaller ? compressed : null;
+	}
+}
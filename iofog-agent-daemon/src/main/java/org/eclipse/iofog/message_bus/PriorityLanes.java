@@ -0,0 +1,104 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import java.util.ArrayDeque;
+
+/**
+ * messages waiting for delivery to a receiver, in one FIFO lane per priority
+ * as in the ioMessage spec, the lower the number the higher the priority, so lane 0 is taken first, but every {@value #FAIRNESS_INTERVAL}th take is the oldest waiting message,
+ * so a backlog of high priority messages can not starve lower priorities
+ */
+public final class PriorityLanes {
+	public static final int LANES = 10;
+	static final int FAIRNESS_INTERVAL = 8;
+
+	private final ArrayDeque<Queued>[] lanes;
+	private long sequence;
+	private int takes;
+	private int size;
+
+	private static final class Queued {
+		private final Message message;
+		private final long sequence;
+
+		private Queued(Message message, long sequence) {
+			this.message = message;
+			this.sequence = sequence;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public PriorityLanes() {
+		lanes = new ArrayDeque[LANES];
+		for (int i = 0; i < LANES; i++)
+			lanes[i] = new ArrayDeque<>();
+	}
+
+	/**
+	 * maps ioMessage priority onto a lane
+	 *
+	 * @param priority - ioMessage priority, lower is more urgent
+	 * @return lane from 0, the most urgent, to {@value #LANES} - 1
+	 */
+	public static int lane(byte priority) {
+		return Math.min(priority & 0xFF, LANES - 1);
+	}
+
+	/**
+	 * maps ioMessage priority onto JMS priority, where higher is more urgent
+	 *
+	 * @param priority - ioMessage priority, lower is more urgent
+	 * @return JMS priority from 9 for ioMessage priority 0 down to 0
+	 */
+	public static int jmsPriority(byte priority) {
+		return LANES - 1 - lane(priority);
+	}
+
+	public synchronized void add(Message message) {
+		lanes[lane(message.getPriority())].addLast(new Queued(message, sequence++));
+		size++;
+	}
+
+	/**
+	 * @return next message to be delivered, null if no message is waiting
+	 */
+	public synchronized Message poll() {
+		if (size == 0)
+			return null;
+		ArrayDeque<Queued> next = null;
+		if (++takes % FAIRNESS_INTERVAL == 0) {
+			for (ArrayDeque<Queued> lane : lanes) {
+				if (!lane.isEmpty() && (next == null || lane.peekFirst().sequence < next.peekFirst().sequence))
+					next = lane;
+			}
+		} else {
+			for (int i = 0; next == null; i++) {
+				if (!lanes[i].isEmpty())
+					next = lanes[i];
+			}
+		}
+		size--;
+		return next.pollFirst().message;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized void clear() {
+		for (ArrayDeque<Queued> lane : lanes)
+			lane.clear();
+		size = 0;
+	}
+}
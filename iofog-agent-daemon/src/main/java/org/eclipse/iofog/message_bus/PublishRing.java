@@ -0,0 +1,131 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * bounded lock-free ring buffer with many producers and a single consumer
+ * producers claim slots by advancing the tail, so elements offered together are taken together and in order
+ *
+ * @param <E> - type of elements
+ */
+final class PublishRing<E> {
+	// producers waiting for free slots poll the head at this interval
+	private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	private final AtomicReferenceArray<E> slots;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long head;
+	private volatile Thread waitingConsumer;
+
+	/**
+	 * @param capacity - number of elements, rounded up to a power of two
+	 */
+	PublishRing(int capacity) {
+		int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		slots = new AtomicReferenceArray<>(size);
+		mask = size - 1;
+	}
+
+	int capacity() {
+		return slots.length();
+	}
+
+	int size() {
+		return (int) Math.max(0, Math.min(tail.get() - head, slots.length()));
+	}
+
+	/**
+	 * adds all elements, waiting for free slots if ring is full
+	 *
+	 * @param elements - elements to be added
+	 * @param timeoutMillis - time to wait for free slots
+	 * @return false if there were not enough free slots within the timeout
+	 * @throws InterruptedException
+	 */
+	boolean offer(List<E> elements, long timeoutMillis) throws InterruptedException {
+		int count = elements.size();
+		if (count > slots.length())
+			return false;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		long first;
+		while (true) {
+			first = tail.get();
+			if (first + count - head <= slots.length()) {
+				if (tail.compareAndSet(first, first + count))
+					break;
+				continue;
+			}
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0)
+				return false;
+			LockSupport.parkNanos(this, Math.min(remaining, PARK_NANOS));
+			if (Thread.interrupted())
+				throw new InterruptedException();
+		}
+		for (int i = 0; i < count; i++)
+			slots.set((int) ((first + i) & mask), elements.get(i));
+		Thread consumer = waitingConsumer;
+		if (consumer != null)
+			LockSupport.unpark(consumer);
+		return true;
+	}
+
+	/**
+	 * takes elements in the order they were added, must be called by one thread at a time
+	 *
+	 * @param target - list the elements are added to
+	 * @param max - maximum number of elements to take
+	 * @param timeoutMillis - time to wait if ring is empty
+	 * @return number of elements taken
+	 * @throws InterruptedException
+	 */
+	int drainTo(List<E> target, int max, long timeoutMillis) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (tail.get() == head) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0)
+				return 0;
+			waitingConsumer = Thread.currentThread();
+			if (tail.get() == head)
+				LockSupport.parkNanos(this, remaining);
+			waitingConsumer = null;
+			if (Thread.interrupted())
+				throw new InterruptedException();
+		}
+
+		long current = head;
+		long last = tail.get();
+		int drained = 0;
+		while (current < last && drained < max) {
+			int index = (int) (current & mask);
+			E element = slots.get(index);
+			if (element == null) {
+				// slot is claimed but producer has not stored its element yet
+				Thread.onSpinWait();
+				continue;
+			}
+			slots.set(index, null);
+			target.add(element);
+			head = ++current;
+			drained++;
+		}
+		return drained;
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * delays between attempts to connect to the router
+ * delay doubles with every failed attempt up to the maximum, a random half of it is cut off,
+ * so agents losing the same router do not reconnect all at once
+ */
+final class ReconnectBackoff {
+	private final long initialMillis;
+	private final long maxMillis;
+	private int failures;
+
+	/**
+	 * @param initialMillis - delay before the first attempt
+	 * @param maxMillis - maximum delay
+	 */
+	ReconnectBackoff(long initialMillis, long maxMillis) {
+		this.initialMillis = initialMillis;
+		this.maxMillis = maxMillis;
+	}
+
+	/**
+	 * @return delay before the next attempt, between half and all of the current delay
+	 */
+	synchronized long nextDelay() {
+		long delay = Math.min(maxMillis, initialMillis << Math.min(failures, 30));
+		if (delay < 0)
+			delay = maxMillis;
+		failures++;
+		long half = delay / 2;
+		return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+	}
+
+	/**
+	 * starts again from the initial delay, called when connected
+	 */
+	synchronized void reset() {
+		failures = 0;
+	}
+
+	/**
+	 * @return attempts since the last {@link #reset()}
+	 */
+	synchronized int getFailures() {
+		return failures;
+	}
+}
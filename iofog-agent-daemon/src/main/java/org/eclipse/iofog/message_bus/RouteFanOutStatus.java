@@ -0,0 +1,316 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.microservice.Route;
+
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * fan-out cost of a publisher {@link Route}
+ * payload is encoded once per message and shared by all receivers of the route
+ */
+public class RouteFanOutStatus {
+	private final LongAdder publishedMessages = new LongAdder();
+	private final LongAdder deliveries = new LongAdder();
+	private final LongAdder failedDeliveries = new LongAdder();
+	private final LongAdder localDeliveries = new LongAdder();
+	private final LongAdder payloadBytes = new LongAdder();
+	private final LongAdder encodeNanos = new LongAdder();
+	private final LongAdder sendNanos = new LongAdder();
+	private final LongAdder rejectedMessages = new LongAdder();
+	private final LongAdder retriedSends = new LongAdder();
+	private final LongAdder inFlight = new LongAdder();
+	private final LongAdder replayedMessages = new LongAdder();
+	private final LongAdder outboxDroppedMessages = new LongAdder();
+	private final LongAdder unroutedMessages = new LongAdder();
+	private final LongAdder compressions = new LongAdder();
+	private final LongAdder compressedMessages = new LongAdder();
+	private final LongAdder uncompressedBytes = new LongAdder();
+	private final LongAdder compressedBytes = new LongAdder();
+	private final LongAdder compressNanos = new LongAdder();
+	private final MessageRate rate = new MessageRate();
+	private volatile int receivers;
+	private volatile int queueDepth;
+	private volatile int outboxDepth;
+
+	/**
+	 * records one publish of a message to all receivers of the route
+	 *
+	 * @param receivers - number of receivers the message was sent to
+	 * @param failed - number of failed sends
+	 * @param payloadBytes - size of the encoded payload
+	 * @param encodeNanos - time spent encoding the payload
+	 * @param sendNanos - time spent sending the payload to all receivers
+	 */
+	void record(int receivers, int failed, int payloadBytes, long encodeNanos, long sendNanos) {
+		recordPublish(receivers, payloadBytes, encodeNanos, sendNanos);
+		recordDeliveries(receivers - failed, failed);
+	}
+
+	/**
+	 * records one publish of a message whose sends are confirmed later by {@link #recordDeliveries(int, int)}
+	 *
+	 * @param receivers - number of receivers the message was sent to
+	 * @param payloadBytes - size of the encoded payload
+	 * @param encodeNanos - time spent encoding the payload
+	 * @param sendNanos - time spent handing the payload to the producers of all receivers
+	 */
+	void recordPublish(int receivers, int payloadBytes, long encodeNanos, long sendNanos) {
+		this.receivers = receivers;
+		this.publishedMessages.increment();
+		this.payloadBytes.add(payloadBytes);
+		this.encodeNanos.add(encodeNanos);
+		this.sendNanos.add(sendNanos);
+		this.rate.record();
+	}
+
+	void recordDeliveries(int delivered, int failed) {
+		this.deliveries.add(delivered);
+		this.failedDeliveries.add(failed);
+	}
+
+	/**
+	 * records deliveries in memory to receivers running on this agent
+	 *
+	 * @param delivered - number of receivers the message was delivered to
+	 */
+	void recordLocalDeliveries(int delivered) {
+		this.deliveries.add(delivered);
+		this.localDeliveries.add(delivered);
+	}
+
+	void increaseRetriedSends() {
+		retriedSends.increment();
+	}
+
+	void increaseInFlight() {
+		inFlight.increment();
+	}
+
+	void decreaseInFlight() {
+		inFlight.decrement();
+	}
+
+	void setQueueDepth(int queueDepth) {
+		this.queueDepth = queueDepth;
+	}
+
+	void increaseRejectedMessages(int count) {
+		rejectedMessages.add(count);
+	}
+
+	void setOutboxDepth(int outboxDepth) {
+		this.outboxDepth = outboxDepth;
+	}
+
+	void increaseReplayedMessages(int count) {
+		replayedMessages.add(count);
+	}
+
+	void increaseOutboxDroppedMessages(int count) {
+		outboxDroppedMessages.add(count);
+	}
+
+	void increaseUnroutedMessages(int count) {
+		unroutedMessages.add(count);
+	}
+
+	/**
+	 * records one compression of a payload over the compression threshold
+	 *
+	 * @param originalBytes - size of the payload before compression
+	 * @param sentBytes - size of the payload sent, the original size if compression did not make it smaller
+	 * @param compressNanos - time spent compressing the payload
+	 */
+	void recordCompression(int originalBytes, int sentBytes, long compressNanos) {
+		this.compressions.increment();
+		if (sentBytes < originalBytes)
+			this.compressedMessages.increment();
+		this.uncompressedBytes.add(originalBytes);
+		this.compressedBytes.add(sentBytes);
+		this.compressNanos.add(compressNanos);
+	}
+
+	public int getReceivers() {
+		return receivers;
+	}
+
+	public long getPublishedMessages() {
+		return publishedMessages.sum();
+	}
+
+	public long getDeliveries() {
+		return deliveries.sum();
+	}
+
+	public long getFailedDeliveries() {
+		return failedDeliveries.sum();
+	}
+
+	/**
+	 * @return deliveries to receivers on this agent which did not go through the router
+	 */
+	public long getLocalDeliveries() {
+		return localDeliveries.sum();
+	}
+
+	public long getPayloadBytes() {
+		return payloadBytes.sum();
+	}
+
+	public long getEncodeNanos() {
+		return encodeNanos.sum();
+	}
+
+	public long getSendNanos() {
+		return sendNanos.sum();
+	}
+
+	/**
+	 * @return messages waiting in the send queue of the publisher
+	 */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * @return messages rejected because the send queue of the publisher was full
+	 */
+	public long getRejectedMessages() {
+		return rejectedMessages.sum();
+	}
+
+	/**
+	 * @return sends retried after the router failed to confirm them
+	 */
+	public long getRetriedSends() {
+		return retriedSends.sum();
+	}
+
+	/**
+	 * @return asynchronous sends waiting for confirmation by the router
+	 */
+	public long getInFlight() {
+		return inFlight.sum();
+	}
+
+	/**
+	 * @return messages stored in the outbox of the publisher while the router was not connected
+	 */
+	public int getOutboxDepth() {
+		return outboxDepth;
+	}
+
+	/**
+	 * @return messages sent from the outbox after the router connection was back
+	 */
+	public long getReplayedMessages() {
+		return replayedMessages.sum();
+	}
+
+	/**
+	 * @return messages dropped from the outbox for its size or age limit
+	 */
+	public long getOutboxDroppedMessages() {
+		return outboxDroppedMessages.sum();
+	}
+
+	/**
+	 * @return messages dropped because the route was not set up yet and there was no outbox to store them
+	 */
+	public long getUnroutedMessages() {
+		return unroutedMessages.sum();
+	}
+
+	/**
+	 * @return payloads compressed, including the ones sent uncompressed because compression did not make them smaller
+	 */
+	public long getCompressions() {
+		return compressions.sum();
+	}
+
+	/**
+	 * @return messages sent compressed
+	 */
+	public long getCompressedMessages() {
+		return compressedMessages.sum();
+	}
+
+	public long getUncompressedBytes() {
+		return uncompressedBytes.sum();
+	}
+
+	public long getCompressedBytes() {
+		return compressedBytes.sum();
+	}
+
+	public long getCompressNanos() {
+		return compressNanos.sum();
+	}
+
+	/**
+	 * @return size of compressed payloads before compression divided by their size sent, 1 if nothing was compressed
+	 */
+	public double getCompressionRatio() {
+		long sent = getCompressedBytes();
+		return sent == 0 ? 1 : (double) getUncompressedBytes() / sent;
+	}
+
+	/**
+	 * @return average time spent compressing a payload in microseconds
+	 */
+	public long getAverageCompressMicros() {
+		long compressions = getCompressions();
+		return compressions == 0 ? 0 : getCompressNanos() / compressions / 1000;
+	}
+
+	/**
+	 * @param windowSeconds - length of window in seconds, up to 60
+	 * @return messages published to the route per second over the window
+	 */
+	public double getRate(int windowSeconds) {
+		return rate.getRate(windowSeconds);
+	}
+
+	JsonObjectBuilder toJson(String publisher) {
+		long now = System.currentTimeMillis();
+		long messages = getPublishedMessages();
+		return Json.createObjectBuilder()
+				.add("id", publisher)
+				.add("receivers", receivers)
+				.add("messagecount", messages)
+				.add("deliverycount", getDeliveries())
+				.add("faileddeliverycount", getFailedDeliveries())
+				.add("localdeliverycount", getLocalDeliveries())
+				.add("payloadbytes", getPayloadBytes())
+				.add("avgencodemicros", messages == 0 ? 0 : getEncodeNanos() / messages / 1000)
+				.add("avgsendmicros", messages == 0 ? 0 : getSendNanos() / messages / 1000)
+				.add("queuedepth", queueDepth)
+				.add("rejectedcount", getRejectedMessages())
+				.add("inflight", getInFlight())
+				.add("retriedcount", getRetriedSends())
+				.add("outboxdepth", outboxDepth)
+				.add("replayedcount", getReplayedMessages())
+				.add("outboxdroppedcount", getOutboxDroppedMessages())
+				.add("unroutedcount", getUnroutedMessages())
+				.add("compressedcount", getCompressedMessages())
+				.add("compressionratio", Math.round(getCompressionRatio() * 100) / 100.0)
+				.add("avgcompressmicros", getAverageCompressMicros())
+				.add("rate1s", rate.getRate(1, now))
+				.add("rate10s", rate.getRate(10, now))
+				.add("rate60s", rate.getRate(60, now));
+	}
+}
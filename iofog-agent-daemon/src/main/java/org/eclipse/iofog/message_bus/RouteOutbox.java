@@ -0,0 +1,437 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * disk-backed queue of messages a {@link MessagePublisher} could not send while the router connection was down
+ * messages are appended to segment files (.obx) and read back in the order they were added,
+ * so messages left by a previous run are replayed after restart
+ *
+ * segment: 8 bytes offset of the next record to read, followed by the records
+ * record: 8 bytes timestamp, 4 bytes length and the entry of the {@link OutboxReplayer}
+ *
+ * oldest segment is dropped when the outbox is over its size, messages older than max age are dropped when read
+ * messages are removed only after they are sent, so messages of a failed send are read again
+ */
+final class RouteOutbox implements AutoCloseable {
+	static final String EXTENSION = ".obx";
+	private static final int OFFSET_SIZE = Long.BYTES;
+	private static final int RECORD_HEADER_SIZE = Long.BYTES + Integer.BYTES;
+	private static final long MIN_SEGMENT_SIZE = 64 * 1024;
+	private static final long MAX_SEGMENT_SIZE = 4L * Constants.MiB;
+
+	private final File directory;
+	private final long maxSize;
+	private final long maxAgeMillis;
+	private final long segmentSize;
+	private final Deque<Segment> segments = new ArrayDeque<>();
+	private final ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+	private final ByteBuffer offset = ByteBuffer.allocate(OFFSET_SIZE);
+	private FileChannel readChannel;
+	private FileChannel writeChannel;
+	// segment the last peeked messages were read from
+	private Segment peekedSegment;
+	private long nextSequence;
+	private long size;
+	private int records;
+	private int dropped;
+
+	private static final class Segment {
+		private final long sequence;
+		private final File file;
+		private long readOffset = OFFSET_SIZE;
+		private long length = OFFSET_SIZE;
+		// records not read yet
+		private int records;
+
+		private Segment(long sequence, File file) {
+			this.sequence = sequence;
+			this.file = file;
+		}
+	}
+
+	/**
+	 * opens outbox in the directory, keeping messages left by a previous run
+	 *
+	 * @param directory - directory of the outbox
+	 * @param maxSize - size in bytes above which the oldest messages are dropped
+	 * @param maxAgeMillis - age after which messages are dropped instead of read, 0 for no limit
+	 * @throws IOException
+	 */
+	RouteOutbox(File directory, long maxSize, long maxAgeMillis) throws IOException {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		this.maxAgeMillis = maxAgeMillis;
+		this.segmentSize = Math.max(MIN_SEGMENT_SIZE, Math.min(MAX_SEGMENT_SIZE, maxSize / 4));
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Unable to create outbox directory " + directory);
+		load();
+	}
+
+	/**
+	 * finds segments of a previous run, drops the incomplete last record left by a crash
+	 *
+	 * @throws IOException
+	 */
+	private void load() throws IOException {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+		if (files == null)
+			return;
+		List<Segment> found = new ArrayList<>();
+		for (File file : files) {
+			String name = file.getName();
+			try {
+				found.add(new Segment(Long.parseLong(name.substring(0, name.length() - EXTENSION.length())), file));
+			} catch (NumberFormatException e) {
+				// not a segment of the outbox
+			}
+		}
+		found.sort(Comparator.comparingLong(segment -> segment.sequence));
+		for (Segment segment : found) {
+			nextSequence = Math.max(nextSequence, segment.sequence + 1);
+			scan(segment);
+			if (segment.records == 0) {
+				segment.file.delete();
+				continue;
+			}
+			segments.addLast(segment);
+			size += segment.length;
+			records += segment.records;
+		}
+	}
+
+	private void scan(Segment segment) throws IOException {
+		try (FileChannel channel = FileChannel.open(segment.file.toPath(), READ, WRITE)) {
+			long length = channel.size();
+			if (length < OFFSET_SIZE)
+				return;
+			offset.clear();
+			readFully(channel, offset, 0);
+			long position = offset.getLong(0);
+			if (position < OFFSET_SIZE || position > length)
+				return;
+			segment.readOffset = position;
+			while (position + RECORD_HEADER_SIZE <= length) {
+				recordHeader.clear();
+				readFully(channel, recordHeader, position);
+				int messageLength = recordHeader.getInt(Long.BYTES);
+				if (messageLength < 0 || position + RECORD_HEADER_SIZE + messageLength > length)
+					break;
+				position += RECORD_HEADER_SIZE + messageLength;
+				segment.records++;
+			}
+			if (position < length)
+				channel.truncate(position);
+			segment.length = position;
+		}
+	}
+
+	/**
+	 * appends message, dropping the oldest segment if outbox gets over its size
+	 *
+	 * @param message - ioMessage bytes
+	 * @param timestamp - timestamp of the message
+	 * @throws IOException
+	 */
+	synchronized void add(byte[] message, long timestamp) throws IOException {
+		Segment tail = segments.peekLast();
+		long recordLength = RECORD_HEADER_SIZE + message.length;
+		if (writeChannel == null || tail == null || (tail.records > 0 && tail.length + recordLength > segmentSize))
+			tail = openSegment();
+
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + message.length);
+		record.putLong(timestamp).putInt(message.length).put(message).flip();
+		writeFully(writeChannel, record, tail.length);
+		tail.length += recordLength;
+		tail.records++;
+		size += recordLength;
+		records++;
+
+		while (size > maxSize && segments.size() > 1) {
+			dropped += segments.peekFirst().records;
+			removeHead();
+		}
+	}
+
+	private Segment openSegment() throws IOException {
+		if (writeChannel != null) {
+			writeChannel.close();
+			writeChannel = null;
+		}
+		long sequence = nextSequence++;
+		Segment segment = new Segment(sequence, new File(directory, sequence + EXTENSION));
+		FileChannel channel = FileChannel.open(segment.file.toPath(), CREATE, READ, WRITE);
+		try {
+			channel.truncate(0);
+			offset.clear();
+			offset.putLong(0, segment.readOffset);
+			writeFully(channel, offset, 0);
+		} catch (IOException e) {
+			channel.close();
+			segment.file.delete();
+			throw e;
+		}
+		writeChannel = channel;
+		segments.addLast(segment);
+		size += segment.length;
+		return segment;
+	}
+
+	/**
+	 * reads messages in the order they were added, read messages are removed from the outbox
+	 *
+	 * @param max - maximum number of messages
+	 * @return ioMessage bytes of the messages
+	 * @throws IOException
+	 */
+	synchronized List<byte[]> poll(int max) throws IOException {
+		List<byte[]> result = new ArrayList<>();
+		while (result.size() < max) {
+			List<byte[]> messages = peek(max - result.size());
+			if (messages.isEmpty())
+				break;
+			remove(messages.size());
+			result.addAll(messages);
+		}
+		return result;
+	}
+
+	/**
+	 * reads messages in the order they were added without removing them, up to the end of the oldest segment
+	 * messages older than max age at the head of the outbox are dropped
+	 * read messages stay in the outbox until {@link #remove(int)} is called, so they survive a failed send or a restart
+	 *
+	 * @param max - maximum number of messages
+	 * @return ioMessage bytes of the messages
+	 * @throws IOException
+	 */
+	synchronized List<byte[]> peek(int max) throws IOException {
+		List<byte[]> result = new ArrayList<>();
+		long oldest = maxAgeMillis > 0 ? System.currentTimeMillis() - maxAgeMillis : Long.MIN_VALUE;
+		while (max > 0 && result.isEmpty()) {
+			Segment head = segments.peekFirst();
+			if (head == null)
+				break;
+			if (head.records == 0) {
+				removeHead();
+				continue;
+			}
+			if (readChannel == null)
+				readChannel = FileChannel.open(head.file.toPath(), READ, WRITE);
+			long position = head.readOffset;
+			int read = 0;
+			int expired = 0;
+			while (read < head.records && result.size() < max) {
+				recordHeader.clear();
+				readFully(readChannel, recordHeader, position);
+				long timestamp = recordHeader.getLong(0);
+				int length = recordHeader.getInt(Long.BYTES);
+				if (timestamp < oldest) {
+					if (!result.isEmpty())
+						break;
+					// expired messages at the head are dropped
+					position += RECORD_HEADER_SIZE + length;
+					head.readOffset = position;
+					head.records--;
+					records--;
+					expired++;
+					continue;
+				}
+				byte[] message = new byte[length];
+				readFully(readChannel, ByteBuffer.wrap(message), position + RECORD_HEADER_SIZE);
+				position += RECORD_HEADER_SIZE + length;
+				result.add(message);
+				read++;
+			}
+			if (expired > 0) {
+				dropped += expired;
+				if (head.records == 0)
+					removeHead();
+				else
+					writeReadOffset(head);
+			}
+		}
+		peekedSegment = result.isEmpty() ? null : segments.peekFirst();
+		return result;
+	}
+
+	/**
+	 * removes messages returned by the last {@link #peek(int)}, after they are sent
+	 * nothing is removed if the segment they were read from was dropped in the meantime
+	 *
+	 * @param count - number of messages from the beginning of the ones returned by peek
+	 * @throws IOException
+	 */
+	synchronized void remove(int count) throws IOException {
+		Segment head = segments.peekFirst();
+		if (count <= 0 || head == null || head != peekedSegment)
+			return;
+		if (readChannel == null)
+			readChannel = FileChannel.open(head.file.toPath(), READ, WRITE);
+		count = Math.min(count, head.records);
+		long position = head.readOffset;
+		for (int i = 0; i < count; i++) {
+			recordHeader.clear();
+			readFully(readChannel, recordHeader, position);
+			position += RECORD_HEADER_SIZE + recordHeader.getInt(Long.BYTES);
+		}
+		head.readOffset = position;
+		head.records -= count;
+		records -= count;
+		if (head.records == 0)
+			removeHead();
+		else
+			writeReadOffset(head);
+	}
+
+	private void writeReadOffset(Segment head) throws IOException {
+		offset.clear();
+		offset.putLong(0, head.readOffset);
+		writeFully(readChannel, offset, 0);
+	}
+
+	private void removeHead() throws IOException {
+		Segment head = segments.pollFirst();
+		if (head == null)
+			return;
+		if (head == peekedSegment)
+			peekedSegment = null;
+		if (readChannel != null) {
+			readChannel.close();
+			readChannel = null;
+		}
+		if (segments.isEmpty() && writeChannel != null) {
+			writeChannel.close();
+			writeChannel = null;
+		}
+		size -= head.length;
+		records -= head.records;
+		head.file.delete();
+	}
+
+	/**
+	 * @return size of the outbox segments on disk in bytes
+	 */
+	synchronized long getBytes() {
+		return size;
+	}
+
+	/**
+	 * @return timestamp of the oldest message, {@link Long#MAX_VALUE} if outbox is empty
+	 * @throws IOException
+	 */
+	synchronized long getOldestTimestamp() throws IOException {
+		Segment head = segments.peekFirst();
+		while (head != null && head.records == 0) {
+			removeHead();
+			head = segments.peekFirst();
+		}
+		if (head == null)
+			return Long.MAX_VALUE;
+		if (readChannel == null)
+			readChannel = FileChannel.open(head.file.toPath(), READ, WRITE);
+		recordHeader.clear();
+		readFully(readChannel, recordHeader, head.readOffset);
+		return recordHeader.getLong(0);
+	}
+
+	/**
+	 * drops the oldest segment to free disk space, its messages are counted as dropped
+	 *
+	 * @return freed bytes
+	 * @throws IOException
+	 */
+	synchronized long removeOldestSegment() throws IOException {
+		Segment head = segments.peekFirst();
+		if (head == null)
+			return 0;
+		dropped += head.records;
+		removeHead();
+		return head.length;
+	}
+
+	/**
+	 * @return number of messages waiting in the outbox
+	 */
+	synchronized int size() {
+		return records;
+	}
+
+	synchronized boolean isEmpty() {
+		return records == 0;
+	}
+
+	/**
+	 * @return messages dropped for size or age since the last call
+	 */
+	synchronized int takeDropped() {
+		int result = dropped;
+		dropped = 0;
+		return result;
+	}
+
+	/**
+	 * removes all messages
+	 *
+	 * @throws IOException
+	 */
+	synchronized void clear() throws IOException {
+		while (!segments.isEmpty())
+			removeHead();
+		records = 0;
+		size = 0;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			if (readChannel != null)
+				readChannel.close();
+		} finally {
+			readChannel = null;
+			if (writeChannel != null)
+				writeChannel.close();
+			writeChannel = null;
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0)
+				throw new IOException("Unexpected end of outbox segment");
+			position += read;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining())
+			position += channel.write(buffer, position);
+	}
+}
@@ -16,6 +16,8 @@ import org.apache.commons.lang3.SystemUtils;
 import org.eclipse.iofog.IOFogModule;
 import org.eclipse.iofog.command_line.util.CommandShellResultSet;
 import org.eclipse.iofog.exception.AgentSystemException;
+import org.eclipse.iofog.message_bus.ArchiveRetention;
+import org.eclipse.iofog.message_bus.OutboxRetention;
 import org.eclipse.iofog.status_reporter.StatusReporter;
 import org.eclipse.iofog.utils.Constants;
 import org.eclipse.iofog.utils.configuration.Configuration;
@@ -24,7 +26,6 @@ import org.eclipse.iofog.utils.logging.LoggingService;
 
 import java.io.*;
 import java.lang.management.ManagementFactory;
-import java.util.Arrays;
 import java.util.List;
 
 import static org.apache.commons.lang3.StringUtils.EMPTY;
@@ -71,6 +72,7 @@ public class ResourceConsumptionManager implements IOFogModule {
 	/**
 	 * computes IOFog resource usage data
 	 * and sets the {@link ResourceConsumptionManagerStatus}
+	 * disk usage counts message archives and outboxes of messages waiting for the router
 	 * removes old archives if disk usage goes more than limit
 	 *
 	 */
@@ -82,7 +84,9 @@ public class ResourceConsumptionManager implements IOFogModule {
 
 				float memoryUsage = getMemoryUsage();
 				float cpuUsage = getCpuUsage();
-				float diskUsage = directorySize(Configuration.getDiskDirectory() + "messages/archive/");
+				ArchiveRetention archiveRetention = ArchiveRetention.getInstance();
+				archiveRetention.removeExpired();
+				float diskUsage = archiveRetention.getArchiveSize() + OutboxRetention.getInstance().getOutboxSize();
 
 				long availableMemory = getSystemAvailableMemory();
 				float totalCpu = getTotalCpu();
@@ -116,35 +120,15 @@ public class ResourceConsumptionManager implements IOFogModule {
 	};
 
 	/**
-	 * remove old archives
+	 * remove old archives, then oldest messages waiting in outboxes if that is not enough
 	 *
 	 * @param amount - disk space to be freed in bytes
 	 */
 	private void removeArchives(float amount) {
 		logDebug("Start remove archives : " + amount);
-		String archivesDirectory = Configuration.getDiskDirectory() + "messages/archive/";
-
-		final File workingDirectory = new File(archivesDirectory);
-		File[] filesList = workingDirectory.listFiles((dir, fileName) ->
-				fileName.substring(fileName.indexOf(".")).equals(".idx"));
-
-		if (filesList != null) {
-			Arrays.sort(filesList, (o1, o2) -> {
-				String t1 = o1.getName().substring(o1.getName().indexOf('_') + 1, o1.getName().indexOf("."));
-				String t2 = o2.getName().substring(o2.getName().indexOf('_') + 1, o2.getName().indexOf("."));
-				return t1.compareTo(t2);
-			});
-
-			for (File indexFile : filesList) {
-				File dataFile = new File(archivesDirectory + indexFile.getName().substring(0, indexFile.getName().indexOf('.')) + ".iomsg");
-				amount -= indexFile.length();
-				indexFile.delete();
-				amount -= dataFile.length();
-				dataFile.delete();
-				if (amount < 0)
-					break;
-			}
-		}
+		long freed = ArchiveRetention.getInstance().removeOldest((long) amount);
+		if (freed < (long) amount)
+			OutboxRetention.getInstance().removeOldest((long) amount - freed);
 		logDebug("Finished remove archives : ");
 	}
 
@@ -288,30 +272,6 @@ public class ResourceConsumptionManager implements IOFogModule {
 				"0";
 	}
 
-	/**
-	 * computes a directory size
-	 *
-	 * @param name - name of the directory
-	 * @return size in bytes
-	 */
-	private long directorySize(String name) {
-		logDebug("Inside get directory size");
-		File directory = new File(name);
-		if (!directory.exists())
-			return 0;
-		if (directory.isFile()) 
-			return directory.length();
-		long length = 0;
-		for (File file : directory.listFiles()) {
-			if (file.isFile())
-				length += file.length();
-			else if (file.isDirectory())
-				length += directorySize(file.getPath());
-		}
-		logDebug("Finished directory size : " + length);
-		return length;
-	}
-
 	/**
 	 * updates limits when changes applied to {@link Configuration}
 	 * 
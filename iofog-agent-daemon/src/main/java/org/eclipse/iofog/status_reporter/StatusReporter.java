@@ -114,7 +114,25 @@ public final class StatusReporter {
 		result.append("\\nCPU Usage                   : about ").append(String.format("%.2f %%", resourceConsumptionManagerStatus.getCpuUsage()));
 		result.append("\\nRunning Microservices       : ").append(processManagerStatus.getRunningMicroservicesCount());
 		result.append("\\nConnection to Controller    : ").append(connectionStatus);
+		result.append(String.format(Locale.US, "\\nConnection to Router        : %s (lost %,d, reconnect attempts %,d)",
+				messageBusStatus.isRouterConnected() ? "ok" : "not connected",
+				messageBusStatus.getRouterConnectionsLost(), messageBusStatus.getReconnectAttempts()));
 		result.append(String.format(Locale.US, "\\nMessages Processed          : about %,d", messageBusStatus.getProcessedMessages()));
+		result.append(String.format(Locale.US, "\\nMessage Rate                : %.1f/s (1s), %.1f/s (10s), %.1f/s (60s)",
+				messageBusStatus.getMessageRate(1), messageBusStatus.getMessageRate(10), messageBusStatus.getMessageRate(60)));
+		result.append(String.format(Locale.US, "\\nArchive Queue               : %,d (dropped %,d)",
+				messageBusStatus.getArchiveQueueDepth(), messageBusStatus.getArchiveDroppedMessages()));
+		result.append(String.format(Locale.US, "\\nPublish Queue               : %,d (rejected %,d)",
+				messageBusStatus.getPublishQueueDepth(), messageBusStatus.getPublishRejectedMessages()));
+		result.append(String.format(Locale.US, "\\nOutbox                      : %,d (dropped %,d)",
+				messageBusStatus.getOutboxDepth(), messageBusStatus.getOutboxDroppedMessages()));
+		result.append(String.format(Locale.US, "\\nDuplicates Dropped          : %,d", messageBusStatus.getDuplicateMessages()));
+		messageBusStatus.getRouteFanOut().forEach((publisher, fanOut) -> {
+			if (fanOut.getCompressions() > 0)
+				result.append(String.format(Locale.US, "\\nCompression                 : %s ratio %.2f, %,d of %,d compressed, %,d us average",
+						publisher, fanOut.getCompressionRatio(), fanOut.getCompressedMessages(), fanOut.getCompressions(),
+						fanOut.getAverageCompressMicros()));
+		});
 		result.append("\\nSystem Time                 : ").append(dateFormat.format(cal.getTime()));
 
 		result.append("\\nSystem Available Disk       : ").append(String.format("%.2f MB (%.2f %%)", availableDisk, ((availableDisk * Constants.MiB) / getTotalDisk()) * 100.0f));
@@ -21,7 +21,9 @@ import org.eclipse.iofog.exception.AgentUserException;
 import org.eclipse.iofog.field_agent.FieldAgent;
 import org.eclipse.iofog.gps.GpsMode;
 import org.eclipse.iofog.gps.GpsWebHandler;
+import org.eclipse.iofog.message_bus.ArchiveSyncPolicy;
 import org.eclipse.iofog.message_bus.MessageBus;
+import org.eclipse.iofog.message_bus.PayloadCodecs;
 import org.eclipse.iofog.network.IOFogNetworkInterfaceManager;
 import org.eclipse.iofog.process_manager.ProcessManager;
 import org.eclipse.iofog.resource_consumption_manager.ResourceConsumptionManager;
@@ -124,6 +126,24 @@ public final class Configuration {
     private static String routerHost;
     private static int routerPort;
     private static boolean devMode;
+    private static boolean messageBusBinaryMode;
+    private static int archiveSegmentSize;
+    private static ArchiveSyncPolicy archiveFsyncPolicy = ArchiveSyncPolicy.NONE;
+    private static int archiveQueueCapacity;
+    private static boolean archiveCompression;
+    private static int archiveMaxAge;
+    private static int archivePublisherQuota;
+    private static int publishQueueCapacity;
+    private static int publishSendWindow;
+    private static int receivePrefetch;
+    private static boolean localDelivery;
+    private static int outboxSize;
+    private static int outboxMaxAge;
+    private static int outboxReplayRate;
+    private static int dedupWindow;
+    private static int dedupSize;
+    private static String payloadCompression;
+    private static int payloadCompressionThreshold;
 
     public static boolean isDevMode() {
         return devMode;
@@ -133,6 +153,146 @@ public final class Configuration {
         Configuration.devMode = devMode;
     }
 
+    public static boolean isMessageBusBinaryMode() {
+        return messageBusBinaryMode;
+    }
+
+    public static void setMessageBusBinaryMode(boolean messageBusBinaryMode) {
+        Configuration.messageBusBinaryMode = messageBusBinaryMode;
+    }
+
+    public static int getArchiveSegmentSize() {
+        return archiveSegmentSize;
+    }
+
+    public static void setArchiveSegmentSize(int archiveSegmentSize) {
+        Configuration.archiveSegmentSize = archiveSegmentSize;
+    }
+
+    public static ArchiveSyncPolicy getArchiveFsyncPolicy() {
+        return archiveFsyncPolicy;
+    }
+
+    public static void setArchiveFsyncPolicy(ArchiveSyncPolicy archiveFsyncPolicy) {
+        Configuration.archiveFsyncPolicy = archiveFsyncPolicy;
+    }
+
+    public static int getArchiveQueueCapacity() {
+        return archiveQueueCapacity;
+    }
+
+    public static boolean isArchiveCompression() {
+        return archiveCompression;
+    }
+
+    public static void setArchiveCompression(boolean archiveCompression) {
+        Configuration.archiveCompression = archiveCompression;
+    }
+
+    public static int getArchiveMaxAge() {
+        return archiveMaxAge;
+    }
+
+    public static void setArchiveMaxAge(int archiveMaxAge) {
+        Configuration.archiveMaxAge = archiveMaxAge;
+    }
+
+    public static int getArchivePublisherQuota() {
+        return archivePublisherQuota;
+    }
+
+    public static void setArchivePublisherQuota(int archivePublisherQuota) {
+        Configuration.archivePublisherQuota = archivePublisherQuota;
+    }
+
+    public static int getPublishQueueCapacity() {
+        return publishQueueCapacity;
+    }
+
+    public static void setPublishQueueCapacity(int publishQueueCapacity) {
+        Configuration.publishQueueCapacity = publishQueueCapacity;
+    }
+
+    public static int getPublishSendWindow() {
+        return publishSendWindow;
+    }
+
+    public static void setPublishSendWindow(int publishSendWindow) {
+        Configuration.publishSendWindow = publishSendWindow;
+    }
+
+    public static int getReceivePrefetch() {
+        return receivePrefetch;
+    }
+
+    public static void setReceivePrefetch(int receivePrefetch) {
+        Configuration.receivePrefetch = receivePrefetch;
+    }
+
+    public static boolean isLocalDelivery() {
+        return localDelivery;
+    }
+
+    public static void setLocalDelivery(boolean localDelivery) {
+        Configuration.localDelivery = localDelivery;
+    }
+
+    public static int getOutboxSize() {
+        return outboxSize;
+    }
+
+    public static void setOutboxSize(int outboxSize) {
+        Configuration.outboxSize = outboxSize;
+    }
+
+    public static int getOutboxMaxAge() {
+        return outboxMaxAge;
+    }
+
+    public static void setOutboxMaxAge(int outboxMaxAge) {
+        Configuration.outboxMaxAge = outboxMaxAge;
+    }
+
+    public static int getOutboxReplayRate() {
+        return outboxReplayRate;
+    }
+
+    public static void setOutboxReplayRate(int outboxReplayRate) {
+        Configuration.outboxReplayRate = outboxReplayRate;
+    }
+
+    public static int getDedupWindow() {
+        return dedupWindow;
+    }
+
+    public static void setDedupWindow(int dedupWindow) {
+        Configuration.dedupWindow = dedupWindow;
+    }
+
+    public static int getDedupSize() {
+        return dedupSize;
+    }
+
+    public static void setDedupSize(int dedupSize) {
+        Configuration.dedupSize = dedupSize;
+    }
+
+    public static String getPayloadCompression() {
+        return payloadCompression;
+    }
+
+    public static void setPayloadCompression(String payloadCompression) {
+        Configuration.payloadCompression = payloadCompression;
+    }
+
+    public static int getPayloadCompressionThreshold() {
+        return payloadCompressionThreshold;
+    }
+
+    public static void setPayloadCompressionThreshold(int payloadCompressionThreshold) {
+        Configuration.payloadCompressionThreshold = payloadCompressionThreshold;
+    }
+
     public static String getRouterHost() {
         return routerHost;
     }
@@ -162,6 +322,7 @@ public final class Configuration {
                 dockerApiVersion = "1.24";
                 setSystemTimeFreqSeconds = 60;
                 monitorSshTunnelStatusFreqSeconds = 30;
+                archiveQueueCapacity = 2048;
                 break;
             case INTEL_AMD:
                 statusReportFreqSeconds = 5;
@@ -173,6 +334,7 @@ public final class Configuration {
                 dockerApiVersion = "1.24";
                 setSystemTimeFreqSeconds = 60;
                 monitorSshTunnelStatusFreqSeconds = 10;
+                archiveQueueCapacity = 8192;
                 break;
         }
         LoggingService.logInfo(MODULE_NAME, "Finished update Automatic ConfigParams ");
@@ -755,6 +917,222 @@ public final class Configuration {
                         LoggingService.logInfo(MODULE_NAME, "Setting timeZone");
                         setTimeZone(value);
                         break;
+                    case MESSAGE_BUS_BINARY_MODE:
+                        LoggingService.logInfo(MODULE_NAME, "Setting message bus binary mode");
+                        setNode(MESSAGE_BUS_BINARY_MODE, value, configFile, configElement);
+                        setMessageBusBinaryMode(!value.equals("off"));
+                        break;
+                    case ARCHIVE_SEGMENT_SIZE:
+                        LoggingService.logInfo(MODULE_NAME, "Setting archive segment size");
+                        try {
+                            intValue = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+                            break;
+                        }
+                        if (intValue < 1 || intValue > 1024) {
+                            messageMap.put(option, "Archive segment size range must be 1 to 1024 MiB");
+                            break;
+                        }
+                        setNode(ARCHIVE_SEGMENT_SIZE, value, configFile, configElement);
+                        setArchiveSegmentSize(intValue);
+                        break;
+                    case ARCHIVE_FSYNC_POLICY:
+                        LoggingService.logInfo(MODULE_NAME, "Setting archive fsync policy");
+                        ArchiveSyncPolicy archiveSyncPolicy;
+                        try {
+                            archiveSyncPolicy = ArchiveSyncPolicy.parse(value);
+                        } catch (IllegalArgumentException e) {
+                            messageMap.put(option, "Option -" + option + " has invalid value: " + value + ". Use none, <#>ms or <#>msg");
+                            break;
+                        }
+                        setNode(ARCHIVE_FSYNC_POLICY, value, configFile, configElement);
+                        setArchiveFsyncPolicy(archiveSyncPolicy);
+                        break;
+                    case ARCHIVE_COMPRESSION:
+                        LoggingService.logInfo(MODULE_NAME, "Setting archive compression");
+                        setNode(ARCHIVE_COMPRESSION, value, configFile, configElement);
+                        setArchiveCompression(!value.equals("off"));
+                        break;
+                    case ARCHIVE_MAX_AGE:
+                        LoggingService.logInfo(MODULE_NAME, "Setting archive max age");
+                        try {
+                            intValue = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+                            break;
+                        }
+                        if (intValue < 0) {
+                            messageMap.put(option, "Archive max age must be 0 (unlimited) or more hours");
+                            break;
+                        }
+                        setNode(ARCHIVE_MAX_AGE, value, configFile, configElement);
+                        setArchiveMaxAge(intValue);
+                        break;
+                    case ARCHIVE_PUBLISHER_QUOTA:
+                        LoggingService.logInfo(MODULE_NAME, "Setting archive publisher quota");
+                        try {
+                            intValue = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+                            break;
+                        }
+                        if (intValue < 0) {
+                            messageMap.put(option, "Archive publisher quota must be 0 (unlimited) or more MiB");
+                            break;
+                        }
+                        setNode(ARCHIVE_PUBLISHER_QUOTA, value, configFile, configElement);
+                        setArchivePublisherQuota(intValue);
+                        break;
+                    case PUBLISH_QUEUE_CAPACITY:
+                        LoggingService.logInfo(MODULE_NAME, "Setting publish queue capacity");
+                        try {
+                            intValue = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+                            break;
+                        }
+                        if (intValue < 1 || intValue > 1_048_576) {
+                            messageMap.put(option, "Publish queue capacity range must be 1 to 1048576 messages");
+                            break;
+                        }
+                        setNode(PUBLISH_QUEUE_CAPACITY, value, configFile, configElement);
+                        setPublishQueueCapacity(intValue);
+                        break;
+                    case PUBLISH_SEND_WINDOW:
+                        LoggingService.logInfo(MODULE_NAME, "Setting publish send window");
+                        try {
+                            intValue = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+                            break;
+                        }
+                        if (intValue < 0 || intValue > 65_535) {
+                            messageMap.put(option, "Publish send window range must be 0 to 65535 messages");
+                            break;
+                        }
+                        setNode(PUBLISH_SEND_WINDOW, value, configFile, configElement);
+                        setPublishSendWindow(intValue);
+                        break;
+                    case RECEIVE_PREFETCH:
+                        LoggingService.logInfo(MODULE_NAME, "Setting receive prefetch");
+                        try {
+                            intValue = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+                            break;
+                        }
+                        if (intValue < 0 || intValue > 65_535) {
+                            messageMap.put(option, "Receive prefetch range must be 0 to 65535 messages");
+                            break;
+                        }
+                        setNode(RECEIVE_PREFETCH, value, configFile, configElement);
+                        setReceivePrefetch(intValue);
+                        break;
+                    case LOCAL_DELIVERY:
+                        LoggingService.logInfo(MODULE_NAME, "Setting local delivery");
+                        setNode(LOCAL_DELIVERY, value, configFile, configElement);
+                        setLocalDelivery(!value.equals("off"));
+                        break;
+                    case OUTBOX_SIZE:
+                        LoggingService.logInfo(MODULE_NAME, "Setting outbox size");
+                        try {
+                            intValue = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+                            break;
+                        }
+                        if (intValue < 0) {
+                            messageMap.put(option, "Outbox size must be 0 (disabled) or more MiB");
+                            break;
+                        }
+                        setNode(OUTBOX_SIZE, value, configFile, configElement);
+                        setOutboxSize(intValue);
+                        break;
+                    case OUTBOX_MAX_AGE:
+                        LoggingService.logInfo(MODULE_NAME, "Setting outbox max age");
+                        try {
+                            intValue = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+                            break;
+                        }
+                        if (intValue < 0) {
+                            messageMap.put(option, "Outbox max age must be 0 (unlimited) or more hours");
+                            break;
+                        }
+                        setNode(OUTBOX_MAX_AGE, value, configFile, configElement);
+                        setOutboxMaxAge(intValue);
+                        break;
+                    case OUTBOX_REPLAY_RATE:
+                        LoggingService.logInfo(MODULE_NAME, "Setting outbox replay rate");
+                        try {
+                            intValue = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+                            break;
+                        }
+                        if (intValue < 1 || intValue > 1_000_000) {
+                            messageMap.put(option, "Outbox replay rate range must be 1 to 1000000 messages per second");
+                            break;
+                        }
+                        setNode(OUTBOX_REPLAY_RATE, value, configFile, configElement);
+                        setOutboxReplayRate(intValue);
+                        break;
+                    case DEDUP_WINDOW:
+                        LoggingService.logInfo(MODULE_NAME, "Setting dedup window");
+                        try {
+                            intValue = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+                            break;
+                        }
+                        if (intValue < 0 || intValue > 3600) {
+                            messageMap.put(option, "Dedup window range must be 0 (disabled) to 3600 seconds");
+                            break;
+                        }
+                        setNode(DEDUP_WINDOW, value, configFile, configElement);
+                        setDedupWindow(intValue);
+                        break;
+                    case DEDUP_SIZE:
+                        LoggingService.logInfo(MODULE_NAME, "Setting dedup size");
+                        try {
+                            intValue = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+                            break;
+                        }
+                        if (intValue < 1 || intValue > 1_000_000) {
+                            messageMap.put(option, "Dedup size range must be 1 to 1000000 message ids");
+                            break;
+                        }
+                        setNode(DEDUP_SIZE, value, configFile, configElement);
+                        setDedupSize(intValue);
+                        break;
+                    case PAYLOAD_COMPRESSION:
+                        LoggingService.logInfo(MODULE_NAME, "Setting payload compression");
+                        if (!PayloadCodecs.isValid(value)) {
+                            messageMap.put(option, "Option -" + option + " has invalid value: " + value + ". Use off or deflate");
+                            break;
+                        }
+                        setNode(PAYLOAD_COMPRESSION, value.toLowerCase(), configFile, configElement);
+                        setPayloadCompression(value.toLowerCase());
+                        break;
+                    case PAYLOAD_COMPRESSION_THRESHOLD:
+                        LoggingService.logInfo(MODULE_NAME, "Setting payload compression threshold");
+                        try {
+                            intValue = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            messageMap.put(option, "Option -" + option + " has invalid value: " + value);
+                            break;
+                        }
+                        if (intValue < 0 || intValue > Constants.MiB) {
+                            messageMap.put(option, "Payload compression threshold range must be 0 to 1048576 bytes");
+                            break;
+                        }
+                        setNode(PAYLOAD_COMPRESSION_THRESHOLD, value, configFile, configElement);
+                        setPayloadCompressionThreshold(intValue);
+                        break;
                     default:
                         throw new ConfigurationItemException("Invalid parameter -" + option);
                 }
@@ -1027,6 +1405,23 @@ public final class Configuration {
         setReadyToUpgradeScanFrequency(Integer.parseInt(getNode(READY_TO_UPGRADE_SCAN_FREQUENCY, configFile)));
         setDevMode(!getNode(DEV_MODE, configFile).equals("off"));
         configureTimeZone(getNode(TIME_ZONE, configFile));
+        setMessageBusBinaryMode(!getNode(MESSAGE_BUS_BINARY_MODE, configFile).equals("off"));
+        setArchiveSegmentSize(Integer.parseInt(getNode(ARCHIVE_SEGMENT_SIZE, configFile)));
+        setArchiveFsyncPolicy(ArchiveSyncPolicy.parse(getNode(ARCHIVE_FSYNC_POLICY, configFile)));
+        setArchiveCompression(!getNode(ARCHIVE_COMPRESSION, configFile).equals("off"));
+        setArchiveMaxAge(Integer.parseInt(getNode(ARCHIVE_MAX_AGE, configFile)));
+        setArchivePublisherQuota(Integer.parseInt(getNode(ARCHIVE_PUBLISHER_QUOTA, configFile)));
+        setPublishQueueCapacity(Integer.parseInt(getNode(PUBLISH_QUEUE_CAPACITY, configFile)));
+        setPublishSendWindow(Integer.parseInt(getNode(PUBLISH_SEND_WINDOW, configFile)));
+        setReceivePrefetch(Integer.parseInt(getNode(RECEIVE_PREFETCH, configFile)));
+        setLocalDelivery(!getNode(LOCAL_DELIVERY, configFile).equals("off"));
+        setOutboxSize(Integer.parseInt(getNode(OUTBOX_SIZE, configFile)));
+        setOutboxMaxAge(Integer.parseInt(getNode(OUTBOX_MAX_AGE, configFile)));
+        setOutboxReplayRate(Integer.parseInt(getNode(OUTBOX_REPLAY_RATE, configFile)));
+        setDedupWindow(Integer.parseInt(getNode(DEDUP_WINDOW, configFile)));
+        setDedupSize(Integer.parseInt(getNode(DEDUP_SIZE, configFile)));
+        setPayloadCompression(getNode(PAYLOAD_COMPRESSION, configFile).toLowerCase());
+        setPayloadCompressionThreshold(Integer.parseInt(getNode(PAYLOAD_COMPRESSION_THRESHOLD, configFile)));
 
         try {
             updateConfigFile(getCurrentConfigPath(), configFile);
@@ -1312,6 +1707,40 @@ public final class Configuration {
         result.append(buildReportLine(getConfigParamMessage(DEV_MODE), (devMode ? "on" : "off")));
         // timeZone
         result.append(buildReportLine(getConfigParamMessage(TIME_ZONE), timeZone));
+        // message bus binary mode
+        result.append(buildReportLine(getConfigParamMessage(MESSAGE_BUS_BINARY_MODE), (messageBusBinaryMode ? "on" : "off")));
+        // archive segment size
+        result.append(buildReportLine(getConfigParamMessage(ARCHIVE_SEGMENT_SIZE), format("%d MiB", archiveSegmentSize)));
+        // archive fsync policy
+        result.append(buildReportLine(getConfigParamMessage(ARCHIVE_FSYNC_POLICY), archiveFsyncPolicy.toString()));
+        // archive compression
+        result.append(buildReportLine(getConfigParamMessage(ARCHIVE_COMPRESSION), (archiveCompression ? "on" : "off")));
+        // archive max age
+        result.append(buildReportLine(getConfigParamMessage(ARCHIVE_MAX_AGE), archiveMaxAge > 0 ? format("%d hours", archiveMaxAge) : "unlimited"));
+        // archive publisher quota
+        result.append(buildReportLine(getConfigParamMessage(ARCHIVE_PUBLISHER_QUOTA), archivePublisherQuota > 0 ? format("%d MiB", archivePublisherQuota) : "unlimited"));
+        // publish queue capacity
+        result.append(buildReportLine(getConfigParamMessage(PUBLISH_QUEUE_CAPACITY), format("%d messages", publishQueueCapacity)));
+        // publish send window
+        result.append(buildReportLine(getConfigParamMessage(PUBLISH_SEND_WINDOW), publishSendWindow > 0 ? format("%d messages", publishSendWindow) : "synchronous"));
+        // receive prefetch
+        result.append(buildReportLine(getConfigParamMessage(RECEIVE_PREFETCH), format("%d messages", receivePrefetch)));
+        // local delivery
+        result.append(buildReportLine(getConfigParamMessage(LOCAL_DELIVERY), (localDelivery ? "on" : "off")));
+        // outbox size
+        result.append(buildReportLine(getConfigParamMessage(OUTBOX_SIZE), outboxSize > 0 ? format("%d MiB", outboxSize) : "disabled"));
+        // outbox max age
+        result.append(buildReportLine(getConfigParamMessage(OUTBOX_MAX_AGE), outboxMaxAge > 0 ? format("%d hours", outboxMaxAge) : "unlimited"));
+        // outbox replay rate
+        result.append(buildReportLine(getConfigParamMessage(OUTBOX_REPLAY_RATE), format("%d messages/s", outboxReplayRate)));
+        // dedup window
+        result.append(buildReportLine(getConfigParamMessage(DEDUP_WINDOW), dedupWindow > 0 ? format("%d seconds", dedupWindow) : "disabled"));
+        // dedup size
+        result.append(buildReportLine(getConfigParamMessage(DEDUP_SIZE), format("%d message ids", dedupSize)));
+        // payload compression
+        result.append(buildReportLine(getConfigParamMessage(PAYLOAD_COMPRESSION), payloadCompression));
+        // payload compression threshold
+        result.append(buildReportLine(getConfigParamMessage(PAYLOAD_COMPRESSION_THRESHOLD), format("%d bytes", payloadCompressionThreshold)));
         LoggingService.logDebug(MODULE_NAME, "Finished get Config Report");
         
         return result.toString();
@@ -433,6 +433,43 @@ public class CommandLineActionTest {
             "                                         certificates. \\n" +
             "                 -dev <on/off>           Set the developer's mode\\n" +
             "                 -tz                     Set the device timeZone\\n" +
+            "                 -mb <on/off>            Set binary payloads for the message\\n" +
+            "                                         bus instead of JSON. Default off, turn\\n" +
+            "                                         on only when all agents receiving the\\n" +
+            "                                         messages read binary payloads\\n" +
+            "                 -as <#MB Limit>         Set the size, in MiB, of message\\n" +
+            "                                         archive segment files\\n" +
+            "                 -af <none/#ms/#msg>     Set when archived messages are\\n" +
+            "                                         flushed to disk\\n" +
+            "                 -az <on/off>            Compress sealed message archive\\n" +
+            "                                         segment files\\n" +
+            "                 -aa <#hours>            Set the age, in hours, after which\\n" +
+            "                                         archived messages are removed\\n" +
+            "                 -aq <#MB Limit>         Set the limit, in MiB, of archived\\n" +
+            "                                         messages per microservice\\n" +
+            "                 -pq <#messages>         Set the number of messages queued\\n" +
+            "                                         for sending per microservice\\n" +
+            "                 -sw <#messages>         Set the number of unconfirmed sends\\n" +
+            "                                         per receiver, 0 sends synchronously\\n" +
+            "                 -rp <#messages>         Set the number of messages the router\\n" +
+            "                                         sends ahead to each receiver\\n" +
+            "                 -lo <on/off>            Deliver messages to receivers on this\\n" +
+            "                                         agent without the router\\n" +
+            "                 -os <#MiB>              Set the outbox size, in MiB, per\\n" +
+            "                                         microservice, 0 disables the outbox\\n" +
+            "                 -oa <#hours>            Set the age, in hours, after which\\n" +
+            "                                         outbox messages are dropped\\n" +
+            "                 -or <#messages>         Set the number of outbox messages\\n" +
+            "                                         sent per second after reconnect\\n" +
+            "                 -dw <#seconds>          Set the time, in seconds, a receiver\\n" +
+            "                                         drops messages with a seen id, 0 off\\n" +
+            "                 -ds <#ids>              Set the number of message ids each\\n" +
+            "                                         receiver keeps to find duplicates\\n" +
+            "                 -pc <off/deflate>       Compress messages sent through the\\n" +
+            "                                         router over the threshold. Needs -mb\\n" +
+            "                                         on, JSON messages are not compressed\\n" +
+            "                 -pt <#bytes>            Set the message size, in bytes, from\\n" +
+            "                                         which messages are compressed\\n" +
             "\\n" +
             "\\n" +
             "Report bugs to: edgemaster@iofog.org\\n" +
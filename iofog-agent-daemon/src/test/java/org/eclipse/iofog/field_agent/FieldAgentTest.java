@@ -1050,6 +1050,7 @@ public class FieldAgentTest {
             JsonObject output = (JsonObject) method.invoke(fieldAgent);
             assertTrue(output.containsKey("daemonStatus"));
             assertTrue(output.getString("ipAddress").equals("ip"));
+            assertTrue(output.containsKey("routeFanOut"));
             Mockito.verify(LoggingService.class, atLeastOnce());
             LoggingService.logDebug(MODULE_NAME, "get Fog Status");
         } catch (Exception e){
@@ -317,4 +317,14 @@ public class ApiHandlerHelpersTest {
         assertEquals(res, ApiHandlerHelpers.internalServerErrorResponse(byteBuf, content));
     }
 
+    /**
+     * Test tooManyRequestsResponse
+     */
+    @Test
+    public void testTooManyRequestsResponse() {
+        FullHttpResponse res = new DefaultFullHttpResponse(HTTP_1_1, TOO_MANY_REQUESTS, byteBuf);
+        HttpUtil.setContentLength(res, byteBuf.readableBytes());
+        assertEquals(res, ApiHandlerHelpers.tooManyRequestsResponse(byteBuf, content));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.local_api;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpRequest;
+import org.eclipse.iofog.message_bus.MessageBusStatus;
+import org.eclipse.iofog.status_reporter.StatusReporter;
+import org.eclipse.iofog.utils.logging.LoggingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import static io.netty.handler.codec.http.HttpMethod.GET;
+import static io.netty.handler.codec.http.HttpResponseStatus.METHOD_NOT_ALLOWED;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.UNAUTHORIZED;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class MessageLatencyHandlerTest {
+    private MessageLatencyHandler messageLatencyHandler;
+    private HttpRequest httpRequest;
+    private ByteBuf byteBuf;
+    private MessageBusStatus messageBusStatus;
+    private MockedStatic<LoggingService> loggingServiceMockedStatic;
+    private MockedStatic<ApiHandlerHelpers> apiHandlerHelpersMockedStatic;
+    private MockedStatic<StatusReporter> statusReporterMockedStatic;
+
+    @BeforeEach
+    public void setUp() {
+        loggingServiceMockedStatic = Mockito.mockStatic(LoggingService.class);
+        apiHandlerHelpersMockedStatic = Mockito.mockStatic(ApiHandlerHelpers.class);
+        statusReporterMockedStatic = Mockito.mockStatic(StatusReporter.class);
+        httpRequest = mock(HttpRequest.class);
+        byteBuf = mock(ByteBuf.class);
+        messageBusStatus = mock(MessageBusStatus.class);
+        Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(messageBusStatus);
+        Mockito.when(ApiHandlerHelpers.validateMethod(Mockito.eq(httpRequest), Mockito.eq(GET))).thenReturn(true);
+        Mockito.when(ApiHandlerHelpers.validateAccessToken(Mockito.any())).thenReturn(true);
+        messageLatencyHandler = new MessageLatencyHandler(httpRequest, byteBuf, new byte[0]);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        loggingServiceMockedStatic.close();
+        apiHandlerHelpersMockedStatic.close();
+        statusReporterMockedStatic.close();
+    }
+
+    /**
+     * Test call when httpMethod is not valid
+     */
+    @Test
+    public void testCallWhenMethodTypeIsInvalid() throws Exception {
+        DefaultFullHttpResponse defaultResponse = new DefaultFullHttpResponse(HTTP_1_1, METHOD_NOT_ALLOWED);
+        Mockito.when(ApiHandlerHelpers.validateMethod(Mockito.eq(httpRequest), Mockito.eq(GET))).thenReturn(false);
+        Mockito.when(ApiHandlerHelpers.methodNotAllowedResponse()).thenReturn(defaultResponse);
+        assertEquals(defaultResponse, messageLatencyHandler.call());
+    }
+
+    /**
+     * Test call when access token is not valid
+     */
+    @Test
+    public void testCallWhenAccessTokenIsInvalid() throws Exception {
+        DefaultFullHttpResponse defaultResponse = new DefaultFullHttpResponse(HTTP_1_1, UNAUTHORIZED, byteBuf);
+        Mockito.when(ApiHandlerHelpers.validateAccessToken(Mockito.any())).thenReturn(false);
+        Mockito.when(ApiHandlerHelpers.unauthorizedResponse(Mockito.eq(byteBuf), Mockito.eq("Incorrect access token")))
+                .thenReturn(defaultResponse);
+        assertEquals(defaultResponse, messageLatencyHandler.call());
+        Mockito.verify(messageBusStatus, Mockito.never()).getJsonMessageLatency();
+    }
+
+    /**
+     * Test call returns latency of message bus status
+     */
+    @Test
+    public void testCallWhenMethodAndAccessTokenAreValid() throws Exception {
+        String result = "[{\"publisher\":\"publisher\",\"receiver\":\"receiver\",\"count\":1}]";
+        DefaultFullHttpResponse defaultResponse = new DefaultFullHttpResponse(HTTP_1_1, OK, byteBuf);
+        Mockito.when(messageBusStatus.getJsonMessageLatency()).thenReturn(result);
+        Mockito.when(ApiHandlerHelpers.successResponse(Mockito.eq(byteBuf), Mockito.eq(result))).thenReturn(defaultResponse);
+        assertEquals(defaultResponse, messageLatencyHandler.call());
+        assertEquals("application/json", defaultResponse.headers().get("Content-Type"));
+    }
+}
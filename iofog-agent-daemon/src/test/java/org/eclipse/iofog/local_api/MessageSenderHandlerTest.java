@@ -0,0 +1,215 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.local_api;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpRequest;
+import org.eclipse.iofog.message_bus.Message;
+import org.eclipse.iofog.message_bus.MessageBusUtil;
+import org.eclipse.iofog.message_bus.MessageCodec;
+import org.eclipse.iofog.utils.logging.LoggingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedConstruction;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.List;
+
+import static io.netty.handler.codec.http.HttpMethod.POST;
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.TOO_MANY_REQUESTS;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+
+public class MessageSenderHandlerTest {
+    private HttpRequest httpRequest;
+    private ByteBuf byteBuf;
+    private DefaultFullHttpResponse defaultResponse;
+    private MockedStatic<LoggingService> loggingServiceMockedStatic;
+    private MockedStatic<ApiHandlerHelpers> apiHandlerHelpersMockedStatic;
+    private MockedConstruction<MessageBusUtil> messageBusUtilMockedConstruction;
+    // number of messages of a batch accepted by the message bus
+    private int accepted;
+
+    @BeforeEach
+    public void setUp() {
+        loggingServiceMockedStatic = Mockito.mockStatic(LoggingService.class);
+        apiHandlerHelpersMockedStatic = Mockito.mockStatic(ApiHandlerHelpers.class);
+        httpRequest = mock(HttpRequest.class);
+        byteBuf = mock(ByteBuf.class);
+        defaultResponse = new DefaultFullHttpResponse(HTTP_1_1, OK, byteBuf);
+        Mockito.when(ApiHandlerHelpers.validateMethod(Mockito.eq(httpRequest), Mockito.eq(POST))).thenReturn(true);
+        Mockito.when(ApiHandlerHelpers.validateContentType(any(), anyString())).thenReturn("Incorrect content type");
+        Mockito.when(ApiHandlerHelpers.successResponse(eq(byteBuf), anyString())).thenReturn(defaultResponse);
+        accepted = Integer.MAX_VALUE;
+        messageBusUtilMockedConstruction = Mockito.mockConstruction(MessageBusUtil.class, (mock, context) ->
+                Mockito.doAnswer(invocation -> {
+                    List<Message> messages = invocation.getArgument(0);
+                    List<Message> failed = invocation.getArgument(1);
+                    for (int i = 0; i < messages.size(); i++) {
+                        messages.get(i).setId("id" + i);
+                        messages.get(i).setTimestamp(1000L);
+                        if ("missing".equals(messages.get(i).getPublisher()))
+                            failed.add(messages.get(i));
+                    }
+                    return messages.subList(Math.min(accepted, messages.size()), messages.size());
+                }).when(mock).publishBatch(any(), any()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        loggingServiceMockedStatic.close();
+        apiHandlerHelpersMockedStatic.close();
+        messageBusUtilMockedConstruction.close();
+    }
+
+    private JsonObject call(byte[] content) {
+        assertEquals(defaultResponse, new MessageSenderHandler(httpRequest, byteBuf, content).call());
+        ArgumentCaptor<String> result = ArgumentCaptor.forClass(String.class);
+        apiHandlerHelpersMockedStatic.verify(() -> ApiHandlerHelpers.successResponse(eq(byteBuf), result.capture()));
+        return Json.createReader(new StringReader(result.getValue())).readObject();
+    }
+
+    /**
+     * Test JSON array is published as one batch and invalid messages get error receipts
+     */
+    @Test
+    public void testCallWithJsonArray() {
+        Mockito.when(ApiHandlerHelpers.validateContentType(httpRequest, "application/json")).thenReturn(null);
+        String message = "{\"publisher\":\"publisher\",\"version\":4,\"infotype\":\"text\",\"infoformat\":\"utf-8\",\"contentdata\":\"\"}";
+        String content = "[" + message + ",{\"publisher\":\"publisher\"}," + message + "]";
+        JsonObject result = call(content.getBytes(UTF_8));
+        assertEquals(2, result.getInt("count"));
+        JsonArray receipts = result.getJsonArray("messages");
+        assertEquals(3, receipts.size());
+        assertEquals("id0", receipts.getJsonObject(0).getString("id"));
+        assertEquals("error", receipts.getJsonObject(1).getString("status"));
+        assertEquals("id1", receipts.getJsonObject(2).getString("id"));
+        Mockito.verify(messageBusUtilMockedConstruction.constructed().get(0)).publishBatch(any(), any());
+    }
+
+    /**
+     * Test message with a field too long for the ioMessage header is not published
+     */
+    @Test
+    public void testCallWithTooLongField() {
+        Mockito.when(ApiHandlerHelpers.validateContentType(httpRequest, "application/json")).thenReturn(null);
+        DefaultFullHttpResponse badRequest = new DefaultFullHttpResponse(HTTP_1_1, BAD_REQUEST, byteBuf);
+        Mockito.when(ApiHandlerHelpers.badRequestResponse(eq(byteBuf), anyString())).thenReturn(badRequest);
+        String message = "{\"publisher\":\"publisher\",\"version\":4,\"infotype\":\"" + "a".repeat(256)
+                + "\",\"infoformat\":\"utf-8\",\"contentdata\":\"\"}";
+        assertEquals(badRequest, new MessageSenderHandler(httpRequest, byteBuf, message.getBytes(UTF_8)).call());
+        Mockito.verify(messageBusUtilMockedConstruction.constructed().get(0), Mockito.never()).publishMessage(any());
+
+        String valid = "{\"publisher\":\"publisher\",\"version\":4,\"infotype\":\"text\",\"infoformat\":\"utf-8\",\"contentdata\":\"\"}";
+        JsonObject result = call(("[" + message + "," + valid + "]").getBytes(UTF_8));
+        assertEquals(1, result.getInt("count"));
+        assertEquals("error", result.getJsonArray("messages").getJsonObject(0).getString("status"));
+        assertEquals("id0", result.getJsonArray("messages").getJsonObject(1).getString("id"));
+    }
+
+    /**
+     * Test messages rejected by a busy message bus get error receipts
+     */
+    @Test
+    public void testCallWithJsonArrayWhenBusIsBusy() {
+        Mockito.when(ApiHandlerHelpers.validateContentType(httpRequest, "application/json")).thenReturn(null);
+        accepted = 1;
+        String message = "{\"publisher\":\"publisher\",\"version\":4,\"infotype\":\"text\",\"infoformat\":\"utf-8\",\"contentdata\":\"\"}";
+        JsonObject result = call(("[" + message + "," + message + "]").getBytes(UTF_8));
+        assertEquals(1, result.getInt("count"));
+        JsonArray receipts = result.getJsonArray("messages");
+        assertEquals("okay", receipts.getJsonObject(0).getString("status"));
+        assertEquals("error", receipts.getJsonObject(1).getString("status"));
+    }
+
+    /**
+     * Test messages not published by their publisher get error receipts
+     */
+    @Test
+    public void testCallWithJsonArrayWhenPublisherIsMissing() {
+        Mockito.when(ApiHandlerHelpers.validateContentType(httpRequest, "application/json")).thenReturn(null);
+        String message = "{\"publisher\":\"publisher\",\"version\":4,\"infotype\":\"text\",\"infoformat\":\"utf-8\",\"contentdata\":\"\"}";
+        String content = "[" + message + "," + message.replace("\"publisher\":\"publisher\"", "\"publisher\":\"missing\"") + "]";
+        JsonObject result = call(content.getBytes(UTF_8));
+        assertEquals(1, result.getInt("count"));
+        JsonArray receipts = result.getJsonArray("messages");
+        assertEquals("okay", receipts.getJsonObject(0).getString("status"));
+        assertEquals("error", receipts.getJsonObject(1).getString("status"));
+        assertFalse(receipts.getJsonObject(1).containsKey("id"));
+    }
+
+    /**
+     * Test request is rejected with 429 when message bus is busy
+     */
+    @Test
+    public void testCallWhenBusIsBusy() {
+        Mockito.when(ApiHandlerHelpers.validateContentType(httpRequest, "application/json")).thenReturn(null);
+        DefaultFullHttpResponse tooManyRequests = new DefaultFullHttpResponse(HTTP_1_1, TOO_MANY_REQUESTS, byteBuf);
+        Mockito.when(ApiHandlerHelpers.tooManyRequestsResponse(eq(byteBuf), anyString())).thenReturn(tooManyRequests);
+        String message = "{\"publisher\":\"publisher\",\"version\":4,\"infotype\":\"text\",\"infoformat\":\"utf-8\",\"contentdata\":\"\"}";
+        assertEquals(tooManyRequests, new MessageSenderHandler(httpRequest, byteBuf, message.getBytes(UTF_8)).call());
+        Mockito.verify(messageBusUtilMockedConstruction.constructed().get(0)).publishMessage(any());
+
+        accepted = 0;
+        assertEquals(tooManyRequests, new MessageSenderHandler(httpRequest, byteBuf, ("[" + message + "]").getBytes(UTF_8)).call());
+    }
+
+    /**
+     * Test stream of binary ioMessages is published as one batch
+     */
+    @Test
+    public void testCallWithBinaryStream() throws Exception {
+        Mockito.when(ApiHandlerHelpers.validateContentType(httpRequest, "application/octet-stream")).thenReturn(null);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (int i = 0; i < 3; i++) {
+            Message message = new Message("publisher");
+            message.setContentData(("data" + i).getBytes(UTF_8));
+            content.write(MessageCodec.toBytes(message));
+        }
+        JsonObject result = call(content.toByteArray());
+        assertEquals(3, result.getInt("count"));
+        assertEquals("id2", result.getJsonArray("messages").getJsonObject(2).getString("id"));
+    }
+
+    /**
+     * Test truncated binary ioMessage is rejected
+     */
+    @Test
+    public void testCallWithTruncatedBinaryStream() {
+        Mockito.when(ApiHandlerHelpers.validateContentType(httpRequest, "application/octet-stream")).thenReturn(null);
+        DefaultFullHttpResponse badRequest = new DefaultFullHttpResponse(HTTP_1_1, BAD_REQUEST, byteBuf);
+        Mockito.when(ApiHandlerHelpers.badRequestResponse(eq(byteBuf), anyString())).thenReturn(badRequest);
+        byte[] message = MessageCodec.toBytes(new Message("publisher"));
+        byte[] content = new byte[message.length + 10];
+        System.arraycopy(message, 0, content, 0, message.length);
+        System.arraycopy(message, 0, content, message.length, 10);
+        assertEquals(badRequest, new MessageSenderHandler(httpRequest, byteBuf, content).call());
+        assertTrue(messageBusUtilMockedConstruction.constructed().isEmpty());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.local_api;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpRequest;
+import org.eclipse.iofog.message_bus.Message;
+import org.eclipse.iofog.message_bus.MessageBusUtil;
+import org.eclipse.iofog.utils.logging.LoggingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedConstruction;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.netty.handler.codec.http.HttpMethod.POST;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+
+public class MessageWaitQueueTest {
+    private ChannelHandlerContext ctx;
+    private Channel channel;
+    private HttpRequest httpRequest;
+    private List<Message> messages;
+    private AtomicReference<Runnable> signal;
+    private ScheduledExecutorService executor;
+    private MessageWaitQueue waitQueue;
+    private MockedStatic<LoggingService> loggingServiceMockedStatic;
+    private MockedConstruction<MessageBusUtil> messageBusUtilMockedConstruction;
+
+    @BeforeEach
+    public void setUp() {
+        loggingServiceMockedStatic = Mockito.mockStatic(LoggingService.class);
+        ctx = mock(ChannelHandlerContext.class);
+        channel = mock(Channel.class);
+        httpRequest = new DefaultHttpRequest(HTTP_1_1, POST, "/v2/messages/next");
+        messages = new ArrayList<>();
+        signal = new AtomicReference<>();
+        Mockito.when(ctx.channel()).thenReturn(channel);
+        Mockito.when(ctx.alloc()).thenReturn(UnpooledByteBufAllocator.DEFAULT);
+        Mockito.when(channel.isActive()).thenReturn(true);
+        Mockito.when(channel.writeAndFlush(any())).thenReturn(mock(ChannelFuture.class));
+        messageBusUtilMockedConstruction = Mockito.mockConstruction(MessageBusUtil.class, (mock, context) -> {
+            Mockito.when(mock.getMessages(anyString(), anyInt())).thenAnswer(invocation -> {
+                List<Message> result = new ArrayList<>(messages);
+                messages.clear();
+                return result;
+            });
+            Mockito.when(mock.setMessageSignal(anyString(), any())).thenAnswer(invocation -> {
+                signal.set(invocation.getArgument(1));
+                return true;
+            });
+        });
+        executor = Executors.newSingleThreadScheduledExecutor();
+        waitQueue = new MessageWaitQueue(executor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        loggingServiceMockedStatic.close();
+        messageBusUtilMockedConstruction.close();
+    }
+
+    /**
+     * waits until tasks submitted to the wait queue executor so far have run
+     */
+    private void flush() throws Exception {
+        executor.submit(() -> {}).get();
+    }
+
+    private Message message() {
+        Message message = mock(Message.class);
+        Mockito.when(message.toJson()).thenReturn(Json.createObjectBuilder().add("id", "id").build());
+        return message;
+    }
+
+    private JsonObject response() {
+        ArgumentCaptor<FullHttpResponse> response = ArgumentCaptor.forClass(FullHttpResponse.class);
+        Mockito.verify(channel).writeAndFlush(response.capture());
+        return Json.createReader(new StringReader(response.getValue().content().toString(UTF_8))).readObject();
+    }
+
+    /**
+     * Test waiting request is answered when receiver signals a message arrived
+     */
+    @Test
+    public void testAnswerWhenMessageArrives() throws Exception {
+        waitQueue.park(ctx, httpRequest, "receiver", 10, 10000);
+        flush();
+        assertEquals(1, waitQueue.size());
+        assertNotNull(signal.get());
+        Mockito.verify(channel, Mockito.never()).writeAndFlush(any());
+
+        messages.add(message());
+        signal.get().run();
+        flush();
+        assertEquals(0, waitQueue.size());
+        assertEquals(1, response().getInt("count"));
+        assertNull(signal.get());
+    }
+
+    /**
+     * Test waiting request is answered right away when messages are already waiting
+     */
+    @Test
+    public void testAnswerWhenMessagesAreWaiting() throws Exception {
+        messages.add(message());
+        waitQueue.park(ctx, httpRequest, "receiver", 10, 10000);
+        flush();
+        assertEquals(0, waitQueue.size());
+        assertEquals(1, response().getInt("count"));
+        Mockito.verify(messageBusUtilMockedConstruction.constructed().get(1)).getMessages("receiver", 10);
+        Mockito.verify(messageBusUtilMockedConstruction.constructed().get(2)).setMessageSignal(eq("receiver"), isNull());
+    }
+
+    /**
+     * Test waiting request is answered without messages when wait time is over
+     */
+    @Test
+    public void testAnswerWhenWaitIsOver() throws Exception {
+        waitQueue.park(ctx, httpRequest, "receiver", 10, 1);
+        Thread.sleep(5);
+        flush();
+        assertEquals(0, waitQueue.size());
+        assertEquals(0, response().getInt("count"));
+        assertNull(signal.get());
+    }
+
+    /**
+     * Test waiting request of a closed channel is dropped
+     */
+    @Test
+    public void testAnswerWhenChannelIsClosed() throws Exception {
+        Mockito.when(channel.isActive()).thenReturn(false);
+        waitQueue.park(ctx, httpRequest, "receiver", 10, 10000);
+        flush();
+        assertEquals(0, waitQueue.size());
+        Mockito.verify(messageBusUtilMockedConstruction.constructed().get(1), Mockito.never()).getMessages(anyString(), anyInt());
+        Mockito.verify(channel, Mockito.never()).writeAndFlush(any());
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchiveCatalogTest {
+    @TempDir
+    File tempDir;
+    private String directory;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        directory = tempDir.getPath() + File.separator;
+        write("publisher1_100.idx", 41);
+        write("publisher1_100.iomsg", 100);
+        write("publisher1_100.tix", 16);
+        write("publisher1_200.idx", 41);
+        write("publisher1_200.iomsz", 50);
+        write("publisher2_150.idx", 82);
+        write("publisher2_150.iomsg", 200);
+        write("other.txt", 1000);
+    }
+
+    private void write(String fileName, int length) throws Exception {
+        Files.write(new File(directory + fileName).toPath(), new byte[length]);
+    }
+
+    /**
+     * Test sizes of existing segment files are counted per publisher
+     */
+    @Test
+    public void testLoad() {
+        ArchiveCatalog catalog = new ArchiveCatalog(directory);
+        assertEquals(157 + 91 + 282, catalog.getBytes());
+        assertEquals(157 + 91, catalog.getBytes("publisher1"));
+        assertEquals(282, catalog.getBytes("publisher2"));
+        assertEquals(2, catalog.getSegments("publisher1").size());
+        assertEquals(100, catalog.getSegments("publisher1").get(0).getTimestamp());
+        assertFalse(catalog.getSegments("publisher1").get(0).isCompressed());
+        assertTrue(catalog.getSegments("publisher1").get(1).isCompressed());
+    }
+
+    /**
+     * Test segments started within time frame and the last one started before it are found
+     */
+    @Test
+    public void testGetIndexFiles() throws Exception {
+        write("publisher1_50.tix", 16);
+        ArchiveCatalog catalog = new ArchiveCatalog(directory);
+        assertArrayEquals(new File[]{new File(directory + "publisher1_100.idx"), new File(directory + "publisher1_200.idx")},
+                catalog.getIndexFiles("publisher1", 150, 250));
+        assertArrayEquals(new File[]{new File(directory + "publisher1_200.idx")},
+                catalog.getIndexFiles("publisher1", 250, 300));
+        assertEquals(0, catalog.getIndexFiles("publisher1", 0, 40).length);
+        assertEquals(0, catalog.getIndexFiles("publisher1", 0, 60).length);
+        assertEquals(0, catalog.getIndexFiles("publisher3", 0, Long.MAX_VALUE).length);
+    }
+
+    /**
+     * Test size of active segment is updated on append and seal
+     */
+    @Test
+    public void testUpdateActiveSegment() throws Exception {
+        ArchiveCatalog catalog = new ArchiveCatalog(directory);
+        ArchiveCatalog.Segment segment = catalog.open("publisher3", 300);
+        catalog.update(segment, 1000);
+        assertEquals(1000, catalog.getBytes("publisher3"));
+        assertEquals(157 + 91 + 282 + 1000, catalog.getBytes());
+
+        write("publisher3_300.idx", 41);
+        write("publisher3_300.iomsg", 59);
+        catalog.seal(segment);
+        assertEquals(100, catalog.getBytes("publisher3"));
+    }
+
+    /**
+     * Test oldest sealed segment of all publishers is removed with its files
+     */
+    @Test
+    public void testRemoveOldestSegment() {
+        ArchiveCatalog catalog = new ArchiveCatalog(directory);
+        ArchiveCatalog.Segment oldest = catalog.getOldestSegment();
+        assertEquals("publisher1", oldest.getName());
+        assertEquals(100, oldest.getTimestamp());
+        assertEquals(157, catalog.remove(oldest));
+        assertFalse(new File(directory + "publisher1_100.idx").exists());
+        assertFalse(new File(directory + "publisher1_100.iomsg").exists());
+        assertFalse(new File(directory + "publisher1_100.tix").exists());
+        assertEquals(91 + 282, catalog.getBytes());
+        assertEquals(0, catalog.remove(oldest));
+        assertEquals(150, catalog.getOldestSegment().getTimestamp());
+    }
+
+    /**
+     * Test active segment is not removed
+     */
+    @Test
+    public void testRemoveActiveSegment() {
+        ArchiveCatalog catalog = new ArchiveCatalog(directory);
+        ArchiveCatalog.Segment segment = catalog.open("publisher2", 150);
+        assertEquals(0, catalog.remove(segment));
+        assertTrue(new File(directory + "publisher2_150.idx").exists());
+        assertEquals(100, catalog.getOldestSegment().getTimestamp());
+    }
+
+    /**
+     * Test size of segment is updated after compression
+     */
+    @Test
+    public void testCompressed() throws Exception {
+        ArchiveCatalog catalog = new ArchiveCatalog(directory);
+        Files.delete(new File(directory + "publisher2_150.iomsg").toPath());
+        write("publisher2_150.iomsz", 20);
+        catalog.compressed(new File(directory + "publisher2_150.idx"));
+        assertEquals(102, catalog.getBytes("publisher2"));
+        assertTrue(catalog.getSegments("publisher2").get(0).isCompressed());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.logging.LoggingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mockStatic;
+
+public class ArchiveCompressorTest {
+    private static final String NAME = "publisher";
+    private static final long TIMESTAMP = 1600000000000L;
+
+    @TempDir
+    File tempDir;
+    private ArchiveSegment segment;
+    private MockedStatic<LoggingService> loggingServiceMockedStatic;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        loggingServiceMockedStatic = mockStatic(LoggingService.class);
+        segment = ArchiveSegment.open(tempDir.getPath() + File.separator, NAME, TIMESTAMP, 1 << 20);
+        for (int i = 0; i < 200; i++) {
+            Message message = new Message();
+            message.setId("id" + i);
+            message.setTimestamp(TIMESTAMP + i);
+            message.setContentData(("{\"temperature\":" + i % 10 + "}").getBytes());
+            segment.append(message.getBytes());
+        }
+        segment.seal();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        loggingServiceMockedStatic.close();
+    }
+
+    private File compressedFile() {
+        return new File(tempDir, NAME + "_" + TIMESTAMP + ArchiveSegment.COMPRESSED_DATA_EXTENSION);
+    }
+
+    /**
+     * Test compressed segment is read transparently
+     */
+    @Test
+    public void testCompressedSegmentIsReadable() throws Exception {
+        ArchiveCompressor.getInstance().compress(segment.getIndexFile());
+        assertFalse(segment.getDataFile().exists());
+        assertTrue(compressedFile().exists());
+        try (ArchiveSegmentReader reader = ArchiveSegmentReader.open(segment.getIndexFile(), TIMESTAMP + 150, Long.MAX_VALUE, 0)) {
+            for (int i = 150; i < 200; i++) {
+                Message message = reader.next();
+                assertEquals("id" + i, message.getId());
+                assertEquals("{\"temperature\":" + i % 10 + "}", new String(message.getContentData()));
+            }
+            assertNull(reader.next());
+        }
+    }
+
+    /**
+     * Test data file left after compressed file was written is deleted
+     */
+    @Test
+    public void testCompressWhenCompressedFileExists() throws Exception {
+        byte[] data = Files.readAllBytes(segment.getDataFile().toPath());
+        ArchiveCompressor.getInstance().compress(segment.getIndexFile());
+        Files.write(segment.getDataFile().toPath(), data);
+        ArchiveCompressor.getInstance().compress(segment.getIndexFile());
+        assertFalse(segment.getDataFile().exists());
+        assertTrue(compressedFile().exists());
+    }
+
+    /**
+     * Test compressed file is removed if segment is removed while it is compressed
+     */
+    @Test
+    public void testCompressWhenSegmentIsRemoved() {
+        assertTrue(segment.getIndexFile().delete());
+        ArchiveCompressor.getInstance().compress(segment.getIndexFile());
+        assertFalse(compressedFile().exists());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.logging.LoggingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mockStatic;
+
+public class ArchiveCursorTest {
+    private static final String NAME = "publisher";
+    private static final long TIMESTAMP = 1600000000000L;
+
+    @TempDir
+    File tempDir;
+    private String directory;
+    private File[] segments;
+    private MockedStatic<LoggingService> loggingServiceMockedStatic;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        directory = tempDir.getPath() + File.separator;
+        loggingServiceMockedStatic = mockStatic(LoggingService.class);
+        segments = new File[]{write(TIMESTAMP, 0, 100), write(TIMESTAMP + 100, 100, 100)};
+    }
+
+    @AfterEach
+    public void tearDown() {
+        loggingServiceMockedStatic.close();
+    }
+
+    private File write(long segmentTimestamp, int first, int count) throws Exception {
+        try (ArchiveSegment segment = ArchiveSegment.open(directory, NAME, segmentTimestamp, 1 << 16)) {
+            for (int i = first; i < first + count; i++) {
+                Message message = new Message();
+                message.setId("id" + i);
+                message.setTimestamp(TIMESTAMP + i);
+                segment.append(message.getBytes());
+            }
+            return segment.getIndexFile();
+        }
+    }
+
+    /**
+     * Test cursor reads messages of all segments in order
+     */
+    @Test
+    public void testNextReadsAllSegments() throws Exception {
+        try (ArchiveCursor cursor = new ArchiveCursor(NAME, segments, TIMESTAMP + 50, TIMESTAMP + 149, 0, 0)) {
+            for (int i = 50; i < 150; i++)
+                assertEquals("id" + i, cursor.next().getId());
+            assertNull(cursor.next());
+        }
+    }
+
+    /**
+     * Test cursor continues from a saved position
+     */
+    @Test
+    public void testContinueFromPosition() throws Exception {
+        long segment;
+        int record;
+        try (ArchiveCursor cursor = new ArchiveCursor(NAME, segments, TIMESTAMP, Long.MAX_VALUE, 0, 0)) {
+            for (int i = 0; i < 120; i++)
+                cursor.next();
+            segment = cursor.getSegment();
+            record = cursor.getRecord();
+        }
+        assertEquals(TIMESTAMP + 100, segment);
+        assertEquals(20, record);
+
+        try (ArchiveCursor cursor = new ArchiveCursor(NAME, segments, TIMESTAMP, Long.MAX_VALUE, segment, record)) {
+            assertEquals("id120", cursor.next().getId());
+        }
+    }
+
+    /**
+     * Test cursor skips segment which is removed after it was listed
+     */
+    @Test
+    public void testNextWhenSegmentIsRemoved() throws Exception {
+        assertTrue(segments[0].delete());
+        try (ArchiveCursor cursor = new ArchiveCursor(NAME, segments, TIMESTAMP, Long.MAX_VALUE, 0, 0)) {
+            assertEquals("id100", cursor.next().getId());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.Constants;
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.eclipse.iofog.utils.logging.LoggingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mockStatic;
+
+public class ArchiveRetentionTest {
+    private static final long HOUR = 3_600_000L;
+
+    @TempDir
+    File tempDir;
+    private String directory;
+    private MockedStatic<LoggingService> loggingServiceMockedStatic;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        directory = tempDir.getPath() + File.separator;
+        loggingServiceMockedStatic = mockStatic(LoggingService.class);
+        long now = System.currentTimeMillis();
+        write("publisher1_100", Constants.MiB, now - 3 * HOUR);
+        write("publisher1_200", Constants.MiB, now - 2 * HOUR);
+        write("publisher1_300", Constants.MiB, now);
+        write("publisher2_150", Constants.MiB, now - 3 * HOUR);
+        write("publisher2_250", Constants.MiB, now);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Configuration.setArchiveMaxAge(0);
+        Configuration.setArchivePublisherQuota(0);
+        loggingServiceMockedStatic.close();
+    }
+
+    private void write(String segment, int length, long modified) throws Exception {
+        File indexFile = new File(directory + segment + ArchiveSegment.INDEX_EXTENSION);
+        Files.write(indexFile.toPath(), new byte[0]);
+        Files.write(new File(directory + segment + ArchiveSegment.DATA_EXTENSION).toPath(), new byte[length]);
+        assertTrue(indexFile.setLastModified(modified));
+    }
+
+    private boolean exists(String segment) {
+        return new File(directory + segment + ArchiveSegment.INDEX_EXTENSION).exists();
+    }
+
+    /**
+     * Test segments older than max age are removed
+     */
+    @Test
+    public void testRemoveExpiredByMaxAge() {
+        Configuration.setArchiveMaxAge(1);
+        ArchiveRetention archiveRetention = new ArchiveRetention(new ArchiveCatalog(directory));
+        assertEquals(3L * Constants.MiB, archiveRetention.removeExpired());
+        assertFalse(exists("publisher1_100"));
+        assertFalse(exists("publisher1_200"));
+        assertFalse(exists("publisher2_150"));
+        assertTrue(exists("publisher1_300"));
+        assertEquals(2L * Constants.MiB, archiveRetention.getArchiveSize());
+    }
+
+    /**
+     * Test oldest segments of publisher above quota are removed
+     */
+    @Test
+    public void testRemoveExpiredByPublisherQuota() {
+        Configuration.setArchivePublisherQuota(2);
+        ArchiveRetention archiveRetention = new ArchiveRetention(new ArchiveCatalog(directory));
+        assertEquals(Constants.MiB, archiveRetention.removeExpired());
+        assertFalse(exists("publisher1_100"));
+        assertTrue(exists("publisher1_200"));
+        assertTrue(exists("publisher2_150"));
+    }
+
+    /**
+     * Test nothing is removed when max age and quota are unlimited
+     */
+    @Test
+    public void testRemoveExpiredWhenUnlimited() {
+        ArchiveRetention archiveRetention = new ArchiveRetention(new ArchiveCatalog(directory));
+        assertEquals(0, archiveRetention.removeExpired());
+        assertEquals(5L * Constants.MiB, archiveRetention.getArchiveSize());
+    }
+
+    /**
+     * Test oldest segments of all publishers are removed first
+     */
+    @Test
+    public void testRemoveOldest() {
+        ArchiveCatalog catalog = new ArchiveCatalog(directory);
+        catalog.open("publisher1", 100);
+        ArchiveRetention archiveRetention = new ArchiveRetention(catalog);
+        assertEquals(2L * Constants.MiB, archiveRetention.removeOldest(Constants.MiB + 1));
+        assertTrue(exists("publisher1_100"));
+        assertFalse(exists("publisher2_150"));
+        assertFalse(exists("publisher1_200"));
+        assertTrue(exists("publisher2_250"));
+    }
+}
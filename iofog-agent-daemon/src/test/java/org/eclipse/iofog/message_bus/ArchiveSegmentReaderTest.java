@@ -0,0 +1,119 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchiveSegmentReaderTest {
+    private static final String NAME = "publisher";
+    private static final long TIMESTAMP = 1600000000000L;
+    private static final int INTERVAL = ArchiveSegment.TIME_INDEX_INTERVAL;
+
+    @TempDir
+    File tempDir;
+    private String directory;
+
+    @BeforeEach
+    public void setUp() {
+        directory = tempDir.getPath() + File.separator;
+    }
+
+    private ArchiveSegment write(int count, boolean seal) throws Exception {
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME, TIMESTAMP, 1 << 20);
+        for (int i = 0; i < count; i++) {
+            Message message = new Message();
+            message.setId("id" + i);
+            message.setTimestamp(TIMESTAMP + i);
+            message.setContentData(new byte[i % 50]);
+            segment.append(message.getBytes());
+        }
+        if (seal)
+            segment.seal();
+        return segment;
+    }
+
+    private List<Message> query(ArchiveSegment segment, long from, long to) throws Exception {
+        List<Message> result = new ArrayList<>();
+        try (ArchiveSegmentReader reader = ArchiveSegmentReader.open(segment.getIndexFile(), from, to, 0)) {
+            Message message;
+            while ((message = reader.next()) != null)
+                result.add(message);
+        }
+        return result;
+    }
+
+    /**
+     * Test query of sealed segment returns only messages within time frame
+     */
+    @Test
+    public void testQuerySealedSegment() throws Exception {
+        ArchiveSegment segment = write(INTERVAL * 10 + 5, true);
+        List<Message> result = query(segment, TIMESTAMP + 100, TIMESTAMP + 199);
+        assertEquals(100, result.size());
+        assertEquals("id100", result.get(0).getId());
+        assertEquals("id199", result.get(99).getId());
+        assertEquals(199 % 50, result.get(99).getContentData().length);
+        assertEquals(5, query(segment, TIMESTAMP + INTERVAL * 10, Long.MAX_VALUE).size());
+    }
+
+    /**
+     * Test query of active segment includes records not covered by time index
+     */
+    @Test
+    public void testQueryActiveSegment() throws Exception {
+        try (ArchiveSegment segment = write(INTERVAL * 3 + 10, false)) {
+            assertEquals(INTERVAL * 3 + 10, query(segment, 0, Long.MAX_VALUE).size());
+            assertEquals(10, query(segment, TIMESTAMP + INTERVAL * 3, Long.MAX_VALUE).size());
+        }
+    }
+
+    /**
+     * Test query of segment without time index scans all records
+     */
+    @Test
+    public void testQueryWithoutTimeIndex() throws Exception {
+        ArchiveSegment segment = write(INTERVAL * 2, true);
+        assertTrue(segment.getTimeIndexFile().delete());
+        assertEquals(INTERVAL, query(segment, TIMESTAMP + INTERVAL, Long.MAX_VALUE).size());
+    }
+
+    /**
+     * Test only blocks overlapping time frame are selected
+     */
+    @Test
+    public void testRangesWhenBlocksAreOrdered() {
+        long[] timeIndex = {0, 9, 10, 19, 20, 29, 30, 39};
+        assertArrayEquals(new int[]{INTERVAL, 3 * INTERVAL, 4 * INTERVAL, Integer.MAX_VALUE},
+                ArchiveSegmentReader.ranges(timeIndex, 15, 25));
+        assertArrayEquals(new int[]{4 * INTERVAL, Integer.MAX_VALUE},
+                ArchiveSegmentReader.ranges(timeIndex, 40, 50));
+    }
+
+    /**
+     * Test blocks out of time order are all checked
+     */
+    @Test
+    public void testRangesWhenBlocksAreNotOrdered() {
+        long[] timeIndex = {20, 29, 0, 9, 10, 19, 20, 25};
+        assertArrayEquals(new int[]{0, INTERVAL, 3 * INTERVAL, 4 * INTERVAL, 4 * INTERVAL, Integer.MAX_VALUE},
+                ArchiveSegmentReader.ranges(timeIndex, 22, 30));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchiveSegmentTest {
+    private static final String NAME = "publisher";
+    private static final long TIMESTAMP = 1600000000000L;
+
+    @TempDir
+    File tempDir;
+    private String directory;
+
+    @BeforeEach
+    public void setUp() {
+        directory = tempDir.getPath() + File.separator;
+    }
+
+    private byte[] message(int contentLength) {
+        return message(contentLength, TIMESTAMP);
+    }
+
+    private byte[] message(int contentLength, long timestamp) {
+        Message message = new Message();
+        message.setId("id");
+        message.setTimestamp(timestamp);
+        message.setContentData(new byte[contentLength]);
+        return message.getBytes();
+    }
+
+    /**
+     * Test files are preallocated while active and truncated when sealed
+     */
+    @Test
+    public void testAppendAndSeal() throws Exception {
+        byte[] message = message(100);
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME, TIMESTAMP, 4096);
+        assertTrue(segment.append(message));
+        assertTrue(segment.append(message));
+        assertEquals(4096, segment.getDataFile().length());
+        assertEquals(2, segment.getMessageCount());
+
+        segment.seal();
+        assertTrue(segment.isSealed());
+        assertEquals(2L * ArchiveSegment.INDEX_RECORD_SIZE, segment.getIndexFile().length());
+        assertEquals(2L * (message.length - MessageCodec.HEADER_SIZE), segment.getDataFile().length());
+        assertEquals(ArchiveSegment.TIME_INDEX_ENTRY_SIZE, segment.getTimeIndexFile().length());
+        assertEquals(segment.getIndexFile().length() + segment.getDataFile().length() + segment.getTimeIndexFile().length(),
+                segment.getLength());
+        assertThrows(IllegalStateException.class, () -> segment.append(message));
+    }
+
+    /**
+     * Test append returns false when data file is full
+     */
+    @Test
+    public void testAppendWhenSegmentIsFull() throws Exception {
+        byte[] message = message(1000);
+        try (ArchiveSegment segment = ArchiveSegment.open(directory, NAME, TIMESTAMP, 2048)) {
+            assertTrue(segment.append(message));
+            assertTrue(segment.append(message));
+            assertFalse(segment.append(message));
+            assertEquals(2, segment.getMessageCount());
+        }
+    }
+
+    /**
+     * Test reopened segment continues after the last complete record
+     */
+    @Test
+    public void testReopenRecoversWriteOffsets() throws Exception {
+        byte[] message = message(10);
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME, TIMESTAMP, 4096);
+        segment.append(message);
+        segment.append(message);
+        segment.append(message);
+        // not sealed, preallocated space stays in files as after a crash
+
+        try (ArchiveSegment reopened = ArchiveSegment.open(directory, NAME, TIMESTAMP, 4096)) {
+            assertEquals(3, reopened.getMessageCount());
+            assertTrue(reopened.append(message));
+            assertEquals(4, reopened.getMessageCount());
+        }
+    }
+
+    /**
+     * Test append rejects bytes shorter than header
+     */
+    @Test
+    public void throwsIllegalArgumentExceptionWhenMessageIsTooShort() throws Exception {
+        try (ArchiveSegment segment = ArchiveSegment.open(directory, NAME, TIMESTAMP, 4096)) {
+            assertThrows(IllegalArgumentException.class, () -> segment.append(new byte[10]));
+        }
+    }
+
+    /**
+     * Test time index entry is written for every complete block of records
+     */
+    @Test
+    public void testTimeIndexIsWrittenPerBlock() throws Exception {
+        try (ArchiveSegment segment = ArchiveSegment.open(directory, NAME, TIMESTAMP, 65536)) {
+            for (int i = 0; i < ArchiveSegment.TIME_INDEX_INTERVAL * 2 + 1; i++)
+                segment.append(message(10, TIMESTAMP + i));
+            assertEquals(2L * ArchiveSegment.TIME_INDEX_ENTRY_SIZE, segment.getTimeIndexFile().length());
+        }
+    }
+
+    /**
+     * Test reopened segment rebuilds missing time index entries
+     */
+    @Test
+    public void testReopenRebuildsTimeIndex() throws Exception {
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME, TIMESTAMP, 65536);
+        for (int i = 0; i < ArchiveSegment.TIME_INDEX_INTERVAL * 2; i++)
+            segment.append(message(10, TIMESTAMP + i));
+        segment.close();
+        assertTrue(segment.getTimeIndexFile().delete());
+
+        try (ArchiveSegment reopened = ArchiveSegment.open(directory, NAME, TIMESTAMP, 65536)) {
+            assertEquals(2L * ArchiveSegment.TIME_INDEX_ENTRY_SIZE, reopened.getTimeIndexFile().length());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchiveSyncPolicyTest {
+
+    /**
+     * Test parse none policy
+     */
+    @Test
+    public void testParseNone() {
+        assertTrue(ArchiveSyncPolicy.parse("none").isNone());
+        assertTrue(ArchiveSyncPolicy.parse("").isNone());
+        assertFalse(ArchiveSyncPolicy.parse("none").isSyncDue(100, 100000));
+        assertEquals("none", ArchiveSyncPolicy.parse(null).toString());
+    }
+
+    /**
+     * Test parse interval policy
+     */
+    @Test
+    public void testParseInterval() {
+        ArchiveSyncPolicy policy = ArchiveSyncPolicy.parse("500ms");
+        assertEquals(500, policy.getIntervalMillis());
+        assertEquals("500ms", policy.toString());
+        assertFalse(policy.isSyncDue(10, 499));
+        assertTrue(policy.isSyncDue(10, 500));
+        assertFalse(policy.isSyncDue(0, 1000));
+    }
+
+    /**
+     * Test parse message count policy
+     */
+    @Test
+    public void testParseMessages() {
+        ArchiveSyncPolicy policy = ArchiveSyncPolicy.parse("100msg");
+        assertEquals(100, policy.getMessages());
+        assertEquals("100msg", policy.toString());
+        assertFalse(policy.isSyncDue(99, 100000));
+        assertTrue(policy.isSyncDue(100, 0));
+    }
+
+    /**
+     * Test parse throws IllegalArgumentException when value is invalid
+     */
+    @Test
+    public void throwsIllegalArgumentExceptionWhenPolicyIsInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> ArchiveSyncPolicy.parse("always"));
+        assertThrows(IllegalArgumentException.class, () -> ArchiveSyncPolicy.parse("0msg"));
+        assertThrows(IllegalArgumentException.class, () -> ArchiveSyncPolicy.parse("-5ms"));
+        assertThrows(IllegalArgumentException.class, () -> ArchiveSyncPolicy.parse("ms"));
+    }
+}
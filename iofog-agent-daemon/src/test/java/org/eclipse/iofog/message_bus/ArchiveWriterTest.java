@@ -0,0 +1,131 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.status_reporter.StatusReporter;
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class ArchiveWriterTest {
+    private ArchiveWriter archiveWriter;
+    private MessageArchive messageArchive;
+    private final byte[] message = new byte[40];
+
+    @BeforeEach
+    public void setUp() {
+        archiveWriter = new ArchiveWriter(4);
+        messageArchive = mock(MessageArchive.class);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        archiveWriter.stop();
+        Configuration.setArchiveFsyncPolicy(ArchiveSyncPolicy.NONE);
+    }
+
+    /**
+     * Test queued messages are written before writer stops
+     */
+    @Test
+    public void testSubmitWritesMessagesInBackground() {
+        assertTrue(archiveWriter.submit(messageArchive, message, 1));
+        assertTrue(archiveWriter.submit(messageArchive, message, 2));
+        archiveWriter.stop();
+        verify(messageArchive).write(message, 1);
+        verify(messageArchive).write(message, 2);
+        verify(messageArchive, never()).sync();
+    }
+
+    /**
+     * Test batch is written with a single write of the archive
+     */
+    @Test
+    public void testSubmitBatchWritesMessagesOnce() {
+        byte[][] batch = {message, message, message};
+        long[] timestamps = {1, 2, 3};
+        assertTrue(archiveWriter.submit(messageArchive, batch, timestamps));
+        archiveWriter.stop();
+        verify(messageArchive).write(batch, timestamps);
+        verify(messageArchive, never()).write(any(byte[].class), anyLong());
+    }
+
+    /**
+     * Test close seals archive after its queued messages
+     */
+    @Test
+    public void testCloseSealsArchiveAfterQueuedMessages() throws Exception {
+        archiveWriter.submit(messageArchive, message, 1);
+        archiveWriter.close(messageArchive);
+        archiveWriter.stop();
+        InOrder inOrder = inOrder(messageArchive);
+        inOrder.verify(messageArchive).write(message, 1);
+        inOrder.verify(messageArchive).seal();
+    }
+
+    /**
+     * Test close seals archive directly when writer is not running
+     */
+    @Test
+    public void testCloseWhenWriterIsNotRunning() throws Exception {
+        archiveWriter.close(messageArchive);
+        verify(messageArchive).seal();
+    }
+
+    /**
+     * Test archive is synced every N messages
+     */
+    @Test
+    public void testSyncEveryNMessages() {
+        Configuration.setArchiveFsyncPolicy(ArchiveSyncPolicy.parse("1msg"));
+        archiveWriter.submit(messageArchive, message, 1);
+        archiveWriter.stop();
+        verify(messageArchive, atLeastOnce()).sync();
+    }
+
+    /**
+     * Test message is dropped and counted when queue is full
+     */
+    @Test
+    public void testSubmitDropsMessageWhenQueueIsFull() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(messageArchive).write(any(byte[].class), anyLong());
+        long dropped = StatusReporter.getMessageBusStatus().getArchiveDroppedMessages();
+
+        archiveWriter.submit(messageArchive, message, 0);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 4; i++)
+            assertTrue(archiveWriter.submit(messageArchive, message, i));
+        assertFalse(archiveWriter.submit(messageArchive, message, 5));
+        assertEquals(dropped + 1, StatusReporter.getMessageBusStatus().getArchiveDroppedMessages());
+
+        release.countDown();
+        archiveWriter.stop();
+        verify(messageArchive, times(5)).write(any(byte[].class), anyLong());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedArchiveDataTest {
+    private static final int FRAME_LENGTH = CompressedArchiveData.FRAME_LENGTH;
+
+    @TempDir
+    File tempDir;
+    private File dataFile;
+    private File compressedFile;
+    private byte[] data;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dataFile = new File(tempDir, "publisher_1.iomsg");
+        compressedFile = new File(tempDir, "publisher_1.iomsz");
+        data = new byte[FRAME_LENGTH * 3 + 100];
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte) ("{\"temperature\":" + (i % 7) + "}").charAt(i % 17);
+        Files.write(dataFile.toPath(), data);
+    }
+
+    /**
+     * Test compressed file replaces data file and is smaller
+     */
+    @Test
+    public void testCompressReplacesDataFile() throws Exception {
+        CompressedArchiveData.compress(dataFile, compressedFile);
+        assertFalse(dataFile.exists());
+        assertTrue(compressedFile.exists());
+        assertTrue(compressedFile.length() < data.length);
+    }
+
+    /**
+     * Test data read across frames equals original data
+     */
+    @Test
+    public void testReadAcrossFrames() throws Exception {
+        CompressedArchiveData.compress(dataFile, compressedFile);
+        try (CompressedArchiveData compressedData = CompressedArchiveData.open(compressedFile)) {
+            assertEquals(data.length, compressedData.length());
+            ByteBuffer buffer = ByteBuffer.allocate(FRAME_LENGTH + 10);
+            compressedData.read(buffer, FRAME_LENGTH - 5);
+            assertArrayEquals(Arrays.copyOfRange(data, FRAME_LENGTH - 5, 2 * FRAME_LENGTH + 5), buffer.array());
+
+            buffer = ByteBuffer.allocate(200);
+            compressedData.read(buffer, data.length - 50);
+            assertEquals(50, buffer.position());
+        }
+    }
+
+    /**
+     * Test empty data file is compressed
+     */
+    @Test
+    public void testCompressEmptyDataFile() throws Exception {
+        Files.write(dataFile.toPath(), new byte[0]);
+        CompressedArchiveData.compress(dataFile, compressedFile);
+        try (CompressedArchiveData compressedData = CompressedArchiveData.open(compressedFile)) {
+            assertEquals(0, compressedData.length());
+        }
+    }
+
+    /**
+     * Test incomplete compressed file is rejected
+     */
+    @Test
+    public void testOpenWhenFileIsIncomplete() throws Exception {
+        CompressedArchiveData.compress(dataFile, compressedFile);
+        byte[] bytes = Files.readAllBytes(compressedFile.toPath());
+        Files.write(compressedFile.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> CompressedArchiveData.open(compressedFile));
+    }
+}
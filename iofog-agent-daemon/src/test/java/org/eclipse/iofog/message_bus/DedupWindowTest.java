@@ -0,0 +1,61 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DedupWindowTest {
+
+    /**
+     * Test id seen within the window is a duplicate
+     */
+    @Test
+    public void testIsDuplicate() {
+        DedupWindow window = new DedupWindow(1000, 10);
+        assertFalse(window.isDuplicate("a", 0));
+        assertFalse(window.isDuplicate("b", 10));
+        assertTrue(window.isDuplicate("a", 500));
+        assertTrue(window.isDuplicate("b", 1000));
+        assertFalse(window.isDuplicate(null, 1000));
+        assertFalse(window.isDuplicate(null, 1000));
+    }
+
+    /**
+     * Test id older than the window is dropped
+     */
+    @Test
+    public void testIsDuplicateWhenWindowIsOver() {
+        DedupWindow window = new DedupWindow(1000, 10);
+        assertFalse(window.isDuplicate("a", 0));
+        assertFalse(window.isDuplicate("b", 600));
+        assertFalse(window.isDuplicate("a", 1001));
+        assertEquals(2, window.size());
+        assertTrue(window.isDuplicate("b", 1500));
+    }
+
+    /**
+     * Test oldest id is dropped when window holds its maximum
+     */
+    @Test
+    public void testIsDuplicateWhenWindowIsFull() {
+        DedupWindow window = new DedupWindow(60000, 3);
+        for (int i = 0; i < 4; i++) {
+            assertFalse(window.isDuplicate("id" + i, i));
+        }
+        assertEquals(3, window.size());
+        assertFalse(window.isDuplicate("id0", 10));
+        assertTrue(window.isDuplicate("id3", 10));
+    }
+}
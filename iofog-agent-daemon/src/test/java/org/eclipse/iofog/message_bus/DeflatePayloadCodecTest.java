@@ -0,0 +1,75 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeflatePayloadCodecTest {
+    private final PayloadCodec codec = new DeflatePayloadCodec();
+
+    private static byte[] data(int length) {
+        byte[] data = new byte[length];
+        byte[] text = "{\"temperature\":21.5,\"humidity\":40}".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < length; i++) {
+            data[i] = text[i % text.length];
+        }
+        return data;
+    }
+
+    /**
+     * Test decompress returns the bytes that were compressed
+     */
+    @Test
+    public void testCompressAndDecompress() {
+        for (int length : new int[] {0, 1, 4096, 100000}) {
+            byte[] data = data(length);
+            byte[] compressed = codec.compress(data);
+            assertArrayEquals(data, codec.decompress(compressed, length));
+        }
+        assertTrue(codec.compress(data(4096)).length < 4096);
+    }
+
+    /**
+     * Test decompress throws exception when length does not match the compressed data
+     */
+    @Test
+    public void throwsExceptionWhenLengthDoesNotMatch() {
+        byte[] compressed = codec.compress(data(1000));
+        assertThrows(IllegalArgumentException.class, () -> codec.decompress(compressed, 999));
+        assertThrows(IllegalArgumentException.class, () -> codec.decompress(compressed, 1001));
+        assertThrows(IllegalArgumentException.class, () -> codec.decompress(compressed, -1));
+    }
+
+    /**
+     * Test decompress throws exception when data is not compressed
+     */
+    @Test
+    public void throwsExceptionWhenDataIsNotCompressed() {
+        assertThrows(IllegalArgumentException.class, () -> codec.decompress(new byte[] {1, 2, 3}, 10));
+    }
+
+    /**
+     * Test codec is found by name
+     */
+    @Test
+    public void testPayloadCodecs() {
+        assertEquals(DeflatePayloadCodec.NAME, PayloadCodecs.get("Deflate").getName());
+        assertNull(PayloadCodecs.get(PayloadCodecs.OFF));
+        assertTrue(PayloadCodecs.isValid("off"));
+        assertFalse(PayloadCodecs.isValid("unknown"));
+    }
+}
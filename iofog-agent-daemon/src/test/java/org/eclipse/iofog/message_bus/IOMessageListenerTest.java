@@ -84,6 +84,17 @@ public class IOMessageListenerTest {
         }
     }
 
+    /**
+     * Test onMessage drops duplicate after acknowledging it
+     */
+    @Test
+    public void testOnMessageWhenMessageIsDuplicate() throws Exception {
+        ioMessageListener = new IOMessageListener(messageCallback, message -> true);
+        ioMessageListener.onMessage(textMessage);
+        verify(textMessage).acknowledge();
+        verify(messageCallback, never()).sendRealtimeMessage(any());
+    }
+
     /**
      * Test onMessage error scenario
      */
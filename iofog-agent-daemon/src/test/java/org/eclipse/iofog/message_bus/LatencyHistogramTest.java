@@ -0,0 +1,69 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+    private LatencyHistogram histogram;
+
+    @BeforeEach
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    /**
+     * Test every value is counted in a bucket whose highest value is within precision
+     */
+    @Test
+    public void testIndex() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456, LatencyHistogram.MAX_VALUE}) {
+            int index = LatencyHistogram.index(value);
+            long highest = LatencyHistogram.highestValue(index);
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / LatencyHistogram.SUB_BUCKETS);
+            if (index > 0)
+                assertTrue(LatencyHistogram.highestValue(index - 1) < value);
+        }
+    }
+
+    /**
+     * Test percentiles of recorded latencies
+     */
+    @Test
+    public void testGetPercentile() {
+        assertEquals(0, histogram.getPercentile(99));
+        for (int i = 1; i <= 1000; i++)
+            histogram.record(i);
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500, histogram.getPercentile(50), 500 / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(990, histogram.getPercentile(99), 990 / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(1000, histogram.getPercentile(100));
+    }
+
+    /**
+     * Test latency out of range is counted at the bounds
+     */
+    @Test
+    public void testRecordOutOfRange() {
+        histogram.record(-5);
+        assertEquals(0, histogram.getPercentile(100));
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+        assertEquals(2, histogram.getCount());
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import io.netty.channel.ChannelHandlerContext;
+import org.eclipse.iofog.local_api.WebSocketMap;
+import org.eclipse.iofog.microservice.MicroserviceManager;
+import org.eclipse.iofog.microservice.Route;
+import org.eclipse.iofog.status_reporter.StatusReporter;
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.eclipse.iofog.utils.logging.LoggingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests route updates of {@link MessageBus} touch only the publishers and receivers that changed
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class MessageBusRouteUpdateTest {
+    private MessageBus messageBus;
+    private MessageBusServer messageBusServer;
+    private Map<String, Route> routes;
+    private Map<String, MessagePublisher> publishers;
+    private Map<String, MessageReceiver> receivers;
+    private Map<String, ChannelHandlerContext> messageSocketMap;
+    private MockedStatic<LoggingService> loggingServiceMockedStatic;
+    private MockedStatic<StatusReporter> statusReporterMockedStatic;
+    private MockedStatic<Configuration> configurationMockedStatic;
+    private MockedStatic<WebSocketMap> webSocketMapMockedStatic;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        loggingServiceMockedStatic = mockStatic(LoggingService.class);
+        statusReporterMockedStatic = mockStatic(StatusReporter.class);
+        configurationMockedStatic = mockStatic(Configuration.class);
+        webSocketMapMockedStatic = mockStatic(WebSocketMap.class);
+        messageSocketMap = new HashMap<>();
+        Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(mock(MessageBusStatus.class));
+        Mockito.when(Configuration.isLocalDelivery()).thenReturn(false);
+        Mockito.when(WebSocketMap.getMessageWebsocketMap()).thenReturn(messageSocketMap);
+
+        routes = new HashMap<>();
+        MicroserviceManager microserviceManager = mock(MicroserviceManager.class);
+        Mockito.when(microserviceManager.getRoutes()).thenReturn(routes);
+        Mockito.when(microserviceManager.getLatestMicroservices()).thenReturn(new ArrayList<>());
+        messageBusServer = mock(MessageBusServer.class);
+
+        Constructor<MessageBus> constructor = MessageBus.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        messageBus = constructor.newInstance();
+        setField("messageBusServer", messageBusServer);
+        setField("microserviceManager", microserviceManager);
+        publishers = getField("publishers");
+        receivers = getField("receivers");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        loggingServiceMockedStatic.close();
+        statusReporterMockedStatic.close();
+        configurationMockedStatic.close();
+        webSocketMapMockedStatic.close();
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = MessageBus.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(messageBus, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T getField(String name) throws Exception {
+        Field field = MessageBus.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return (T) field.get(messageBus);
+    }
+
+    private void updatePublishersAndReceivers() throws Exception {
+        Method method = MessageBus.class.getDeclaredMethod("updatePublishersAndReceivers");
+        method.setAccessible(true);
+        method.invoke(messageBus);
+    }
+
+    private static Route route(String... receivers) {
+        Route route = new Route();
+        route.setReceivers(new ArrayList<>(List.of(receivers)));
+        return route;
+    }
+
+    private MessagePublisher publisher(String name, Route route) {
+        MessagePublisher publisher = mock(MessagePublisher.class);
+        Mockito.when(publisher.getRoute()).thenReturn(route);
+        Mockito.when(publisher.isConnected()).thenReturn(true);
+        publishers.put(name, publisher);
+        return publisher;
+    }
+
+    private MessageReceiver receiver(String name) throws Exception {
+        MessageReceiver receiver = mock(MessageReceiver.class);
+        MessageConsumer consumer = mock(MessageConsumer.class);
+        Mockito.when(receiver.getConsumer()).thenReturn(consumer);
+        Mockito.when(messageBusServer.getConsumer(name)).thenReturn(consumer);
+        receivers.put(name, receiver);
+        return receiver;
+    }
+
+    /**
+     * Test publisher of an unchanged route keeps its producers
+     */
+    @Test
+    public void testUpdateKeepsPublisherOfUnchangedRoute() throws Exception {
+        MessagePublisher publisher = publisher("publisher", route("A", "B"));
+        receiver("A");
+        receiver("B");
+        routes.put("publisher", route("A", "B"));
+
+        updatePublishersAndReceivers();
+
+        assertSame(publisher, publishers.get("publisher"));
+        Mockito.verify(publisher, never()).updateRoute(any(), any());
+        Mockito.verify(publisher, never()).close();
+        Mockito.verify(messageBusServer, never()).updateProducer(anyString(), any());
+        Mockito.verify(messageBusServer, never()).removeProducer(anyString());
+        Mockito.verify(messageBusServer, never()).getProducer(anyString(), any());
+    }
+
+    /**
+     * Test publisher of a changed route gets its producers updated instead of recreated
+     */
+    @Test
+    public void testUpdateChangesProducersOfChangedRoute() throws Exception {
+        MessagePublisher publisher = publisher("publisher", route("A", "B"));
+        receiver("B");
+        receiver("C");
+        Route route = route("B", "C");
+        routes.put("publisher", route);
+        List<MessageProducer> producers = List.of(mock(MessageProducer.class), mock(MessageProducer.class));
+        Mockito.when(messageBusServer.updateProducer("publisher", route.getReceivers())).thenReturn(producers);
+
+        updatePublishersAndReceivers();
+
+        assertSame(publisher, publishers.get("publisher"));
+        Mockito.verify(publisher).updateRoute(route, producers);
+        Mockito.verify(publisher, never()).close();
+        Mockito.verify(messageBusServer, never()).removeProducer(anyString());
+    }
+
+    /**
+     * Test publisher of a removed route is closed with its producers
+     */
+    @Test
+    public void testUpdateClosesPublisherOfRemovedRoute() throws Exception {
+        MessagePublisher kept = publisher("kept", route("A"));
+        MessagePublisher removed = publisher("removed", route("A"));
+        receiver("A");
+        routes.put("kept", route("A"));
+
+        updatePublishersAndReceivers();
+
+        assertSame(kept, publishers.get("kept"));
+        assertFalse(publishers.containsKey("removed"));
+        Mockito.verify(removed).clearOutbox();
+        Mockito.verify(removed).close();
+        Mockito.verify(messageBusServer).removeProducer("removed");
+        Mockito.verify(kept, never()).close();
+        Mockito.verify(messageBusServer, never()).removeProducer("kept");
+    }
+
+    /**
+     * Test real-time listener of a receiver staying in the routes survives the update, removed receiver is closed
+     */
+    @Test
+    public void testUpdateKeepsRealTimeListener() throws Exception {
+        publisher("publisher", route("A", "B"));
+        MessageReceiver listening = receiver("A");
+        MessageReceiver removed = receiver("B");
+        Mockito.when(listening.isRealTimeReceiving()).thenReturn(true);
+        messageSocketMap.put("A", mock(ChannelHandlerContext.class));
+        routes.put("publisher", route("A"));
+        Mockito.when(messageBusServer.updateProducer(eq("publisher"), any())).thenReturn(List.of(mock(MessageProducer.class)));
+
+        updatePublishersAndReceivers();
+
+        assertSame(listening, receivers.get("A"));
+        Mockito.verify(listening, never()).close();
+        Mockito.verify(listening, never()).reattach(any());
+        Mockito.verify(listening, never()).enableRealTimeReceiving();
+        Mockito.verify(messageBusServer, never()).removeConsumer("A");
+        assertFalse(receivers.containsKey("B"));
+        Mockito.verify(removed).close();
+        Mockito.verify(messageBusServer).removeConsumer("B");
+    }
+
+    /**
+     * Test real-time listener is enabled for a receiver with an open message websocket
+     */
+    @Test
+    public void testUpdateEnablesRealTimeListenerOfOpenWebsocket() throws Exception {
+        publisher("publisher", route("A"));
+        MessageReceiver receiver = receiver("A");
+        messageSocketMap.put("A", mock(ChannelHandlerContext.class));
+        routes.put("publisher", route("A"));
+
+        updatePublishersAndReceivers();
+
+        assertTrue(receivers.containsKey("A"));
+        Mockito.verify(receiver).enableRealTimeReceiving();
+    }
+}
@@ -13,6 +13,7 @@
 package org.eclipse.iofog.message_bus;
 
 import org.apache.qpid.jms.JmsConnectionFactory;
+import org.eclipse.iofog.exception.AgentSystemException;
 import org.eclipse.iofog.utils.configuration.Configuration;
 import org.eclipse.iofog.utils.logging.LoggingService;
 import org.junit.jupiter.api.AfterEach;
@@ -31,7 +32,9 @@ import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -102,6 +105,7 @@ public class MessageBusServerTest {
         try {
             messageBusServer.startServer("localhost", 5672);
             JmsConnectionFactory mock = jmsConnectionFactoryMockedConstruction.constructed().get(0);
+            Mockito.verify(mock).setPrefetchPolicy(any());
             Mockito.verify(mock, Mockito.atLeastOnce()).createConnection();
             Mockito.verify(LoggingService.class, atLeastOnce());
             LoggingService.logDebug(MODULE_NAME, "Starting server");
@@ -291,6 +295,59 @@ public class MessageBusServerTest {
         }
     }
 
+    /**
+     * Test producers of a publisher are created in its own session, which is closed with the producers
+     */
+    @Test
+    public void testCreateProducerInSessionOfPublisher() {
+        try {
+            Session publisherSession = mock(Session.class);
+            TextMessage publisherMessage = mock(TextMessage.class);
+            Mockito.when(publisherSession.createQueue(any())).thenReturn(queue);
+            Mockito.when(publisherSession.createProducer(any())).thenReturn(messageProducer);
+            Mockito.when(publisherSession.createTextMessage(any())).thenReturn(publisherMessage);
+            messageBusServer.startServer("localhost", 5672);
+            Mockito.when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session, publisherSession);
+            messageBusServer.initialize();
+            messageBusServer.createProducer("producer", receivers);
+            Mockito.verify(publisherSession, times(receivers.size())).createProducer(any());
+            Mockito.verify(session, never()).createProducer(any());
+            assertEquals(publisherMessage, MessageBusServer.createMessage("producer", "text"));
+            assertEquals(textMessage, MessageBusServer.createMessage("other", "text"));
+            messageBusServer.removeProducer("producer");
+            Mockito.verify(publisherSession).close();
+            assertEquals(textMessage, MessageBusServer.createMessage("producer", "text"));
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test update producer keeps producers of remaining receivers and touches added and removed ones only
+     */
+    @Test
+    public void testUpdateProducer() throws Exception {
+        Session publisherSession = mock(Session.class);
+        MessageProducer producerA = mock(MessageProducer.class);
+        MessageProducer producerB = mock(MessageProducer.class);
+        MessageProducer producerC = mock(MessageProducer.class);
+        Mockito.when(publisherSession.createQueue(any())).thenReturn(queue);
+        Mockito.when(publisherSession.createProducer(any())).thenReturn(producerA, producerB, producerC);
+        messageBusServer.startServer("localhost", 5672);
+        Mockito.when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session, publisherSession);
+        messageBusServer.initialize();
+        assertEquals(List.of(producerA, producerB), messageBusServer.getProducer("producer", List.of("A", "B")));
+
+        List<MessageProducer> producers = messageBusServer.updateProducer("producer", List.of("B", "C"));
+        assertEquals(List.of(producerB, producerC), producers);
+        assertEquals(producers, messageBusServer.getProducer("producer", List.of("B", "C")));
+        Mockito.verify(publisherSession, times(3)).createProducer(any());
+        Mockito.verify(publisherSession).createQueue("C");
+        Mockito.verify(producerA).close();
+        Mockito.verify(producerB, never()).close();
+        Mockito.verify(publisherSession, never()).close();
+    }
+
     /**
      * Test create message is equal to mock session
      */
@@ -299,10 +356,143 @@ public class MessageBusServerTest {
         try {
             messageBusServer.startServer("localhost", 5672);
             messageBusServer.initialize();
-            assertEquals(textMessage, MessageBusServer.createMessage(anyString()));
+            assertEquals(textMessage, MessageBusServer.createMessage("publisher", "text"));
             Mockito.verify(session, atLeastOnce()).createTextMessage(anyString());
         } catch (Exception e) {
             fail("This should not happen");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Test create bytes message marks the message format
+     */
+    @Test
+    public void testCreateBytesMessage() {
+        try {
+            BytesMessage bytesMessage = mock(BytesMessage.class);
+            Mockito.when(session.createBytesMessage()).thenReturn(bytesMessage);
+            messageBusServer.startServer("localhost", 5672);
+            messageBusServer.initialize();
+            byte[] bytes = new byte[] {0, 4};
+            assertEquals(bytesMessage, MessageBusServer.createMessage("publisher", bytes));
+            Mockito.verify(bytesMessage).setStringProperty(MessageBusServer.MESSAGE_FORMAT_PROPERTY, MessageBusServer.MESSAGE_FORMAT_BINARY);
+            Mockito.verify(bytesMessage).writeBytes(bytes);
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test read message when message is sent as bytes
+     */
+    @Test
+    public void testReadMessageWhenBytesMessage() {
+        try {
+            Message message = new Message();
+            message.setId("id");
+            message.setContentData(new byte[] {1, 2, 3});
+            byte[] bytes = message.getBytes();
+            BytesMessage bytesMessage = mock(BytesMessage.class);
+            Mockito.when(bytesMessage.getStringProperty(MessageBusServer.MESSAGE_FORMAT_PROPERTY)).thenReturn(MessageBusServer.MESSAGE_FORMAT_BINARY);
+            Mockito.when(bytesMessage.getBodyLength()).thenReturn((long) bytes.length);
+            Mockito.when(bytesMessage.readBytes(any(byte[].class))).thenAnswer(invocation -> {
+                byte[] buffer = invocation.getArgument(0);
+                System.arraycopy(bytes, 0, buffer, 0, bytes.length);
+                return bytes.length;
+            });
+            Message result = MessageBusServer.readMessage(bytesMessage);
+            assertEquals("id", result.getId());
+            assertArrayEquals(new byte[] {1, 2, 3}, result.getContentData());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test read message decompresses message compressed by the publisher
+     */
+    @Test
+    public void testReadMessageWhenBytesMessageIsCompressed() {
+        try {
+            Message message = new Message();
+            message.setId("id");
+            message.setContentData(new byte[8192]);
+            byte[] bytes = message.getBytes();
+            byte[] compressed = PayloadCodecs.get("deflate").compress(bytes);
+            BytesMessage bytesMessage = mock(BytesMessage.class);
+            Mockito.when(bytesMessage.getStringProperty(MessageBusServer.MESSAGE_FORMAT_PROPERTY))
+                    .thenReturn(MessageBusServer.MESSAGE_FORMAT_COMPRESSED + "deflate");
+            Mockito.when(bytesMessage.getIntProperty(MessageBusServer.MESSAGE_LENGTH_PROPERTY)).thenReturn(bytes.length);
+            Mockito.when(bytesMessage.getBodyLength()).thenReturn((long) compressed.length);
+            Mockito.when(bytesMessage.readBytes(any(byte[].class))).thenAnswer(invocation -> {
+                byte[] buffer = invocation.getArgument(0);
+                System.arraycopy(compressed, 0, buffer, 0, compressed.length);
+                return compressed.length;
+            });
+            Message result = MessageBusServer.readMessage(bytesMessage);
+            assertEquals("id", result.getId());
+            assertArrayEquals(new byte[8192], result.getContentData());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test read message throws exception when compressed message has unknown codec
+     */
+    @Test
+    public void throwsExceptionWhenBytesMessageCodecIsUnknown() {
+        BytesMessage bytesMessage = mock(BytesMessage.class);
+        try {
+            Mockito.when(bytesMessage.getStringProperty(MessageBusServer.MESSAGE_FORMAT_PROPERTY))
+                    .thenReturn(MessageBusServer.MESSAGE_FORMAT_COMPRESSED + "unknown");
+        } catch (JMSException e) {
+            fail("This should not happen");
+        }
+        assertThrows(AgentSystemException.class, () -> MessageBusServer.readMessage(bytesMessage));
+    }
+
+    /**
+     * Test read message throws exception before decompressing when compressed message claims a too large length
+     */
+    @Test
+    public void throwsExceptionWhenCompressedMessageLengthIsTooLarge() {
+        BytesMessage bytesMessage = mock(BytesMessage.class);
+        try {
+            Mockito.when(bytesMessage.getStringProperty(MessageBusServer.MESSAGE_FORMAT_PROPERTY))
+                    .thenReturn(MessageBusServer.MESSAGE_FORMAT_COMPRESSED + "deflate");
+            Mockito.when(bytesMessage.getIntProperty(MessageBusServer.MESSAGE_LENGTH_PROPERTY))
+                    .thenReturn(MessageBusServer.MAX_DECOMPRESSED_LENGTH + 1);
+        } catch (JMSException e) {
+            fail("This should not happen");
+        }
+        assertThrows(AgentSystemException.class, () -> MessageBusServer.readMessage(bytesMessage));
+    }
+
+    /**
+     * Test read message when message is sent as JSON text
+     */
+    @Test
+    public void testReadMessageWhenTextMessage() {
+        try {
+            Mockito.when(textMessage.getText()).thenReturn("{\"id\":\"id\"}");
+            assertEquals("id", MessageBusServer.readMessage(textMessage).getId());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test read message throws exception when bytes message has unknown format
+     */
+    @Test
+    public void throwsExceptionWhenBytesMessageFormatIsUnknown() {
+        BytesMessage bytesMessage = mock(BytesMessage.class);
+        try {
+            Mockito.when(bytesMessage.getStringProperty(MessageBusServer.MESSAGE_FORMAT_PROPERTY)).thenReturn(null);
+        } catch (JMSException e) {
+            fail("This should not happen");
+        }
+        assertThrows(AgentSystemException.class, () -> MessageBusServer.readMessage(bytesMessage));
+    }
+}
@@ -21,6 +21,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
+import java.util.Arrays;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
@@ -123,4 +125,93 @@ public class MessageBusStatusTest {
         messageBusStatus.increasePublishedMessagesPerMicroservice("microservice");
         assertTrue(messageBusStatus.getJsonPublishedMessagesPerMicroservice().contains("id"));
     }
-}
\ No newline at end of file
+
+    /**
+     * Test setMicroservices keeps counters of the microservices only
+     */
+    @Test
+    public void testSetMicroservices() {
+        messageBusStatus.increasePublishedMessagesPerMicroservice("microservice");
+        messageBusStatus.increasePublishedMessagesPerMicroservice("removed");
+        messageBusStatus.setMicroservices(Arrays.asList("microservice", "new"));
+        assertEquals(2, messageBusStatus.getPublishedMessagesPerMicroservice().size());
+        assertEquals(1, messageBusStatus.getPublishedMessagesPerMicroservice("microservice"), 0);
+        assertEquals(0, messageBusStatus.getPublishedMessagesPerMicroservice("new"), 0);
+        assertNull(messageBusStatus.getPublishedMessagesPerMicroservice("removed"));
+    }
+
+    /**
+     * Test messages published by concurrent threads are counted
+     */
+    @Test
+    public void testIncreasePublishedMessagesFromConcurrentThreads() throws Exception {
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            String microservice = "microservice" + (i % 2);
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++)
+                    messageBusStatus.increasePublishedMessagesPerMicroservice(microservice);
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(40_000, messageBusStatus.getProcessedMessages());
+        assertEquals(20_000, messageBusStatus.getPublishedMessagesPerMicroservice("microservice0"), 0);
+        assertEquals(20_000, messageBusStatus.getPublishedMessagesPerMicroservice("microservice1"), 0);
+        assertTrue(messageBusStatus.getJsonPublishedMessagesPerMicroservice().contains("\"rate10s\""));
+    }
+
+    /**
+     * Test message latency is recorded per route and removed with microservices
+     */
+    @Test
+    public void testGetJsonMessageLatency() {
+        assertEquals("[]", messageBusStatus.getJsonMessageLatency());
+        messageBusStatus.recordMessageLatency(null, "receiver", 10);
+        assertEquals("[]", messageBusStatus.getJsonMessageLatency());
+        messageBusStatus.recordMessageLatency("publisher", "receiver", 10);
+        messageBusStatus.recordMessageLatency("publisher", "receiver", 12);
+        String json = messageBusStatus.getJsonMessageLatency();
+        assertTrue(json.contains("\"publisher\":\"publisher\""));
+        assertTrue(json.contains("\"receiver\":\"receiver\""));
+        assertTrue(json.contains("\"count\":2"));
+        assertTrue(json.contains("\"max\":12"));
+        messageBusStatus.setMicroservices(Arrays.asList("publisher"));
+        assertEquals("[]", messageBusStatus.getJsonMessageLatency());
+    }
+
+    /**
+     * Test route fan-out is recorded per publisher and removed
+     */
+    @Test
+    public void testGetJsonRouteFanOut() {
+        assertEquals("[]", messageBusStatus.getJsonRouteFanOut());
+        RouteFanOutStatus fanOutStatus = messageBusStatus.getRouteFanOut("publisher");
+        assertSame(fanOutStatus, messageBusStatus.getRouteFanOut("publisher"));
+        fanOutStatus.record(3, 1, 100, 2000, 6000);
+        assertEquals(1, fanOutStatus.getPublishedMessages());
+        assertEquals(2, fanOutStatus.getDeliveries());
+        assertEquals(1, fanOutStatus.getFailedDeliveries());
+        assertTrue(messageBusStatus.getJsonRouteFanOut().contains("\"deliverycount\":2"));
+        messageBusStatus.removeRouteFanOut("publisher");
+        assertEquals("[]", messageBusStatus.getJsonRouteFanOut());
+    }
+
+    /**
+     * Test compression of a publisher is reported with ratio and average time
+     */
+    @Test
+    public void testRouteFanOutCompression() {
+        assertTrue(messageBusStatus.getRouteFanOut().isEmpty());
+        RouteFanOutStatus fanOutStatus = messageBusStatus.getRouteFanOut("publisher");
+        fanOutStatus.recordCompression(8000, 2000, 30000);
+        fanOutStatus.recordCompression(100, 100, 10000);
+        assertSame(fanOutStatus, messageBusStatus.getRouteFanOut().get("publisher"));
+        assertEquals(2, fanOutStatus.getCompressions());
+        assertEquals(1, fanOutStatus.getCompressedMessages());
+        assertEquals(8100.0 / 2100, fanOutStatus.getCompressionRatio(), 0.001);
+        assertEquals(20, fanOutStatus.getAverageCompressMicros());
+        assertTrue(messageBusStatus.getJsonRouteFanOut().contains("\"avgcompressmicros\":20"));
+    }
+}
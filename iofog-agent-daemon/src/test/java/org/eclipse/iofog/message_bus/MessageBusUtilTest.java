@@ -131,6 +131,22 @@ public class MessageBusUtilTest {
         }
     }
 
+    /**
+     * Test publishMessage returns false when publisher rejects the message
+     */
+    @Test
+    public void testPublishMessageWhenPublisherRejectsMessage() {
+        try {
+            Mockito.when(messageBus.getPublisher(message.getPublisher())).thenReturn(messagePublisher);
+            Mockito.when(messagePublisher.publish(any(Message.class))).thenReturn(false);
+            assertFalse(messageBusUtil.publishMessage(message));
+            Mockito.when(messagePublisher.publish(any(Message.class))).thenReturn(true);
+            assertTrue(messageBusUtil.publishMessage(message));
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
     /**
      * Test publishMessage
      * publisher throws Exception
@@ -151,6 +167,61 @@ public class MessageBusUtilTest {
         }
     }
 
+    /**
+     * Test publishBatch assigns ids and timestamp in bulk and publishes messages per publisher
+     */
+    @Test
+    public void testPublishBatch() {
+        try {
+            Message first = new Message("publisher1");
+            Message second = new Message("publisher2");
+            Message third = new Message("publisher1");
+            MessagePublisher otherPublisher = mock(MessagePublisher.class);
+            Mockito.when(messageBus.getNextIds(3)).thenReturn(new String[]{"id1", "id2", "id3"});
+            Mockito.when(messageBus.getPublisher("publisher1")).thenReturn(messagePublisher);
+            Mockito.when(messageBus.getPublisher("publisher2")).thenReturn(otherPublisher);
+            Mockito.when(messagePublisher.publishBatch(any())).thenReturn(2);
+            Mockito.when(otherPublisher.publishBatch(any())).thenReturn(0);
+            List<Message> failed = new ArrayList<>();
+            assertEquals(List.of(second), messageBusUtil.publishBatch(List.of(first, second, third), failed));
+            assertTrue(failed.isEmpty());
+            assertEquals("id1", first.getId());
+            assertEquals("id3", third.getId());
+            assertEquals(first.getTimestamp(), third.getTimestamp());
+            Mockito.verify(messageBus).getNextIds(3);
+            Mockito.verify(messageBus, never()).getNextId();
+            Mockito.verify(messagePublisher).publishBatch(List.of(first, third));
+            Mockito.verify(otherPublisher).publishBatch(List.of(second));
+            Mockito.verify(messageBusStatus, times(2)).increasePublishedMessagesPerMicroservice("publisher1");
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test publishBatch reports messages of a missing publisher and of a publisher failing to publish them
+     */
+    @Test
+    public void testPublishBatchWhenPublisherFails() {
+        try {
+            Message first = new Message("publisher1");
+            Message second = new Message("publisher2");
+            Message third = new Message("publisher3");
+            MessagePublisher otherPublisher = mock(MessagePublisher.class);
+            Mockito.when(messageBus.getNextIds(3)).thenReturn(new String[]{"id1", "id2", "id3"});
+            Mockito.when(messageBus.getPublisher("publisher1")).thenReturn(messagePublisher);
+            Mockito.when(messageBus.getPublisher("publisher2")).thenReturn(otherPublisher);
+            Mockito.when(messageBus.getPublisher("publisher3")).thenReturn(null);
+            Mockito.when(messagePublisher.publishBatch(any())).thenReturn(1);
+            Mockito.when(otherPublisher.publishBatch(any())).thenThrow(new IllegalStateException("error"));
+            List<Message> failed = new ArrayList<>();
+            assertTrue(messageBusUtil.publishBatch(List.of(first, second, third), failed).isEmpty());
+            assertEquals(List.of(second, third), failed);
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
     /**
      * Test getMessages MessageReceiver is null
      */
@@ -292,4 +363,27 @@ public class MessageBusUtilTest {
             fail("This should not happen");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Test messageCursor when route doesn't have receiver
+     */
+    @Test
+    public void testMessageCursorWhenRouteDoseNotHaveReceiver() {
+        Mockito.when(receivers.contains(eq("receiver"))).thenReturn(false);
+        assertNull(messageBusUtil.messageCursor("publisher", "receiver", 100l, currentTimeMillis(), 0, 0));
+        Mockito.verify(messageBus, Mockito.never()).getPublisher(any());
+        Mockito.verify(messagePublisher, Mockito.never()).messageCursor(anyLong(), anyLong(), anyLong(), anyInt());
+    }
+
+    /**
+     * Test messageCursor when route have receiver
+     * messageBus have publisher
+     */
+    @Test
+    public void testMessageCursorWhenRouteHaveReceiverAndPublisher() {
+        ArchiveCursor cursor = mock(ArchiveCursor.class);
+        Mockito.when(messagePublisher.messageCursor(anyLong(), anyLong(), anyLong(), anyInt())).thenReturn(cursor);
+        assertEquals(cursor, messageBusUtil.messageCursor("publisher", "receiver", 100l, currentTimeMillis(), 5l, 7));
+        Mockito.verify(messagePublisher).messageCursor(eq(100l), anyLong(), eq(5l), eq(7));
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageCodecTest {
+    private Message message;
+
+    @BeforeEach
+    public void setUp() {
+        message = new Message();
+        message.setId("id");
+        message.setTag("tag");
+        message.setMessageGroupId("group");
+        message.setSequenceNumber(1);
+        message.setSequenceTotal(2);
+        message.setPriority((byte) 3);
+        message.setTimestamp(1600000000000L);
+        message.setPublisher("publisher");
+        message.setAuthIdentifier("auth");
+        message.setAuthGroup("authGroup");
+        message.setChainPosition(5L);
+        message.setHash("hash");
+        message.setPreviousHash("previousHash");
+        message.setNonce("nonce");
+        message.setDifficultyTarget(7);
+        message.setInfoType("type/\u00e9\u4e2d\ud83d\ude00");
+        message.setInfoFormat("format");
+        message.setContextData("context".getBytes(UTF_8));
+        message.setContentData("content".getBytes(UTF_8));
+    }
+
+    /**
+     * Test encoded bytes are decoded back to equal message
+     */
+    @Test
+    public void testToBytesRoundTrip() {
+        byte[] bytes = MessageCodec.toBytes(message);
+        assertEquals(MessageCodec.encodedLength(message), bytes.length);
+        Message decoded = new Message(bytes);
+        assertEquals(message.getId(), decoded.getId());
+        assertEquals(message.getInfoType(), decoded.getInfoType());
+        assertEquals(message.getTimestamp(), decoded.getTimestamp());
+        assertEquals(message.getPriority(), decoded.getPriority());
+        assertEquals(message.getChainPosition(), decoded.getChainPosition());
+        assertEquals(message.getDifficultyTarget(), decoded.getDifficultyTarget());
+        assertArrayEquals(message.getContentData(), decoded.getContentData());
+        assertArrayEquals(message.getContextData(), decoded.getContextData());
+    }
+
+    /**
+     * Test utf8Length matches String encoding
+     */
+    @Test
+    public void testUtf8Length() {
+        String str = message.getInfoType();
+        assertEquals(str.getBytes(UTF_8).length, MessageCodec.utf8Length(str));
+        assertEquals(0, MessageCodec.utf8Length(null));
+    }
+
+    /**
+     * Test encode into ByteBuffer advances position
+     */
+    @Test
+    public void testEncodeByteBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(MessageCodec.encodedLength(message) + 4);
+        buffer.position(4);
+        int length = MessageCodec.encode(message, buffer);
+        assertEquals(buffer.capacity(), buffer.position());
+        buffer.position(4);
+        MessageView view = new MessageView().wrap(buffer);
+        assertEquals(length, view.getLength());
+        assertEquals("publisher", view.getPublisher());
+        assertEquals(1600000000000L, view.getTimestamp());
+    }
+
+    /**
+     * Test encode into ByteBuffer without enough space
+     */
+    @Test
+    public void throwsBufferOverflowExceptionWhenBufferIsTooSmall() {
+        ByteBuffer buffer = ByteBuffer.allocate(MessageCodec.HEADER_SIZE);
+        assertThrows(BufferOverflowException.class, () -> MessageCodec.encode(message, buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    /**
+     * Test encode into netty ByteBuf advances writer index
+     */
+    @Test
+    public void testEncodeByteBuf() {
+        ByteBuf buffer = Unpooled.buffer(1);
+        buffer.writeByte(0xD);
+        int length = MessageCodec.encode(message, buffer);
+        assertEquals(length + 1, buffer.writerIndex());
+        Message decoded = new MessageView().wrap(buffer.nioBuffer(1, length)).toMessage();
+        assertEquals(message.getNonce(), decoded.getNonce());
+        buffer.release();
+    }
+
+    /**
+     * Test view exposes content without copying
+     */
+    @Test
+    public void testViewContentBuffer() {
+        byte[] bytes = MessageCodec.toBytes(message);
+        MessageView view = new MessageView().wrap(ByteBuffer.wrap(bytes));
+        ByteBuffer content = view.contentDataBuffer();
+        assertTrue(content.isReadOnly());
+        assertEquals("content", UTF_8.decode(content).toString());
+        assertEquals(bytes.length - MessageCodec.HEADER_SIZE, MessageView.dataLength(ByteBuffer.wrap(bytes), 0));
+    }
+
+    /**
+     * Test zero numeric fields and null strings are not written
+     */
+    @Test
+    public void testEmptyMessage() {
+        byte[] bytes = MessageCodec.toBytes(new Message());
+        assertEquals(MessageCodec.HEADER_SIZE, bytes.length);
+        MessageView view = new MessageView().wrap(ByteBuffer.wrap(bytes));
+        assertNull(view.getId());
+        assertEquals(0, view.getTimestamp());
+        assertNull(view.getContentData());
+    }
+
+    /**
+     * Test truncated bytes are rejected
+     */
+    @Test
+    public void throwsIllegalArgumentExceptionWhenBytesAreTruncated() {
+        byte[] bytes = MessageCodec.toBytes(message);
+        assertThrows(IllegalArgumentException.class, () -> new MessageView().wrap(ByteBuffer.wrap(bytes, 0, 10)));
+        assertThrows(IllegalArgumentException.class, () -> new MessageView().wrap(ByteBuffer.wrap(bytes, 0, bytes.length - 1)));
+    }
+}
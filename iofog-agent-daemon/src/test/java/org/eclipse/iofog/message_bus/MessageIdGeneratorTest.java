@@ -21,6 +21,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import static java.lang.System.currentTimeMillis;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -64,5 +67,65 @@ public class MessageIdGeneratorTest {
     public void testGetNextId() {
         assertNotNull("Next Id", messageIdGenerator.getNextId());
         assertFalse(messageIdGenerator.getNextId().contains("?"));
+        assertEquals(20, messageIdGenerator.getNextId().length());
+    }
+
+    /**
+     * Test ids generated within the same millisecond and after clock goes back are ordered
+     */
+    @Test
+    public void testGenerateIsOrdered() {
+        long time = currentTimeMillis();
+        String first = messageIdGenerator.generate(time);
+        String second = messageIdGenerator.generate(time);
+        String third = messageIdGenerator.generate(time - 1000);
+        String fourth = messageIdGenerator.generate(time + 1);
+        assertTrue(first.compareTo(second) < 0);
+        assertTrue(second.compareTo(third) < 0);
+        assertTrue(third.compareTo(fourth) < 0);
+    }
+
+    /**
+     * Test ids generated for a batch are consecutive and ordered after single ids
+     */
+    @Test
+    public void testGenerateBatch() {
+        long time = currentTimeMillis();
+        String first = messageIdGenerator.generate(time);
+        String[] ids = messageIdGenerator.generate(time, 100);
+        assertEquals(100, ids.length);
+        assertTrue(first.compareTo(ids[0]) < 0);
+        for (int i = 1; i < ids.length; i++)
+            assertTrue(ids[i - 1].compareTo(ids[i]) < 0);
+        assertTrue(ids[99].compareTo(messageIdGenerator.generate(time)) < 0);
+        assertEquals(0, messageIdGenerator.getNextIds(0).length);
+    }
+
+    /**
+     * Test ids of different generators are different
+     */
+    @Test
+    public void testGenerateByDifferentGenerators() {
+        long time = currentTimeMillis();
+        assertNotEquals(messageIdGenerator.generate(time), new MessageIdGenerator().generate(time));
+    }
+
+    /**
+     * Test ids generated by concurrent threads are unique
+     */
+    @Test
+    public void testGetNextIdFromConcurrentThreads() throws Exception {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++)
+                    ids.add(messageIdGenerator.getNextId());
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(40_000, ids.size());
     }
 }
\ No newline at end of file
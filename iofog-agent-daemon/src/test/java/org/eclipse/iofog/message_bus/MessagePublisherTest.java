@@ -13,15 +13,23 @@
 package org.eclipse.iofog.message_bus;
 
 import org.eclipse.iofog.microservice.Route;
+import org.eclipse.iofog.status_reporter.StatusReporter;
+import org.eclipse.iofog.utils.configuration.Configuration;
 import org.eclipse.iofog.utils.logging.LoggingService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.MockedConstruction;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 
+import jakarta.jms.BytesMessage;
+import jakarta.jms.CompletionListener;
+import jakarta.jms.JMSException;
 import jakarta.jms.MessageProducer;
 import jakarta.jms.Session;
 import jakarta.jms.TextMessage;
@@ -29,12 +37,19 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
+import javax.json.Json;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.eclipse.iofog.message_bus.MessageBus.MODULE_NAME;
 import static org.eclipse.iofog.utils.logging.LoggingService.logError;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -55,7 +70,9 @@ public class MessagePublisherTest {
     private MockedStatic<LoggingService> loggingServiceMockedStatic;
     private MockedStatic<MessageBusServer> messageBusServerMockedStatic;
     private MockedConstruction<MessageArchive> messageArchiveMockedConstruction;
-    
+
+    @TempDir
+    File tempDir;
 
     @BeforeEach
     public void setUp() throws Exception {
@@ -71,14 +88,14 @@ public class MessagePublisherTest {
         messageBusServerMockedStatic = mockStatic(MessageBusServer.class);
         Mockito.when(message.getBytes()).thenReturn(bytes);
         Mockito.when(message.getTimestamp()).thenReturn(System.currentTimeMillis());
-        Mockito.when(MessageBusServer.createMessage(anyString())).thenReturn(textMessage);
+        Mockito.when(MessageBusServer.createMessage(anyString(), anyString())).thenReturn(textMessage);
         Mockito.when(route.getReceivers()).thenReturn(receivers);
         messageArchiveMockedConstruction = Mockito.mockConstruction(MessageArchive.class, (mock, context) -> {
             Mockito.doNothing().when(mock).save(Mockito.any(byte[].class), anyLong());
             Mockito.doNothing().when(mock).close();
             Mockito.when(mock.messageQuery(anyLong(), anyLong())).thenReturn(messageList);
         });
-        messagePublisher = spy(new MessagePublisher(name, route, messageProducers));
+        messagePublisher = spy(new MessagePublisher(name, route, messageProducers, 16, 0, false));
 
     }
 
@@ -99,6 +116,21 @@ public class MessagePublisherTest {
         assertEquals(name, messagePublisher.getName());
     }
 
+    /**
+     * Test publish throws exception and does not archive message with a field too long for the ioMessage header
+     */
+    @Test
+    public void throwsExceptionWhenPublishedMessageFieldIsTooLong() {
+        Mockito.when(message.getBytes()).thenThrow(new IllegalArgumentException("ioMessage field #15 is too long: 256 bytes"));
+        assertThrows(IllegalArgumentException.class, () -> messagePublisher.publish(message));
+        MessageArchive mock = messageArchiveMockedConstruction.constructed().get(0);
+        try {
+            Mockito.verify(mock, never()).save(any(byte[].class), anyLong());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
     /**
      * Test Publish
      */
@@ -117,6 +149,518 @@ public class MessagePublisherTest {
         }
     }
 
+    /**
+     * Test Publish sends bytes message when binary mode is on
+     */
+    @Test
+    public void testPublishWhenBinaryModeIsOn() {
+        try (MockedStatic<Configuration> configurationMockedStatic = mockStatic(Configuration.class)) {
+            MessageProducer messageProducer = mock(MessageProducer.class);
+            BytesMessage bytesMessage = mock(BytesMessage.class);
+            List<MessageProducer> producers = new ArrayList<>();
+            producers.add(messageProducer);
+            Mockito.when(Configuration.isMessageBusBinaryMode()).thenReturn(true);
+            Mockito.when(MessageBusServer.createMessage(anyString(), any(byte[].class))).thenReturn(bytesMessage);
+            MessagePublisher binaryPublisher = new MessagePublisher(name, route, producers, 16, 0, false);
+            binaryPublisher.publish(message);
+            binaryPublisher.sendQueued(0);
+            messageBusServerMockedStatic.verify(() -> MessageBusServer.createMessage(name, message.getBytes()));
+            Mockito.verify(message, never()).toJson();
+            Mockito.verify(messageProducer).send(eq(bytesMessage), anyInt(), anyInt(), anyLong());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test Publish encodes message once for all receivers of route and sends a new JMS message to each of them
+     */
+    @Test
+    public void testPublishEncodesMessageOnceForAllProducers() {
+        try (MockedStatic<StatusReporter> statusReporterMockedStatic = mockStatic(StatusReporter.class)) {
+            MessageBusStatus messageBusStatus = new MessageBusStatus();
+            Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(messageBusStatus);
+            TextMessage textMessage = mock(TextMessage.class);
+            Mockito.when(MessageBusServer.createMessage(anyString(), anyString())).thenReturn(textMessage);
+            Mockito.when(message.toJson()).thenReturn(Json.createObjectBuilder().add("id", "id").build());
+            List<MessageProducer> producers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                producers.add(mock(MessageProducer.class));
+            }
+            Mockito.doThrow(new JMSException("error")).when(producers.get(2)).send(any(), anyInt(), anyInt(), anyLong());
+            MessagePublisher fanOutPublisher = new MessagePublisher(name, route, producers, 16, 0, false);
+            fanOutPublisher.publish(message);
+            assertEquals(1, fanOutPublisher.sendQueued(0));
+            messageBusServerMockedStatic.verify(() -> MessageBusServer.createMessage(anyString(), anyString()), times(3));
+            Mockito.verify(message, times(1)).toJson();
+            for (MessageProducer producer : producers) {
+                Mockito.verify(producer).send(eq(textMessage), anyInt(), anyInt(), anyLong());
+            }
+            RouteFanOutStatus fanOutStatus = messageBusStatus.getRouteFanOut(name);
+            assertEquals(1, fanOutStatus.getPublishedMessages());
+            assertEquals(3, fanOutStatus.getReceivers());
+            assertEquals(2, fanOutStatus.getDeliveries());
+            assertEquals(1, fanOutStatus.getFailedDeliveries());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test Publish sends message at the JMS priority of its priority, lower ioMessage priority is higher JMS priority
+     */
+    @Test
+    public void testPublishWithPriority() {
+        try {
+            MessageProducer producer = mock(MessageProducer.class);
+            List<MessageProducer> producers = new ArrayList<>();
+            producers.add(producer);
+            Mockito.when(message.getPriority()).thenReturn((byte) 7);
+            Mockito.when(message.toJson()).thenReturn(Json.createObjectBuilder().add("id", "id").build());
+            MessagePublisher priorityPublisher = new MessagePublisher(name, route, producers, 16, 0, false);
+            priorityPublisher.publish(message);
+            priorityPublisher.sendQueued(0);
+            Mockito.verify(producer).send(any(), anyInt(), eq(2), anyLong());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test Publish delivers message in memory to receivers on this agent and sends it to the others
+     */
+    @Test
+    public void testPublishWithLocalReceivers() {
+        try (MockedStatic<StatusReporter> statusReporterMockedStatic = mockStatic(StatusReporter.class)) {
+            MessageBusStatus messageBusStatus = new MessageBusStatus();
+            Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(messageBusStatus);
+            Mockito.when(message.toJson()).thenReturn(Json.createObjectBuilder().add("id", "id").build());
+            MessageProducer localProducer = mock(MessageProducer.class);
+            MessageProducer remoteProducer = mock(MessageProducer.class);
+            MessageReceiver localReceiver = mock(MessageReceiver.class);
+            Mockito.when(localReceiver.deliverLocal(message)).thenReturn(true);
+            List<MessageProducer> producers = new ArrayList<>(List.of(localProducer, remoteProducer));
+            List<MessageReceiver> localReceivers = new ArrayList<>();
+            localReceivers.add(localReceiver);
+            localReceivers.add(null);
+            MessagePublisher localPublisher = new MessagePublisher(name, route, producers, 16, 0, false);
+            localPublisher.setLocalReceivers(localReceivers);
+            localPublisher.publish(message);
+            localPublisher.sendQueued(0);
+            Mockito.verify(localReceiver).deliverLocal(message);
+            Mockito.verify(localProducer, never()).send(any(), anyInt(), anyInt(), anyLong());
+            Mockito.verify(remoteProducer).send(any(), anyInt(), anyInt(), anyLong());
+            RouteFanOutStatus fanOutStatus = messageBusStatus.getRouteFanOut(name);
+            assertEquals(2, fanOutStatus.getDeliveries());
+            assertEquals(1, fanOutStatus.getLocalDeliveries());
+
+            Mockito.when(localReceiver.deliverLocal(message)).thenReturn(false);
+            localPublisher.publish(message);
+            localPublisher.sendQueued(0);
+            Mockito.verify(localProducer).send(any(), anyInt(), anyInt(), anyLong());
+            assertEquals(1, fanOutStatus.getLocalDeliveries());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test messages published while router is not connected are stored in outbox and sent in order after reconnect
+     */
+    @Test
+    public void testPublishWhileDisconnected() {
+        try (MockedStatic<Configuration> configurationMockedStatic = mockStatic(Configuration.class);
+             MockedStatic<StatusReporter> statusReporterMockedStatic = mockStatic(StatusReporter.class)) {
+            MessageBusStatus messageBusStatus = new MessageBusStatus();
+            Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(messageBusStatus);
+            Mockito.when(Configuration.getOutboxSize()).thenReturn(1);
+            Mockito.when(Configuration.getOutboxReplayRate()).thenReturn(1000);
+            Mockito.when(Configuration.getDiskDirectory()).thenReturn(tempDir.getPath() + File.separator);
+            MessageProducer producer = mock(MessageProducer.class);
+            confirmSends(producer, true);
+            List<MessageProducer> producers = new ArrayList<>(List.of(producer));
+            MessagePublisher outboxPublisher = new MessagePublisher(name, route, producers, 16, 0, false);
+            outboxPublisher.disconnect();
+            assertFalse(outboxPublisher.isConnected());
+
+            List<Message> messages = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                Message stored = new Message();
+                stored.setPublisher(name);
+                stored.setPriority((byte) (i + 1));
+                stored.setTimestamp(System.currentTimeMillis());
+                messages.add(stored);
+                outboxPublisher.publish(stored);
+            }
+            assertEquals(2, outboxPublisher.sendQueued(0));
+            Mockito.verify(producer, never()).send(any(), anyInt(), anyInt(), anyLong(), any(CompletionListener.class));
+            RouteFanOutStatus fanOutStatus = messageBusStatus.getRouteFanOut(name);
+            assertEquals(2, fanOutStatus.getOutboxDepth());
+
+            outboxPublisher.updateRoute(route, producers);
+            assertTrue(outboxPublisher.isConnected());
+            outboxPublisher.sendQueued(0);
+            InOrder inOrder = inOrder(producer);
+            inOrder.verify(producer).send(any(), anyInt(), eq(8), anyLong(), any(CompletionListener.class));
+            inOrder.verify(producer).send(any(), anyInt(), eq(7), anyLong(), any(CompletionListener.class));
+            assertEquals(0, fanOutStatus.getOutboxDepth());
+            assertEquals(2, fanOutStatus.getReplayedMessages());
+            assertEquals(2, fanOutStatus.getDeliveries());
+            outboxPublisher.close();
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test replayed messages stay in outbox until the router confirms them
+     */
+    @Test
+    public void testReplayWhenSendIsNotConfirmed() {
+        try (MockedStatic<Configuration> configurationMockedStatic = mockStatic(Configuration.class);
+             MockedStatic<StatusReporter> statusReporterMockedStatic = mockStatic(StatusReporter.class)) {
+            MessageBusStatus messageBusStatus = new MessageBusStatus();
+            Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(messageBusStatus);
+            mockOutbox();
+            MessageProducer producer = mock(MessageProducer.class);
+            confirmSends(producer, false);
+            List<MessageProducer> producers = new ArrayList<>(List.of(producer));
+            MessagePublisher outboxPublisher = new MessagePublisher(name, route, producers, 16, 0, false);
+            outboxPublisher.disconnect();
+            for (int i = 0; i < 2; i++) {
+                outboxPublisher.publish(message(i));
+            }
+            outboxPublisher.sendQueued(0);
+            outboxPublisher.updateRoute(route, producers);
+            outboxPublisher.sendQueued(0);
+            RouteFanOutStatus fanOutStatus = messageBusStatus.getRouteFanOut(name);
+            assertEquals(2, fanOutStatus.getOutboxDepth());
+            assertEquals(0, fanOutStatus.getReplayedMessages());
+
+            confirmSends(producer, true);
+            Thread.sleep(10);
+            outboxPublisher.sendQueued(0);
+            assertEquals(0, fanOutStatus.getOutboxDepth());
+            assertEquals(2, fanOutStatus.getReplayedMessages());
+            assertEquals(0, fanOutStatus.getOutboxDroppedMessages());
+            outboxPublisher.close();
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test message is put back in outbox when a send fails
+     */
+    @Test
+    public void testPublishWhenSendFails() {
+        try (MockedStatic<Configuration> configurationMockedStatic = mockStatic(Configuration.class);
+             MockedStatic<StatusReporter> statusReporterMockedStatic = mockStatic(StatusReporter.class)) {
+            MessageBusStatus messageBusStatus = new MessageBusStatus();
+            Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(messageBusStatus);
+            mockOutbox();
+            List<MessageProducer> producers = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                producers.add(mock(MessageProducer.class));
+                Mockito.doThrow(new JMSException("error")).when(producers.get(i)).send(any(), anyInt(), anyInt(), anyLong());
+            }
+            MessagePublisher outboxPublisher = new MessagePublisher(name, route, producers, 16, 0, false);
+            outboxPublisher.publish(message(0));
+            outboxPublisher.sendQueued(0);
+            RouteFanOutStatus fanOutStatus = messageBusStatus.getRouteFanOut(name);
+            assertEquals(2, fanOutStatus.getFailedDeliveries());
+            assertEquals(1, fanOutStatus.getOutboxDepth());
+            outboxPublisher.close();
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test message is put back in outbox for the receiver whose send failed and is replayed to that receiver only
+     */
+    @Test
+    public void testReplayOnlyToFailedReceivers() {
+        try (MockedStatic<Configuration> configurationMockedStatic = mockStatic(Configuration.class);
+             MockedStatic<StatusReporter> statusReporterMockedStatic = mockStatic(StatusReporter.class)) {
+            MessageBusStatus messageBusStatus = new MessageBusStatus();
+            Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(messageBusStatus);
+            mockOutbox();
+            Mockito.when(route.getReceivers()).thenReturn(List.of("first", "second"));
+            MessageProducer first = mock(MessageProducer.class);
+            MessageProducer second = mock(MessageProducer.class);
+            Mockito.doThrow(new JMSException("error")).when(second).send(any(), anyInt(), anyInt(), anyLong());
+            confirmSends(first, true);
+            confirmSends(second, true);
+            List<MessageProducer> producers = new ArrayList<>(List.of(first, second));
+            MessagePublisher outboxPublisher = new MessagePublisher(name, route, producers, 16, 0, false);
+            Message published = message(0);
+            published.setId("id");
+            outboxPublisher.publish(published);
+            outboxPublisher.sendQueued(0);
+            Mockito.verify(first).send(any(), anyInt(), anyInt(), anyLong());
+            RouteFanOutStatus fanOutStatus = messageBusStatus.getRouteFanOut(name);
+            assertEquals(1, fanOutStatus.getFailedDeliveries());
+            assertEquals(1, fanOutStatus.getOutboxDepth());
+
+            Thread.sleep(10);
+            outboxPublisher.sendQueued(0);
+            Mockito.verify(first, never()).send(any(), anyInt(), anyInt(), anyLong(), any(CompletionListener.class));
+            Mockito.verify(second).send(any(), anyInt(), anyInt(), anyLong(), any(CompletionListener.class));
+            assertEquals(0, fanOutStatus.getOutboxDepth());
+            assertEquals(1, fanOutStatus.getReplayedMessages());
+            outboxPublisher.close();
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test route update does not wait for the router to confirm replayed messages
+     */
+    @Test
+    public void testUpdateRouteDuringReplay() {
+        try (MockedStatic<Configuration> configurationMockedStatic = mockStatic(Configuration.class);
+             MockedStatic<StatusReporter> statusReporterMockedStatic = mockStatic(StatusReporter.class)) {
+            MessageBusStatus messageBusStatus = new MessageBusStatus();
+            Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(messageBusStatus);
+            mockOutbox();
+            MessageProducer producer = mock(MessageProducer.class);
+            CountDownLatch sent = new CountDownLatch(1);
+            List<CompletionListener> listeners = new ArrayList<>();
+            Mockito.doAnswer(invocation -> {
+                listeners.add(invocation.getArgument(4));
+                sent.countDown();
+                return null;
+            }).when(producer).send(any(), anyInt(), anyInt(), anyLong(), any(CompletionListener.class));
+            List<MessageProducer> producers = new ArrayList<>(List.of(producer));
+            MessagePublisher outboxPublisher = new MessagePublisher(name, route, producers, 16, 0, false);
+            outboxPublisher.disconnect();
+            outboxPublisher.publish(message(0));
+            outboxPublisher.sendQueued(0);
+            outboxPublisher.updateRoute(route, producers);
+
+            Thread replay = new Thread(() -> {
+                try {
+                    outboxPublisher.sendQueued(0);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            replay.start();
+            assertTrue(sent.await(5, TimeUnit.SECONDS));
+            long start = System.nanoTime();
+            outboxPublisher.updateRoute(route, producers);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+            assertTrue(replay.isAlive());
+
+            listeners.get(0).onCompletion(null);
+            replay.join(5000);
+            assertFalse(replay.isAlive());
+            assertEquals(0, messageBusStatus.getRouteFanOut(name).getOutboxDepth());
+            outboxPublisher.close();
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test message is counted as unrouted when route is not set up and there is no outbox
+     */
+    @Test
+    public void testPublishWhenRouteIsNotSetUp() {
+        try (MockedStatic<StatusReporter> statusReporterMockedStatic = mockStatic(StatusReporter.class)) {
+            MessageBusStatus messageBusStatus = new MessageBusStatus();
+            Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(messageBusStatus);
+            MessagePublisher unroutedPublisher = new MessagePublisher(name, route, null, 16, 0, false);
+            unroutedPublisher.publish(message);
+            assertEquals(1, unroutedPublisher.sendQueued(0));
+            assertEquals(1, messageBusStatus.getRouteFanOut(name).getUnroutedMessages());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    private void mockOutbox() {
+        Mockito.when(Configuration.getOutboxSize()).thenReturn(1);
+        Mockito.when(Configuration.getOutboxReplayRate()).thenReturn(1000);
+        Mockito.when(Configuration.getDiskDirectory()).thenReturn(tempDir.getPath() + File.separator);
+    }
+
+    private Message message(int priority) {
+        Message result = new Message();
+        result.setPublisher(name);
+        result.setPriority((byte) priority);
+        result.setTimestamp(System.currentTimeMillis());
+        return result;
+    }
+
+    /**
+     * answers asynchronous sends of the producer with a confirmation or a failure
+     */
+    private static void confirmSends(MessageProducer producer, boolean confirm) throws JMSException {
+        Mockito.doAnswer(invocation -> {
+            CompletionListener listener = invocation.getArgument(4);
+            if (confirm)
+                listener.onCompletion(invocation.getArgument(0));
+            else
+                listener.onException(invocation.getArgument(0), new JMSException("error"));
+            return null;
+        }).when(producer).send(any(), anyInt(), anyInt(), anyLong(), any(CompletionListener.class));
+    }
+
+    /**
+     * Test publishBatch archives batch once and sends every message to all receivers
+     */
+    @Test
+    public void testPublishBatch() {
+        try (MockedStatic<StatusReporter> statusReporterMockedStatic = mockStatic(StatusReporter.class)) {
+            MessageBusStatus messageBusStatus = new MessageBusStatus();
+            Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(messageBusStatus);
+            TextMessage textMessage = mock(TextMessage.class);
+            Mockito.when(MessageBusServer.createMessage(anyString(), anyString())).thenReturn(textMessage);
+            Mockito.when(message.toJson()).thenReturn(Json.createObjectBuilder().add("id", "id").build());
+            List<MessageProducer> producers = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                producers.add(mock(MessageProducer.class));
+            }
+            MessagePublisher batchPublisher = new MessagePublisher(name, route, producers, 16, 0, false);
+            assertEquals(3, batchPublisher.publishBatch(List.of(message, message, message)));
+            assertEquals(3, batchPublisher.sendQueued(0));
+            MessageArchive mock = messageArchiveMockedConstruction.constructed().get(1);
+            Mockito.verify(mock).save(any(byte[][].class), any(long[].class));
+            Mockito.verify(mock, never()).save(any(byte[].class), anyLong());
+            for (MessageProducer producer : producers) {
+                Mockito.verify(producer, times(3)).send(eq(textMessage), anyInt(), anyInt(), anyLong());
+            }
+            assertEquals(3, messageBusStatus.getRouteFanOut(name).getPublishedMessages());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test Publish rejects messages when send queue stays full and accepts them again after it is sent
+     */
+    @Test
+    public void testPublishWhenQueueIsFull() {
+        try (MockedStatic<StatusReporter> statusReporterMockedStatic = mockStatic(StatusReporter.class)) {
+            MessageBusStatus messageBusStatus = new MessageBusStatus();
+            Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(messageBusStatus);
+            MessagePublisher fullPublisher = new MessagePublisher(name, route, messageProducers, 2, 0, false);
+            assertTrue(fullPublisher.publish(message));
+            assertTrue(fullPublisher.publish(message));
+            assertFalse(fullPublisher.publish(message));
+            MessageArchive mock = messageArchiveMockedConstruction.constructed().get(1);
+            Mockito.verify(mock, times(2)).save(any(byte[].class), anyLong());
+            assertEquals(2, messageBusStatus.getPublishQueueDepth());
+            assertEquals(1, messageBusStatus.getPublishRejectedMessages());
+            assertEquals(1, messageBusStatus.getRouteFanOut(name).getRejectedMessages());
+
+            assertEquals(2, fullPublisher.sendQueued(0));
+            assertEquals(0, messageBusStatus.getPublishQueueDepth());
+            assertTrue(fullPublisher.publish(message));
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test publishBatch accepts the part of a batch which fits in the send queue
+     */
+    @Test
+    public void testPublishBatchWhenQueueIsFull() {
+        try (MockedStatic<StatusReporter> statusReporterMockedStatic = mockStatic(StatusReporter.class)) {
+            MessageBusStatus messageBusStatus = new MessageBusStatus();
+            Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(messageBusStatus);
+            MessagePublisher fullPublisher = new MessagePublisher(name, route, messageProducers, 2, 0, false);
+            assertEquals(2, fullPublisher.publishBatch(List.of(message, message, message)));
+            MessageArchive mock = messageArchiveMockedConstruction.constructed().get(1);
+            Mockito.verify(mock).save(argThat((byte[][] batch) -> batch.length == 2), any(long[].class));
+            assertEquals(1, messageBusStatus.getPublishRejectedMessages());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test Publish with send window does not wait for confirmations and retries failed sends
+     * with a new JMS message for every send
+     */
+    @Test
+    public void testPublishWithSendWindow() {
+        try (MockedStatic<StatusReporter> statusReporterMockedStatic = mockStatic(StatusReporter.class)) {
+            MessageBusStatus messageBusStatus = new MessageBusStatus();
+            Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(messageBusStatus);
+            TextMessage firstMessage = mock(TextMessage.class);
+            TextMessage secondMessage = mock(TextMessage.class);
+            TextMessage retryMessage = mock(TextMessage.class);
+            Mockito.when(MessageBusServer.createMessage(anyString(), anyString()))
+                    .thenReturn(firstMessage, secondMessage, retryMessage);
+            Mockito.when(message.toJson()).thenReturn(Json.createObjectBuilder().add("id", "id").build());
+            List<MessageProducer> producers = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                producers.add(mock(MessageProducer.class));
+            }
+            MessagePublisher asyncPublisher = new MessagePublisher(name, route, producers, 16, 4, false);
+            asyncPublisher.publish(message);
+            assertEquals(1, asyncPublisher.sendQueued(0));
+            ArgumentCaptor<CompletionListener> first = ArgumentCaptor.forClass(CompletionListener.class);
+            ArgumentCaptor<CompletionListener> second = ArgumentCaptor.forClass(CompletionListener.class);
+            Mockito.verify(producers.get(0)).send(eq(firstMessage), anyInt(), anyInt(), anyLong(), first.capture());
+            Mockito.verify(producers.get(1)).send(eq(secondMessage), anyInt(), anyInt(), anyLong(), second.capture());
+            Mockito.verify(producers.get(0), never()).send(any(), anyInt(), anyInt(), anyLong());
+            RouteFanOutStatus fanOutStatus = messageBusStatus.getRouteFanOut(name);
+            assertEquals(1, fanOutStatus.getPublishedMessages());
+            assertEquals(2, fanOutStatus.getInFlight());
+            assertEquals(0, fanOutStatus.getDeliveries());
+
+            first.getValue().onCompletion(firstMessage);
+            second.getValue().onException(secondMessage, new JMSException("error"));
+            assertEquals(0, fanOutStatus.getInFlight());
+            assertEquals(1, fanOutStatus.getDeliveries());
+            assertEquals(1, fanOutStatus.getRetriedSends());
+
+            assertEquals(0, asyncPublisher.sendQueued(0));
+            Mockito.verify(producers.get(1)).send(eq(retryMessage), anyInt(), anyInt(), anyLong(), second.capture());
+            Mockito.verify(message, times(1)).toJson();
+            second.getValue().onCompletion(retryMessage);
+            assertEquals(2, fanOutStatus.getDeliveries());
+            assertEquals(0, fanOutStatus.getFailedDeliveries());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test Publish with send window counts message as failed when all attempts fail
+     */
+    @Test
+    public void testPublishWithSendWindowWhenSendKeepsFailing() {
+        try (MockedStatic<StatusReporter> statusReporterMockedStatic = mockStatic(StatusReporter.class)) {
+            MessageBusStatus messageBusStatus = new MessageBusStatus();
+            Mockito.when(StatusReporter.getMessageBusStatus()).thenReturn(messageBusStatus);
+            Mockito.when(message.toJson()).thenReturn(Json.createObjectBuilder().add("id", "id").build());
+            MessageProducer producer = mock(MessageProducer.class);
+            Mockito.doThrow(new JMSException("error")).when(producer)
+                    .send(any(), anyInt(), anyInt(), anyLong(), any(CompletionListener.class));
+            List<MessageProducer> producers = new ArrayList<>();
+            producers.add(producer);
+            MessagePublisher asyncPublisher = new MessagePublisher(name, route, producers, 16, 4, false);
+            asyncPublisher.publish(message);
+            for (int i = 0; i < 4; i++) {
+                asyncPublisher.sendQueued(0);
+            }
+            Mockito.verify(producer, times(3)).send(any(), anyInt(), anyInt(), anyLong(), any(CompletionListener.class));
+            RouteFanOutStatus fanOutStatus = messageBusStatus.getRouteFanOut(name);
+            assertEquals(2, fanOutStatus.getRetriedSends());
+            assertEquals(1, fanOutStatus.getFailedDeliveries());
+            assertEquals(0, fanOutStatus.getInFlight());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
     /**
      * Test Publish throws exception when messageArchive save is called
      */
@@ -127,7 +671,7 @@ public class MessagePublisherTest {
             messageArchiveMockedConstruction = Mockito.mockConstruction(MessageArchive.class, (mock, context) -> {
                 Mockito.doThrow(Exception.class).when(mock).save(Mockito.any(byte[].class), anyLong());
             });
-            MessagePublisher messagePublisherSpy = spy(new MessagePublisher(name, route, messageProducers));
+            MessagePublisher messagePublisherSpy = spy(new MessagePublisher(name, route, messageProducers, 16, 0, false));
             messagePublisherSpy.publish(message);
             MessageArchive mock = messageArchiveMockedConstruction.constructed().get(0);
             Mockito.verify(mock, atLeastOnce()).save(any(byte[].class), anyLong());
@@ -181,7 +725,7 @@ public class MessagePublisherTest {
             messageArchiveMockedConstruction = Mockito.mockConstruction(MessageArchive.class, (mock, context) -> {
                 Mockito.doThrow(mock(RuntimeException.class)).when(mock).close();
             });
-            MessagePublisher messagePublisherSpy = spy(new MessagePublisher(name, route, messageProducers));
+            MessagePublisher messagePublisherSpy = spy(new MessagePublisher(name, route, messageProducers, 16, 0, false));
             messagePublisherSpy.close();
             MessageArchive mock = messageArchiveMockedConstruction.constructed().get(0);
             Mockito.verify(mock, atLeastOnce()).close();
@@ -0,0 +1,86 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageRateTest {
+    private static final long NOW = 1600000000000L;
+
+    private MessageRate messageRate;
+
+    @BeforeEach
+    public void setUp() {
+        messageRate = new MessageRate();
+    }
+
+    /**
+     * Test rate counts completed seconds of the window only
+     */
+    @Test
+    public void testGetRate() {
+        for (int second = 0; second < 60; second++) {
+            for (int i = 0; i < 10; i++)
+                messageRate.record(NOW + second * 1000L);
+        }
+        long now = NOW + 60 * 1000L;
+        messageRate.record(now);
+        assertEquals(10, messageRate.getRate(1, now), 0);
+        assertEquals(10, messageRate.getRate(10, now), 0);
+        assertEquals(10, messageRate.getRate(60, now), 0);
+    }
+
+    /**
+     * Test seconds older than the window are not counted
+     */
+    @Test
+    public void testGetRateOfOldMessages() {
+        for (int i = 0; i < 100; i++)
+            messageRate.record(NOW);
+        assertEquals(100, messageRate.getRate(1, NOW + 1000), 0);
+        assertEquals(10, messageRate.getRate(10, NOW + 1000), 0);
+        assertEquals(0, messageRate.getRate(1, NOW + 2000), 0);
+        assertEquals(0, messageRate.getRate(60, NOW + 62000), 0);
+    }
+
+    /**
+     * Test bucket of a second is reset when it is reused
+     */
+    @Test
+    public void testRecordReusesBucket() {
+        messageRate.record(NOW);
+        messageRate.record(NOW + 61000);
+        assertEquals(1, messageRate.getRate(1, NOW + 62000), 0);
+    }
+
+    /**
+     * Test messages recorded by concurrent threads are counted
+     */
+    @Test
+    public void testRecordFromConcurrentThreads() throws Exception {
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++)
+                    messageRate.record(NOW);
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(40_000, messageRate.getRate(1, NOW + 1000), 0);
+    }
+}
@@ -12,22 +12,31 @@
  */
 package org.eclipse.iofog.message_bus;
 
+import org.eclipse.iofog.utils.configuration.Configuration;
 import org.eclipse.iofog.utils.logging.LoggingService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.MockedConstruction;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import jakarta.jms.JMSException;
 import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageListener;
 import jakarta.jms.TextMessage;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -109,6 +118,41 @@ public class MessageReceiverTest {
     }
 
 
+    /**
+     * Test getMessages returns higher priority messages, with lower priority numbers, first
+     */
+    @Test
+    public void testGetMessagesInPriorityOrder() {
+        try (MockedStatic<MessageBusServer> messageBusServerMockedStatic = mockStatic(MessageBusServer.class)) {
+            Message telemetry = mock(Message.class);
+            Message alarm = mock(Message.class);
+            Mockito.when(telemetry.getPriority()).thenReturn((byte) 7);
+            TextMessage alarmMessage = mock(TextMessage.class);
+            Mockito.when(messageConsumer.receiveNoWait()).thenReturn(textMessage).thenReturn(alarmMessage).thenReturn(null);
+            Mockito.when(MessageBusServer.readMessage(textMessage)).thenReturn(telemetry);
+            Mockito.when(MessageBusServer.readMessage(alarmMessage)).thenReturn(alarm);
+            assertEquals(List.of(alarm, telemetry), messageReceiver.getMessages());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test getMessages returns at most max messages and keeps the rest for the next call
+     */
+    @Test
+    public void testGetMessagesWithMax() {
+        try {
+            Mockito.when(messageConsumer.receiveNoWait()).thenReturn(textMessage, textMessage, textMessage, null);
+            assertEquals(2, messageReceiver.getMessages(2).size());
+            Mockito.verify(messageConsumer, times(4)).receiveNoWait();
+            assertEquals(1, messageReceiver.getMessages(2).size());
+            assertEquals(0, messageReceiver.getMessages(2).size());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
     /**
      * Test getMessages When Listener is not null
      */
@@ -125,6 +169,142 @@ public class MessageReceiverTest {
         }
     }
 
+    /**
+     * Test message delivered on this agent is returned by getMessages
+     */
+    @Test
+    public void testDeliverLocal() {
+        try {
+            Message local = mock(Message.class);
+            Mockito.when(messageConsumer.receiveNoWait()).thenReturn(null);
+            assertTrue(messageReceiver.deliverLocal(local));
+            assertEquals(List.of(local), messageReceiver.getMessages());
+        } catch (Exception e) {
+            fail("This should not happen");
+        }
+    }
+
+    /**
+     * Test message delivered on this agent goes to real-time listener when enabled
+     */
+    @Test
+    public void testDeliverLocalWhenRealTimeReceivingIsEnabled() {
+        Message local = mock(Message.class);
+        messageReceiver.enableRealTimeReceiving();
+        assertTrue(messageReceiver.deliverLocal(local));
+        Mockito.verify(ioMessageListenerMockedConstruction.constructed().get(0)).deliver(local);
+    }
+
+    /**
+     * Test closed receiver does not take messages delivered on this agent
+     */
+    @Test
+    public void testDeliverLocalWhenReceiverIsClosed() {
+        messageReceiver.close();
+        assertFalse(messageReceiver.deliverLocal(mock(Message.class)));
+    }
+
+    /**
+     * Test message signal runs when a message is delivered on this agent
+     */
+    @Test
+    public void testDeliverLocalRunsMessageSignal() {
+        MessageReceiver receiver = new MessageReceiver(name, messageConsumer);
+        AtomicInteger signals = new AtomicInteger();
+        receiver.setMessageSignal(signals::incrementAndGet);
+        assertTrue(receiver.deliverLocal(mock(Message.class)));
+        assertEquals(1, signals.get());
+
+        receiver.setMessageSignal(null);
+        assertTrue(receiver.deliverLocal(mock(Message.class)));
+        assertEquals(1, signals.get());
+    }
+
+    /**
+     * Test router pushes messages while the message signal is set, and receiver takes them on request again after
+     */
+    @Test
+    public void testSetMessageSignal() throws Exception {
+        try (MockedStatic<MessageBusServer> messageBusServerMockedStatic = mockStatic(MessageBusServer.class)) {
+            Message arrived = mock(Message.class);
+            Mockito.when(MessageBusServer.readMessage(textMessage)).thenReturn(arrived);
+            MessageReceiver receiver = new MessageReceiver(name, messageConsumer);
+            AtomicInteger signals = new AtomicInteger();
+            receiver.setMessageSignal(signals::incrementAndGet);
+            ArgumentCaptor<MessageListener> listener = ArgumentCaptor.forClass(MessageListener.class);
+            Mockito.verify(messageConsumer).setMessageListener(listener.capture());
+            assertTrue(receiver.getMessages().isEmpty());
+            Mockito.verify(messageConsumer, never()).receiveNoWait();
+
+            listener.getValue().onMessage(textMessage);
+            Mockito.verify(textMessage).acknowledge();
+            assertEquals(1, signals.get());
+            assertEquals(List.of(arrived), receiver.getMessages());
+
+            receiver.setMessageSignal(null);
+            Mockito.verify(messageConsumer).setMessageListener(null);
+            receiver.getMessages();
+            Mockito.verify(messageConsumer, atLeastOnce()).receiveNoWait();
+        }
+    }
+
+    /**
+     * Test message with an id seen within the dedup window is dropped
+     */
+    @Test
+    public void testGetMessagesWhenMessageIsDuplicate() throws Exception {
+        try (MockedStatic<Configuration> configurationMockedStatic = mockStatic(Configuration.class);
+             MockedStatic<MessageBusServer> messageBusServerMockedStatic = mockStatic(MessageBusServer.class)) {
+            Mockito.when(Configuration.getDedupWindow()).thenReturn(60);
+            Mockito.when(Configuration.getDedupSize()).thenReturn(100);
+            messageReceiver = new MessageReceiver(name, messageConsumer);
+            Message first = mock(Message.class);
+            Message redelivered = mock(Message.class);
+            Message local = mock(Message.class);
+            Mockito.when(first.getId()).thenReturn("id");
+            Mockito.when(redelivered.getId()).thenReturn("id");
+            Mockito.when(local.getId()).thenReturn("id");
+            TextMessage redeliveredMessage = mock(TextMessage.class);
+            Mockito.when(messageConsumer.receiveNoWait()).thenReturn(textMessage).thenReturn(redeliveredMessage).thenReturn(null);
+            Mockito.when(MessageBusServer.readMessage(textMessage)).thenReturn(first);
+            Mockito.when(MessageBusServer.readMessage(redeliveredMessage)).thenReturn(redelivered);
+            assertEquals(List.of(first), messageReceiver.getMessages());
+            Mockito.verify(redeliveredMessage).acknowledge();
+            assertTrue(messageReceiver.deliverLocal(local));
+            assertTrue(messageReceiver.getMessages().isEmpty());
+        }
+    }
+
+    /**
+     * Test detached receiver keeps messages and receives from the consumer it is reattached to
+     */
+    @Test
+    public void testDetachAndReattach() throws Exception {
+        MessageConsumer newConsumer = mock(MessageConsumer.class);
+        messageReceiver.detach();
+        Mockito.verify(messageConsumer).close();
+        assertNull(messageReceiver.getConsumer());
+        assertTrue(messageReceiver.deliverLocal(mock(Message.class)));
+
+        messageReceiver.reattach(newConsumer);
+        assertEquals(newConsumer, messageReceiver.getConsumer());
+        Mockito.verify(newConsumer, Mockito.never()).setMessageListener(any());
+        assertEquals(1, messageReceiver.getMessages(10).size());
+        Mockito.verify(newConsumer).receiveNoWait();
+    }
+
+    /**
+     * Test real-time listener is set on the consumer the receiver is reattached to
+     */
+    @Test
+    public void testReattachWhenRealTimeReceivingIsEnabled() throws Exception {
+        MessageConsumer newConsumer = mock(MessageConsumer.class);
+        messageReceiver.enableRealTimeReceiving();
+        messageReceiver.detach();
+        messageReceiver.reattach(newConsumer);
+        Mockito.verify(newConsumer).setMessageListener(ioMessageListenerMockedConstruction.constructed().get(0));
+    }
+
     /**
      * Test getName
      */
@@ -17,7 +17,6 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.MockedConstruction;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -28,8 +27,6 @@ import javax.json.Json;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.Base64;
 
 import static java.lang.System.currentTimeMillis;
@@ -379,24 +376,15 @@ public class MessageTest {
     }
 
     /**
-     * Test throws exception when ByteArrayOutputStream object is created
+     * Test throws exception when a field does not fit its length in the ioMessage header
      */
     @Test
-    public void throwsExceptionWhenByteArrayOutputStreamIsCreatedInBytes() {
-        try {
-            MockedConstruction<ByteArrayOutputStream> byteArrayOutputStreamMockedConstruction =
-                    Mockito.mockConstructionWithAnswer(ByteArrayOutputStream.class, invocation -> {
-                throw new IOException();
-            });
-            message = spy(new Message(jsonObject));
-            byte[] rawByte = message.getBytes();
-            assertEquals(0, rawByte.length);
-            verify(LoggingService.class);
-            LoggingService.logError(eq(MODULE_NAME), eq("Error in getBytes"), any());
-            byteArrayOutputStreamMockedConstruction.close();
-        } catch (Exception e) {
-            fail("This should never happen");
-        }
+    public void throwsExceptionWhenFieldIsTooLongInBytes() {
+        message = new Message(jsonObject);
+        message.setInfoType("a".repeat(256));
+        assertThrows(IllegalArgumentException.class, () -> message.getBytes());
+        message.setInfoType("a".repeat(255));
+        assertEquals(message.getInfoType(), new Message(message.getBytes()).getInfoType());
     }
 
     /**
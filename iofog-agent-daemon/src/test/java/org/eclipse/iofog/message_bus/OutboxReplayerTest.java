@@ -0,0 +1,178 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.logging.LoggingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mockStatic;
+
+public class OutboxReplayerTest {
+    private static final String NAME = "publisher";
+    private static final long MiB = 1024 * 1024;
+    private static final int REPLAY_RATE = 1000000;
+
+    @TempDir
+    File tempDir;
+    private MockedStatic<LoggingService> loggingServiceMockedStatic;
+    private RouteOutbox outbox;
+    private RouteFanOutStatus fanOutStatus;
+    private OutboxReplayer replayer;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        loggingServiceMockedStatic = mockStatic(LoggingService.class);
+        outbox = new RouteOutbox(new File(tempDir, NAME), MiB, 0);
+        fanOutStatus = new MessageBusStatus().getRouteFanOut(NAME);
+        replayer = new OutboxReplayer(NAME, outbox, fanOutStatus, REPLAY_RATE);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        replayer.close();
+        loggingServiceMockedStatic.close();
+    }
+
+    private Message store(int sequenceNumber, List<String> receivers) {
+        Message message = new Message(NAME);
+        message.setId("id" + sequenceNumber);
+        message.setTimestamp(System.currentTimeMillis());
+        message.setSequenceNumber(sequenceNumber);
+        replayer.store(message.getBytes(), message.getTimestamp(), receivers);
+        return message;
+    }
+
+    private Message store(int sequenceNumber) {
+        return store(sequenceNumber, null);
+    }
+
+    private void replay(OutboxReplayer.Sender sender, BooleanSupplier connected) throws InterruptedException {
+        Thread.sleep(1);
+        OutboxReplayer.Replay replay = replayer.send(sender);
+        if (replay != null)
+            replayer.confirm(replay, connected);
+    }
+
+    /**
+     * Test confirmed messages are replayed in order and removed from the outbox
+     */
+    @Test
+    public void testReplayRemovesConfirmedMessages() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            store(i);
+        }
+        assertEquals(3, fanOutStatus.getOutboxDepth());
+        List<Integer> replayed = new ArrayList<>();
+        replay((message, bytes, owed) -> {
+            replayed.add(message.getSequenceNumber());
+            return new OutboxReplayer.Confirmation(0, false);
+        }, () -> true);
+        assertEquals(List.of(1, 2, 3), replayed);
+        assertTrue(replayer.isEmpty());
+        assertEquals(3, fanOutStatus.getReplayedMessages());
+        assertEquals(0, fanOutStatus.getOutboxDepth());
+    }
+
+    /**
+     * Test unconfirmed message is kept while the router is not connected
+     */
+    @Test
+    public void testReplayKeepsUnconfirmedMessageWhileDisconnected() throws Exception {
+        store(1);
+        for (int i = 0; i < 5; i++) {
+            replay((message, bytes, owed) -> new OutboxReplayer.Confirmation(0, true), () -> false);
+        }
+        assertFalse(replayer.isEmpty());
+        assertEquals(0, fanOutStatus.getReplayedMessages());
+        assertEquals(0, fanOutStatus.getOutboxDroppedMessages());
+    }
+
+    /**
+     * Test message failing every attempt while the router is connected is dropped from the outbox
+     */
+    @Test
+    public void testReplayDropsMessageAfterFailedAttempts() throws Exception {
+        store(1);
+        for (int i = 0; i < 3; i++) {
+            assertFalse(replayer.isEmpty());
+            replay((message, bytes, owed) -> new OutboxReplayer.Confirmation(0, true), () -> true);
+        }
+        assertTrue(replayer.isEmpty());
+        assertEquals(1, fanOutStatus.getOutboxDroppedMessages());
+    }
+
+    /**
+     * Test message stored for the receivers whose send failed is replayed to those receivers only
+     */
+    @Test
+    public void testReplayOnlyToOwedReceivers() throws Exception {
+        Message stored = store(1, List.of("second"));
+        replay((message, bytes, owed) -> {
+            assertArrayEquals(stored.getBytes(), bytes);
+            assertFalse(owed.test("first"));
+            assertTrue(owed.test("second"));
+            assertFalse(owed.test("third"));
+            return new OutboxReplayer.Confirmation(0, false);
+        }, () -> true);
+        assertTrue(replayer.isEmpty());
+        assertEquals(1, fanOutStatus.getReplayedMessages());
+    }
+
+    /**
+     * Test replayed message staying in the outbox is not sent again to the receivers which confirmed it
+     */
+    @Test
+    public void testReplayDoesNotResendToConfirmedReceivers() throws Exception {
+        store(1);
+        replay((message, bytes, owed) -> {
+            assertTrue(owed.test("first"));
+            assertTrue(owed.test("second"));
+            OutboxReplayer.Confirmation confirmation = new OutboxReplayer.Confirmation(2, false);
+            confirmation.confirm("first", true);
+            confirmation.confirm("second", false);
+            return confirmation;
+        }, () -> false);
+        assertFalse(replayer.isEmpty());
+
+        replay((message, bytes, owed) -> {
+            assertFalse(owed.test("first"));
+            assertTrue(owed.test("second"));
+            OutboxReplayer.Confirmation confirmation = new OutboxReplayer.Confirmation(1, false);
+            confirmation.confirm("second", true);
+            return confirmation;
+        }, () -> true);
+        assertTrue(replayer.isEmpty());
+        assertEquals(1, fanOutStatus.getReplayedMessages());
+    }
+
+    /**
+     * Test clear removes stored messages
+     */
+    @Test
+    public void testClear() {
+        store(1);
+        replayer.clear();
+        assertTrue(replayer.isEmpty());
+        assertEquals(0, fanOutStatus.getOutboxDepth());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.logging.LoggingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mockStatic;
+
+public class OutboxRetentionTest {
+    private static final long MiB = 1024 * 1024;
+
+    @TempDir
+    File tempDir;
+    private MockedStatic<LoggingService> loggingServiceMockedStatic;
+
+    @BeforeEach
+    public void setUp() {
+        loggingServiceMockedStatic = mockStatic(LoggingService.class);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        loggingServiceMockedStatic.close();
+    }
+
+    private RouteOutbox outbox(String name, long timestamp, int messages) throws Exception {
+        RouteOutbox outbox = new RouteOutbox(new File(tempDir, name), MiB, 0);
+        for (int i = 0; i < messages; i++) {
+            outbox.add(new byte[1000], timestamp + i);
+        }
+        return outbox;
+    }
+
+    /**
+     * Test size of all registered outboxes is counted
+     */
+    @Test
+    public void testGetOutboxSize() throws Exception {
+        OutboxRetention outboxRetention = new OutboxRetention();
+        RouteOutbox first = outbox("first", 100, 10);
+        RouteOutbox second = outbox("second", 200, 20);
+        outboxRetention.register(first);
+        outboxRetention.register(second);
+        assertEquals(first.getBytes() + second.getBytes(), outboxRetention.getOutboxSize());
+        assertTrue(outboxRetention.getOutboxSize() > 30 * 1000);
+
+        outboxRetention.unregister(first);
+        assertEquals(second.getBytes(), outboxRetention.getOutboxSize());
+        first.close();
+        second.close();
+    }
+
+    /**
+     * Test outbox with the oldest message is shrunk first and its removed messages are counted as dropped
+     */
+    @Test
+    public void testRemoveOldest() throws Exception {
+        OutboxRetention outboxRetention = new OutboxRetention();
+        RouteOutbox older = outbox("older", 100, 10);
+        RouteOutbox newer = outbox("newer", 200, 10);
+        outboxRetention.register(older);
+        outboxRetention.register(newer);
+        long newerBytes = newer.getBytes();
+
+        assertTrue(outboxRetention.removeOldest(1) > 0);
+        assertTrue(older.isEmpty());
+        assertEquals(10, older.takeDropped());
+        assertEquals(newerBytes, newer.getBytes());
+
+        assertTrue(outboxRetention.removeOldest(Long.MAX_VALUE) > 0);
+        assertTrue(newer.isEmpty());
+        assertEquals(0, outboxRetention.getOutboxSize());
+        older.close();
+        newer.close();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.eclipse.iofog.utils.configuration.Configuration;
+import org.eclipse.iofog.utils.logging.LoggingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+public class PayloadEncoderTest {
+    private static final String NAME = "publisher";
+
+    private MockedStatic<LoggingService> loggingServiceMockedStatic;
+    private MockedStatic<Configuration> configurationMockedStatic;
+    private MockedStatic<MessageBusServer> messageBusServerMockedStatic;
+    private RouteFanOutStatus fanOutStatus;
+    private PayloadEncoder encoder;
+
+    @BeforeEach
+    public void setUp() {
+        loggingServiceMockedStatic = mockStatic(LoggingService.class);
+        configurationMockedStatic = mockStatic(Configuration.class);
+        messageBusServerMockedStatic = mockStatic(MessageBusServer.class);
+        Mockito.when(Configuration.getPayloadCompression()).thenReturn(PayloadCodecs.OFF);
+        Mockito.when(Configuration.getPayloadCompressionThreshold()).thenReturn(1024);
+        fanOutStatus = new MessageBusStatus().getRouteFanOut(NAME);
+        encoder = new PayloadEncoder(NAME, fanOutStatus);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        loggingServiceMockedStatic.close();
+        configurationMockedStatic.close();
+        messageBusServerMockedStatic.close();
+    }
+
+    private Message message(int contentLength) {
+        Message message = new Message(NAME);
+        message.setTimestamp(System.currentTimeMillis());
+        message.setContentData(new byte[contentLength]);
+        return message;
+    }
+
+    /**
+     * Test message is sent as JSON text when binary mode and compression are off
+     */
+    @Test
+    public void testEncodeAsJson() throws Exception {
+        Message message = message(10);
+        byte[] bytes = message.getBytes();
+        PayloadEncoder.Payload payload = encoder.encode(message, bytes);
+        assertNotNull(payload);
+        assertSame(bytes, payload.bytes);
+        assertEquals(message.getTimestamp(), payload.timestamp);
+        String json = message.toJson().toString();
+        assertEquals(MessageCodec.utf8Length(json), payload.size);
+        payload.createMessage();
+        messageBusServerMockedStatic.verify(() -> MessageBusServer.createMessage(NAME, json));
+    }
+
+    /**
+     * Test message is sent as ioMessage bytes in binary mode
+     */
+    @Test
+    public void testEncodeAsBinary() throws Exception {
+        Mockito.when(Configuration.isMessageBusBinaryMode()).thenReturn(true);
+        Message message = message(10);
+        byte[] bytes = message.getBytes();
+        PayloadEncoder.Payload payload = encoder.encode(message, bytes);
+        assertEquals(bytes.length, payload.size);
+        payload.createMessage();
+        messageBusServerMockedStatic.verify(() -> MessageBusServer.createMessage(NAME, bytes));
+    }
+
+    /**
+     * Test message over the threshold is compressed and the compression is recorded
+     */
+    @Test
+    public void testEncodeCompressesMessageOverThreshold() throws Exception {
+        Mockito.when(Configuration.isMessageBusBinaryMode()).thenReturn(true);
+        Mockito.when(Configuration.getPayloadCompression()).thenReturn(DeflatePayloadCodec.NAME);
+        Message message = message(8000);
+        byte[] bytes = message.getBytes();
+        PayloadEncoder.Payload payload = encoder.encode(message, bytes);
+        assertTrue(payload.size < bytes.length);
+        payload.createMessage();
+        messageBusServerMockedStatic.verify(() -> MessageBusServer.createMessage(eq(NAME), any(byte[].class),
+                any(PayloadCodec.class), eq(bytes.length)));
+        assertEquals(1, fanOutStatus.getCompressions());
+        assertEquals(1, fanOutStatus.getCompressedMessages());
+        assertEquals(bytes.length, fanOutStatus.getUncompressedBytes());
+        assertEquals(payload.size, fanOutStatus.getCompressedBytes());
+    }
+
+    /**
+     * Test message over the threshold is sent as uncompressed JSON text when binary mode is off,
+     * as receivers in JSON mode only read text messages
+     */
+    @Test
+    public void testEncodeDoesNotCompressInJsonMode() throws Exception {
+        Mockito.when(Configuration.getPayloadCompression()).thenReturn(DeflatePayloadCodec.NAME);
+        Message message = message(8000);
+        encoder.encode(message, message.getBytes()).createMessage();
+        encoder.encode(message, message.getBytes()).createMessage();
+        messageBusServerMockedStatic.verify(() -> MessageBusServer.createMessage(NAME, message.toJson().toString()), times(2));
+        messageBusServerMockedStatic.verify(() -> MessageBusServer.createMessage(anyString(), any(byte[].class),
+                any(PayloadCodec.class), anyInt()), never());
+        assertEquals(0, fanOutStatus.getCompressions());
+        loggingServiceMockedStatic.verify(() -> LoggingService.logWarning(eq(MessageBus.MODULE_NAME), anyString()), times(1));
+    }
+
+    /**
+     * Test message under the threshold is not compressed
+     */
+    @Test
+    public void testEncodeDoesNotCompressMessageUnderThreshold() throws Exception {
+        Mockito.when(Configuration.isMessageBusBinaryMode()).thenReturn(true);
+        Mockito.when(Configuration.getPayloadCompression()).thenReturn(DeflatePayloadCodec.NAME);
+        Message message = message(10);
+        byte[] bytes = message.getBytes();
+        encoder.encode(message, bytes).createMessage();
+        messageBusServerMockedStatic.verify(() -> MessageBusServer.createMessage(NAME, bytes));
+        messageBusServerMockedStatic.verify(() -> MessageBusServer.createMessage(anyString(), any(byte[].class),
+                any(PayloadCodec.class), anyInt()), never());
+        assertEquals(0, fanOutStatus.getCompressions());
+    }
+}
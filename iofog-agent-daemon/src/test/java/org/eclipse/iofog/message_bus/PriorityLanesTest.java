@@ -0,0 +1,99 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PriorityLanesTest {
+
+    private Message message(int priority) {
+        Message message = new Message();
+        message.setPriority((byte) priority);
+        return message;
+    }
+
+    /**
+     * Test ioMessage priority is mapped onto lanes 0 to 9
+     */
+    @Test
+    public void testLane() {
+        assertEquals(0, PriorityLanes.lane((byte) 0));
+        assertEquals(5, PriorityLanes.lane((byte) 5));
+        assertEquals(9, PriorityLanes.lane((byte) 9));
+        assertEquals(9, PriorityLanes.lane((byte) 12));
+        assertEquals(9, PriorityLanes.lane((byte) 200));
+    }
+
+    /**
+     * Test ioMessage priority 0, the most urgent, is sent at the highest JMS priority
+     */
+    @Test
+    public void testJmsPriority() {
+        assertEquals(9, PriorityLanes.jmsPriority((byte) 0));
+        assertEquals(4, PriorityLanes.jmsPriority((byte) 5));
+        assertEquals(0, PriorityLanes.jmsPriority((byte) 9));
+        assertEquals(0, PriorityLanes.jmsPriority((byte) 200));
+    }
+
+    /**
+     * Test lower priority number is taken first and same priority in the order added
+     */
+    @Test
+    public void testPoll() {
+        PriorityLanes lanes = new PriorityLanes();
+        Message first = message(7);
+        Message alarm = message(1);
+        Message second = message(7);
+        lanes.add(first);
+        lanes.add(alarm);
+        lanes.add(second);
+        assertEquals(3, lanes.size());
+        assertSame(alarm, lanes.poll());
+        assertSame(first, lanes.poll());
+        assertSame(second, lanes.poll());
+        assertNull(lanes.poll());
+        assertEquals(0, lanes.size());
+    }
+
+    /**
+     * Test lower priority is taken while higher priorities are backlogged
+     */
+    @Test
+    public void testPollDoesNotStarveLowerPriority() {
+        PriorityLanes lanes = new PriorityLanes();
+        Message telemetry = message(9);
+        lanes.add(telemetry);
+        for (int i = 0; i < 2 * PriorityLanes.FAIRNESS_INTERVAL; i++) {
+            lanes.add(message(0));
+        }
+        for (int i = 1; i < PriorityLanes.FAIRNESS_INTERVAL; i++) {
+            assertEquals(0, lanes.poll().getPriority());
+        }
+        assertSame(telemetry, lanes.poll());
+        assertEquals(PriorityLanes.FAIRNESS_INTERVAL + 1, lanes.size());
+    }
+
+    /**
+     * Test clear
+     */
+    @Test
+    public void testClear() {
+        PriorityLanes lanes = new PriorityLanes();
+        lanes.add(message(3));
+        lanes.clear();
+        assertEquals(0, lanes.size());
+        assertNull(lanes.poll());
+    }
+}
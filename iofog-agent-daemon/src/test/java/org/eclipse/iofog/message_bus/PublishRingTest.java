@@ -0,0 +1,132 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PublishRingTest {
+
+    /**
+     * Test capacity is rounded up to a power of two
+     */
+    @Test
+    public void testCapacity() {
+        assertEquals(1, new PublishRing<Integer>(0).capacity());
+        assertEquals(4, new PublishRing<Integer>(3).capacity());
+        assertEquals(1024, new PublishRing<Integer>(1024).capacity());
+    }
+
+    /**
+     * Test elements are taken in the order they were offered
+     */
+    @Test
+    public void testOfferAndDrain() throws Exception {
+        PublishRing<Integer> ring = new PublishRing<>(4);
+        assertTrue(ring.offer(List.of(1, 2), 0));
+        assertTrue(ring.offer(List.of(3), 0));
+        assertEquals(3, ring.size());
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, ring.drainTo(drained, 2, 0));
+        assertEquals(1, ring.drainTo(drained, 2, 0));
+        assertEquals(List.of(1, 2, 3), drained);
+        assertEquals(0, ring.size());
+        assertEquals(0, ring.drainTo(drained, 2, 0));
+    }
+
+    /**
+     * Test offer is rejected when ring stays full
+     */
+    @Test
+    public void testOfferWhenFull() throws Exception {
+        PublishRing<Integer> ring = new PublishRing<>(2);
+        assertTrue(ring.offer(List.of(1), 0));
+        assertFalse(ring.offer(List.of(2, 3), 10));
+        assertFalse(ring.offer(List.of(2, 3, 4), 0));
+        assertTrue(ring.offer(List.of(2), 0));
+        List<Integer> drained = new ArrayList<>();
+        ring.drainTo(drained, 1, 0);
+        assertTrue(ring.offer(List.of(3), 0));
+        ring.drainTo(drained, 2, 0);
+        assertEquals(List.of(1, 2, 3), drained);
+    }
+
+    /**
+     * Test waiting consumer is woken up by offer
+     */
+    @Test
+    public void testDrainWaitsForOffer() throws Exception {
+        PublishRing<Integer> ring = new PublishRing<>(2);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Integer>> consumer = executor.submit(() -> {
+                List<Integer> drained = new ArrayList<>();
+                ring.drainTo(drained, 2, 10_000);
+                return drained;
+            });
+            Thread.sleep(50);
+            assertTrue(ring.offer(List.of(1), 0));
+            assertEquals(List.of(1), consumer.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test elements of concurrent producers are all taken once and in the order of each producer
+     */
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        int producers = 4;
+        int count = 10000;
+        PublishRing<int[]> ring = new PublishRing<>(64);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < count; i++) {
+                        if (!ring.offer(List.of(new int[]{producer, i}), 10_000))
+                            throw new IllegalStateException("offer timed out");
+                    }
+                    return null;
+                }));
+            }
+            int[] next = new int[producers];
+            List<int[]> drained = new ArrayList<>();
+            int received = 0;
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (received < producers * count && System.currentTimeMillis() < deadline) {
+                drained.clear();
+                received += ring.drainTo(drained, 16, 100);
+                for (int[] element : drained)
+                    assertEquals(next[element[0]]++, element[1]);
+            }
+            for (Future<?> future : futures)
+                future.get(5, TimeUnit.SECONDS);
+            assertEquals(producers * count, received);
+            assertEquals(0, ring.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
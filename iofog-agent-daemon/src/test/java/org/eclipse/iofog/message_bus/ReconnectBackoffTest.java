@@ -0,0 +1,54 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReconnectBackoffTest {
+
+    private static void assertDelay(long delay, long expected) {
+        assertTrue(delay >= expected / 2 && delay <= expected, "delay " + delay + " not in half of " + expected);
+    }
+
+    /**
+     * Test delay doubles with every attempt up to the maximum
+     */
+    @Test
+    public void testNextDelay() {
+        ReconnectBackoff backoff = new ReconnectBackoff(1000, 60000);
+        assertDelay(backoff.nextDelay(), 1000);
+        assertDelay(backoff.nextDelay(), 2000);
+        assertDelay(backoff.nextDelay(), 4000);
+        for (int i = 0; i < 100; i++) {
+            backoff.nextDelay();
+        }
+        assertDelay(backoff.nextDelay(), 60000);
+        assertEquals(104, backoff.getFailures());
+    }
+
+    /**
+     * Test delay starts again from the initial delay after reset
+     */
+    @Test
+    public void testReset() {
+        ReconnectBackoff backoff = new ReconnectBackoff(1000, 60000);
+        for (int i = 0; i < 10; i++) {
+            backoff.nextDelay();
+        }
+        backoff.reset();
+        assertEquals(0, backoff.getFailures());
+        assertDelay(backoff.nextDelay(), 1000);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * *******************************************************************************
+ *  * Copyright (c) 2018-2024 Edgeworx, Inc.
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Eclipse Public License v. 2.0 which is available at
+ *  * http://www.eclipse.org/legal/epl-2.0
+ *  *
+ *  * SPDX-License-Identifier: EPL-2.0
+ *  *******************************************************************************
+ *
+ */
+package org.eclipse.iofog.message_bus;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteOutboxTest {
+    private static final long MiB = 1024 * 1024;
+
+    @TempDir
+    File tempDir;
+
+    private static byte[] message(int id, int length) {
+        byte[] message = new byte[length];
+        message[0] = (byte) id;
+        return message;
+    }
+
+    /**
+     * Test messages are read in the order they were added, also after the outbox is reopened
+     */
+    @Test
+    public void testPollAfterReopen() throws Exception {
+        RouteOutbox outbox = new RouteOutbox(tempDir, MiB, 0);
+        for (int i = 0; i < 10; i++) {
+            outbox.add(message(i, 3), System.currentTimeMillis());
+        }
+        assertEquals(10, outbox.size());
+        List<byte[]> messages = outbox.poll(4);
+        assertEquals(4, messages.size());
+        assertEquals(3, messages.get(3)[0]);
+        outbox.close();
+
+        outbox = new RouteOutbox(tempDir, MiB, 0);
+        assertEquals(6, outbox.size());
+        messages = outbox.poll(100);
+        assertEquals(6, messages.size());
+        assertEquals(4, messages.get(0)[0]);
+        assertEquals(9, messages.get(5)[0]);
+        assertTrue(outbox.isEmpty());
+        assertEquals(0, tempDir.listFiles().length);
+        outbox.close();
+    }
+
+    /**
+     * Test oldest messages are dropped when outbox is over its size
+     */
+    @Test
+    public void testAddWhenOutboxIsFull() throws Exception {
+        RouteOutbox outbox = new RouteOutbox(tempDir, MiB / 4, 0);
+        for (int i = 0; i < 1000; i++) {
+            outbox.add(message(i, 1000), System.currentTimeMillis());
+        }
+        int dropped = outbox.takeDropped();
+        assertTrue(dropped > 0);
+        assertEquals(1000, dropped + outbox.size());
+        assertEquals(0, outbox.takeDropped());
+        List<byte[]> messages = outbox.poll(1000);
+        assertEquals(1000 - dropped, messages.size());
+        assertEquals((byte) 999, messages.get(messages.size() - 1)[0]);
+        outbox.close();
+    }
+
+    /**
+     * Test messages older than max age are dropped instead of read
+     */
+    @Test
+    public void testPollWhenMessageIsExpired() throws Exception {
+        RouteOutbox outbox = new RouteOutbox(tempDir, MiB, 1000);
+        outbox.add(message(1, 1), System.currentTimeMillis() - 5000);
+        outbox.add(message(2, 1), System.currentTimeMillis());
+        List<byte[]> messages = outbox.poll(10);
+        assertEquals(1, messages.size());
+        assertEquals(2, messages.get(0)[0]);
+        assertEquals(1, outbox.takeDropped());
+        outbox.close();
+    }
+
+    /**
+     * Test incomplete last record left by a crash is dropped when outbox is reopened
+     */
+    @Test
+    public void testReopenWithIncompleteRecord() throws Exception {
+        RouteOutbox outbox = new RouteOutbox(tempDir, MiB, 0);
+        outbox.add(message(7, 2), 1);
+        outbox.add(message(8, 2), 2);
+        outbox.close();
+        File segment = tempDir.listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        outbox = new RouteOutbox(tempDir, MiB, 0);
+        assertEquals(1, outbox.size());
+        outbox.add(message(9, 1), 3);
+        List<byte[]> messages = outbox.poll(10);
+        assertEquals(2, messages.size());
+        assertEquals(7, messages.get(0)[0]);
+        assertEquals(9, messages.get(1)[0]);
+        outbox.close();
+    }
+
+    /**
+     * Test peeked messages stay in the outbox until they are removed, also after the outbox is reopened
+     */
+    @Test
+    public void testPeekAndRemove() throws Exception {
+        RouteOutbox outbox = new RouteOutbox(tempDir, MiB, 0);
+        for (int i = 0; i < 5; i++) {
+            outbox.add(message(i, 3), System.currentTimeMillis());
+        }
+        assertEquals(3, outbox.peek(3).size());
+        List<byte[]> messages = outbox.peek(3);
+        assertEquals(0, messages.get(0)[0]);
+        assertEquals(5, outbox.size());
+        outbox.remove(2);
+        assertEquals(3, outbox.size());
+        outbox.close();
+
+        outbox = new RouteOutbox(tempDir, MiB, 0);
+        messages = outbox.peek(10);
+        assertEquals(3, messages.size());
+        assertEquals(2, messages.get(0)[0]);
+        outbox.remove(messages.size());
+        assertTrue(outbox.isEmpty());
+        outbox.close();
+    }
+
+    /**
+     * Test clear removes all messages
+     */
+    @Test
+    public void testClear() throws Exception {
+        RouteOutbox outbox = new RouteOutbox(tempDir, MiB, 0);
+        outbox.add(message(1, 10), System.currentTimeMillis());
+        outbox.clear();
+        assertTrue(outbox.isEmpty());
+        assertTrue(outbox.poll(10).isEmpty());
+        assertEquals(0, tempDir.listFiles().length);
+        outbox.close();
+    }
+}
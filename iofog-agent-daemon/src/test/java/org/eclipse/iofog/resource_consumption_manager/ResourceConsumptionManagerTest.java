@@ -14,6 +14,8 @@ package org.eclipse.iofog.resource_consumption_manager;
 
 import org.eclipse.iofog.command_line.util.CommandShellExecutor;
 import org.eclipse.iofog.command_line.util.CommandShellResultSet;
+import org.eclipse.iofog.message_bus.ArchiveRetention;
+import org.eclipse.iofog.message_bus.OutboxRetention;
 import org.eclipse.iofog.status_reporter.StatusReporter;
 import org.eclipse.iofog.utils.Constants;
 import org.eclipse.iofog.utils.configuration.Configuration;
@@ -28,7 +30,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
-import java.io.*;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -48,8 +49,6 @@ import static org.mockito.Mockito.*;
 public class ResourceConsumptionManagerTest {
     private ResourceConsumptionManager resourceConsumptionManager;
     private static final String MODULE_NAME = "Resource Consumption Manager";
-    private File dir = null;
-    private File tagFile = null;
     private CommandShellResultSet<List<String>, List<String>> resultSetWithPath = null;
     private List<String> error;
     private List<String> value;
@@ -81,12 +80,6 @@ public class ResourceConsumptionManagerTest {
         configurationMockedStatic.close();
         commandShellExecutorMockedStatic.close();
         statusReporterMockedStatic.close();
-        if(tagFile != null && tagFile.exists()){
-            tagFile.delete();
-        }
-        if(dir != null && dir.exists()){
-            dir.delete();
-        }
         if (method != null)
             method.setAccessible(false);
         resultSetWithPath = null;
@@ -181,113 +174,30 @@ public class ResourceConsumptionManagerTest {
     }
 
     /**
-     * Test DirectorySize method when file don't exist then return length 0
-     */
-    @Test
-    public void testDirectorySizeWhenFileDontExist() throws Exception{
-        method = ResourceConsumptionManager.class.getDeclaredMethod("directorySize", String.class);
-        method.setAccessible(true);
-        long output = (long) method.invoke(resourceConsumptionManager, "file");
-        assertEquals(0f, output,0f);
-        Mockito.verify(LoggingService.class, Mockito.atLeastOnce());
-        LoggingService.logDebug(MODULE_NAME,
-                "Inside get directory size");
-    }
-
-    /**
-     * Test DirectorySize method when file don't exist then return length 0
-     */
-    @Test
-    public void testDirectorySizeWhenFileExist() throws Exception{
-        method = ResourceConsumptionManager.class.getDeclaredMethod("directorySize", String.class);
-        method.setAccessible(true);
-        tagFile = new File("file");
-        FileWriter fw=new FileWriter(tagFile);
-        fw.write("Token");
-        fw.close();
-        long output = (long) method.invoke(resourceConsumptionManager, "file");
-        assertEquals(5f, output,0f);
-        Mockito.verify(LoggingService.class, Mockito.atLeastOnce());
-        LoggingService.logDebug(MODULE_NAME,
-                "Inside get directory size");
-    }
-
-    /**
-     * Test DirectorySize method when directory exist without file then return length 0
-     */
-    @Test
-    public void testDirectorySizeWhenDirectoryExist() throws Exception{
-        method = ResourceConsumptionManager.class.getDeclaredMethod("directorySize", String.class);
-        method.setAccessible(true);
-        dir = new File("dir");
-        dir.mkdirs();
-        long output = (long) method.invoke(resourceConsumptionManager, "dir");
-        assertEquals(0f, output,0f);
-    }
-
-    /**
-     * Test DirectorySize method when directory exist with empty file then return length 0
-     */
-    @Test
-    public void testDirectorySizeWhenDirectoryWithEmptyFileExist() throws Exception{
-        method = ResourceConsumptionManager.class.getDeclaredMethod("directorySize", String.class);
-        method.setAccessible(true);
-        dir = new File("emptyDir");
-        dir.mkdirs();
-        tagFile=new File("emptyDir","emptyFile.txt");
-        tagFile.createNewFile();
-        long output = (long) method.invoke(resourceConsumptionManager, "emptyDir");
-        assertEquals(0f, output,0f);
-        Mockito.verify(LoggingService.class, Mockito.atLeastOnce());
-        LoggingService.logDebug(MODULE_NAME,
-                "Inside get directory size");
-        Mockito.verify(LoggingService.class, Mockito.atLeastOnce());
-        LoggingService.logDebug(MODULE_NAME,
-                "Finished directory size : " + output);
-
-    }
-
-    /**
-     * Test DirectorySize method when file exist then return length 0
-     */
-    @Test
-    public void testDirectorySizeWhenDirectoryWithFileContentExist() throws Exception{
-        method = ResourceConsumptionManager.class.getDeclaredMethod("directorySize", String.class);
-        method.setAccessible(true);
-        dir = new File("dir");
-        dir.mkdirs();
-        tagFile=new File("dir","newFile.txt");
-        tagFile.createNewFile();
-        FileWriter fw=new FileWriter(tagFile);
-        fw.write("Token");
-        fw.close();
-        long output = (long) method.invoke(resourceConsumptionManager, "dir");
-        assertEquals(5f, output,0f);
-        Mockito.verify(LoggingService.class, Mockito.atLeastOnce());
-        LoggingService.logDebug(MODULE_NAME,
-                "Inside get directory size");
-        Mockito.verify(LoggingService.class, Mockito.atLeastOnce());
-        LoggingService.logDebug(MODULE_NAME,
-                "Finished directory size : " + output);
-    }
-
-    /**
-     * Test removeArchives method
+     * Test removeArchives method removes archives, then outbox messages if that is not enough
      */
     @Test
     public void testRemoveArchives() throws Exception{
-        float amount = 0f;
-        method = ResourceConsumptionManager.class.getDeclaredMethod("removeArchives", float.class);
-        method.setAccessible(true);
-        method.invoke(resourceConsumptionManager, amount);
-        Mockito.verify(LoggingService.class, Mockito.atLeastOnce());
-        LoggingService.logDebug(MODULE_NAME,
-                "Start remove archives : " + amount);
-        Mockito.verify(LoggingService.class, Mockito.atLeastOnce());
-        LoggingService.logDebug(MODULE_NAME,
-                "Finished remove archives : ");
-        Mockito.verify(Configuration.class, Mockito.atLeastOnce());
-        Configuration.getDiskDirectory();
+        float amount = 100f;
+        ArchiveRetention archiveRetention = mock(ArchiveRetention.class);
+        OutboxRetention outboxRetention = mock(OutboxRetention.class);
+        Mockito.when(archiveRetention.removeOldest(100L)).thenReturn(40L);
+        try (MockedStatic<ArchiveRetention> archiveRetentionMockedStatic = Mockito.mockStatic(ArchiveRetention.class);
+             MockedStatic<OutboxRetention> outboxRetentionMockedStatic = Mockito.mockStatic(OutboxRetention.class)) {
+            archiveRetentionMockedStatic.when(ArchiveRetention::getInstance).thenReturn(archiveRetention);
+            outboxRetentionMockedStatic.when(OutboxRetention::getInstance).thenReturn(outboxRetention);
+            method = ResourceConsumptionManager.class.getDeclaredMethod("removeArchives", float.class);
+            method.setAccessible(true);
+            method.invoke(resourceConsumptionManager, amount);
+            Mockito.verify(LoggingService.class, Mockito.atLeastOnce());
+            LoggingService.logDebug(MODULE_NAME,
+                    "Start remove archives : " + amount);
+            Mockito.verify(LoggingService.class, Mockito.atLeastOnce());
+            LoggingService.logDebug(MODULE_NAME,
+                    "Finished remove archives : ");
+            Mockito.verify(archiveRetention).removeOldest(100L);
+            Mockito.verify(outboxRetention).removeOldest(60L);
+        }
     }
 
     /**